@@ -1,7 +1,7 @@
 package clientAPI;
 
 import com.google.gson.Gson;
-import model.GameData;
+import model.GameSummary;
 import model.request.CreateGameRequest;
 import model.request.JoinGameRequest;
 import model.request.LoginRequest;
@@ -15,6 +15,8 @@ import java.io.OutputStream;
 import java.net.HttpURLConnection;
 import java.net.URI;
 import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 
 public class ServerFacade {
@@ -101,16 +103,37 @@ public class ServerFacade {
     // Game Methods ///////////////////////////////////////////////////////////////////////////////
 
     /**
-     * Get a list of all games (metadata and state) that exist on the server
+     * Get the first page of games (metadata only) that exist on the server, oldest first
      * (requires authentication)
      *
      * @return the list of games
      * @throws ResponseException if the request fails
      */
-    public ArrayList<GameData> listGames() throws ResponseException {
+    public ArrayList<GameSummary> listGames() throws ResponseException {
+        return this.listGames(null, null).games();
+    }
+
+    /**
+     * Get a page of games (metadata only) that exist on the server, oldest first
+     * (requires authentication)
+     *
+     * @param cursor the nextCursor of the previous page, or null for the first page
+     * @param status only list games with this status (OPEN, IN_PROGRESS or OVER), or null for all games
+     * @return the page of games, with the cursor of the next page (null if this is the last page)
+     * @throws ResponseException if the request fails
+     */
+    public ListGamesResponse listGames(Integer cursor, String status) throws ResponseException {
+        StringBuilder path = new StringBuilder("/game");
+        String separator = "?";
+        if (cursor != null) {
+            path.append(separator).append("cursor=").append(cursor);
+            separator = "&";
+        }
+        if (status != null) {
+            path.append(separator).append("status=").append(URLEncoder.encode(status, StandardCharsets.UTF_8));
+        }
         return this.makeRequest(
-                        "GET", "/game", null, ListGamesResponse.class, true)
-                .games();
+                "GET", path.toString(), null, ListGamesResponse.class, true);
     }
 
     /**
@@ -122,7 +145,20 @@ public class ServerFacade {
      * @throws ResponseException if the request fails
      */
     public int createGame(String gameName) throws ResponseException {
-        CreateGameRequest req = new CreateGameRequest(gameName);
+        return this.createGame(gameName, null);
+    }
+
+    /**
+     * Create a new game on the server with a bot player in one seat
+     * (requires authentication)
+     *
+     * @param gameName the display name of the new game
+     * @param botColor the color team the bot plays ("WHITE" or "BLACK"), or null for no bot
+     * @return the gameID of the new game
+     * @throws ResponseException if the request fails
+     */
+    public int createGame(String gameName, String botColor) throws ResponseException {
+        CreateGameRequest req = new CreateGameRequest(gameName, botColor);
         return this.makeRequest("POST", "/game", req, CreateGameResponse.class, true)
                 .gameID();
     }
@@ -2,29 +2,59 @@ package clientAPI;
 
 import chess.ChessGame;
 import chess.ChessMove;
+import chess.InvalidMoveException;
 import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import model.GameData;
+import webSocketMessages.BinaryCodec;
 import webSocketMessages.serverMessages.ErrorMessage;
+import webSocketMessages.serverMessages.GameUpdateMessage;
 import webSocketMessages.serverMessages.LoadGameMessage;
+import webSocketMessages.serverMessages.MoveAppliedMessage;
 import webSocketMessages.serverMessages.NotificationMessage;
 import webSocketMessages.serverMessages.ServerMessage;
 import webSocketMessages.userCommands.*;
 
 import javax.websocket.*;
+import java.io.IOException;
 import java.net.URI;
+import java.nio.ByteBuffer;
 
 public class WebSocketFacade extends Endpoint implements MessageHandler.Whole<String> {
     public Session session;
     private final GameHandler gameHandler;
     private final String authToken;
     private final int gameID;
+    // the game as of the last LOAD_GAME and the moves applied since (null until the first LOAD_GAME)
+    private GameData game;
+    // whether a RESYNC was sent and its LOAD_GAME has not yet arrived
+    private boolean isAwaitingResync;
 
     public WebSocketFacade(String webSocketURL, String authToken, GameHandler gameHandler, int gameID) throws Exception {
+        // set before connecting, since messages can arrive as soon as the session is open
+        this.authToken = authToken;
+        this.gameHandler = gameHandler;
+        this.gameID = gameID;
         WebSocketContainer container = ContainerProvider.getWebSocketContainer();
-        this.session = container.connectToServer(this, (new URI(webSocketURL + "/connect")));
+        // ask for just the move after each move, applied to the game last loaded,
+        // in binary frames (see BinaryCodec) rather than JSON
+        this.session = container.connectToServer(this,
+                (new URI(webSocketURL + "/connect?updates=delta&encoding=binary")));
         this.session.addMessageHandler(this);
+        this.session.addMessageHandler(byte[].class, this::onBinaryMessage);
+    }
+
+    /**
+     * Use a session that is already connected (with updates=delta and encoding=binary)
+     */
+    public WebSocketFacade(Session session, String authToken, GameHandler gameHandler, int gameID) {
         this.authToken = authToken;
         this.gameHandler = gameHandler;
         this.gameID = gameID;
+        this.session = session;
+        this.session.addMessageHandler(this);
+        this.session.addMessageHandler(byte[].class, this::onBinaryMessage);
     }
 
     @Override
@@ -33,46 +63,123 @@ public class WebSocketFacade extends Endpoint implements MessageHandler.Whole<St
 
     // Incoming Messages //////////////////////////////////////////////////////////////////////////
 
+    /**
+     * Handle a JSON text message (parsing the text only once)
+     */
     @Override
     public void onMessage(String message) {
-        ServerMessage serverMessage = (new Gson()).fromJson(message, ServerMessage.class);
-        switch (serverMessage.getServerMessageType()) {
-            case LOAD_GAME ->
-                    this.gameHandler.updateGame((new Gson()).fromJson(message, LoadGameMessage.class).getGame());
-            case NOTIFICATION ->
-                    this.gameHandler.printWebSocketMessage((new Gson()).fromJson(message, NotificationMessage.class));
-            case ERROR -> this.gameHandler.printWebSocketMessage((new Gson().fromJson(message, ErrorMessage.class)));
+        JsonObject json = JsonParser.parseString(message).getAsJsonObject();
+        ServerMessage.ServerMessageType type = (new Gson()).fromJson(json.get("serverMessageType"),
+                ServerMessage.ServerMessageType.class);
+        this.handleMessage((new Gson()).fromJson(json, switch (type) {
+            case LOAD_GAME -> LoadGameMessage.class;
+            case ERROR -> ErrorMessage.class;
+            case NOTIFICATION -> NotificationMessage.class;
+            case GAME_UPDATE -> GameUpdateMessage.class;
+            case MOVE_APPLIED -> MoveAppliedMessage.class;
+        }));
+    }
+
+    /**
+     * Handle a binary message (see BinaryCodec)
+     */
+    public void onBinaryMessage(byte[] message) {
+        try {
+            this.handleMessage(BinaryCodec.decodeServerMessage(message, 0, message.length));
+        } catch (IOException e) {
+            this.gameHandler.printWebSocketMessage(new ErrorMessage("Error: malformed server message"));
+        }
+    }
+
+    private void handleMessage(ServerMessage serverMessage) {
+        switch (serverMessage) {
+            case LoadGameMessage loadGame -> {
+                this.game = loadGame.getGame();
+                this.isAwaitingResync = false;
+                this.gameHandler.updateGame(this.game);
+            }
+            case NotificationMessage notification -> this.gameHandler.printWebSocketMessage(notification);
+            case ErrorMessage error -> this.gameHandler.printWebSocketMessage(error);
+            case GameUpdateMessage update -> {
+                this.gameHandler.updateGame(update.getGame());
+                for (String notification : update.getNotifications()) {
+                    this.gameHandler.printWebSocketMessage(new NotificationMessage(notification));
+                }
+            }
+            case MoveAppliedMessage moveApplied -> this.applyMove(moveApplied);
+            default -> {
+            }
+        }
+    }
+
+    /**
+     * Apply a move to the local game if it is the next one, or ask for the whole game if a move was missed
+     */
+    private void applyMove(MoveAppliedMessage moveApplied) {
+        if ((this.game == null) || this.isAwaitingResync) {
+            // the whole game is on its way
+            return;
+        }
+        int expectedSequence = this.game.game().getMoveCount() + 1;
+        if (moveApplied.getSequence() < expectedSequence) {
+            // already applied
+            return;
+        }
+        if (moveApplied.getSequence() > expectedSequence) {
+            this.requestResync();
+            return;
+        }
+        try {
+            this.game.game().makeMove(moveApplied.getMove());
+        } catch (InvalidMoveException e) {
+            // the local game has diverged from the server's
+            this.requestResync();
+            return;
+        }
+        this.gameHandler.updateGame(this.game);
+        for (String notification : moveApplied.getNotifications()) {
+            this.gameHandler.printWebSocketMessage(new NotificationMessage(notification));
+        }
+    }
+
+    private void requestResync() {
+        this.isAwaitingResync = true;
+        try {
+            this.sendCommand(new ResyncCommand(this.authToken, this.gameID));
+        } catch (Exception e) {
+            // try again on the next move
+            this.isAwaitingResync = false;
         }
     }
 
     // Outgoing Commands //////////////////////////////////////////////////////////////////////////
 
-    private void sendMessage(String message) throws Exception {
-        this.session.getBasicRemote().sendText(message);
+    private void sendCommand(UserGameCommand command) throws Exception {
+        this.session.getBasicRemote().sendBinary(ByteBuffer.wrap(BinaryCodec.encodeCommand(command)));
     }
 
     public void joinPlayer(ChessGame.TeamColor playerColor) throws Exception {
         JoinPlayerCommand command = new JoinPlayerCommand(this.authToken, this.gameID, playerColor);
-        this.sendMessage((new Gson()).toJson(command));
+        this.sendCommand(command);
     }
 
     public void joinObserver() throws Exception {
         JoinObserverCommand command = new JoinObserverCommand(this.authToken, this.gameID);
-        this.sendMessage((new Gson()).toJson(command));
+        this.sendCommand(command);
     }
 
     public void makeMove(ChessMove move) throws Exception {
         MakeMoveCommand command = new MakeMoveCommand(this.authToken, this.gameID, move);
-        this.sendMessage((new Gson().toJson(command)));
+        this.sendCommand(command);
     }
 
     public void leaveGame() throws Exception {
         LeaveCommand command = new LeaveCommand(this.authToken, this.gameID);
-        this.sendMessage((new Gson()).toJson(command));
+        this.sendCommand(command);
     }
 
     public void resignGame() throws Exception {
         ResignCommand command = new ResignCommand(this.authToken, this.gameID);
-        this.sendMessage((new Gson()).toJson(command));
+        this.sendCommand(command);
     }
 }
@@ -9,6 +9,8 @@ import clientAPI.ResponseException;
 import clientAPI.ServerFacade;
 import clientAPI.WebSocketFacade;
 import model.GameData;
+import model.GameSummary;
+import model.response.ListGamesResponse;
 import webSocketMessages.serverMessages.ErrorMessage;
 import webSocketMessages.serverMessages.NotificationMessage;
 import webSocketMessages.serverMessages.ServerMessage;
@@ -26,6 +28,9 @@ public class Client implements GameHandler {
     private final ServerFacade serverFacade;
     private WebSocketFacade webSocketFacade;
     private final HashMap<Integer, Integer> gameNumberToGameID;
+    // the status filter of the current game listing, and the cursor of its next page (null if none)
+    private String listStatus;
+    private Integer listCursor;
     private GameData currentGameData;
     private ChessGame.TeamColor currentPlayerColor;
 
@@ -35,6 +40,8 @@ public class Client implements GameHandler {
         this.serverFacade = new ServerFacade("http://" + serverURL);
         this.webSocketFacade = null;
         this.gameNumberToGameID = new HashMap<>();
+        this.listStatus = null;
+        this.listCursor = null;
         this.currentGameData = null;
         this.currentPlayerColor = null;
     }
@@ -51,7 +58,7 @@ public class Client implements GameHandler {
                 // post-login UI
                 case "logout" -> this.logout();
                 case "create" -> this.createGame(params);
-                case "list" -> this.listGames();
+                case "list" -> this.listGames(params);
                 case "join" -> this.joinGame(params);
                 case "observe" -> this.observeGame(params);
                 // game UI
@@ -99,8 +106,9 @@ public class Client implements GameHandler {
             result.append(getHelpEntry("leave", "the game session"));
             result.append(getHelpEntry("help", "with possible commands"));
         } else if (this.isLoggedIn()) {
-            result.append(getHelpEntry("create <NAME>", "a game"));
-            result.append(getHelpEntry("list", "games"));
+            result.append(getHelpEntry("create <NAME> [<empty>|BOT_WHITE|BOT_BLACK]", "a game (optionally vs. a bot)"));
+            result.append(getHelpEntry("list [<empty>|OPEN|IN_PROGRESS|OVER]", "games"));
+            result.append(getHelpEntry("list next", "page of games"));
             result.append(getHelpEntry("join <GAME NUMBER> [WHITE|BLACK|<empty>]", "a game"));
             result.append(getHelpEntry("observe <GAME NUMBER>", "a game"));
             result.append(getHelpEntry("logout", "when you are done"));
@@ -147,26 +155,45 @@ public class Client implements GameHandler {
 
     private String createGame(String... params) throws ResponseException {
         assertLoggedIn();
-        if (params.length != 1) {
-            throw new ResponseException("Expected: <NAME>");
+        if ((params.length < 1) || (params.length > 2)
+                || ((params.length == 2) && !params[1].equals("bot_white") && !params[1].equals("bot_black"))) {
+            throw new ResponseException("Expected: <NAME> [<empty>|BOT_WHITE|BOT_BLACK]");
         }
-        return ("Created Game ID " + this.serverFacade.createGame(params[0]) + ".");
+        String botColor = (params.length == 2) ? params[1].substring("bot_".length()) : null;
+        return ("Created Game ID " + this.serverFacade.createGame(params[0], botColor) + ".");
     }
 
-    // display a numbered list of all games in Json format
-    // clear and rebuild the gameIDMap to match what is displayed
-    private String listGames() throws ResponseException {
+    // display a numbered page of games
+    // on a new listing, clear and rebuild the gameIDMap to match what is displayed,
+    // on the next page of a listing, continue the numbering
+    private String listGames(String... params) throws ResponseException {
         assertLoggedIn();
-        ArrayList<GameData> games = this.serverFacade.listGames();
+        if (params.length > 1) {
+            throw new ResponseException("Expected: [<empty>|OPEN|IN_PROGRESS|OVER|next]");
+        }
+        if ((params.length == 1) && params[0].equals("next")) {
+            if (this.listCursor == null) {
+                return "No more games.";
+            }
+        } else {
+            this.listStatus = (params.length == 1) ? params[0].toUpperCase() : null;
+            this.listCursor = null;
+            this.gameNumberToGameID.clear();
+        }
+        ListGamesResponse page = this.serverFacade.listGames(this.listCursor, this.listStatus);
+        this.listCursor = page.nextCursor();
         StringBuilder result = new StringBuilder();
-        this.gameNumberToGameID.clear();
-        int gameNumber = 0;
-        for (GameData game : games) {
+        int gameNumber = this.gameNumberToGameID.size();
+        for (GameSummary game : page.games()) {
             this.gameNumberToGameID.put(gameNumber, game.gameID());
             result.append(gameNumber).append(":\n").append(
-                    getGameFancyString(game, false, false)).append("\n");
+                    getGameHeaderFancyString(game.gameName(), game.whiteUsername(), game.blackUsername()));
+            result.append(game.status()).append(", ").append(game.moveCount()).append(" moves\n\n");
             gameNumber++;
         }
+        if (this.listCursor != null) {
+            result.append("More games: list next\n");
+        }
         return result.toString();
     }
 
@@ -298,15 +325,21 @@ public class Client implements GameHandler {
                 Character.getNumericValue(positionString.charAt(1)));
     }
 
-    private String getGameFancyString(GameData game, boolean includeWhiteBoard, boolean includeBlackBoard) {
+    private String getGameHeaderFancyString(String gameName, String whiteUsername, String blackUsername) {
         StringBuilder output = new StringBuilder();
         // game name
-        output.append(SET_GAME_NAME_COLOR).append("~~ ").append(game.gameName()).append(" ~~\n");
+        output.append(SET_GAME_NAME_COLOR).append("~~ ").append(gameName).append(" ~~\n");
         // player roles
-        output.append(SET_WHITE_USERNAME_COLOR).append("White: ").append(game.whiteUsername());
+        output.append(SET_WHITE_USERNAME_COLOR).append("White: ").append(whiteUsername);
         output.append(SET_RESULT_COLOR).append("\t");
-        output.append(SET_BLACK_USERNAME_COLOR).append("Black: ").append(game.blackUsername());
+        output.append(SET_BLACK_USERNAME_COLOR).append("Black: ").append(blackUsername);
         output.append(SET_RESULT_COLOR).append("\n");
+        return output.toString();
+    }
+
+    private String getGameFancyString(GameData game, boolean includeWhiteBoard, boolean includeBlackBoard) {
+        StringBuilder output = new StringBuilder();
+        output.append(getGameHeaderFancyString(game.gameName(), game.whiteUsername(), game.blackUsername()));
         String gridLetterRow;
         // game (black at bottom) if requested
         if (includeBlackBoard) {
@@ -0,0 +1,138 @@
+package clientTests;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import chess.InvalidMoveException;
+import clientAPI.GameHandler;
+import clientAPI.WebSocketFacade;
+import com.google.gson.Gson;
+import model.GameData;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import webSocketMessages.BinaryCodec;
+import webSocketMessages.serverMessages.LoadGameMessage;
+import webSocketMessages.serverMessages.MoveAppliedMessage;
+import webSocketMessages.serverMessages.NotificationMessage;
+import webSocketMessages.serverMessages.ServerMessage;
+import webSocketMessages.userCommands.UserGameCommand;
+
+import javax.websocket.RemoteEndpoint;
+import javax.websocket.Session;
+import java.lang.reflect.Proxy;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WebSocketFacadeTests {
+    private static final int GAME_ID = 7;
+    private static final ChessMove E4 = move(2, 5, 4, 5);
+    private static final ChessMove E5 = move(7, 5, 5, 5);
+    private static final ChessMove NF3 = move(1, 7, 3, 6);
+    private static final ChessMove NC6 = move(8, 2, 6, 3);
+
+    // the move count of the game at each update shown, the messages printed, and the commands sent
+    private List<Integer> updates;
+    private List<ServerMessage> printed;
+    private List<UserGameCommand> sent;
+    private WebSocketFacade webSocketFacade;
+
+    @BeforeEach
+    public void setup() {
+        updates = new ArrayList<>();
+        printed = new ArrayList<>();
+        sent = new ArrayList<>();
+        // a connected session that decodes every command sent on it
+        RemoteEndpoint.Basic remote = (RemoteEndpoint.Basic) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{RemoteEndpoint.Basic.class}, (proxy, method, args) -> {
+                    if (method.getName().equals("sendBinary")) {
+                        ByteBuffer frame = (ByteBuffer) args[0];
+                        sent.add(BinaryCodec.decodeCommand(frame.array(), frame.position(), frame.remaining()));
+                    }
+                    return null;
+                });
+        Session session = (Session) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{Session.class}, (proxy, method, args) -> switch (method.getName()) {
+                    case "getBasicRemote" -> remote;
+                    case "isOpen" -> true;
+                    default -> null;
+                });
+        webSocketFacade = new WebSocketFacade(session, "authToken", new GameHandler() {
+            @Override
+            public void updateGame(GameData game) {
+                updates.add(game.game().getMoveCount());
+            }
+
+            @Override
+            public void printWebSocketMessage(ServerMessage message) {
+                printed.add(message);
+            }
+        }, GAME_ID);
+    }
+
+    private static ChessMove move(int startRow, int startCol, int endRow, int endCol) {
+        return new ChessMove(new ChessPosition(startRow, startCol), new ChessPosition(endRow, endCol), null);
+    }
+
+    private void receive(ServerMessage message) {
+        webSocketFacade.onBinaryMessage(BinaryCodec.encodeServerMessage(message));
+    }
+
+    private void receiveLoadGame(ChessMove... moves) throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        for (ChessMove move : moves) {
+            game.makeMove(move);
+        }
+        receive(new LoadGameMessage(new GameData(GAME_ID, "white", "black", "game", game)));
+    }
+
+    private void receiveMove(int sequence, ChessMove move, String... notifications) {
+        receive(new MoveAppliedMessage(GAME_ID, sequence, move, MoveAppliedMessage.Status.ONGOING,
+                List.of(notifications)));
+    }
+
+    @Test
+    public void applyMovePositive() throws InvalidMoveException {
+        // set pre-state
+        receiveLoadGame();
+        // perform action (the next moves in order, a duplicate, and a move as a JSON text frame)
+        receiveMove(1, E4, "white moved e2e4");
+        receiveMove(2, E5);
+        receiveMove(2, E5);
+        webSocketFacade.onMessage((new Gson()).toJson(
+                new MoveAppliedMessage(GAME_ID, 3, NF3, MoveAppliedMessage.Status.ONGOING, List.of())));
+        // compare post-state (each new move is applied once, with its notifications, and nothing is sent)
+        assertEquals(List.of(0, 1, 2, 3), updates);
+        assertEquals(List.of(new NotificationMessage("white moved e2e4")), printed);
+        assertTrue(sent.isEmpty());
+    }
+
+    @Test
+    public void applyMoveNegative() throws InvalidMoveException {
+        // perform action, compare post-state (moves before the first LOAD_GAME are ignored)
+        receiveMove(1, E4);
+        assertTrue(updates.isEmpty());
+        assertTrue(sent.isEmpty());
+        // a gap asks for the whole game once, and moves are ignored until it arrives
+        receiveLoadGame();
+        receiveMove(2, E5);
+        receiveMove(3, NF3);
+        assertEquals(List.of(0), updates);
+        assertEquals(1, sent.size());
+        assertEquals(UserGameCommand.CommandType.RESYNC, sent.getFirst().getCommandType());
+        assertEquals(GAME_ID, sent.getFirst().getGameID());
+        assertEquals("authToken", sent.getFirst().getAuthString());
+        // the next move after the resynced game applies
+        receiveLoadGame(E4, E5, NF3);
+        receiveMove(4, NC6);
+        assertEquals(List.of(0, 3, 4), updates);
+        // a move that is illegal in the local game means the games have diverged
+        receiveMove(5, E4);
+        assertEquals(List.of(0, 3, 4), updates);
+        assertEquals(2, sent.size());
+        assertEquals(UserGameCommand.CommandType.RESYNC, sent.getLast().getCommandType());
+        assertTrue(printed.isEmpty());
+    }
+}
@@ -1,8 +1,45 @@
+import chess.openings.OpeningBook;
+import chess.tablebases.EndgameTablebase;
 import server.Server;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
 public class Main {
     public static void main(String[] args) {
-        Server server = new Server();
+        // label games with their opening if an opening book is provided (-Dchess.openingBook=<path>)
+        String openingBookPath = System.getProperty("chess.openingBook");
+        if (openingBookPath != null) {
+            try {
+                OpeningBook.install(OpeningBook.open(Path.of(openingBookPath)));
+            } catch (IOException e) {
+                System.err.println("Could not load opening book: " + e.getMessage());
+            }
+        }
+        // score small endgames exactly if a tablebase directory is provided (-Dchess.tablebases=<dir>)
+        String tablebasesPath = System.getProperty("chess.tablebases");
+        if (tablebasesPath != null) {
+            try {
+                EndgameTablebase.install(EndgameTablebase.open(Path.of(tablebasesPath)));
+            } catch (IOException e) {
+                System.err.println("Could not load endgame tablebases: " + e.getMessage());
+            }
+        }
+        // issue signed authTokens if a secret is provided (-Dchess.authTokenSecretFile=<path>),
+        // so authTokens are verified without database lookups
+        byte[] authTokenSecret = null;
+        String authTokenSecretPath = System.getProperty("chess.authTokenSecretFile");
+        if (authTokenSecretPath != null) {
+            try {
+                authTokenSecret = Files.readAllBytes(Path.of(authTokenSecretPath));
+            } catch (IOException e) {
+                System.err.println("Could not load authToken secret: " + e.getMessage());
+            }
+        }
+        Server server = new Server(authTokenSecret);
         server.run(8080);
+        // write cached games back to the database on shutdown
+        Runtime.getRuntime().addShutdownHook(new Thread(server::stop));
     }
-}
\ No newline at end of file
+}
@@ -1,8 +1,11 @@
 package dataAccess;
 
 public interface AuthDAO {
+    // how long an authentication lasts after it is created
+    long DEFAULT_SESSION_TTL_MILLIS = 24 * 60 * 60 * 1000;
+
     /**
-     * Create a new authentication for the given user
+     * Create a new authentication for the given user, which expires after the DAO's session TTL
      *
      * @param username the username of the user requesting authentication
      * @return authToken for the user's session
@@ -21,18 +24,30 @@ public interface AuthDAO {
 
     /**
      * @param authToken the authToken to check
-     * @return true if the authToken is associated with an authorized user
+     * @return true if the authToken is associated with an authorized user (and has not expired)
      * @throws DataAccessException if the authToken is null
      */
     boolean verifyAuthToken(String authToken) throws DataAccessException;
 
     /**
+     * Verify an authToken and resolve its username in one lookup
+     * (use instead of verifyAuthToken when the username is needed too)
+     *
      * @param authToken the authToken to lookup
-     * @return the username associated with the authToken, or null if the authToken is invalid
+     * @return the username associated with the authToken, or null if the authToken is invalid or expired
      * @throws DataAccessException if the authToken is null
      */
     String getUsername(String authToken) throws DataAccessException;
 
+    /**
+     * Delete expired authentications, at most limit of them
+     * (call repeatedly to delete every expired authentication in bounded batches)
+     *
+     * @param limit the most authentications to delete
+     * @return the number of authentications deleted (less than limit if no expired authentications remain)
+     */
+    int deleteExpiredAuths(int limit) throws DataAccessException;
+
     /**
      * Delete all authentications
      */
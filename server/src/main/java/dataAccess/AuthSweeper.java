@@ -0,0 +1,75 @@
+package dataAccess;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Deletes expired authentications from an AuthDAO in the background, every sweepIntervalMillis.
+ * <p>
+ * Each sweep deletes in batches of batchSize until a batch comes up short, and stops after maxBatches
+ * (leaving the rest for the next sweep), so no single statement or sweep holds the table for long.
+ */
+public class AuthSweeper implements AutoCloseable {
+    public static final long DEFAULT_SWEEP_INTERVAL_MILLIS = 60 * 1000;
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+    public static final int DEFAULT_MAX_BATCHES = 100;
+
+    private final AuthDAO authDAO;
+    private final int batchSize;
+    private final int maxBatches;
+    private final ScheduledExecutorService sweeper;
+
+    public AuthSweeper(AuthDAO authDAO) {
+        this(authDAO, DEFAULT_SWEEP_INTERVAL_MILLIS, DEFAULT_BATCH_SIZE, DEFAULT_MAX_BATCHES);
+    }
+
+    /**
+     * @param authDAO             the DAO to delete expired authentications from
+     * @param sweepIntervalMillis how often to sweep
+     * @param batchSize           the most authentications to delete in one statement
+     * @param maxBatches          the most batches to delete in one sweep
+     */
+    public AuthSweeper(AuthDAO authDAO, long sweepIntervalMillis, int batchSize, int maxBatches) {
+        this.authDAO = authDAO;
+        this.batchSize = batchSize;
+        this.maxBatches = maxBatches;
+        this.sweeper = Executors.newSingleThreadScheduledExecutor((runnable) -> {
+            Thread thread = new Thread(runnable, "auth-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.sweeper.scheduleWithFixedDelay(() -> {
+            try {
+                this.sweep();
+            } catch (DataAccessException e) {
+                System.err.println("Could not delete expired authentications: " + e.getMessage());
+            }
+        }, sweepIntervalMillis, sweepIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Delete expired authentications in batches, until none remain or maxBatches have been deleted
+     *
+     * @return the number of authentications deleted
+     */
+    public int sweep() throws DataAccessException {
+        int deleted = 0;
+        for (int batch = 0; batch < this.maxBatches; ++batch) {
+            int batchDeleted = this.authDAO.deleteExpiredAuths(this.batchSize);
+            deleted += batchDeleted;
+            if (batchDeleted < this.batchSize) {
+                break;
+            }
+        }
+        return deleted;
+    }
+
+    /**
+     * Stop sweeping
+     */
+    @Override
+    public void close() {
+        this.sweeper.shutdownNow();
+    }
+}
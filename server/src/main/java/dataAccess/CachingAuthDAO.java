@@ -0,0 +1,151 @@
+package dataAccess;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A cache of recently used authTokens and their usernames in front of another AuthDAO.
+ * <p>
+ * Authorizing a request (verifyAuthToken or getUsername) with a cached authToken needs no query of the
+ * underlying DAO. Each authToken is cached for at most ttlMillis after it was looked up, which bounds how long
+ * an authToken deleted by another writer to the underlying DAO (e.g. a logout on another server instance)
+ * can still be used here (as does how long an expired authToken can still be used); deletions through this DAO
+ * take effect immediately (a lookup that read the delegate before a deletion or clear through this DAO does not
+ * cache its result). Only valid authTokens are cached, so made-up authTokens cannot fill the cache.
+ * <p>
+ * When more than maxTokens are cached, expired authTokens are dropped first, then arbitrary others until a tenth
+ * of the cache is free, so the scan is paid once per many insertions rather than on each.
+ */
+public class CachingAuthDAO implements AuthDAO {
+    public static final int DEFAULT_MAX_TOKENS = 10000;
+    public static final long DEFAULT_TTL_MILLIS = 60 * 1000;
+
+    private final AuthDAO delegate;
+    private final int maxTokens;
+    private final long ttlMillis;
+    // authToken -> username, and when the entry stops being trusted
+    private final ConcurrentHashMap<String, CachedAuth> cache;
+    // incremented by every deletion and clear, so lookups in flight across one do not cache what they read
+    private final AtomicLong invalidations;
+    // whether a thread is evicting (others skip eviction rather than scan the cache too)
+    private final AtomicBoolean isEvicting;
+
+    private record CachedAuth(String username, long expiresAtMillis) {
+    }
+
+    public CachingAuthDAO(AuthDAO delegate) {
+        this(delegate, DEFAULT_MAX_TOKENS, DEFAULT_TTL_MILLIS);
+    }
+
+    /**
+     * @param delegate  the DAO to look authTokens up in and write them to
+     * @param maxTokens the most authTokens to keep cached
+     * @param ttlMillis how long a looked up authToken is trusted without asking the delegate again
+     */
+    public CachingAuthDAO(AuthDAO delegate, int maxTokens, long ttlMillis) {
+        this.delegate = delegate;
+        this.maxTokens = maxTokens;
+        this.ttlMillis = ttlMillis;
+        this.cache = new ConcurrentHashMap<>();
+        this.invalidations = new AtomicLong(0);
+        this.isEvicting = new AtomicBoolean(false);
+    }
+
+    @Override
+    public String createAuth(String username) throws DataAccessException {
+        String authToken = this.delegate.createAuth(username);
+        // a new session is used right away
+        this.cache.put(authToken, new CachedAuth(username, (System.currentTimeMillis() + this.ttlMillis)));
+        this.evictIfFull();
+        return authToken;
+    }
+
+    @Override
+    public void deleteAuth(String authToken) throws DataAccessException {
+        if (authToken == null) {
+            throw new DataAccessException("null authToken");
+        }
+        this.cache.remove(authToken);
+        this.delegate.deleteAuth(authToken);
+        // a lookup that read the authToken before the delete either sees the new count and does not cache it,
+        // or cached it already and has it removed here
+        this.invalidations.incrementAndGet();
+        this.cache.remove(authToken);
+    }
+
+    @Override
+    public boolean verifyAuthToken(String authToken) throws DataAccessException {
+        return (this.getUsername(authToken) != null);
+    }
+
+    @Override
+    public String getUsername(String authToken) throws DataAccessException {
+        if (authToken == null) {
+            throw new DataAccessException("null authToken");
+        }
+        CachedAuth cached = this.cache.get(authToken);
+        if ((cached != null) && (cached.expiresAtMillis() > System.currentTimeMillis())) {
+            return cached.username();
+        }
+        long invalidationsBefore = this.invalidations.get();
+        String username = this.delegate.getUsername(authToken);
+        if (username == null) {
+            this.cache.remove(authToken);
+        } else {
+            this.put(authToken, username, invalidationsBefore);
+        }
+        return username;
+    }
+
+    @Override
+    public int deleteExpiredAuths(int limit) throws DataAccessException {
+        // cached authTokens expire from the cache on their own
+        return this.delegate.deleteExpiredAuths(limit);
+    }
+
+    @Override
+    public void clearAuths() throws DataAccessException {
+        this.cache.clear();
+        this.delegate.clearAuths();
+        this.invalidations.incrementAndGet();
+        this.cache.clear();
+    }
+
+    /**
+     * Cache a looked up authToken, unless a deletion or clear happened since the lookup began
+     *
+     * @param invalidationsBefore the invalidation count read before the lookup
+     */
+    private void put(String authToken, String username, long invalidationsBefore) {
+        CachedAuth entry = new CachedAuth(username, (System.currentTimeMillis() + this.ttlMillis));
+        // checked under the entry's lock, so a deletion's removal cannot slip in between the check and the insert
+        this.cache.compute(authToken, (token, current) ->
+                (this.invalidations.get() == invalidationsBefore) ? entry : current);
+        this.evictIfFull();
+    }
+
+    /**
+     * If more than maxTokens are cached, drop expired authTokens, then arbitrary others until a tenth of the cache
+     * is free (one thread at a time)
+     */
+    private void evictIfFull() {
+        if ((this.cache.size() <= this.maxTokens) || !this.isEvicting.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            long now = System.currentTimeMillis();
+            this.cache.values().removeIf(cached -> (cached.expiresAtMillis() <= now));
+            int target = this.maxTokens - (this.maxTokens / 10);
+            Iterator<Map.Entry<String, CachedAuth>> entries = this.cache.entrySet().iterator();
+            while ((this.cache.size() > target) && entries.hasNext()) {
+                entries.next();
+                entries.remove();
+            }
+        } finally {
+            this.isEvicting.set(false);
+        }
+    }
+}
@@ -0,0 +1,462 @@
+package dataAccess;
+
+import chess.ChessMove;
+import model.GameData;
+import model.GameSummary;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A write-behind cache of recently used games in front of another GameDAO.
+ * <p>
+ * getGame() serves cached games from memory, so a game being played is read from the underlying DAO once.
+ * updateGame() and recordMove() only change the cached game, and a background flusher writes the changes
+ * to the underlying DAO every flushIntervalMillis: every recorded move (in order, so the underlying move log
+ * stays complete) and the latest of any number of updates. Writes that fail stay queued and are retried.
+ * <p>
+ * After each flush, clean games are evicted least recently used first while more than maxGames are cached,
+ * and when unused for idleTimeoutMillis. Listings flush pending writes first so they see every change,
+ * and close() flushes everything (call it on shutdown).
+ * <p>
+ * Each cached game is locked on its own, so operations on different games never wait for each other, and
+ * recency is a timestamp on each game that eviction sorts by, so reads take no lock shared between games.
+ * <p>
+ * Games are copied in and out of the cache (outside any lock), so callers may change the games they read
+ * without affecting the cache until they write them back.
+ * <p>
+ * Writes are versioned against the cached game (see GameDAO), so the cache must be the underlying DAO's
+ * only writer (not shared by several server instances). As a safeguard, each flushed write is also versioned
+ * against the game in the underlying DAO: if another writer changed the game first, the cached game's
+ * unflushed writes are dropped along with the cached game, so the next read loads the other writer's version.
+ * <p>
+ * A flush writes several coalesced updates as one, setting the delegate's version to the cached one rather than
+ * advancing it by one, so a flushed game's stored version is never behind its cached version: versions keep rising
+ * across eviction, and a caller still holding a copy from before the eviction cannot match a version handed out
+ * again and overwrite a newer update.
+ */
+public class CachingGameDAO implements GameDAO, AutoCloseable {
+    public static final int DEFAULT_MAX_GAMES = 1000;
+    public static final long DEFAULT_IDLE_TIMEOUT_MILLIS = 10 * 60 * 1000;
+    public static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 250;
+
+    private final GameDAO delegate;
+    private final int maxGames;
+    private final long idleTimeoutMillis;
+    // gameID -> cached game
+    private final ConcurrentHashMap<Integer, CachedGame> cache;
+    // held for each flush, and by operations that must not interleave with one
+    private final Object flushLock;
+    private final ScheduledExecutorService flusher;
+
+    /**
+     * A cached game and the writes to it not yet flushed (guarded by the cached game itself, except that the
+     * game data is only ever replaced, so can be read and copied without the lock)
+     */
+    private static class CachedGame {
+        private volatile GameData gameData;
+        private ArrayList<PendingMove> pendingMoves;
+        private boolean isUpdatePending;
+        private volatile long lastAccessMillis;
+        // the game's version in the delegate, once the writes flushed so far are made
+        // (the cached version is ahead while writes are pending)
+        private int storedVersion;
+        // set when the game leaves the cache, so a writer that looked it up just before writes to its reload
+        private boolean isEvicted;
+
+        private CachedGame(GameData gameData) {
+            this.gameData = gameData;
+            this.pendingMoves = new ArrayList<>();
+            this.isUpdatePending = false;
+            this.lastAccessMillis = System.currentTimeMillis();
+            this.storedVersion = gameData.version();
+            this.isEvicted = false;
+        }
+
+        private boolean isDirty() {
+            return (!this.pendingMoves.isEmpty() || this.isUpdatePending);
+        }
+    }
+
+    /**
+     * A recorded move, with the game as it was right after the move
+     */
+    private record PendingMove(ChessMove move, GameData gameData) {
+    }
+
+    /**
+     * The writes to one game taken by a flush
+     */
+    private record PendingWrites(int gameID, ArrayList<PendingMove> moves, GameData update, int storedVersion) {
+    }
+
+    /**
+     * A cached game as an eviction scan saw it
+     */
+    private record EvictionCandidate(int gameID, CachedGame cached, long lastAccessMillis) {
+    }
+
+    /**
+     * A write to a cached game, made holding its lock
+     */
+    @FunctionalInterface
+    private interface CachedGameWrite {
+        void run(CachedGame cached) throws DataAccessException;
+    }
+
+    public CachingGameDAO(GameDAO delegate) {
+        this(delegate, DEFAULT_MAX_GAMES, DEFAULT_IDLE_TIMEOUT_MILLIS, DEFAULT_FLUSH_INTERVAL_MILLIS);
+    }
+
+    /**
+     * @param delegate            the DAO to read games from and write them back to
+     * @param maxGames            the most games to keep cached after each flush
+     * @param idleTimeoutMillis   how long an unused game stays cached
+     * @param flushIntervalMillis how often changes are written to the delegate
+     */
+    public CachingGameDAO(GameDAO delegate, int maxGames, long idleTimeoutMillis, long flushIntervalMillis) {
+        this.delegate = delegate;
+        this.maxGames = maxGames;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.cache = new ConcurrentHashMap<>();
+        this.flushLock = new Object();
+        this.flusher = Executors.newSingleThreadScheduledExecutor((runnable) -> {
+            Thread thread = new Thread(runnable, "game-cache-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.flusher.scheduleWithFixedDelay(this::flushAndEvict,
+                flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public int createGame(String gameName) throws DataAccessException {
+        // written through, since the delegate assigns the gameID
+        int gameID = this.delegate.createGame(gameName);
+        GameData gameData = this.delegate.getGame(gameID);
+        if (gameData != null) {
+            this.cache.putIfAbsent(gameID, new CachedGame(gameData.copy()));
+        }
+        return gameID;
+    }
+
+    @Override
+    public GameData getGame(int gameID) throws DataAccessException {
+        CachedGame cached = this.getCachedGame(gameID);
+        if (cached == null) {
+            return null;
+        }
+        return cached.gameData.copy();
+    }
+
+    @Override
+    public ArrayList<GameData> listGames() throws DataAccessException {
+        synchronized (this.flushLock) {
+            this.flush();
+            return this.delegate.listGames();
+        }
+    }
+
+    @Override
+    public ArrayList<GameSummary> listGameSummaries(GameQuery query) throws DataAccessException {
+        synchronized (this.flushLock) {
+            this.flush();
+            return this.delegate.listGameSummaries(query);
+        }
+    }
+
+    @Override
+    public void updateGame(int gameID, GameData game, int newVersion) throws DataAccessException {
+        if (gameID != game.gameID()) {
+            // moving a game to a new gameID is rare: write it through, and drop both IDs from the cache
+            synchronized (this.flushLock) {
+                this.flush();
+                // holding flushLock, so the game cannot be evicted before it is dropped below
+                CachedGame cached = this.getCachedGame(gameID);
+                if (cached == null) {
+                    throw new DataAccessException("cannot update non-existing game");
+                }
+                int storedVersion;
+                synchronized (cached) {
+                    CachingGameDAO.assertVersion(cached, game);
+                    storedVersion = cached.storedVersion;
+                }
+                this.delegate.updateGame(gameID, CachingGameDAO.atVersion(game, storedVersion), newVersion);
+                game.setVersion(newVersion);
+                this.forget(gameID);
+                this.forget(game.gameID());
+            }
+            return;
+        }
+        GameData copy = game.copy();
+        this.writeCachedGame(gameID, "cannot update non-existing game", (cached -> {
+            CachingGameDAO.assertVersion(cached, game);
+            game.setVersion(newVersion);
+            copy.setVersion(newVersion);
+            cached.gameData = copy;
+            cached.isUpdatePending = true;
+        }));
+    }
+
+    @Override
+    public void recordMove(int gameID, GameData game, ChessMove move, int newVersion) throws DataAccessException {
+        int ply = game.game().getMoveCount();
+        GameData copy = game.copy();
+        this.writeCachedGame(gameID, "cannot record a move for non-existing game", (cached -> {
+            CachingGameDAO.assertVersion(cached, game);
+            int lastPly = cached.pendingMoves.isEmpty()
+                    ? cached.gameData.game().getMoveCount()
+                    : cached.pendingMoves.getLast().gameData().game().getMoveCount();
+            if (ply <= lastPly) {
+                throw new DataAccessException("move already recorded");
+            }
+            game.setVersion(newVersion);
+            copy.setVersion(newVersion);
+            cached.gameData = copy;
+            cached.pendingMoves.add(new PendingMove(move, copy));
+        }));
+    }
+
+    @Override
+    public void clearGames() throws DataAccessException {
+        synchronized (this.flushLock) {
+            for (CachedGame cached : this.cache.values()) {
+                synchronized (cached) {
+                    cached.isEvicted = true;
+                }
+            }
+            this.cache.clear();
+            this.delegate.clearGames();
+        }
+    }
+
+    /**
+     * Stop the background flusher, then write every pending change to the delegate
+     */
+    @Override
+    public void close() {
+        this.flusher.shutdown();
+        try {
+            this.flusher.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this.flushLock) {
+            try {
+                this.flush();
+            } catch (DataAccessException e) {
+                System.err.println("Could not flush cached games: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * @return the cached game, loading it from the delegate on a miss, or null if there is no such game
+     */
+    private CachedGame getCachedGame(int gameID) throws DataAccessException {
+        CachedGame cached = this.cache.get(gameID);
+        if (cached != null) {
+            cached.lastAccessMillis = System.currentTimeMillis();
+            return cached;
+        }
+        // load outside any lock, so a slow read does not block other games
+        GameData gameData = this.delegate.getGame(gameID);
+        if (gameData == null) {
+            return null;
+        }
+        // another thread may have loaded (and even changed) the game meanwhile: keep its entry
+        cached = this.cache.computeIfAbsent(gameID, (id -> new CachedGame(gameData)));
+        cached.lastAccessMillis = System.currentTimeMillis();
+        return cached;
+    }
+
+    /**
+     * Make a write to a cached game holding its lock, loading the game on a miss
+     * (and again if it is evicted before the lock is taken, so the write is never made to an evicted game)
+     *
+     * @param missingMessage the message if there is no such game
+     * @throws DataAccessException if there is no such game, or the write fails
+     */
+    private void writeCachedGame(int gameID, String missingMessage, CachedGameWrite write)
+            throws DataAccessException {
+        while (true) {
+            CachedGame cached = this.getCachedGame(gameID);
+            if (cached == null) {
+                throw new DataAccessException(missingMessage);
+            }
+            synchronized (cached) {
+                if (!cached.isEvicted) {
+                    write.run(cached);
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * The background flusher's task: flush, then evict clean games over the size limit or idle too long
+     */
+    private void flushAndEvict() {
+        synchronized (this.flushLock) {
+            try {
+                this.flush();
+            } catch (DataAccessException e) {
+                // the failed writes stay queued for the next flush
+                System.err.println("Could not flush cached games: " + e.getMessage());
+            }
+            long idleSince = System.currentTimeMillis() - this.idleTimeoutMillis;
+            int excess = this.cache.size() - this.maxGames;
+            // least recently used first (sorting the access times as scanned, since games are used meanwhile)
+            ArrayList<EvictionCandidate> candidates = new ArrayList<>();
+            for (Map.Entry<Integer, CachedGame> entry : this.cache.entrySet()) {
+                candidates.add(new EvictionCandidate(entry.getKey(), entry.getValue(),
+                        entry.getValue().lastAccessMillis));
+            }
+            candidates.sort(Comparator.comparingLong(EvictionCandidate::lastAccessMillis));
+            for (EvictionCandidate candidate : candidates) {
+                if ((excess <= 0) && (candidate.lastAccessMillis() >= idleSince)) {
+                    break;
+                }
+                if (this.evict(candidate)) {
+                    excess--;
+                }
+            }
+        }
+    }
+
+    /**
+     * Evict a game chosen by an eviction scan, if it is clean and has not been used since the scan
+     *
+     * @return whether the game was evicted
+     */
+    private boolean evict(EvictionCandidate candidate) {
+        CachedGame cached = candidate.cached();
+        synchronized (cached) {
+            if (cached.isEvicted || cached.isDirty() || (cached.lastAccessMillis != candidate.lastAccessMillis())) {
+                return false;
+            }
+            cached.isEvicted = true;
+            this.cache.remove(candidate.gameID(), cached);
+            return true;
+        }
+    }
+
+    /**
+     * Write every pending change to the delegate (the caller must hold flushLock)
+     *
+     * @throws DataAccessException if a write fails (the unwritten changes are queued again)
+     */
+    private void flush() throws DataAccessException {
+        // take the pending writes, so games can keep changing while they are written
+        ArrayList<PendingWrites> writes = new ArrayList<>();
+        for (Map.Entry<Integer, CachedGame> entry : this.cache.entrySet()) {
+            CachedGame cached = entry.getValue();
+            synchronized (cached) {
+                if (!cached.isDirty()) {
+                    continue;
+                }
+                writes.add(new PendingWrites(entry.getKey(), cached.pendingMoves,
+                        (cached.isUpdatePending ? cached.gameData : null), cached.storedVersion));
+                cached.pendingMoves = new ArrayList<>();
+                cached.isUpdatePending = false;
+            }
+        }
+        DataAccessException failure = null;
+        for (PendingWrites write : writes) {
+            int written = 0;
+            int storedVersion = write.storedVersion();
+            try {
+                // each write is versioned against the delegate's game, which the previous write advanced,
+                // and advances it to the cached version the write was made at
+                for (PendingMove pendingMove : write.moves()) {
+                    this.delegate.recordMove(write.gameID(),
+                            CachingGameDAO.atVersion(pendingMove.gameData(), storedVersion),
+                            pendingMove.move(), pendingMove.gameData().version());
+                    storedVersion = pendingMove.gameData().version();
+                    written++;
+                }
+                if (write.update() != null) {
+                    // (at the last move's version if no update was made after it, leaving the version as it is)
+                    this.delegate.updateGame(write.gameID(),
+                            CachingGameDAO.atVersion(write.update(), storedVersion), write.update().version());
+                    storedVersion = write.update().version();
+                }
+                this.setStoredVersion(write.gameID(), storedVersion);
+            } catch (VersionConflictException e) {
+                // another writer changed the game in the delegate: its changes win
+                this.forget(write.gameID());
+                System.err.printf("Dropped unflushed writes to game %d: %s%n", write.gameID(), e.getMessage());
+            } catch (DataAccessException e) {
+                failure = e;
+                this.setStoredVersion(write.gameID(), storedVersion);
+                this.requeue(write, written);
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Drop a game from the cache
+     */
+    private void forget(int gameID) {
+        CachedGame cached = this.cache.remove(gameID);
+        if (cached != null) {
+            synchronized (cached) {
+                cached.isEvicted = true;
+            }
+        }
+    }
+
+    private void setStoredVersion(int gameID, int storedVersion) {
+        CachedGame cached = this.cache.get(gameID);
+        if (cached != null) {
+            synchronized (cached) {
+                cached.storedVersion = storedVersion;
+            }
+        }
+    }
+
+    /**
+     * Queue the writes a flush could not make again, ahead of any made since
+     */
+    private void requeue(PendingWrites write, int movesWritten) {
+        CachedGame cached = this.cache.get(write.gameID());
+        if (cached == null) {
+            // cleared meanwhile
+            return;
+        }
+        synchronized (cached) {
+            ArrayList<PendingMove> pendingMoves =
+                    new ArrayList<>(write.moves().subList(movesWritten, write.moves().size()));
+            pendingMoves.addAll(cached.pendingMoves);
+            cached.pendingMoves = pendingMoves;
+            cached.isUpdatePending |= (write.update() != null);
+        }
+    }
+
+    /**
+     * @throws VersionConflictException if the game was read at a version other than the cached game's
+     */
+    private static void assertVersion(CachedGame cached, GameData game) throws VersionConflictException {
+        if (cached.gameData.version() != game.version()) {
+            throw new VersionConflictException(String.format("game %d changed since it was read", game.gameID()));
+        }
+    }
+
+    /**
+     * @return a shallow copy of the game data (sharing its game) at the given version,
+     * so writing it to the delegate leaves the cached game data's version alone
+     */
+    private static GameData atVersion(GameData gameData, int version) {
+        GameData versioned = gameData.withPlayers(gameData.whiteUsername(), gameData.blackUsername());
+        versioned.setVersion(version);
+        return versioned;
+    }
+}
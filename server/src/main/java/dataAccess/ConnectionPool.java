@@ -0,0 +1,440 @@
+package dataAccess;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded pool of database connections.
+ * <p>
+ * getConnection() hands out a wrapper whose close() returns the connection to the pool instead of closing it,
+ * so callers keep using try-with-resources exactly as with DriverManager connections.
+ * At most maxSize connections are leased at once, and callers wait up to maxWaitMillis for one.
+ * Idle connections are revalidated before reuse if they have sat for validationIntervalMillis,
+ * and closed after idleTimeoutMillis (down to minSize).
+ * A lease held longer than leakDetectionMillis is reported once on stderr, with the stack that leased it.
+ * <p>
+ * Each connection also caches its most recently used prepared statements (up to statementCacheSize):
+ * prepareStatement(sql) on a leased connection reuses the cached statement for the same SQL,
+ * and closing it only clears its parameters, so SQL is parsed once per connection instead of once per call.
+ */
+public class ConnectionPool implements AutoCloseable {
+    private static final long HOUSEKEEPING_PERIOD_MILLIS = 1000;
+
+    private final ConnectionFactory factory;
+    private final Config config;
+    // one permit per connection that may be leased at once
+    private final Semaphore permits;
+    // most recently returned first, so busy periods reuse warm connections and extras go idle
+    private final LinkedBlockingDeque<PooledConnection> idleConnections;
+    private final Set<Lease> activeLeases;
+    private final AtomicInteger openConnections;
+    private final ScheduledExecutorService housekeeper;
+    private volatile boolean isClosed;
+    // metrics
+    private final LongAdder acquisitions;
+    private final LongAdder timeouts;
+    private final LongAdder totalWaitNanos;
+    private final AtomicLong maxWaitNanos;
+    private final LongAdder leaksDetected;
+
+    /**
+     * Opens a new physical connection
+     */
+    public interface ConnectionFactory {
+        Connection create() throws SQLException;
+    }
+
+    /**
+     * Pool settings (read from db.properties with fromProperties)
+     *
+     * @param minSize                  the number of connections kept open even when idle
+     * @param maxSize                  the most connections leased at once
+     * @param maxWaitMillis            how long getConnection waits for a connection before failing
+     * @param idleTimeoutMillis        how long a connection may sit idle before it is closed (beyond minSize)
+     * @param validationIntervalMillis how long a connection may sit idle before it is validated on reuse
+     * @param validationTimeoutSeconds the time limit of a validation
+     * @param leakDetectionMillis      how long a lease may be held before it is reported (0 to disable)
+     * @param statementCacheSize       the prepared statements cached per connection (0 to disable)
+     */
+    public record Config(int minSize,
+                         int maxSize,
+                         long maxWaitMillis,
+                         long idleTimeoutMillis,
+                         long validationIntervalMillis,
+                         int validationTimeoutSeconds,
+                         long leakDetectionMillis,
+                         int statementCacheSize) {
+        /**
+         * @param props properties with optional "db.pool.*" settings (missing settings use defaults)
+         * @return the pool settings
+         */
+        public static Config fromProperties(Properties props) {
+            return new Config(
+                    Integer.parseInt(props.getProperty("db.pool.minSize", "2")),
+                    Integer.parseInt(props.getProperty("db.pool.maxSize", "10")),
+                    Long.parseLong(props.getProperty("db.pool.maxWaitMillis", "5000")),
+                    Long.parseLong(props.getProperty("db.pool.idleTimeoutMillis", "600000")),
+                    Long.parseLong(props.getProperty("db.pool.validationIntervalMillis", "5000")),
+                    Integer.parseInt(props.getProperty("db.pool.validationTimeoutSeconds", "2")),
+                    Long.parseLong(props.getProperty("db.pool.leakDetectionMillis", "30000")),
+                    Integer.parseInt(props.getProperty("db.pool.statementCacheSize", "64")));
+        }
+    }
+
+    /**
+     * A snapshot of the pool's state and wait-time metrics
+     *
+     * @param openConnections   physical connections currently open
+     * @param idleConnections   open connections not leased
+     * @param activeConnections connections currently leased
+     * @param acquisitions      successful getConnection calls
+     * @param timeouts          getConnection calls that gave up waiting
+     * @param averageWaitMillis average time getConnection waited for a permit
+     * @param maxWaitMillis     longest time getConnection waited for a permit
+     * @param leaksDetected     leases reported as possible leaks
+     */
+    public record Stats(int openConnections,
+                        int idleConnections,
+                        int activeConnections,
+                        long acquisitions,
+                        long timeouts,
+                        double averageWaitMillis,
+                        double maxWaitMillis,
+                        long leaksDetected) {
+    }
+
+    private static final class PooledConnection {
+        private final Connection connection;
+        // "[autoGeneratedKeys]:[sql]" -> statement, least recently used first
+        private final LinkedHashMap<String, PreparedStatement> statementCache;
+        private volatile long lastReturnedNanos;
+        private volatile long lastValidatedNanos;
+
+        PooledConnection(Connection connection, int statementCacheSize) {
+            this.connection = connection;
+            this.statementCache = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+                    if (size() <= statementCacheSize) {
+                        return false;
+                    }
+                    closeQuietly(eldest.getValue());
+                    return true;
+                }
+            };
+            this.lastReturnedNanos = System.nanoTime();
+            this.lastValidatedNanos = this.lastReturnedNanos;
+        }
+
+        /**
+         * Get the cached statement for the SQL, preparing (and caching) it if needed
+         * (only called by the connection's current lessee)
+         *
+         * @return a statement whose close() clears its parameters instead of closing it
+         */
+        PreparedStatement prepare(String sql, int autoGeneratedKeys) throws SQLException {
+            String key = autoGeneratedKeys + ":" + sql;
+            PreparedStatement statement = this.statementCache.get(key);
+            if ((statement == null) || statement.isClosed()) {
+                statement = this.connection.prepareStatement(sql, autoGeneratedKeys);
+                this.statementCache.put(key, statement);
+            }
+            PreparedStatement cached = statement;
+            return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+                    new Class<?>[]{PreparedStatement.class}, (proxy, method, args) -> {
+                        if (method.getName().equals("close")) {
+                            cached.clearParameters();
+                            return null;
+                        }
+                        try {
+                            return method.invoke(cached, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getCause();
+                        }
+                    });
+        }
+
+        private static void closeQuietly(Statement statement) {
+            try {
+                statement.close();
+            } catch (SQLException e) {
+                // already broken
+            }
+        }
+    }
+
+    public ConnectionPool(ConnectionFactory factory, Config config) {
+        if ((config.minSize() < 0) || (config.maxSize() < 1) || (config.minSize() > config.maxSize())) {
+            throw new IllegalArgumentException("invalid connection pool size");
+        }
+        this.factory = factory;
+        this.config = config;
+        this.permits = new Semaphore(config.maxSize(), true);
+        this.idleConnections = new LinkedBlockingDeque<>();
+        this.activeLeases = ConcurrentHashMap.newKeySet();
+        this.openConnections = new AtomicInteger(0);
+        this.isClosed = false;
+        this.acquisitions = new LongAdder();
+        this.timeouts = new LongAdder();
+        this.totalWaitNanos = new LongAdder();
+        this.maxWaitNanos = new AtomicLong(0);
+        this.leaksDetected = new LongAdder();
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor((runnable) -> {
+            Thread thread = new Thread(runnable, "connection-pool-housekeeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.housekeeper.scheduleWithFixedDelay(this::houseKeep,
+                0, HOUSEKEEPING_PERIOD_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Lease a connection, waiting up to maxWaitMillis if all are leased (close it to return it)
+     *
+     * @return a pooled connection
+     * @throws DataAccessException if no connection became available in time, or a new one could not be opened
+     */
+    public Connection getConnection() throws DataAccessException {
+        if (this.isClosed) {
+            throw new DataAccessException("connection pool is closed");
+        }
+        long startNanos = System.nanoTime();
+        try {
+            if (!this.permits.tryAcquire(this.config.maxWaitMillis(), TimeUnit.MILLISECONDS)) {
+                this.timeouts.increment();
+                throw new DataAccessException("timed out waiting for a database connection");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DataAccessException("interrupted waiting for a database connection");
+        }
+        long waitNanos = System.nanoTime() - startNanos;
+        this.acquisitions.increment();
+        this.totalWaitNanos.add(waitNanos);
+        this.maxWaitNanos.accumulateAndGet(waitNanos, Math::max);
+        try {
+            PooledConnection pooled;
+            while ((pooled = this.idleConnections.pollFirst()) != null) {
+                if (this.isUsable(pooled)) {
+                    break;
+                }
+                this.discard(pooled);
+            }
+            if (pooled == null) {
+                pooled = this.open();
+            }
+            Lease lease = new Lease(pooled);
+            this.activeLeases.add(lease);
+            return lease.proxy;
+        } catch (SQLException e) {
+            this.permits.release();
+            throw new DataAccessException(e.getMessage());
+        }
+    }
+
+    /**
+     * @return a snapshot of the pool's state and metrics
+     */
+    public Stats getStats() {
+        long count = this.acquisitions.sum();
+        return new Stats(this.openConnections.get(), this.idleConnections.size(), this.activeLeases.size(),
+                count, this.timeouts.sum(),
+                ((count == 0) ? 0 : ((this.totalWaitNanos.sum() / (double) count) / 1e6)),
+                (this.maxWaitNanos.get() / 1e6), this.leaksDetected.sum());
+    }
+
+    /**
+     * Close every idle connection and stop pooling (leased connections are closed when returned)
+     */
+    @Override
+    public void close() {
+        this.isClosed = true;
+        this.housekeeper.shutdownNow();
+        PooledConnection pooled;
+        while ((pooled = this.idleConnections.pollFirst()) != null) {
+            this.discard(pooled);
+        }
+    }
+
+    private PooledConnection open() throws SQLException {
+        PooledConnection pooled = new PooledConnection(this.factory.create(), this.config.statementCacheSize());
+        this.openConnections.incrementAndGet();
+        return pooled;
+    }
+
+    private void discard(PooledConnection pooled) {
+        this.openConnections.decrementAndGet();
+        try {
+            pooled.connection.close();
+        } catch (SQLException e) {
+            // already broken
+        }
+    }
+
+    /**
+     * Whether an idle connection can be reused (validating it if it has been idle a while)
+     */
+    private boolean isUsable(PooledConnection pooled) {
+        long now = System.nanoTime();
+        if (TimeUnit.NANOSECONDS.toMillis(now - pooled.lastReturnedNanos) > this.config.idleTimeoutMillis()) {
+            return false;
+        }
+        if (TimeUnit.NANOSECONDS.toMillis(now - pooled.lastValidatedNanos) <= this.config.validationIntervalMillis()) {
+            return true;
+        }
+        try {
+            boolean isValid = pooled.connection.isValid(this.config.validationTimeoutSeconds());
+            pooled.lastValidatedNanos = now;
+            return isValid;
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Return a leased connection to the pool (or close it if it is broken or the pool is closed)
+     */
+    private void release(Lease lease) {
+        this.activeLeases.remove(lease);
+        PooledConnection pooled = lease.pooled;
+        try {
+            // never hand an open transaction to the next caller
+            if (!pooled.connection.getAutoCommit()) {
+                pooled.connection.rollback();
+                pooled.connection.setAutoCommit(true);
+            }
+            if (this.isClosed || pooled.connection.isClosed()) {
+                this.discard(pooled);
+            } else {
+                pooled.lastReturnedNanos = System.nanoTime();
+                this.idleConnections.offerFirst(pooled);
+            }
+        } catch (SQLException e) {
+            this.discard(pooled);
+        } finally {
+            this.permits.release();
+        }
+    }
+
+    /**
+     * Report leaked leases, close connections idle too long (down to minSize), and open connections up to minSize
+     */
+    private void houseKeep() {
+        long now = System.nanoTime();
+        if (this.config.leakDetectionMillis() > 0) {
+            for (Lease lease : this.activeLeases) {
+                long heldMillis = TimeUnit.NANOSECONDS.toMillis(now - lease.leasedNanos);
+                if (!lease.isLeakReported && (heldMillis > this.config.leakDetectionMillis())) {
+                    lease.isLeakReported = true;
+                    this.leaksDetected.increment();
+                    System.err.printf("Possible connection leak: connection held for %d ms, leased at:%n", heldMillis);
+                    lease.leasedAt.printStackTrace();
+                }
+            }
+        }
+        // the oldest idle connections are at the end of the deque
+        PooledConnection oldest;
+        while ((this.openConnections.get() > this.config.minSize())
+                && ((oldest = this.idleConnections.peekLast()) != null)
+                && (TimeUnit.NANOSECONDS.toMillis(now - oldest.lastReturnedNanos) > this.config.idleTimeoutMillis())) {
+            if (this.idleConnections.removeLastOccurrence(oldest)) {
+                this.discard(oldest);
+            }
+        }
+        try {
+            while (!this.isClosed && (this.openConnections.get() < this.config.minSize())) {
+                this.idleConnections.offerLast(this.open());
+            }
+        } catch (SQLException e) {
+            // the database is unreachable; getConnection will report it
+        }
+    }
+
+    /**
+     * One lease of a pooled connection: the handler behind the connection wrapper given to the caller
+     */
+    private final class Lease implements InvocationHandler {
+        private final PooledConnection pooled;
+        private final Connection proxy;
+        private final long leasedNanos;
+        private final Throwable leasedAt;
+        private volatile boolean isLeakReported;
+        // set once, by the first close (which alone returns the connection, without holding a lock during the I/O)
+        private final AtomicBoolean isReturned;
+
+        Lease(PooledConnection pooled) {
+            this.pooled = pooled;
+            this.proxy = (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class}, this);
+            this.leasedNanos = System.nanoTime();
+            this.leasedAt = (config.leakDetectionMillis() > 0) ? new Throwable("connection leased here") : null;
+            this.isLeakReported = false;
+            this.isReturned = new AtomicBoolean(false);
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close" -> {
+                    if (this.isReturned.compareAndSet(false, true)) {
+                        release(this);
+                    }
+                    return null;
+                }
+                case "isClosed" -> {
+                    return this.isReturned.get() || this.pooled.connection.isClosed();
+                }
+                case "prepareStatement" -> {
+                    // cache plain statements and statements returning generated keys
+                    if ((config.statementCacheSize() > 0) && (args.length <= 2) && (args[0] instanceof String sql)
+                            && ((args.length == 1) || (args[1] instanceof Integer))) {
+                        if (this.isReturned.get()) {
+                            throw new SQLException("connection has been returned to the pool");
+                        }
+                        return this.pooled.prepare(sql,
+                                ((args.length == 1) ? Statement.NO_GENERATED_KEYS : (int) args[1]));
+                    }
+                    return this.delegate(method, args);
+                }
+                case "equals" -> {
+                    return (proxy == args[0]);
+                }
+                case "hashCode" -> {
+                    return System.identityHashCode(proxy);
+                }
+                case "toString" -> {
+                    return "Pooled " + this.pooled.connection;
+                }
+                default -> {
+                    return this.delegate(method, args);
+                }
+            }
+        }
+
+        private Object delegate(Method method, Object[] args) throws Throwable {
+            if (this.isReturned.get()) {
+                throw new SQLException("connection has been returned to the pool");
+            }
+            try {
+                return method.invoke(this.pooled.connection, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
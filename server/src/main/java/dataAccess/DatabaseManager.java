@@ -1,8 +1,11 @@
 package dataAccess;
 
 import java.sql.*;
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Properties;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 
 import static java.sql.Types.NULL;
 
@@ -11,6 +14,35 @@ public class DatabaseManager {
     private static final String user;
     private static final String password;
     private static final String connectionUrl;
+    private static final boolean isShared;
+    private static final ConnectionPool.Config poolConfig;
+    // virtual threads running JDBC calls at once (db.virtualThreadPermits, by default half the carrier threads,
+    // at least 1 and at most the pool size): the driver blocks inside synchronized code, which pins a virtual
+    // thread to its carrier, so the other half of the carriers stay free for virtual threads not using the
+    // database
+    private static final Semaphore virtualThreadPermits;
+    // created on first use, after the database exists
+    private static volatile ConnectionPool connectionPool = null;
+    // the connection of the transaction running on each thread (see inTransaction)
+    private static final ThreadLocal<Connection> transactionConnection = new ThreadLocal<>();
+
+    /**
+     * A unit of work whose statements commit or roll back together
+     *
+     * @param <T> the type of the work's result
+     */
+    @FunctionalInterface
+    public interface Transaction<T> {
+        T run() throws DataAccessException;
+    }
+
+    /**
+     * Work using a database connection
+     */
+    @FunctionalInterface
+    private interface ConnectionWork<T> {
+        T run(Connection connection) throws SQLException, DataAccessException;
+    }
 
     /*
      * Load the database information from the db.properties file.
@@ -24,10 +56,18 @@ public class DatabaseManager {
                 databaseName = props.getProperty("db.name");
                 user = props.getProperty("db.user");
                 password = props.getProperty("db.password");
+                isShared = Boolean.parseBoolean(props.getProperty("db.shared", "false"));
 
                 var host = props.getProperty("db.host");
                 var port = Integer.parseInt(props.getProperty("db.port"));
-                connectionUrl = String.format("jdbc:mysql://%s:%d", host, port);
+                // server-side prepared statements, so cached statements are parsed by the server only once
+                connectionUrl = String.format("jdbc:mysql://%s:%d?useServerPrepStmts=true", host, port);
+                poolConfig = ConnectionPool.Config.fromProperties(props);
+                // virtual threads are carried by one platform thread per core by default
+                int defaultPermits = Math.min(poolConfig.maxSize(),
+                        Math.max(1, (Runtime.getRuntime().availableProcessors() / 2)));
+                virtualThreadPermits = new Semaphore(Integer.parseInt(
+                        props.getProperty("db.virtualThreadPermits", Integer.toString(defaultPermits))));
             }
         } catch (Exception ex) {
             throw new RuntimeException("unable to process db.properties. " + ex.getMessage());
@@ -42,8 +82,8 @@ public class DatabaseManager {
     public static void createDatabase() throws DataAccessException {
         try {
             var statement = "CREATE DATABASE IF NOT EXISTS " + databaseName;
-            var conn = DriverManager.getConnection(connectionUrl, user, password);
-            try (var preparedStatement = conn.prepareStatement(statement)) {
+            try (var conn = DriverManager.getConnection(connectionUrl, user, password);
+                 var preparedStatement = conn.prepareStatement(statement)) {
                 preparedStatement.executeUpdate();
             }
         } catch (SQLException e) {
@@ -52,99 +92,324 @@ public class DatabaseManager {
     }
 
     /**
-     * Create a connection to the database and set the catalog based upon the
-     * properties specified in db.properties
+     * Lease a connection to the database from the connection pool, with the catalog set based upon the
+     * properties specified in db.properties (pool settings are the "db.pool.*" properties)
      * NOTE: Connections to the database should be short-lived,
-     * and you must close the connection when you are done with it.
+     * and you must close the connection when you are done with it (closing returns it to the pool).
      * The easiest way to do that is with a try-with-resource block.
      * <br/>
      * <code>
-     * try (var conn = DbInfo.getConnection(databaseName)) {
+     * try (var conn = DatabaseManager.getConnection()) {
      * // execute SQL statements.
      * }
      * </code>
      *
-     * @return a new connection to the SQL database
-     * @throws DataAccessException if the connection process fails
+     * @return a pooled connection to the SQL database
+     * @throws DataAccessException if no connection is available in time or the connection process fails
      */
     private static Connection getConnection() throws DataAccessException {
-        try {
-            var conn = DriverManager.getConnection(connectionUrl, user, password);
-            conn.setCatalog(databaseName);
-            return conn;
+        return DatabaseManager.getConnectionPool().getConnection();
+    }
+
+    /**
+     * @return whether other server instances share the database (db.shared), so data in it can change
+     * without this server writing it
+     */
+    public static boolean isShared() {
+        return isShared;
+    }
+
+    /**
+     * @return the connection pool's current state and wait-time metrics
+     */
+    public static ConnectionPool.Stats getConnectionPoolStats() {
+        return DatabaseManager.getConnectionPool().getStats();
+    }
+
+    /**
+     * Run work in a transaction: every statement the work executes on this thread (through DatabaseManager)
+     * uses the same connection, and they are committed together if the work returns,
+     * or rolled back together if it throws. Row locks taken by the work's statements are held until then.
+     * A transaction started inside another joins the outer one.
+     *
+     * @param transaction the work to run
+     * @return the work's result
+     * @throws DataAccessException if the work throws one (after rolling back), or the SQL connector fails
+     */
+    public static <T> T inTransaction(Transaction<T> transaction) throws DataAccessException {
+        return DatabaseManager.inTransaction(null, transaction);
+    }
+
+    /**
+     * Run work in a transaction at a given isolation level (see inTransaction(Transaction)),
+     * e.g. Connection.TRANSACTION_REPEATABLE_READ for reads that must all see the same snapshot of the database.
+     * A transaction started inside another joins the outer one, at the outer one's isolation level.
+     *
+     * @param isolationLevel the java.sql.Connection isolation level (null for the connection's default)
+     * @param transaction    the work to run
+     * @return the work's result
+     * @throws DataAccessException if the work throws one (after rolling back), or the SQL connector fails
+     */
+    public static <T> T inTransaction(Integer isolationLevel, Transaction<T> transaction) throws DataAccessException {
+        if (transactionConnection.get() != null) {
+            return transaction.run();
+        }
+        boolean hasPermit = DatabaseManager.acquireVirtualThreadPermit();
+        try (Connection connection = DatabaseManager.getConnection()) {
+            int defaultIsolationLevel = (isolationLevel == null) ? 0 : connection.getTransactionIsolation();
+            if (isolationLevel != null) {
+                connection.setTransactionIsolation(isolationLevel);
+            }
+            connection.setAutoCommit(false);
+            transactionConnection.set(connection);
+            try {
+                T result = transaction.run();
+                connection.commit();
+                return result;
+            } catch (DataAccessException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                transactionConnection.remove();
+                connection.setAutoCommit(true);
+                if (isolationLevel != null) {
+                    // pooled connections go back as they were leased
+                    connection.setTransactionIsolation(defaultIsolationLevel);
+                }
+            }
         } catch (SQLException e) {
-            throw new DataAccessException(e.getMessage());
+            throw new DataAccessException(String.format("Could not complete transaction: %s", e.getMessage()));
+        } finally {
+            if (hasPermit) {
+                virtualThreadPermits.release();
+            }
+        }
+    }
+
+    /**
+     * Run work on this thread's transaction connection if it is in a transaction,
+     * or on a connection leased for just the work otherwise
+     */
+    private static <T> T withConnection(ConnectionWork<T> work) throws SQLException, DataAccessException {
+        Connection connection = transactionConnection.get();
+        if (connection != null) {
+            return work.run(connection);
+        }
+        boolean hasPermit = DatabaseManager.acquireVirtualThreadPermit();
+        try (Connection leased = DatabaseManager.getConnection()) {
+            return work.run(leased);
+        } finally {
+            if (hasPermit) {
+                virtualThreadPermits.release();
+            }
+        }
+    }
+
+    /**
+     * If this is a virtual thread, wait (as long as for a connection) for a permit to use the database
+     *
+     * @return whether a permit was taken (which the caller must release)
+     * @throws DataAccessException if no permit is available in time
+     */
+    private static boolean acquireVirtualThreadPermit() throws DataAccessException {
+        if (!Thread.currentThread().isVirtual()) {
+            return false;
+        }
+        try {
+            if (!virtualThreadPermits.tryAcquire(poolConfig.maxWaitMillis(), TimeUnit.MILLISECONDS)) {
+                throw new DataAccessException("Timed out waiting for the database");
+            }
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DataAccessException("Interrupted while waiting for the database");
+        }
+    }
+
+    private static ConnectionPool getConnectionPool() {
+        ConnectionPool pool = connectionPool;
+        if (pool == null) {
+            synchronized (DatabaseManager.class) {
+                pool = connectionPool;
+                if (pool == null) {
+                    pool = new ConnectionPool(() -> {
+                        var conn = DriverManager.getConnection(connectionUrl, user, password);
+                        conn.setCatalog(databaseName);
+                        return conn;
+                    }, poolConfig);
+                    connectionPool = pool;
+                }
+            }
         }
+        return pool;
     }
 
     /**
      * Update the database with a given SQL statement
      *
      * @param statement the SQL statement to execute
-     * @param params    the SQL parameters to set (verifying types)
+     * @param params    the SQL parameters to set (see bindParameters for the supported types)
      * @return the int value of the first key generated by the update
      * (key must be in first column, return 0 if irrelevant)
      * @throws DataAccessException if the SQL connector fails
      */
     public static int executeUpdate(String statement, Object... params) throws DataAccessException {
-        try (Connection connection = DatabaseManager.getConnection()) {
-            try (PreparedStatement preparedStatement =
-                         connection.prepareStatement(statement, Statement.RETURN_GENERATED_KEYS)) {
-                for (int i = 0; i < params.length; ++i) {
-                    switch (params[i]) {
-                        case null -> preparedStatement.setNull((i + 1), NULL);
-                        case String p -> preparedStatement.setString((i + 1), p);
-                        case Integer p -> preparedStatement.setInt((i + 1), p);
-                        default -> throw new DataAccessException("invalid database input type");
+        try {
+            return DatabaseManager.withConnection(connection -> {
+                try (PreparedStatement preparedStatement =
+                             connection.prepareStatement(statement, Statement.RETURN_GENERATED_KEYS)) {
+                    DatabaseManager.bindParameters(preparedStatement, params);
+                    preparedStatement.executeUpdate();
+                    try (ResultSet resultSet = preparedStatement.getGeneratedKeys()) {
+                        if (resultSet.next()) {
+                            return resultSet.getInt(1);
+                        }
                     }
+                    return 0;
                 }
-                preparedStatement.executeUpdate();
-                ResultSet resultSet = preparedStatement.getGeneratedKeys();
-                if (resultSet.next()) {
-                    return resultSet.getInt(1);
-                }
-                return 0;
-            }
+            });
         } catch (SQLException e) {
             throw new DataAccessException(String.format("Could not update database: %s, %s", statement, e.getMessage()));
         }
     }
 
     /**
-     * Query the database with a given SQL statement
+     * Add a column to an existing table if it does not have it yet, so tables created by an older schema
+     * pick up new columns (CREATE TABLE IF NOT EXISTS leaves an existing table unchanged)
      *
-     * @param returnLabels the labels of each result row
-     * @param statement    the SQL statement to execute
-     * @param params       the SQL parameters to set (verifying types)
-     * @return an ArrayList (rows) of Object arrays (elements)
+     * @param table      the table to add the column to
+     * @param column     the name of the column
+     * @param definition the column's SQL type and constraints (e.g. "INT NOT NULL DEFAULT 0")
      * @throws DataAccessException if the SQL connector fails
      */
-    public static ArrayList<Object[]> executeQuery(String[] returnLabels,
-                                                   String statement,
-                                                   Object... params) throws DataAccessException {
-        ArrayList<Object[]> result = new ArrayList<>();
-        try (Connection connection = DatabaseManager.getConnection()) {
-            try (PreparedStatement preparedStatement = connection.prepareStatement(statement)) {
-                for (int i = 0; i < params.length; ++i) {
-                    switch (params[i]) {
-                        case String p -> preparedStatement.setString((i + 1), p);
-                        case Integer p -> preparedStatement.setInt((i + 1), p);
-                        default -> preparedStatement.setNull((i + 1), NULL);
-                    }
+    public static void addColumnIfMissing(String table, String column, String definition)
+            throws DataAccessException {
+        Boolean exists = DatabaseManager.queryOne(
+                "SELECT 1 FROM information_schema.COLUMNS WHERE TABLE_SCHEMA=? AND TABLE_NAME=? AND COLUMN_NAME=?",
+                (row -> true),
+                databaseName, table, column);
+        if (exists == null) {
+            DatabaseManager.executeUpdate(String.format("ALTER TABLE %s ADD COLUMN `%s` %s", table, column, definition));
+        }
+    }
+
+    /**
+     * Add an index to an existing table if it does not have it yet
+     *
+     * @param table   the table to index
+     * @param index   the name of the index
+     * @param columns the indexed columns, comma-separated
+     * @throws DataAccessException if the SQL connector fails
+     */
+    public static void addIndexIfMissing(String table, String index, String columns) throws DataAccessException {
+        Boolean exists = DatabaseManager.queryOne(
+                "SELECT 1 FROM information_schema.STATISTICS WHERE TABLE_SCHEMA=? AND TABLE_NAME=? AND INDEX_NAME=?",
+                (row -> true),
+                databaseName, table, index);
+        if (exists == null) {
+            DatabaseManager.executeUpdate(String.format("CREATE INDEX `%s` ON %s (%s)", index, table, columns));
+        }
+    }
+
+    /**
+     * Update the database with a given SQL statement, counting the rows it matched
+     * (Connector/J reports matched rather than changed rows by default, so an UPDATE
+     * that rewrites a row with identical values still counts it)
+     *
+     * @param statement the SQL statement to execute
+     * @param params    the SQL parameters to set (see bindParameters for the supported types)
+     * @return the number of rows matched by the update
+     * @throws DataAccessException if the SQL connector fails
+     */
+    public static int executeUpdateCount(String statement, Object... params) throws DataAccessException {
+        try {
+            return DatabaseManager.withConnection(connection -> {
+                try (PreparedStatement preparedStatement = connection.prepareStatement(statement)) {
+                    DatabaseManager.bindParameters(preparedStatement, params);
+                    return preparedStatement.executeUpdate();
                 }
-                try (ResultSet resultSet = preparedStatement.executeQuery()) {
-                    while (resultSet.next()) {
-                        Object[] row = new Object[returnLabels.length];
-                        for (int i = 0; i < row.length; ++i) {
-                            row[i] = resultSet.getObject(returnLabels[i]);
+            });
+        } catch (SQLException e) {
+            throw new DataAccessException(String.format("Could not update database: %s, %s", statement, e.getMessage()));
+        }
+    }
+
+    /**
+     * Query the database with a given SQL statement, mapping each result row to an object
+     *
+     * @param statement the SQL statement to execute
+     * @param rowMapper maps each result row (read columns by index, in SELECT order)
+     * @param params    the SQL parameters to set (see bindParameters for the supported types)
+     * @return the mapped rows, in result order
+     * @throws DataAccessException if the SQL connector fails
+     */
+    public static <T> ArrayList<T> query(String statement, RowMapper<T> rowMapper, Object... params)
+            throws DataAccessException {
+        ArrayList<T> result = new ArrayList<>();
+        try {
+            DatabaseManager.withConnection(connection -> {
+                try (PreparedStatement preparedStatement = connection.prepareStatement(statement)) {
+                    DatabaseManager.bindParameters(preparedStatement, params);
+                    try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                        while (resultSet.next()) {
+                            result.add(rowMapper.map(resultSet));
                         }
-                        result.add(row);
                     }
                 }
-            }
+                return null;
+            });
         } catch (SQLException e) {
             throw new DataAccessException(String.format("Could not query database: %s, %s", statement, e.getMessage()));
         }
         return result;
     }
+
+    /**
+     * Query the database for at most one row
+     *
+     * @param statement the SQL statement to execute
+     * @param rowMapper maps the result row (read columns by index, in SELECT order)
+     * @param params    the SQL parameters to set (see bindParameters for the supported types)
+     * @return the first mapped row, or null if there are no rows
+     * @throws DataAccessException if the SQL connector fails
+     */
+    public static <T> T queryOne(String statement, RowMapper<T> rowMapper, Object... params)
+            throws DataAccessException {
+        try {
+            return DatabaseManager.withConnection(connection -> {
+                try (PreparedStatement preparedStatement = connection.prepareStatement(statement)) {
+                    DatabaseManager.bindParameters(preparedStatement, params);
+                    try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                        return resultSet.next() ? rowMapper.map(resultSet) : null;
+                    }
+                }
+            });
+        } catch (SQLException e) {
+            throw new DataAccessException(String.format("Could not query database: %s, %s", statement, e.getMessage()));
+        }
+    }
+
+    /**
+     * Bind parameters to a statement with the setter matching each parameter's type
+     * (null, String, Integer, Long, Short, Boolean, Double, byte[], or java.time.Instant as a TIMESTAMP)
+     *
+     * @throws DataAccessException if a parameter has an unsupported type
+     */
+    private static void bindParameters(PreparedStatement preparedStatement, Object[] params)
+            throws SQLException, DataAccessException {
+        for (int i = 0; i < params.length; ++i) {
+            switch (params[i]) {
+                case null -> preparedStatement.setNull((i + 1), NULL);
+                case String p -> preparedStatement.setString((i + 1), p);
+                case Integer p -> preparedStatement.setInt((i + 1), p);
+                case Long p -> preparedStatement.setLong((i + 1), p);
+                case Short p -> preparedStatement.setShort((i + 1), p);
+                case Boolean p -> preparedStatement.setBoolean((i + 1), p);
+                case Double p -> preparedStatement.setDouble((i + 1), p);
+                case byte[] p -> preparedStatement.setBytes((i + 1), p);
+                case Instant p -> preparedStatement.setTimestamp((i + 1), Timestamp.from(p));
+                default -> throw new DataAccessException("invalid database input type");
+            }
+        }
+    }
 }
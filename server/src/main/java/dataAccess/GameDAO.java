@@ -1,6 +1,8 @@
 package dataAccess;
 
+import chess.ChessMove;
 import model.GameData;
+import model.GameSummary;
 
 import java.util.ArrayList;
 
@@ -16,7 +18,7 @@ public interface GameDAO {
 
     /**
      * @param gameID the ID of the game to search for
-     * @return the GameData object, or null if gameID matches no games
+     * @return the GameData object (carrying the stored game's version), or null if gameID matches no games
      */
     GameData getGame(int gameID) throws DataAccessException;
 
@@ -25,17 +27,69 @@ public interface GameDAO {
      */
     ArrayList<GameData> listGames() throws DataAccessException;
 
+    /**
+     * @param query the filters, sort order and page (cursor and size) to list
+     * @return the metadata of one page of the matching games, without the game states
+     */
+    ArrayList<GameSummary> listGameSummaries(GameQuery query) throws DataAccessException;
+
     /**
      * Update the game with the given gameID
      * NOTE: If gameID and game.gameID do not match,
      * the game at gameID is removed and the new game is added at game.gameID,
      * allowing updating of the gameID
+     * NOTE: The update only succeeds if game.version() is still the stored game's version
+     * (compare-and-set), and then advances both, so the caller can keep writing the same game
      *
      * @param gameID the gameID to replace the data for
      * @param game   the new game object to insert
-     * @throws DataAccessException if gameID matches no games
+     * @throws VersionConflictException if the stored game was written since game was read
+     * @throws DataAccessException      if gameID matches no games
+     */
+    default void updateGame(int gameID, GameData game) throws DataAccessException {
+        this.updateGame(gameID, game, (game.version() + 1));
+    }
+
+    /**
+     * Update the game with the given gameID, as updateGame(gameID, game) does, but setting the stored game's
+     * version (and game's) to newVersion rather than advancing it by one
+     * (for a writer that coalesces several versioned updates into one write)
+     *
+     * @param gameID     the gameID to replace the data for
+     * @param game       the new game object to insert
+     * @param newVersion the version of the stored game after the update
+     * @throws VersionConflictException if the stored game was written since game was read
+     * @throws DataAccessException      if gameID matches no games
+     */
+    void updateGame(int gameID, GameData game, int newVersion) throws DataAccessException;
+
+    /**
+     * Record a move just made in the game with the given gameID
+     * (cheaper than updateGame, which rewrites the whole game, when only a move changed;
+     * versioned the same way as updateGame)
+     *
+     * @param gameID the gameID of the game the move was made in
+     * @param game   the game after the move (players and name unchanged since the last update)
+     * @param move   the move made, the last in game's move log
+     * @throws VersionConflictException if the stored game was written since game was read
+     * @throws DataAccessException      if gameID matches no games, or the move was already recorded
+     */
+    default void recordMove(int gameID, GameData game, ChessMove move) throws DataAccessException {
+        this.recordMove(gameID, game, move, (game.version() + 1));
+    }
+
+    /**
+     * Record a move just made in the game with the given gameID, as recordMove(gameID, game, move) does,
+     * but setting the stored game's version (and game's) to newVersion rather than advancing it by one
+     *
+     * @param gameID     the gameID of the game the move was made in
+     * @param game       the game after the move (players and name unchanged since the last update)
+     * @param move       the move made, the last in game's move log
+     * @param newVersion the version of the stored game after the move
+     * @throws VersionConflictException if the stored game was written since game was read
+     * @throws DataAccessException      if gameID matches no games, or the move was already recorded
      */
-    void updateGame(int gameID, GameData game) throws DataAccessException;
+    void recordMove(int gameID, GameData game, ChessMove move, int newVersion) throws DataAccessException;
 
     /**
      * Delete all games
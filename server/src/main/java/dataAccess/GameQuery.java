@@ -0,0 +1,25 @@
+package dataAccess;
+
+import model.GameSummary;
+
+/**
+ * One page of a game listing, for keyset pagination by gameID
+ *
+ * @param afterGameID the gameID of the last game on the previous page (results continue past it
+ *                    in the sort order), or null for the first page
+ * @param limit       the most games to return
+ * @param status      only games with this status, or null for any
+ * @param player      only games with this username in either seat, or null for any
+ * @param descending  whether to sort by gameID descending (newest first) rather than ascending
+ */
+public record GameQuery(Integer afterGameID, int limit, GameSummary.Status status, String player,
+                        boolean descending) {
+    /**
+     * @return whether a game's summary passes this query's filters (ignoring the cursor)
+     */
+    public boolean matches(GameSummary summary) {
+        return (((this.status == null) || (summary.status() == this.status))
+                && ((this.player == null)
+                || this.player.equals(summary.whiteUsername()) || this.player.equals(summary.blackUsername())));
+    }
+}
@@ -0,0 +1,11 @@
+package dataAccess;
+
+/**
+ * Indicates a password could not be hashed or checked because the password hasher is saturated
+ * (the caller should try again later)
+ */
+public class HasherBusyException extends DataAccessException {
+    public HasherBusyException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,116 @@
+package dataAccess;
+
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hashes and checks passwords with BCrypt on its own bounded pool of workers, so bursts of logins and
+ * registrations queue here (or are turned away when queueCapacity hashes are already waiting)
+ * instead of tying up every request thread.
+ * <p>
+ * The work factor only applies to new hashes; stored hashes are checked at the work factor they were made with.
+ */
+public class PasswordHasher {
+    public static final int DEFAULT_WORK_FACTOR = 10;
+    public static final int DEFAULT_QUEUE_CAPACITY = 64;
+    private static final long IDLE_WORKER_MILLIS = 60 * 1000;
+
+    private final PasswordEncoder encoder;
+    private final ThreadPoolExecutor executor;
+
+    public PasswordHasher() {
+        this(DEFAULT_WORK_FACTOR);
+    }
+
+    /**
+     * @param workFactor the BCrypt log rounds of new hashes (4 to 31)
+     */
+    public PasswordHasher(int workFactor) {
+        // hashing is CPU-bound, so half the cores are left for everything else
+        this(workFactor, Math.max(1, (Runtime.getRuntime().availableProcessors() / 2)), DEFAULT_QUEUE_CAPACITY);
+    }
+
+    /**
+     * @param workFactor    the BCrypt log rounds of new hashes (4 to 31)
+     * @param workers       the most hashes to compute at once
+     * @param queueCapacity the most hashes to hold waiting for a worker
+     */
+    public PasswordHasher(int workFactor, int workers, int queueCapacity) {
+        this(new BCryptPasswordEncoder(workFactor), workers, queueCapacity);
+    }
+
+    /**
+     * @param encoder       the encoder to hash and check passwords with
+     * @param workers       the most hashes to compute at once
+     * @param queueCapacity the most hashes to hold waiting for a worker
+     */
+    public PasswordHasher(PasswordEncoder encoder, int workers, int queueCapacity) {
+        this.encoder = encoder;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(workers, workers, IDLE_WORKER_MILLIS, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                (runnable) -> {
+                    Thread thread = new Thread(runnable, "password-hasher-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        // logins come in bursts, so idle workers are let go
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * @param password the password to hash
+     * @return the salted hash of the password
+     * @throws HasherBusyException if too many hashes are already waiting
+     */
+    public String hash(String password) throws DataAccessException {
+        return this.await(this.submit(() -> this.encoder.encode(password)));
+    }
+
+    /**
+     * @param password       the password to check
+     * @param hashedPassword the stored hash to check it against
+     * @return true if the password matches the hash
+     * @throws HasherBusyException if too many hashes are already waiting
+     */
+    public boolean matches(String password, String hashedPassword) throws DataAccessException {
+        return this.await(this.submit(() -> this.encoder.matches(password, hashedPassword)));
+    }
+
+    /**
+     * Stop the workers (hashes still waiting are dropped)
+     */
+    public void shutdown() {
+        this.executor.shutdownNow();
+    }
+
+    private <T> Future<T> submit(Callable<T> work) throws HasherBusyException {
+        try {
+            return this.executor.submit(work);
+        } catch (RejectedExecutionException e) {
+            throw new HasherBusyException("too many logins in progress, try again later");
+        }
+    }
+
+    private <T> T await(Future<T> result) throws DataAccessException {
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            result.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new DataAccessException("interrupted while hashing password");
+        } catch (ExecutionException e) {
+            throw new DataAccessException("Could not hash password: " + e.getCause().getMessage());
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package dataAccess;
+
+import java.util.HashMap;
+
+public interface RevocationDAO {
+    /**
+     * Record that a token was revoked (no action if it already was)
+     *
+     * @param tokenID         the ID of the revoked token
+     * @param expiresAtMillis when the token expires anyway (epoch milliseconds), after which its revocation
+     *                        may be deleted
+     * @throws DataAccessException if the tokenID is null
+     */
+    void revoke(String tokenID, long expiresAtMillis) throws DataAccessException;
+
+    /**
+     * @return the IDs of the revoked tokens that have not yet expired, with when each expires (epoch milliseconds)
+     */
+    default HashMap<String, Long> listRevocations() throws DataAccessException {
+        return this.listRevocations(0);
+    }
+
+    /**
+     * @param revokedSinceMillis the earliest revocation time to list (epoch milliseconds)
+     * @return the IDs of the tokens revoked at or after revokedSinceMillis that have not yet expired,
+     * with when each expires (epoch milliseconds)
+     */
+    HashMap<String, Long> listRevocations(long revokedSinceMillis) throws DataAccessException;
+
+    /**
+     * Delete the revocations of expired tokens, at most limit of them
+     *
+     * @param limit the most revocations to delete
+     * @return the number of revocations deleted (less than limit if no expired revocations remain)
+     */
+    int deleteExpiredRevocations(int limit) throws DataAccessException;
+
+    /**
+     * Delete all revocations
+     */
+    void clearRevocations() throws DataAccessException;
+}
@@ -0,0 +1,15 @@
+package dataAccess;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Maps the current row of a query result to an object
+ * (read columns with the typed getters, e.g. row.getInt(1), row.getBytes(2))
+ *
+ * @param <T> the type each row maps to
+ */
+@FunctionalInterface
+public interface RowMapper<T> {
+    T map(ResultSet row) throws SQLException;
+}
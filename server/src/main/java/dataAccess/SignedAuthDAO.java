@@ -0,0 +1,243 @@
+package dataAccess;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Authentications as self-contained signed authTokens, verified in memory without any storage lookup.
+ * <p>
+ * An authToken is "username.issuedAt.expiresAt.tokenID.signature" (username and signature base64url-encoded,
+ * times in epoch milliseconds), signed with HMAC-SHA256 under a secret shared by every server instance.
+ * Only deleted (logged out) authTokens are stored, in a RevocationDAO, until they would have expired anyway;
+ * revocations made through this DAO take effect immediately, and those made by other server instances within
+ * revocationRefreshMillis. Each refresh loads only the revocations made since the previous one (less
+ * REVOCATION_CLOCK_SKEW_MILLIS, for clocks that disagree and revocations committed late).
+ * clearAuths invalidates every authToken issued before it on this instance only.
+ */
+public class SignedAuthDAO implements AuthDAO, AutoCloseable {
+    public static final long DEFAULT_REVOCATION_REFRESH_MILLIS = 5 * 1000;
+    public static final int MIN_SECRET_BYTES = 32;
+    public static final long REVOCATION_CLOCK_SKEW_MILLIS = 2 * 1000;
+    private static final String MAC_ALGORITHM = "HmacSHA256";
+    private static final int TOKEN_ID_BYTES = 16;
+
+    private final RevocationDAO revocationDAO;
+    private final long sessionTtlMillis;
+    private final SecretKeySpec key;
+    // initialized with the key and never used, only cloned: cheaper than initializing a new Mac
+    private final Mac macPrototype;
+    // Macs not in use (a Mac is not thread-safe), enough for every core to sign at once
+    private final ArrayBlockingQueue<Mac> macPool;
+    private final SecureRandom random;
+    // tokenID -> expiresAt of revoked authTokens (this instance's, and others' as of the last refresh)
+    private final ConcurrentHashMap<String, Long> revocations;
+    // when the last refresh started (epoch milliseconds; 0 before the first, so it loads every revocation)
+    private long lastRefreshMillis;
+    // authTokens issued before this (epoch milliseconds) are invalid
+    private volatile long notBeforeMillis;
+    private final ScheduledExecutorService refresher;
+
+    public SignedAuthDAO(byte[] secret, RevocationDAO revocationDAO) throws DataAccessException {
+        this(secret, revocationDAO, DEFAULT_SESSION_TTL_MILLIS, DEFAULT_REVOCATION_REFRESH_MILLIS);
+    }
+
+    /**
+     * @param secret                  the key authTokens are signed with (at least MIN_SECRET_BYTES bytes)
+     * @param revocationDAO           where deleted authTokens are recorded, shared with other server instances
+     * @param sessionTtlMillis        how long an authToken is valid after it is created
+     * @param revocationRefreshMillis how often to reload revocations made by other server instances
+     * @throws DataAccessException if the revocations cannot be loaded
+     */
+    public SignedAuthDAO(byte[] secret, RevocationDAO revocationDAO,
+                         long sessionTtlMillis, long revocationRefreshMillis) throws DataAccessException {
+        if ((secret == null) || (secret.length < MIN_SECRET_BYTES)) {
+            throw new IllegalArgumentException(
+                    String.format("authToken secret must be at least %d bytes", MIN_SECRET_BYTES));
+        }
+        this.revocationDAO = revocationDAO;
+        this.sessionTtlMillis = sessionTtlMillis;
+        this.key = new SecretKeySpec(secret, MAC_ALGORITHM);
+        this.macPrototype = this.initMac();
+        this.macPool = new ArrayBlockingQueue<>(Runtime.getRuntime().availableProcessors());
+        this.random = new SecureRandom();
+        this.revocations = new ConcurrentHashMap<>();
+        this.lastRefreshMillis = 0;
+        this.notBeforeMillis = 0;
+        this.refreshRevocations();
+        this.refresher = Executors.newSingleThreadScheduledExecutor((runnable) -> {
+            Thread thread = new Thread(runnable, "auth-revocation-refresher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.refresher.scheduleWithFixedDelay(() -> {
+            try {
+                this.refreshRevocations();
+            } catch (DataAccessException e) {
+                System.err.println("Could not reload authToken revocations: " + e.getMessage());
+            }
+        }, revocationRefreshMillis, revocationRefreshMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public String createAuth(String username) throws DataAccessException {
+        if (username == null) {
+            throw new DataAccessException("null username");
+        }
+        long issuedAtMillis = System.currentTimeMillis();
+        byte[] tokenID = new byte[TOKEN_ID_BYTES];
+        this.random.nextBytes(tokenID);
+        String payload = String.join(".",
+                encode(username.getBytes(StandardCharsets.UTF_8)),
+                Long.toString(issuedAtMillis),
+                Long.toString(issuedAtMillis + this.sessionTtlMillis),
+                encode(tokenID));
+        return payload + "." + encode(this.sign(payload));
+    }
+
+    @Override
+    public void deleteAuth(String authToken) throws DataAccessException {
+        if (authToken == null) {
+            throw new DataAccessException("null authToken");
+        }
+        SignedToken token = this.verify(authToken);
+        if (token != null) {
+            this.revocations.put(token.tokenID(), token.expiresAtMillis());
+            this.revocationDAO.revoke(token.tokenID(), token.expiresAtMillis());
+        }
+    }
+
+    @Override
+    public boolean verifyAuthToken(String authToken) throws DataAccessException {
+        return (this.getUsername(authToken) != null);
+    }
+
+    @Override
+    public String getUsername(String authToken) throws DataAccessException {
+        if (authToken == null) {
+            throw new DataAccessException("null authToken");
+        }
+        SignedToken token = this.verify(authToken);
+        if ((token == null) || this.revocations.containsKey(token.tokenID())) {
+            return null;
+        }
+        return token.username();
+    }
+
+    /**
+     * Forget the revocations of expired authTokens (which fail verification anyway)
+     */
+    @Override
+    public int deleteExpiredAuths(int limit) throws DataAccessException {
+        long nowMillis = System.currentTimeMillis();
+        this.revocations.values().removeIf(expiresAtMillis -> (expiresAtMillis <= nowMillis));
+        return this.revocationDAO.deleteExpiredRevocations(limit);
+    }
+
+    @Override
+    public void clearAuths() throws DataAccessException {
+        this.notBeforeMillis = System.currentTimeMillis();
+        this.revocationDAO.clearRevocations();
+        this.revocations.clear();
+    }
+
+    /**
+     * Stop reloading revocations
+     */
+    @Override
+    public void close() {
+        this.refresher.shutdownNow();
+    }
+
+    private record SignedToken(String username, String tokenID, long expiresAtMillis) {
+    }
+
+    /**
+     * Check an authToken's signature and lifetime (but not whether it was revoked)
+     *
+     * @param authToken the authToken to check
+     * @return the authToken's contents, or null if it is malformed, forged, expired, or issued before a clear
+     */
+    private SignedToken verify(String authToken) {
+        String[] fields = authToken.split("\\.", -1);
+        if (fields.length != 5) {
+            return null;
+        }
+        try {
+            String payload = authToken.substring(0, authToken.lastIndexOf('.'));
+            // compare in constant time, so forgeries cannot be built up byte by byte from response times
+            if (!MessageDigest.isEqual(this.sign(payload), Base64.getUrlDecoder().decode(fields[4]))) {
+                return null;
+            }
+            long issuedAtMillis = Long.parseLong(fields[1]);
+            long expiresAtMillis = Long.parseLong(fields[2]);
+            if ((issuedAtMillis < this.notBeforeMillis) || (expiresAtMillis <= System.currentTimeMillis())) {
+                return null;
+            }
+            String username = new String(Base64.getUrlDecoder().decode(fields[0]), StandardCharsets.UTF_8);
+            return new SignedToken(username, fields[3], expiresAtMillis);
+        } catch (IllegalArgumentException e) {
+            // bad base64 or number (NumberFormatException is an IllegalArgumentException)
+            return null;
+        }
+    }
+
+    private byte[] sign(String payload) {
+        Mac mac = this.macPool.poll();
+        if (mac == null) {
+            mac = this.newMac();
+        }
+        try {
+            return mac.doFinal(payload.getBytes(StandardCharsets.UTF_8));
+        } finally {
+            // doFinal leaves the Mac ready for reuse (dropped if the pool is full)
+            this.macPool.offer(mac);
+        }
+    }
+
+    /**
+     * @return a Mac initialized with the key, cloned from the prototype if the provider supports it
+     */
+    private Mac newMac() {
+        try {
+            return (Mac) this.macPrototype.clone();
+        } catch (CloneNotSupportedException e) {
+            return this.initMac();
+        }
+    }
+
+    private Mac initMac() {
+        try {
+            Mac mac = Mac.getInstance(MAC_ALGORITHM);
+            mac.init(this.key);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Could not initialize " + MAC_ALGORITHM, e);
+        }
+    }
+
+    private static String encode(byte[] bytes) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    /**
+     * Add the revocations made by other server instances since the last refresh
+     * (called by the constructor, then only by the refresher thread)
+     */
+    private void refreshRevocations() throws DataAccessException {
+        long startMillis = System.currentTimeMillis();
+        this.revocations.putAll(this.revocationDAO.listRevocations(
+                Math.max(0, (this.lastRefreshMillis - REVOCATION_CLOCK_SKEW_MILLIS))));
+        // only advanced once the load succeeds, so a failed refresh is covered by the next
+        this.lastRefreshMillis = startMillis;
+    }
+}
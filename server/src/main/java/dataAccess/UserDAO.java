@@ -8,6 +8,7 @@ public interface UserDAO {
      *
      * @param user the data object to populate the user with
      * @throws DataAccessException if user null or username of user already taken
+     * @throws HasherBusyException if the password could not be hashed because too many are waiting
      */
     void createUser(UserData user) throws DataAccessException;
 
@@ -25,6 +26,7 @@ public interface UserDAO {
      * @param password the password to verify
      * @return true if the given login info matches for a user in the database
      * @throws DataAccessException if username or password are null
+     * @throws HasherBusyException if the password could not be checked because too many are waiting
      */
     boolean verifyUser(String username, String password) throws DataAccessException;
 
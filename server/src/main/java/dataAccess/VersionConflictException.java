@@ -0,0 +1,11 @@
+package dataAccess;
+
+/**
+ * Indicates a write was rejected because the stored data changed since it was read
+ * (the writer should read the data again and retry)
+ */
+public class VersionConflictException extends DataAccessException {
+    public VersionConflictException(String message) {
+        super(message);
+    }
+}
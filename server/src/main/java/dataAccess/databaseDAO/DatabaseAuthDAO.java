@@ -4,17 +4,39 @@ import dataAccess.AuthDAO;
 import dataAccess.DataAccessException;
 import dataAccess.DatabaseManager;
 
-import java.util.NoSuchElementException;
+import java.time.Instant;
 import java.util.UUID;
 
+/**
+ * Each authentication row carries the time it expires: lookups reject expired rows in the same primary-key
+ * lookup, and deleteExpiredAuths() removes them in batches (through the expiresAt index), so the table only
+ * holds live sessions and stays small.
+ */
 public class DatabaseAuthDAO implements AuthDAO {
+    private final long sessionTtlMillis;
+
     public DatabaseAuthDAO() throws DataAccessException {
+        this(DEFAULT_SESSION_TTL_MILLIS);
+    }
+
+    /**
+     * @param sessionTtlMillis how long an authentication lasts after it is created
+     */
+    public DatabaseAuthDAO(long sessionTtlMillis) throws DataAccessException {
+        this.sessionTtlMillis = sessionTtlMillis;
         DatabaseManager.executeUpdate("""
                 CREATE TABLE IF NOT EXISTS auth (
                     `authToken` VARCHAR(255) NOT NULL,
                     `username` VARCHAR(255) NOT NULL,
+                    `expiresAt` TIMESTAMP(3) NULL DEFAULT NULL,
                     PRIMARY KEY (`authToken`)
                 )""");
+        DatabaseManager.addColumnIfMissing("auth", "expiresAt", "TIMESTAMP(3) NULL DEFAULT NULL");
+        // sessions created before authentications expired get a full session from now
+        DatabaseManager.executeUpdate(
+                "UPDATE auth SET expiresAt=? WHERE expiresAt IS NULL",
+                Instant.now().plusMillis(this.sessionTtlMillis));
+        DatabaseManager.addIndexIfMissing("auth", "auth_expires_idx", "expiresAt");
     }
 
     @Override
@@ -24,8 +46,8 @@ public class DatabaseAuthDAO implements AuthDAO {
         }
         String authToken = UUID.randomUUID().toString();
         DatabaseManager.executeUpdate(
-                "INSERT INTO auth (authToken, username) VALUES (?, ?)",
-                authToken, username);
+                "INSERT INTO auth (authToken, username, expiresAt) VALUES (?, ?, ?)",
+                authToken, username, Instant.now().plusMillis(this.sessionTtlMillis));
         return authToken;
     }
 
@@ -44,10 +66,10 @@ public class DatabaseAuthDAO implements AuthDAO {
         if (authToken == null) {
             throw new DataAccessException("null authToken");
         }
-        return !(DatabaseManager.executeQuery(
-                (new String[]{"authToken", "username"}),
-                "SELECT authToken, username FROM auth WHERE authToken=?",
-                authToken).isEmpty());
+        return (DatabaseManager.queryOne(
+                "SELECT 1 FROM auth WHERE authToken=? AND expiresAt>?",
+                (row) -> Boolean.TRUE,
+                authToken, Instant.now()) != null);
     }
 
     @Override
@@ -55,14 +77,18 @@ public class DatabaseAuthDAO implements AuthDAO {
         if (authToken == null) {
             throw new DataAccessException("null authToken");
         }
-        try {
-            return (String) (DatabaseManager.executeQuery(
-                    (new String[]{"username"}),
-                    "SELECT authToken, username FROM auth WHERE authToken=?",
-                    authToken).getFirst()[0]);
-        } catch (NoSuchElementException e) {
-            return null;
-        }
+        return DatabaseManager.queryOne(
+                "SELECT username FROM auth WHERE authToken=? AND expiresAt>?",
+                (row) -> row.getString(1),
+                authToken, Instant.now());
+    }
+
+    @Override
+    public int deleteExpiredAuths(int limit) throws DataAccessException {
+        // a bounded range of the expiresAt index per statement, so each batch holds its locks briefly
+        return DatabaseManager.executeUpdateCount(
+                "DELETE FROM auth WHERE expiresAt<=? ORDER BY expiresAt LIMIT ?",
+                Instant.now(), limit);
     }
 
     @Override
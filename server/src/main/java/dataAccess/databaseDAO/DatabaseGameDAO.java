@@ -1,16 +1,44 @@
 package dataAccess.databaseDAO;
 
 import chess.ChessGame;
+import chess.ChessMove;
 import com.google.gson.Gson;
 import dataAccess.DataAccessException;
 import dataAccess.DatabaseManager;
 import dataAccess.GameDAO;
+import dataAccess.GameQuery;
+import dataAccess.VersionConflictException;
 import model.GameData;
+import model.GameSummary;
 
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.util.ArrayList;
-import java.util.NoSuchElementException;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
 
+/**
+ * Games are stored as a snapshot (the serialized game, in the game table) plus an append-only log of the
+ * moves made since (the game_moves table, one packed move per ply). Recording a move appends one row,
+ * and rewrites the snapshot only every SNAPSHOT_INTERVAL plies or when the game ends;
+ * a loaded game replays the moves logged after its snapshot when it is first used (see GameData).
+ * <p>
+ * The isOver, moveCount and lastMoveTime columns duplicate what the game state knows, so games can be listed
+ * (as GameSummary) without reading or decoding any game state.
+ * <p>
+ * Every write sets the game's version column to the writer's new version (by default one more than it read),
+ * and only applies if the version is still the one the writer read (optimistic concurrency), so server instances sharing the database cannot overwrite each
+ * other's changes to a game without any lock held between the read and the write.
+ */
 public class DatabaseGameDAO implements GameDAO {
+    // plies between snapshots: bounds the replay on load, and amortizes the snapshot rewrite across moves
+    private static final int SNAPSHOT_INTERVAL = 16;
+    // the columns mapGameRow reads
+    private static final String GAME_ROW_COLUMNS =
+            "gameID, whiteUsername, blackUsername, gameName, game, version, snapshotPly";
+
     public DatabaseGameDAO() throws DataAccessException {
         DatabaseManager.executeUpdate("""
                 CREATE TABLE IF NOT EXISTS game (
@@ -19,8 +47,29 @@ public class DatabaseGameDAO implements GameDAO {
                     `blackUsername` VARCHAR(255) DEFAULT NULL,
                     `gameName` VARCHAR(255) NOT NULL,
                     `game` TEXT NOT NULL,
+                    `snapshotPly` INT NOT NULL DEFAULT 0,
+                    `isOver` BOOLEAN NOT NULL DEFAULT FALSE,
+                    `moveCount` INT NOT NULL DEFAULT 0,
+                    `lastMoveTime` TIMESTAMP(3) NULL DEFAULT NULL,
+                    `version` INT NOT NULL DEFAULT 0,
                     PRIMARY KEY (`gameID`)
                 )""");
+        DatabaseManager.addColumnIfMissing("game", "snapshotPly", "INT NOT NULL DEFAULT 0");
+        DatabaseManager.addColumnIfMissing("game", "isOver", "BOOLEAN NOT NULL DEFAULT FALSE");
+        DatabaseManager.addColumnIfMissing("game", "moveCount", "INT NOT NULL DEFAULT 0");
+        DatabaseManager.addColumnIfMissing("game", "lastMoveTime", "TIMESTAMP(3) NULL DEFAULT NULL");
+        DatabaseManager.addColumnIfMissing("game", "version", "INT NOT NULL DEFAULT 0");
+        // listing filters by status or player, paging by gameID (see listGameSummaries)
+        DatabaseManager.addIndexIfMissing("game", "game_status_idx", "isOver, gameID");
+        DatabaseManager.addIndexIfMissing("game", "game_white_idx", "whiteUsername, gameID");
+        DatabaseManager.addIndexIfMissing("game", "game_black_idx", "blackUsername, gameID");
+        DatabaseManager.executeUpdate("""
+                CREATE TABLE IF NOT EXISTS game_moves (
+                    `gameID` INT NOT NULL,
+                    `ply` INT NOT NULL,
+                    `move` SMALLINT NOT NULL,
+                    PRIMARY KEY (`gameID`, `ply`)
+                )""");
     }
 
     @Override
@@ -35,58 +84,214 @@ public class DatabaseGameDAO implements GameDAO {
 
     @Override
     public GameData getGame(int gameID) throws DataAccessException {
-        Object[] gameRow;
-        try {
-            gameRow = DatabaseManager.executeQuery(
-                    (new String[]{"gameID", "whiteUsername", "blackUsername", "gameName", "game"}),
-                    "SELECT gameID, whiteUsername, blackUsername, gameName, game FROM game WHERE gameID=?",
-                    gameID).getFirst();
-        } catch (NoSuchElementException e) {
+        GameRow gameRow = DatabaseManager.queryOne(
+                "SELECT " + GAME_ROW_COLUMNS + " FROM game WHERE gameID=?",
+                DatabaseGameDAO::mapGameRow,
+                gameID);
+        if (gameRow == null) {
             return null;
         }
-        return new GameData(gameID,
-                (String) gameRow[1],
-                (String) gameRow[2],
-                (String) gameRow[3],
-                (new Gson()).fromJson((String) gameRow[4], ChessGame.class));
+        // after the snapshot as read, not as it is now: a snapshot taken since would otherwise skip the moves
+        // between the two snapshots (a move recorded since is replayed too, and a write based on this read
+        // is then rejected as stale, since the version read predates it)
+        ArrayList<ChessMove> moves = DatabaseManager.query(
+                "SELECT move FROM game_moves WHERE gameID=? AND ply>? ORDER BY ply",
+                (row -> ChessMove.unpack(row.getShort(1))),
+                gameID, gameRow.snapshotPly());
+        return gameRow.gameData(moves);
     }
 
     @Override
     public ArrayList<GameData> listGames() throws DataAccessException {
-        ArrayList<Object[]> queryResult = DatabaseManager.executeQuery(
-                (new String[]{"gameID", "whiteUsername", "blackUsername", "gameName", "game"}),
-                "SELECT gameID, whiteUsername, blackUsername, gameName, game FROM game");
-        ArrayList<GameData> gameList = new ArrayList<>();
-        for (Object[] gameRow : queryResult) {
-            gameList.add(new GameData(
-                    (int) gameRow[0],
-                    (String) gameRow[1],
-                    (String) gameRow[2],
-                    (String) gameRow[3],
-                    (new Gson()).fromJson((String) gameRow[4], ChessGame.class)));
-        }
-        return gameList;
+        // both reads see the same consistent snapshot of the database, so the join below matches the
+        // snapshotPly of the rows as read even if another writer takes a snapshot in between
+        return DatabaseManager.inTransaction(Connection.TRANSACTION_REPEATABLE_READ, () -> {
+            ArrayList<GameRow> gameRows = DatabaseManager.query(
+                    "SELECT " + GAME_ROW_COLUMNS + " FROM game",
+                    DatabaseGameDAO::mapGameRow);
+            // the moves logged after each game's snapshot, in one query rather than one per game
+            HashMap<Integer, ArrayList<ChessMove>> movesByGame = new HashMap<>();
+            DatabaseManager.query("""
+                            SELECT m.gameID, m.move FROM game_moves m
+                            JOIN game g ON m.gameID = g.gameID AND m.ply > g.snapshotPly
+                            ORDER BY m.gameID, m.ply""",
+                    (row -> movesByGame.computeIfAbsent(row.getInt(1), (gameID -> new ArrayList<>()))
+                            .add(ChessMove.unpack(row.getShort(2)))));
+            ArrayList<GameData> games = new ArrayList<>();
+            for (GameRow gameRow : gameRows) {
+                games.add(gameRow.gameData(movesByGame.getOrDefault(gameRow.gameID(), new ArrayList<>())));
+            }
+            return games;
+        });
     }
 
     @Override
-    public void updateGame(int gameID, GameData game) throws DataAccessException {
-        if (getGame(gameID) == null) {
-            throw new DataAccessException("cannot update non-existing game");
+    public ArrayList<GameSummary> listGameSummaries(GameQuery query) throws DataAccessException {
+        // keyset pagination: seek past the cursor on the primary key rather than OFFSET, so every page costs the same
+        StringBuilder statement = new StringBuilder(
+                "SELECT gameID, gameName, whiteUsername, blackUsername, isOver, moveCount, lastMoveTime FROM game WHERE TRUE");
+        ArrayList<Object> params = new ArrayList<>();
+        if (query.afterGameID() != null) {
+            statement.append(query.descending() ? " AND gameID<?" : " AND gameID>?");
+            params.add(query.afterGameID());
+        }
+        if (query.status() != null) {
+            statement.append(switch (query.status()) {
+                case OPEN -> " AND isOver=FALSE AND (whiteUsername IS NULL OR blackUsername IS NULL)";
+                case IN_PROGRESS -> " AND isOver=FALSE AND whiteUsername IS NOT NULL AND blackUsername IS NOT NULL";
+                case OVER -> " AND isOver=TRUE";
+            });
         }
-        DatabaseManager.executeUpdate(
-                "DELETE FROM game WHERE gameID=?",
+        if (query.player() != null) {
+            statement.append(" AND (whiteUsername=? OR blackUsername=?)");
+            params.add(query.player());
+            params.add(query.player());
+        }
+        statement.append(query.descending() ? " ORDER BY gameID DESC" : " ORDER BY gameID").append(" LIMIT ?");
+        params.add(query.limit());
+        return DatabaseManager.query(
+                statement.toString(),
+                (row -> new GameSummary(
+                        row.getInt(1),
+                        row.getString(2),
+                        row.getString(3),
+                        row.getString(4),
+                        GameSummary.statusOf(row.getString(3), row.getString(4), row.getBoolean(5)),
+                        row.getInt(6),
+                        ((row.getTimestamp(7) == null) ? null : row.getTimestamp(7).getTime()))),
+                params.toArray());
+    }
+
+    /**
+     * A game as read from its row, with the ply its snapshot covered at the time of the read
+     */
+    private record GameRow(int gameID, String whiteUsername, String blackUsername, String gameName,
+                           String encodedGame, int version, int snapshotPly) {
+        /**
+         * @param moves the moves logged after the snapshot
+         * @return the game data, with the snapshot left encoded and the moves left to replay until it is used
+         */
+        private GameData gameData(List<ChessMove> moves) {
+            GameData gameData = GameData.withEncodedGame(this.gameID, this.whiteUsername, this.blackUsername,
+                    this.gameName, this.encodedGame, moves);
+            gameData.setVersion(this.version);
+            return gameData;
+        }
+    }
+
+    /**
+     * Map a row of GAME_ROW_COLUMNS to a GameRow
+     */
+    private static GameRow mapGameRow(ResultSet row) throws SQLException {
+        return new GameRow(
+                row.getInt(1),
+                row.getString(2),
+                row.getString(3),
+                row.getString(4),
+                row.getString(5),
+                row.getInt(6),
+                row.getInt(7));
+    }
+
+    @Override
+    public void updateGame(int gameID, GameData game, int newVersion) throws DataAccessException {
+        DatabaseManager.inTransaction(() -> {
+            // one in-place compare-and-set statement: the matched row count doubles as the existence check
+            int rowsMatched;
+            if (game.isGameDecoded()) {
+                // the rewritten game is a new snapshot, covering every move logged so far
+                rowsMatched = DatabaseManager.executeUpdateCount(
+                        "UPDATE game SET gameID=?, whiteUsername=?, blackUsername=?, gameName=?, game=?, " +
+                                "snapshotPly=?, isOver=?, moveCount=?, version=? WHERE gameID=? AND version=?",
+                        game.gameID(),
+                        game.whiteUsername(),
+                        game.blackUsername(),
+                        game.gameName(),
+                        game.encodedGame(),
+                        game.game().getMoveCount(),
+                        game.game().isOver(),
+                        game.game().getMoveCount(),
+                        newVersion,
+                        gameID,
+                        game.version());
+            } else {
+                // a game that was never decoded is unchanged since it was read (its snapshot and the moves
+                // logged after it are still the stored ones), so only the metadata needs writing
+                rowsMatched = DatabaseManager.executeUpdateCount(
+                        "UPDATE game SET gameID=?, whiteUsername=?, blackUsername=?, gameName=?, version=? " +
+                                "WHERE gameID=? AND version=?",
+                        game.gameID(),
+                        game.whiteUsername(),
+                        game.blackUsername(),
+                        game.gameName(),
+                        newVersion,
+                        gameID,
+                        game.version());
+            }
+            if (rowsMatched == 0) {
+                DatabaseGameDAO.throwMissingOrConflict(gameID, "cannot update non-existing game");
+            }
+            if (gameID != game.gameID()) {
+                // the moves logged under the old gameID are all covered by the new snapshot
+                DatabaseManager.executeUpdate("DELETE FROM game_moves WHERE gameID=?", gameID);
+            }
+            return null;
+        });
+        game.setVersion(newVersion);
+    }
+
+    @Override
+    public void recordMove(int gameID, GameData game, ChessMove move, int newVersion) throws DataAccessException {
+        int ply = game.game().getMoveCount();
+        DatabaseManager.inTransaction(() -> {
+            // compare-and-set the game row first, keeping the summary columns current and taking a snapshot
+            // in the same statement when one is due (the row stays locked until the move is appended)
+            int rowsMatched;
+            if (((ply % SNAPSHOT_INTERVAL) == 0) || game.game().isOver()) {
+                rowsMatched = DatabaseManager.executeUpdateCount(
+                        "UPDATE game SET game=?, snapshotPly=?, isOver=?, moveCount=?, lastMoveTime=?, " +
+                                "version=? WHERE gameID=? AND version=?",
+                        game.encodedGame(), ply, game.game().isOver(), ply, Instant.now(), newVersion, gameID,
+                        game.version());
+            } else {
+                rowsMatched = DatabaseManager.executeUpdateCount(
+                        "UPDATE game SET isOver=?, moveCount=?, lastMoveTime=?, version=? " +
+                                "WHERE gameID=? AND version=?",
+                        game.game().isOver(), ply, Instant.now(), newVersion, gameID, game.version());
+            }
+            if (rowsMatched == 0) {
+                DatabaseGameDAO.throwMissingOrConflict(gameID, "cannot record a move for non-existing game");
+            }
+            // a repeated ply violates the primary key
+            DatabaseManager.executeUpdate(
+                    "INSERT INTO game_moves (gameID, ply, move) VALUES (?, ?, ?)",
+                    gameID, ply, move.pack());
+            return null;
+        });
+        game.setVersion(newVersion);
+    }
+
+    /**
+     * Explain why a versioned write to a game matched no rows
+     *
+     * @param missingMessage the message if the game does not exist
+     * @throws VersionConflictException if the game exists (so its version has changed)
+     * @throws DataAccessException      if the game does not exist
+     */
+    private static void throwMissingOrConflict(int gameID, String missingMessage) throws DataAccessException {
+        Integer version = DatabaseManager.queryOne(
+                "SELECT version FROM game WHERE gameID=?",
+                (row -> row.getInt(1)),
                 gameID);
-        DatabaseManager.executeUpdate(
-                "INSERT INTO game (gameID, whiteUsername, blackUsername, gameName, game) VALUES (?, ?, ?, ?, ?)",
-                game.gameID(),
-                game.whiteUsername(),
-                game.blackUsername(),
-                game.gameName(),
-                ((new Gson()).toJson(game.game())));
+        if (version == null) {
+            throw new DataAccessException(missingMessage);
+        }
+        throw new VersionConflictException(String.format("game %d changed since it was read", gameID));
     }
 
     @Override
     public void clearGames() throws DataAccessException {
         DatabaseManager.executeUpdate("TRUNCATE game");
+        DatabaseManager.executeUpdate("TRUNCATE game_moves");
     }
 }
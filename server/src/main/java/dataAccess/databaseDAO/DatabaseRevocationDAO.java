@@ -0,0 +1,64 @@
+package dataAccess.databaseDAO;
+
+import dataAccess.DataAccessException;
+import dataAccess.DatabaseManager;
+import dataAccess.RevocationDAO;
+
+import java.time.Instant;
+import java.util.HashMap;
+
+/**
+ * Revocations are kept only until the revoked token would have expired anyway,
+ * so the table holds at most one session TTL's worth of logouts.
+ * <p>
+ * Each revocation is stamped with the database's clock when it is made, so the instances sharing the table
+ * can each load just the revocations made since their last load.
+ */
+public class DatabaseRevocationDAO implements RevocationDAO {
+    public DatabaseRevocationDAO() throws DataAccessException {
+        DatabaseManager.executeUpdate("""
+                CREATE TABLE IF NOT EXISTS revoked_auth (
+                    `tokenID` VARCHAR(64) NOT NULL,
+                    `expiresAt` TIMESTAMP(3) NOT NULL,
+                    `revokedAt` TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3),
+                    PRIMARY KEY (`tokenID`),
+                    INDEX `revoked_auth_expires_idx` (`expiresAt`)
+                )""");
+        DatabaseManager.addColumnIfMissing("revoked_auth", "revokedAt",
+                "TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3)");
+        // refreshes list the revocations made since the last one (see listRevocations)
+        DatabaseManager.addIndexIfMissing("revoked_auth", "revoked_auth_revoked_idx", "revokedAt");
+    }
+
+    @Override
+    public void revoke(String tokenID, long expiresAtMillis) throws DataAccessException {
+        if (tokenID == null) {
+            throw new DataAccessException("null tokenID");
+        }
+        DatabaseManager.executeUpdate(
+                "INSERT IGNORE INTO revoked_auth (tokenID, expiresAt) VALUES (?, ?)",
+                tokenID, Instant.ofEpochMilli(expiresAtMillis));
+    }
+
+    @Override
+    public HashMap<String, Long> listRevocations(long revokedSinceMillis) throws DataAccessException {
+        HashMap<String, Long> revocations = new HashMap<>();
+        DatabaseManager.query(
+                "SELECT tokenID, expiresAt FROM revoked_auth WHERE revokedAt>=? AND expiresAt>?",
+                (row -> revocations.put(row.getString(1), row.getTimestamp(2).getTime())),
+                Instant.ofEpochMilli(revokedSinceMillis), Instant.now());
+        return revocations;
+    }
+
+    @Override
+    public int deleteExpiredRevocations(int limit) throws DataAccessException {
+        return DatabaseManager.executeUpdateCount(
+                "DELETE FROM revoked_auth WHERE expiresAt<=? ORDER BY expiresAt LIMIT ?",
+                Instant.now(), limit);
+    }
+
+    @Override
+    public void clearRevocations() throws DataAccessException {
+        DatabaseManager.executeUpdate("TRUNCATE revoked_auth");
+    }
+}
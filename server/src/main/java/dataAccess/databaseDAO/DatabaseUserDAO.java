@@ -2,14 +2,22 @@ package dataAccess.databaseDAO;
 
 import dataAccess.DataAccessException;
 import dataAccess.DatabaseManager;
+import dataAccess.PasswordHasher;
 import dataAccess.UserDAO;
 import model.UserData;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
-
-import java.util.NoSuchElementException;
 
 public class DatabaseUserDAO implements UserDAO {
+    private final PasswordHasher passwordHasher;
+
     public DatabaseUserDAO() throws DataAccessException {
+        this(new PasswordHasher());
+    }
+
+    /**
+     * @param passwordHasher the hasher to hash and check passwords on
+     */
+    public DatabaseUserDAO(PasswordHasher passwordHasher) throws DataAccessException {
+        this.passwordHasher = passwordHasher;
         DatabaseManager.executeUpdate("""
                 CREATE TABLE IF NOT EXISTS user (
                     `username` VARCHAR(255) NOT NULL,
@@ -30,7 +38,7 @@ public class DatabaseUserDAO implements UserDAO {
         DatabaseManager.executeUpdate(
                 "INSERT INTO user (username, password, email) VALUES (?, ?, ?)",
                 user.username(),
-                (new BCryptPasswordEncoder()).encode(user.password()),
+                this.passwordHasher.hash(user.password()),
                 user.email());
     }
 
@@ -39,14 +47,10 @@ public class DatabaseUserDAO implements UserDAO {
         if (username == null) {
             throw new DataAccessException("null username");
         }
-        try {
-            return (String) DatabaseManager.executeQuery(
-                    (new String[]{"email"}),
-                    "SELECT username, password, email FROM user WHERE username=?",
-                    username).getFirst()[0];
-        } catch (NoSuchElementException e) {
-            return null;
-        }
+        return DatabaseManager.queryOne(
+                "SELECT email FROM user WHERE username=?",
+                (row) -> row.getString(1),
+                username);
     }
 
     @Override
@@ -54,17 +58,14 @@ public class DatabaseUserDAO implements UserDAO {
         if ((username == null) || (password == null)) {
             throw new DataAccessException("null credentials");
         }
-        String hashedPassword;
-        try {
-            Object[] userLine = DatabaseManager.executeQuery(
-                    (new String[]{"password"}),
-                    "SELECT username, password, email FROM user WHERE username=?",
-                    username).getFirst();
-            hashedPassword = (String) userLine[0];
-        } catch (NoSuchElementException e) {
+        String hashedPassword = DatabaseManager.queryOne(
+                "SELECT password FROM user WHERE username=?",
+                (row) -> row.getString(1),
+                username);
+        if (hashedPassword == null) {
             return false;
         }
-        return (new BCryptPasswordEncoder()).matches(password, hashedPassword);
+        return this.passwordHasher.matches(password, hashedPassword);
     }
 
     @Override
@@ -4,14 +4,34 @@ import dataAccess.AuthDAO;
 import dataAccess.DataAccessException;
 import model.AuthData;
 
-import java.util.HashSet;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.UUID;
 
 public class MemoryAuthDAO implements AuthDAO {
-    private final HashSet<AuthData> authTable;
+    // authToken -> authentication
+    private final HashMap<String, Session> authTable;
+    private final long sessionTtlMillis;
+
+    /**
+     * An authentication and when it expires (epoch milliseconds)
+     */
+    private record Session(AuthData auth, long expiresAtMillis) {
+        private boolean isExpired(long nowMillis) {
+            return (this.expiresAtMillis <= nowMillis);
+        }
+    }
 
     public MemoryAuthDAO() {
-        this.authTable = new HashSet<>();
+        this(DEFAULT_SESSION_TTL_MILLIS);
+    }
+
+    /**
+     * @param sessionTtlMillis how long an authentication lasts after it is created
+     */
+    public MemoryAuthDAO(long sessionTtlMillis) {
+        this.authTable = new HashMap<>();
+        this.sessionTtlMillis = sessionTtlMillis;
     }
 
     @Override
@@ -20,7 +40,8 @@ public class MemoryAuthDAO implements AuthDAO {
             throw new DataAccessException("invalid username");
         }
         String authToken = UUID.randomUUID().toString();
-        this.authTable.add(new AuthData(authToken, username));
+        this.authTable.put(authToken, new Session((new AuthData(authToken, username)),
+                (System.currentTimeMillis() + this.sessionTtlMillis)));
         return authToken;
     }
 
@@ -29,20 +50,12 @@ public class MemoryAuthDAO implements AuthDAO {
         if (authToken == null) {
             throw new DataAccessException("null authToken");
         }
-        this.authTable.removeIf(auth -> auth.authToken().equals(authToken));
+        this.authTable.remove(authToken);
     }
 
     @Override
     public boolean verifyAuthToken(String authToken) throws DataAccessException {
-        if (authToken == null) {
-            throw new DataAccessException("null authToken");
-        }
-        for (AuthData auth : this.authTable) {
-            if (auth.authToken().equals(authToken)) {
-                return true;
-            }
-        }
-        return false;
+        return (this.getUsername(authToken) != null);
     }
 
     @Override
@@ -50,12 +63,25 @@ public class MemoryAuthDAO implements AuthDAO {
         if (authToken == null) {
             throw new DataAccessException("null authToken");
         }
-        for (AuthData auth : this.authTable) {
-            if (auth.authToken().equals(authToken)) {
-                return auth.username();
+        Session session = this.authTable.get(authToken);
+        if ((session == null) || session.isExpired(System.currentTimeMillis())) {
+            return null;
+        }
+        return session.auth().username();
+    }
+
+    @Override
+    public int deleteExpiredAuths(int limit) {
+        long nowMillis = System.currentTimeMillis();
+        int deleted = 0;
+        Iterator<Session> sessions = this.authTable.values().iterator();
+        while ((deleted < limit) && sessions.hasNext()) {
+            if (sessions.next().isExpired(nowMillis)) {
+                sessions.remove();
+                deleted++;
             }
         }
-        return null;
+        return deleted;
     }
 
     @Override
@@ -1,19 +1,31 @@
 package dataAccess.memoryDAO;
 
 import chess.ChessGame;
+import chess.ChessMove;
 import dataAccess.DataAccessException;
 import dataAccess.GameDAO;
+import dataAccess.GameQuery;
+import dataAccess.VersionConflictException;
 import model.GameData;
+import model.GameSummary;
 
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashMap;
 
+/**
+ * Games are stored as copies, and read out as copies, so (as with a database) changes to a game read from
+ * the DAO only take effect when written back, and writes are versioned the same way (see GameDAO).
+ */
 public class MemoryGameDAO implements GameDAO {
     private final HashMap<Integer, GameData> gameTable;
+    // gameID -> when the last move was recorded (epoch milliseconds)
+    private final HashMap<Integer, Long> lastMoveTimes;
     private int nextGameID;
 
     public MemoryGameDAO() {
         this.gameTable = new HashMap<>();
+        this.lastMoveTimes = new HashMap<>();
         this.nextGameID = 0;
     }
 
@@ -36,27 +48,65 @@ public class MemoryGameDAO implements GameDAO {
 
     @Override
     public GameData getGame(int gameID) {
-        return this.gameTable.get(gameID);
+        GameData gameData = this.gameTable.get(gameID);
+        return (gameData == null) ? null : gameData.copy();
     }
 
     @Override
     public ArrayList<GameData> listGames() {
-        return new ArrayList<>(this.gameTable.values());
+        ArrayList<GameData> games = new ArrayList<>();
+        for (GameData gameData : this.gameTable.values()) {
+            games.add(gameData.copy());
+        }
+        return games;
+    }
+
+    @Override
+    public ArrayList<GameSummary> listGameSummaries(GameQuery query) {
+        ArrayList<GameSummary> summaries = new ArrayList<>();
+        for (GameData gameData : this.gameTable.values()) {
+            if ((query.afterGameID() != null) && (query.descending()
+                    ? (gameData.gameID() >= query.afterGameID()) : (gameData.gameID() <= query.afterGameID()))) {
+                continue;
+            }
+            GameSummary summary = new GameSummary(gameData.gameID(), gameData.gameName(),
+                    gameData.whiteUsername(), gameData.blackUsername(),
+                    GameSummary.statusOf(gameData.whiteUsername(), gameData.blackUsername(), gameData.game().isOver()),
+                    gameData.game().getMoveCount(), this.lastMoveTimes.get(gameData.gameID()));
+            if (query.matches(summary)) {
+                summaries.add(summary);
+            }
+        }
+        summaries.sort(query.descending()
+                ? Comparator.comparingInt(GameSummary::gameID).reversed() : Comparator.comparingInt(GameSummary::gameID));
+        return new ArrayList<>(summaries.subList(0, Math.min(query.limit(), summaries.size())));
     }
 
     @Override
-    public void updateGame(int gameID, GameData game) throws DataAccessException {
-        if (getGame(gameID) == null) {
+    public void updateGame(int gameID, GameData game, int newVersion) throws DataAccessException {
+        GameData storedGame = this.gameTable.get(gameID);
+        if (storedGame == null) {
             throw new DataAccessException("cannot update non-existing game");
         }
+        if (storedGame.version() != game.version()) {
+            throw new VersionConflictException(String.format("game %d changed since it was read", gameID));
+        }
         if (gameID != game.gameID()) {
             this.gameTable.remove(gameID);
         }
-        this.gameTable.put(game.gameID(), game);
+        game.setVersion(newVersion);
+        this.gameTable.put(game.gameID(), game.copy());
+    }
+
+    @Override
+    public void recordMove(int gameID, GameData game, ChessMove move, int newVersion) throws DataAccessException {
+        this.updateGame(gameID, game, newVersion);
+        this.lastMoveTimes.put(game.gameID(), System.currentTimeMillis());
     }
 
     @Override
     public void clearGames() {
         this.gameTable.clear();
+        this.lastMoveTimes.clear();
     }
 }
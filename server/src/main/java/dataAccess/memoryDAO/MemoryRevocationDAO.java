@@ -0,0 +1,62 @@
+package dataAccess.memoryDAO;
+
+import dataAccess.DataAccessException;
+import dataAccess.RevocationDAO;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class MemoryRevocationDAO implements RevocationDAO {
+    // tokenID -> revocation (concurrent, as a SignedAuthDAO lists revocations from its refresher thread)
+    private final ConcurrentHashMap<String, Revocation> revocationTable;
+
+    /**
+     * When a token expires and when it was revoked (epoch milliseconds)
+     */
+    private record Revocation(long expiresAtMillis, long revokedAtMillis) {
+    }
+
+    public MemoryRevocationDAO() {
+        this.revocationTable = new ConcurrentHashMap<>();
+    }
+
+    @Override
+    public void revoke(String tokenID, long expiresAtMillis) throws DataAccessException {
+        if (tokenID == null) {
+            throw new DataAccessException("null tokenID");
+        }
+        this.revocationTable.putIfAbsent(tokenID, new Revocation(expiresAtMillis, System.currentTimeMillis()));
+    }
+
+    @Override
+    public HashMap<String, Long> listRevocations(long revokedSinceMillis) {
+        long nowMillis = System.currentTimeMillis();
+        HashMap<String, Long> revocations = new HashMap<>();
+        this.revocationTable.forEach((tokenID, revocation) -> {
+            if ((revocation.revokedAtMillis() >= revokedSinceMillis) && (revocation.expiresAtMillis() > nowMillis)) {
+                revocations.put(tokenID, revocation.expiresAtMillis());
+            }
+        });
+        return revocations;
+    }
+
+    @Override
+    public int deleteExpiredRevocations(int limit) {
+        long nowMillis = System.currentTimeMillis();
+        int deleted = 0;
+        Iterator<Revocation> revocations = this.revocationTable.values().iterator();
+        while ((deleted < limit) && revocations.hasNext()) {
+            if (revocations.next().expiresAtMillis() <= nowMillis) {
+                revocations.remove();
+                deleted++;
+            }
+        }
+        return deleted;
+    }
+
+    @Override
+    public void clearRevocations() {
+        this.revocationTable.clear();
+    }
+}
@@ -1,17 +1,26 @@
 package dataAccess.memoryDAO;
 
 import dataAccess.DataAccessException;
+import dataAccess.PasswordHasher;
 import dataAccess.UserDAO;
 import model.UserData;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 
 import java.util.HashSet;
 
 public class MemoryUserDAO implements UserDAO {
     private final HashSet<UserData> userTable;
+    private final PasswordHasher passwordHasher;
 
     public MemoryUserDAO() {
+        this(new PasswordHasher());
+    }
+
+    /**
+     * @param passwordHasher the hasher to hash and check passwords on
+     */
+    public MemoryUserDAO(PasswordHasher passwordHasher) {
         this.userTable = new HashSet<>();
+        this.passwordHasher = passwordHasher;
     }
 
     @Override
@@ -23,7 +32,7 @@ public class MemoryUserDAO implements UserDAO {
             throw new DataAccessException("username already taken");
         }
         user = new UserData(user.username(),
-                (new BCryptPasswordEncoder().encode(user.password())),
+                this.passwordHasher.hash(user.password()),
                 user.email());
         this.userTable.add(user);
     }
@@ -48,7 +57,7 @@ public class MemoryUserDAO implements UserDAO {
         }
         for (UserData user : this.userTable) {
             if (user.username().equals(username)
-                    && (new BCryptPasswordEncoder()).matches(password, user.password())) {
+                    && this.passwordHasher.matches(password, user.password())) {
                 return true;
             }
         }
@@ -4,43 +4,104 @@ import com.google.gson.Gson;
 import dataAccess.*;
 import dataAccess.databaseDAO.DatabaseAuthDAO;
 import dataAccess.databaseDAO.DatabaseGameDAO;
+import dataAccess.databaseDAO.DatabaseRevocationDAO;
 import dataAccess.databaseDAO.DatabaseUserDAO;
+import model.request.AnalysisRequest;
 import model.request.CreateGameRequest;
 import model.response.*;
 import model.request.JoinGameRequest;
+import model.request.ListGamesRequest;
 import model.request.LoginRequest;
 import model.request.RegisterRequest;
 import server.websocket.WebSocketHandler;
 import service.AdminService;
+import service.AnalysisService;
+import service.BotService;
+import service.GameMailboxes;
 import service.GameService;
 import service.UserService;
 import service.serviceExceptions.AlreadyTakenException;
 import service.serviceExceptions.BadRequestException;
+import service.serviceExceptions.ConflictException;
 import service.serviceExceptions.ServerErrorException;
+import service.serviceExceptions.ServiceUnavailableException;
+import service.serviceExceptions.TooManyRequestsException;
 import service.serviceExceptions.UnauthorizedException;
 import spark.*;
+import spark.embeddedserver.EmbeddedServers;
+import spark.embeddedserver.jetty.EmbeddedJettyFactory;
 
 public class Server {
     // Services
     private final AdminService adminService;
     private final UserService userService;
     private final GameService gameService;
+    private final AnalysisService analysisService;
+    private final BotService botService;
+    private final GameMailboxes gameMailboxes;
     private final WebSocketHandler webSocketHandler;
+    // flushed on stop (null if the database is shared, so games are not cached)
+    private final CachingGameDAO gameCache;
+    // deletes expired authTokens until stop
+    private final AuthSweeper authSweeper;
+    // reloads revoked authTokens until stop (null unless authTokens are signed)
+    private final SignedAuthDAO signedAuthDAO;
+    private final PasswordHasher passwordHasher;
+    // handle requests and game commands on virtual threads (-Dchess.virtualThreads=true)
+    private final boolean useVirtualThreads;
 
     public Server() {
+        this(null);
+    }
+
+    /**
+     * @param authTokenSecret if not null, issue authTokens signed with this secret (shared by every server
+     *                        instance), which are verified without storage lookups
+     */
+    public Server(byte[] authTokenSecret) {
+        this.useVirtualThreads = Boolean.getBoolean("chess.virtualThreads");
         try {
             // create the database if it doesn't already exist
             DatabaseManager.createDatabase();
             // initialize DAO (Data Access Object) instances
-            AuthDAO authDAO = new DatabaseAuthDAO();
-            GameDAO gameDAO = new DatabaseGameDAO();
-            UserDAO userDAO = new DatabaseUserDAO();
+            AuthDAO authDAO;
+            if (authTokenSecret != null) {
+                // authTokens are checked on every request, so they carry their own signed username and expiry,
+                // and only logouts are stored
+                this.signedAuthDAO = new SignedAuthDAO(authTokenSecret, new DatabaseRevocationDAO());
+                authDAO = this.signedAuthDAO;
+            } else {
+                // authTokens are checked on every request, so recently used ones are served from memory
+                this.signedAuthDAO = null;
+                authDAO = new CachingAuthDAO(new DatabaseAuthDAO());
+            }
+            this.authSweeper = new AuthSweeper(authDAO);
+            GameDAO gameDAO;
+            if (DatabaseManager.isShared()) {
+                // other server instances write the same games: read and write every game through,
+                // relying on versioned writes to keep the instances from overwriting each other
+                this.gameCache = null;
+                gameDAO = new DatabaseGameDAO();
+            } else {
+                // active games are served from memory and written back in the background
+                this.gameCache = new CachingGameDAO(new DatabaseGameDAO());
+                gameDAO = this.gameCache;
+            }
+            // passwords are hashed on their own bounded pool, so a burst of logins cannot stall other requests
+            // (the work factor of new hashes is configurable with -Dchess.passwordWorkFactor=<log rounds>)
+            this.passwordHasher = new PasswordHasher(
+                    Integer.getInteger("chess.passwordWorkFactor", PasswordHasher.DEFAULT_WORK_FACTOR));
+            UserDAO userDAO = new DatabaseUserDAO(this.passwordHasher);
             // initialize service instances
             this.adminService = new AdminService(authDAO, gameDAO, userDAO);
             this.userService = new UserService(authDAO, userDAO);
             this.gameService = new GameService(authDAO, gameDAO);
+            this.analysisService = new AnalysisService(authDAO, gameDAO);
+            // commands that change a game (players' and bots') run one at a time in the game's mailbox
+            this.gameMailboxes = this.useVirtualThreads ? GameMailboxes.onVirtualThreads() : new GameMailboxes();
+            this.botService = new BotService(this.gameService, gameDAO, this.gameMailboxes);
             // initialize websocket handler
-            this.webSocketHandler = new WebSocketHandler(this.gameService, authDAO);
+            this.webSocketHandler = new WebSocketHandler(this.gameService, this.botService, this.gameMailboxes);
         } catch (DataAccessException e) {
             // TODO: more graceful server failure?
             throw new RuntimeException("Error: could not connect to database");
@@ -48,6 +109,11 @@ public class Server {
     }
 
     public int run(int desiredPort) {
+        // every handler blocks on the database, so with virtual threads in-flight requests are not capped
+        // by the size of Jetty's thread pool (database calls are bounded by DatabaseManager instead)
+        EmbeddedServers.add(EmbeddedServers.defaultIdentifier(), this.useVirtualThreads
+                ? (new EmbeddedJettyFactory()).withThreadPool(new VirtualThreadPool("http-"))
+                : new EmbeddedJettyFactory());
         Spark.port(desiredPort);
 
         Spark.staticFiles.location("web");
@@ -61,20 +127,36 @@ public class Server {
         Spark.get("/game", this::listGames);
         Spark.post("/game", this::createGame);
         Spark.put("/game", this::joinGame);
+        Spark.post("/analysis", this::submitAnalysis);
+        Spark.get("/analysis/:jobID", this::getAnalysis);
 
         // exception handling
         Spark.exception(AlreadyTakenException.class, this::alreadyTakenHandler);
         Spark.exception(BadRequestException.class, this::badRequestHandler);
         Spark.exception(UnauthorizedException.class, this::unauthorizedHandler);
         Spark.exception(ServerErrorException.class, this::serverErrorHandler);
+        Spark.exception(ConflictException.class, this::conflictHandler);
+        Spark.exception(ServiceUnavailableException.class, this::serviceUnavailableHandler);
+        Spark.exception(TooManyRequestsException.class, this::tooManyRequestsHandler);
 
         Spark.awaitInitialization();
         return Spark.port();
     }
 
     public void stop() {
+        this.analysisService.shutdown();
+        this.botService.shutdown();
+        this.gameMailboxes.shutdown();
+        this.passwordHasher.shutdown();
+        this.authSweeper.close();
+        if (this.signedAuthDAO != null) {
+            this.signedAuthDAO.close();
+        }
         Spark.stop();
         Spark.awaitStop();
+        if (this.gameCache != null) {
+            this.gameCache.close();
+        }
     }
 
     // Endpoint Handlers
@@ -85,7 +167,8 @@ public class Server {
         return "";
     }
 
-    private Object register(Request req, Response res) throws AlreadyTakenException, BadRequestException {
+    private Object register(Request req, Response res)
+            throws AlreadyTakenException, BadRequestException, ServiceUnavailableException {
         RegisterRequest requestBody = (new Gson()).fromJson(req.body(), RegisterRequest.class);
         RegisterResponse responseBody = this.userService.register(requestBody);
         res.type("application/json");
@@ -93,9 +176,10 @@ public class Server {
         return (new Gson()).toJson(responseBody);
     }
 
-    private Object login(Request req, Response res) throws UnauthorizedException, BadRequestException {
+    private Object login(Request req, Response res) throws UnauthorizedException, BadRequestException,
+            ServiceUnavailableException, TooManyRequestsException {
         LoginRequest requestBody = (new Gson()).fromJson(req.body(), LoginRequest.class);
-        LoginResponse responseBody = this.userService.login(requestBody);
+        LoginResponse responseBody = this.userService.login(requestBody, req.ip());
         res.type("application/json");
         res.status(200);
         return (new Gson()).toJson(responseBody);
@@ -111,13 +195,25 @@ public class Server {
     private Object listGames(Request req, Response res)
             throws UnauthorizedException, BadRequestException, ServerErrorException {
         String authToken = req.headers("Authorization");
-        ListGamesResponse responseBody = this.gameService.listGames(authToken);
+        ListGamesRequest requestBody;
+        try {
+            requestBody = new ListGamesRequest(
+                    Server.parseIntegerParam(req.queryParams("cursor")),
+                    Server.parseIntegerParam(req.queryParams("limit")),
+                    req.queryParams("status"),
+                    req.queryParams("player"),
+                    req.queryParams("sort"));
+        } catch (NumberFormatException e) {
+            throw new BadRequestException("cursor and limit must be integers");
+        }
+        ListGamesResponse responseBody = this.gameService.listGames(authToken, requestBody);
         res.type("application/json");
         res.status(200);
         return (new Gson()).toJson(responseBody);
     }
 
-    private Object createGame(Request req, Response res) throws UnauthorizedException, BadRequestException {
+    private Object createGame(Request req, Response res)
+            throws UnauthorizedException, BadRequestException, ServerErrorException, ConflictException {
         String authToken = req.headers("Authorization");
         CreateGameRequest requestBody = (new Gson()).fromJson(req.body(), CreateGameRequest.class);
         CreateGameResponse responseBody = this.gameService.createGame(authToken, requestBody);
@@ -126,8 +222,8 @@ public class Server {
         return (new Gson()).toJson(responseBody);
     }
 
-    private Object joinGame(Request req, Response res)
-            throws UnauthorizedException, BadRequestException, AlreadyTakenException, ServerErrorException {
+    private Object joinGame(Request req, Response res) throws UnauthorizedException, BadRequestException,
+            AlreadyTakenException, ServerErrorException, ConflictException {
         String authToken = req.headers("Authorization");
         JoinGameRequest requestBody = (new Gson()).fromJson(req.body(), JoinGameRequest.class);
         this.gameService.joinGame(authToken, requestBody);
@@ -135,6 +231,32 @@ public class Server {
         return "";
     }
 
+    private Object submitAnalysis(Request req, Response res)
+            throws UnauthorizedException, BadRequestException, ServiceUnavailableException, ServerErrorException {
+        String authToken = req.headers("Authorization");
+        AnalysisRequest requestBody = (new Gson()).fromJson(req.body(), AnalysisRequest.class);
+        CreateAnalysisResponse responseBody = this.analysisService.submitAnalysis(authToken, requestBody);
+        res.type("application/json");
+        res.status(200);
+        return (new Gson()).toJson(responseBody);
+    }
+
+    private Object getAnalysis(Request req, Response res) throws UnauthorizedException, BadRequestException {
+        String authToken = req.headers("Authorization");
+        AnalysisResponse responseBody = this.analysisService.getAnalysis(authToken, req.params(":jobID"));
+        res.type("application/json");
+        res.status(200);
+        return (new Gson()).toJson(responseBody);
+    }
+
+    /**
+     * @return the integer value of an optional query parameter, or null if it is absent
+     * @throws NumberFormatException if the parameter is not an integer
+     */
+    private static Integer parseIntegerParam(String param) {
+        return ((param == null) || param.isEmpty()) ? null : Integer.valueOf(param);
+    }
+
     // Exception Handlers
 
     public void alreadyTakenHandler(AlreadyTakenException e, Request req, Response res) {
@@ -164,4 +286,27 @@ public class Server {
         res.status(500);
         res.body(body);
     }
-}
\ No newline at end of file
+
+    public void conflictHandler(ConflictException e, Request req, Response res) {
+        String body = (new Gson()).toJson(new FailureResponse("Error: Conflict - " + e.getMessage()));
+        res.type("application/json");
+        res.status(409);
+        res.body(body);
+    }
+
+    public void serviceUnavailableHandler(ServiceUnavailableException e, Request req, Response res) {
+        String body = (new Gson()).toJson(new FailureResponse("Error: Service Unavailable - " + e.getMessage()));
+        res.type("application/json");
+        res.status(503);
+        res.header("Retry-After", "1");
+        res.body(body);
+    }
+
+    public void tooManyRequestsHandler(TooManyRequestsException e, Request req, Response res) {
+        String body = (new Gson()).toJson(new FailureResponse("Error: Too Many Requests - " + e.getMessage()));
+        res.type("application/json");
+        res.status(429);
+        res.header("Retry-After", Long.toString(e.getRetryAfterSeconds()));
+        res.body(body);
+    }
+}
@@ -0,0 +1,84 @@
+package server;
+
+import org.eclipse.jetty.util.component.AbstractLifeCycle;
+import org.eclipse.jetty.util.thread.ThreadPool;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A Jetty thread pool that runs every task (each request, and each WebSocket message) on its own virtual thread.
+ * <p>
+ * Handlers that block (e.g. on JDBC) park their virtual thread instead of holding one of a fixed number of
+ * pool threads, so the number of requests in flight is not capped by a pool size. The pool never runs low.
+ */
+public class VirtualThreadPool extends AbstractLifeCycle implements ThreadPool {
+    private final String namePrefix;
+    private final AtomicInteger runningTasks;
+    private volatile ExecutorService executor;
+
+    /**
+     * @param namePrefix the prefix of the virtual threads' names (followed by a count)
+     */
+    public VirtualThreadPool(String namePrefix) {
+        this.namePrefix = namePrefix;
+        this.runningTasks = new AtomicInteger();
+    }
+
+    @Override
+    protected void doStart() {
+        // a fresh executor on every start, since Spark stops and restarts the server with the same pool
+        this.executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(this.namePrefix, 1).factory());
+    }
+
+    @Override
+    protected void doStop() throws InterruptedException {
+        this.executor.shutdownNow();
+        this.executor.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        ExecutorService executor = this.executor;
+        if (executor == null) {
+            throw new RejectedExecutionException("thread pool not started");
+        }
+        executor.execute(() -> {
+            this.runningTasks.incrementAndGet();
+            try {
+                task.run();
+            } finally {
+                this.runningTasks.decrementAndGet();
+            }
+        });
+    }
+
+    @Override
+    public void join() throws InterruptedException {
+        ExecutorService executor = this.executor;
+        if (executor != null) {
+            while (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+                // keep waiting until the pool is stopped
+            }
+        }
+    }
+
+    @Override
+    public int getThreads() {
+        return this.runningTasks.get();
+    }
+
+    @Override
+    public int getIdleThreads() {
+        // threads are made per task, so none sit idle
+        return 0;
+    }
+
+    @Override
+    public boolean isLowOnThreads() {
+        return false;
+    }
+}
@@ -0,0 +1,45 @@
+package server.websocket;
+
+import com.google.gson.Gson;
+import webSocketMessages.BinaryCodec;
+import webSocketMessages.serverMessages.ServerMessage;
+
+/**
+ * A server message on its way to one or more clients, encoded at most once in each wire format
+ * (JSON text, or binary for clients that connect with encoding=binary), on first use
+ */
+class EncodedMessage {
+    // Gson is thread-safe, so one instance encodes every message
+    private static final Gson GSON = new Gson();
+
+    private final ServerMessage message;
+    private String text;
+    private byte[] binary;
+
+    /**
+     * @param message the message to send
+     */
+    EncodedMessage(ServerMessage message) {
+        this.message = message;
+    }
+
+    /**
+     * @return the message as JSON
+     */
+    synchronized String getText() {
+        if (this.text == null) {
+            this.text = GSON.toJson(this.message);
+        }
+        return this.text;
+    }
+
+    /**
+     * @return the message as a binary frame
+     */
+    synchronized byte[] getBinary() {
+        if (this.binary == null) {
+            this.binary = BinaryCodec.encodeServerMessage(this.message);
+        }
+        return this.binary;
+    }
+}
@@ -0,0 +1,137 @@
+package server.websocket;
+
+import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.StatusCode;
+import org.eclipse.jetty.websocket.api.WriteCallback;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+
+/**
+ * The outgoing messages of one WebSocket session, written one at a time without blocking the thread that sends them.
+ * <p>
+ * Messages sent while a write is in progress wait in a queue of at most maxQueued messages. A queued game state
+ * is dropped when a newer one is sent (the client only needs the latest), so a slow client falls behind on
+ * states instead of filling the queue. A client whose queue still fills, or whose current write has not finished
+ * within maxStallMillis, is too slow to keep up and is disconnected.
+ */
+public class SessionSender implements WriteCallback {
+    public static final int DEFAULT_MAX_QUEUED = 64;
+    public static final long DEFAULT_MAX_STALL_MILLIS = 10 * 1000;
+
+    private final Session session;
+    private final int maxQueued;
+    private final long maxStallMillis;
+    // messages waiting for the current write to finish
+    private final ArrayDeque<Outgoing> queue;
+    private boolean isWriting;
+    private long writeStartedMillis;
+    private boolean isClosed;
+
+    // a text frame (text set) or a binary frame (binary set)
+    private record Outgoing(String text, byte[] binary, boolean isGameState) {
+    }
+
+    public SessionSender(Session session) {
+        this(session, DEFAULT_MAX_QUEUED, DEFAULT_MAX_STALL_MILLIS);
+    }
+
+    /**
+     * @param session        the session to write to
+     * @param maxQueued      the most messages to hold while a write is in progress
+     * @param maxStallMillis how long one write may take before the client is disconnected
+     */
+    public SessionSender(Session session, int maxQueued, long maxStallMillis) {
+        this.session = session;
+        this.maxQueued = maxQueued;
+        this.maxStallMillis = maxStallMillis;
+        this.queue = new ArrayDeque<>();
+        this.isWriting = false;
+        this.isClosed = false;
+    }
+
+    /**
+     * Write a message as a text frame after the messages already sent (returns without waiting for the write)
+     *
+     * @param message     the message to send
+     * @param isGameState whether the message is a full game state, which a newer one supersedes
+     */
+    public void send(String message, boolean isGameState) {
+        this.enqueue(new Outgoing(message, null, isGameState));
+    }
+
+    /**
+     * Write a message as a binary frame after the messages already sent (returns without waiting for the write)
+     *
+     * @param message     the frame to send (not modified afterwards, so one array can go to many sessions)
+     * @param isGameState whether the message is a full game state, which a newer one supersedes
+     */
+    public void sendBinary(byte[] message, boolean isGameState) {
+        this.enqueue(new Outgoing(null, message, isGameState));
+    }
+
+    private synchronized void enqueue(Outgoing message) {
+        if (this.isClosed || !this.session.isOpen()) {
+            return;
+        }
+        if (!this.isWriting) {
+            this.startWrite(message);
+            return;
+        }
+        if ((System.currentTimeMillis() - this.writeStartedMillis) > this.maxStallMillis) {
+            this.disconnect();
+            return;
+        }
+        if (message.isGameState()) {
+            this.queue.removeIf(Outgoing::isGameState);
+        }
+        if (this.queue.size() >= this.maxQueued) {
+            this.disconnect();
+            return;
+        }
+        this.queue.addLast(message);
+    }
+
+    /**
+     * @return the number of messages waiting for the current write to finish
+     */
+    public synchronized int getQueuedCount() {
+        return this.queue.size();
+    }
+
+    @Override
+    public synchronized void writeSuccess() {
+        Outgoing next = this.queue.pollFirst();
+        if (next == null) {
+            this.isWriting = false;
+        } else {
+            this.startWrite(next);
+        }
+    }
+
+    @Override
+    public synchronized void writeFailed(Throwable cause) {
+        // the connection is broken, so nothing more can be written
+        this.isClosed = true;
+        this.isWriting = false;
+        this.queue.clear();
+    }
+
+    private void startWrite(Outgoing message) {
+        this.isWriting = true;
+        this.writeStartedMillis = System.currentTimeMillis();
+        // may call writeSuccess before returning (on this thread, which already holds the lock)
+        if (message.text() != null) {
+            this.session.getRemote().sendString(message.text(), this);
+        } else {
+            // a buffer of its own, since the array is shared with other sessions' writes
+            this.session.getRemote().sendBytes(ByteBuffer.wrap(message.binary()), this);
+        }
+    }
+
+    private void disconnect() {
+        this.isClosed = true;
+        this.queue.clear();
+        this.session.close(StatusCode.POLICY_VIOLATION, "client too slow to keep up");
+    }
+}
@@ -1,106 +1,254 @@
 package server.websocket;
 
 import chess.ChessGame;
+import chess.ChessMove;
 import com.google.gson.Gson;
-import dataAccess.AuthDAO;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
 import dataAccess.DataAccessException;
 import model.GameData;
 import org.eclipse.jetty.websocket.api.Session;
 import org.eclipse.jetty.websocket.api.annotations.*;
+import service.BotService;
+import service.GameMailboxes;
 import service.GameService;
 import service.serviceExceptions.BadRequestException;
+import service.serviceExceptions.ConflictException;
 import service.serviceExceptions.ServerErrorException;
 import service.serviceExceptions.UnauthorizedException;
+import webSocketMessages.BinaryCodec;
 import webSocketMessages.serverMessages.ErrorMessage;
+import webSocketMessages.serverMessages.GameUpdateMessage;
 import webSocketMessages.serverMessages.LoadGameMessage;
+import webSocketMessages.serverMessages.MoveAppliedMessage;
 import webSocketMessages.serverMessages.NotificationMessage;
+import webSocketMessages.serverMessages.ServerMessage;
 import webSocketMessages.userCommands.*;
 
 import java.io.IOException;
+import java.util.EnumMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 @WebSocket
 public class WebSocketHandler {
+    // Gson is thread-safe, so one instance decodes every command
+    private static final Gson GSON = new Gson();
+
     SessionManager sessionManager;
     GameService gameService;
-    AuthDAO authDAO;
+    BotService botService;
+    GameMailboxes gameMailboxes;
+    // the outgoing message queue of each open session
+    private final ConcurrentHashMap<Session, SessionSender> senders;
 
-    public WebSocketHandler(GameService gameService, AuthDAO authDAO) {
+    public WebSocketHandler(GameService gameService, BotService botService, GameMailboxes gameMailboxes) {
         sessionManager = new SessionManager();
         this.gameService = gameService;
-        this.authDAO = authDAO;
+        this.botService = botService;
+        this.gameMailboxes = gameMailboxes;
+        this.senders = new ConcurrentHashMap<>();
     }
 
     /**
-     * Send a message to the client by client info
+     * Send a message to the client by session, without waiting for it to be written
+     * (a session's messages are written one at a time in the order sent, whichever thread sends them)
      *
-     * @param gameID    the ID of the game context to send to
-     * @param authToken the authToken of the client
-     * @param message   the message to send (pack as a type)
-     * @throws IOException on send error
+     * @param session the session to send a message to
+     * @param message the message to send
      */
-    private void sendMessage(int gameID, String authToken, String message) throws IOException {
-        sessionManager.getSessionsForGame(gameID).get(authToken).getRemote().sendString(message);
+    private void sendMessage(Session session, EncodedMessage message) {
+        this.enqueueMessage(session, message, false);
     }
 
     /**
-     * Send a message to the client by session (only use for errors)
-     *
-     * @param session the session to send a message to
-     * @param message the message to send (pack as a type)
-     * @throws IOException on send error
+     * Send a LOAD_GAME message to the client by session
+     * (dropping any earlier game state still waiting to be written to the client)
      */
-    private void sendMessage(Session session, String message) throws IOException {
-        session.getRemote().sendString(message);
+    private void sendGameState(Session session, EncodedMessage loadGameMessage) {
+        this.enqueueMessage(session, loadGameMessage, true);
+    }
+
+    private void enqueueMessage(Session session, EncodedMessage message, boolean isGameState) {
+        if ((session == null) || !session.isOpen()) {
+            return;
+        }
+        SessionSender sender = this.senders.computeIfAbsent(session, SessionSender::new);
+        if (isBinary(session)) {
+            sender.sendBinary(message.getBinary(), isGameState);
+        } else {
+            sender.send(message.getText(), isGameState);
+        }
     }
 
     /**
      * Send a message to multiple clients (can exclude one by authToken)
+     *
+     * @param message the message, encoded once for every recipient
      */
-    private void broadcastMessage(int gameID, String message, String excludeAuthToken) throws IOException {
+    private void broadcastMessage(int gameID, EncodedMessage message, String excludeAuthToken) {
+        Map<String, Session> sessions = sessionManager.getSessionsForGame(gameID);
+        if (sessions == null) {
+            return;
+        }
         // run through all <authToken, session> pairs associated with the given game
-        for (Map.Entry<String, Session> sessionEntry : sessionManager.getSessionsForGame(gameID).entrySet()) {
+        for (Map.Entry<String, Session> sessionEntry : sessions.entrySet()) {
             // if the session is open and the authToken isn't excluded
             if (sessionEntry.getValue().isOpen() && !sessionEntry.getKey().equals(excludeAuthToken)) {
-                // send the message to the session
-                this.sendMessage(gameID, sessionEntry.getKey(), message);
+                this.sendMessage(sessionEntry.getValue(), message);
             }
         }
     }
 
+    /**
+     * How a client is sent the moves of its game, chosen when it connects (/connect?updates=...)
+     */
+    private enum UpdateMode {
+        // a LOAD_GAME with the whole game, then a NOTIFICATION for each notice (the default)
+        SEPARATE,
+        // one GAME_UPDATE with the whole game and the notices (updates=combined)
+        COMBINED,
+        // one MOVE_APPLIED with just the move, its sequence number, and the notices (updates=delta)
+        DELTA
+    }
+
+    private static UpdateMode getUpdateMode(Session session) {
+        List<String> updates = session.getUpgradeRequest().getParameterMap().get("updates");
+        if (updates == null) {
+            return UpdateMode.SEPARATE;
+        } else if (updates.contains("delta")) {
+            return UpdateMode.DELTA;
+        } else if (updates.contains("combined")) {
+            return UpdateMode.COMBINED;
+        }
+        return UpdateMode.SEPARATE;
+    }
+
+    /**
+     * @return whether the client asked for binary frames (/connect?encoding=binary) instead of JSON text frames
+     */
+    private static boolean isBinary(Session session) {
+        List<String> encoding = session.getUpgradeRequest().getParameterMap().get("encoding");
+        return (encoding != null) && encoding.contains("binary");
+    }
+
     // Incoming Commands //////////////////////////////////////////////////////////////////////////\
 
     /**
-     * When a websocket message is received from a client, direct it to the correct method
+     * When a websocket closes, drop its outgoing message queue
+     */
+    @OnWebSocketClose
+    public void onClose(Session session, int statusCode, String reason) {
+        this.senders.remove(session);
+    }
+
+    /**
+     * When a JSON text message is received from a client, decode it and queue it in its game's mailbox
      *
      * @param session the session the message was received on
      * @param message the message received (unpack from a type)
-     * @throws IOException on failure to send an error message
      */
     @OnWebSocketMessage
-    public void onMessage(Session session, String message) throws IOException {
-        UserGameCommand command = (new Gson()).fromJson(message, UserGameCommand.class);
+    public void onMessage(Session session, String message) {
+        UserGameCommand command;
+        try {
+            command = decodeCommand(message);
+        } catch (RuntimeException e) {
+            // malformed JSON (JsonParseException) or not a JSON object (IllegalStateException)
+            this.sendMessage(session, this.packErrorMessage("malformed command: " + e.getMessage()));
+            return;
+        }
+        this.submitCommand(session, command);
+    }
+
+    /**
+     * When a binary message is received from a client, decode it and queue it in its game's mailbox
+     *
+     * @param session the session the message was received on
+     * @param buffer  the array holding the message received (see BinaryCodec)
+     * @param offset  where the message starts in buffer
+     * @param length  the length of the message
+     */
+    @OnWebSocketMessage
+    public void onBinaryMessage(Session session, byte[] buffer, int offset, int length) {
+        UserGameCommand command;
+        try {
+            command = BinaryCodec.decodeCommand(buffer, offset, length);
+        } catch (IOException e) {
+            this.sendMessage(session, this.packErrorMessage("malformed command: " + e.getMessage()));
+            return;
+        }
+        this.submitCommand(session, command);
+    }
+
+    /**
+     * Decode a JSON command as its command type, parsing the text only once
+     *
+     * @param message the message received
+     * @return the command
+     * @throws JsonParseException if the message is not a JSON command
+     */
+    private static UserGameCommand decodeCommand(String message) {
+        JsonObject json = JsonParser.parseString(message).getAsJsonObject();
+        UserGameCommand.CommandType commandType = GSON.fromJson(json.get("commandType"),
+                UserGameCommand.CommandType.class);
+        if (commandType == null) {
+            throw new JsonParseException("missing or unknown commandType");
+        }
+        return GSON.fromJson(json, switch (commandType) {
+            case JOIN_PLAYER -> JoinPlayerCommand.class;
+            case JOIN_OBSERVER -> JoinObserverCommand.class;
+            case MAKE_MOVE -> MakeMoveCommand.class;
+            case LEAVE -> LeaveCommand.class;
+            case RESIGN -> ResignCommand.class;
+            case RESYNC -> ResyncCommand.class;
+        });
+    }
+
+    /**
+     * Queue a decoded command in its game's mailbox
+     * (commands for one game run one at a time in arrival order, commands for different games in parallel)
+     */
+    private void submitCommand(Session session, UserGameCommand command) {
+        if (command.getGameID() == null) {
+            // not scoped to a game, so only an error can result
+            this.handleCommand(session, command);
+            return;
+        }
+        this.gameMailboxes.submit(command.getGameID(), (() -> this.handleCommand(session, command)));
+    }
+
+    /**
+     * Direct a command to the correct method (runs in the command's game mailbox),
+     * sending any failure to the client as an error message
+     *
+     * @param session the session the command was received on
+     * @param command the command received
+     */
+    private void handleCommand(Session session, UserGameCommand command) {
         try {
-            switch (command.getCommandType()) {
-                case JOIN_PLAYER -> this.joinPlayer(message, session);
-                case JOIN_OBSERVER -> this.joinObserver(message, session);
-                case MAKE_MOVE -> this.makeMove(message);
-                case LEAVE -> this.leaveGame(message);
-                case RESIGN -> this.resignGame(message);
+            switch (command) {
+                case JoinPlayerCommand joinPlayer -> this.joinPlayer(joinPlayer, session);
+                case JoinObserverCommand joinObserver -> this.joinObserver(joinObserver, session);
+                case MakeMoveCommand makeMove -> this.makeMove(makeMove);
+                case LeaveCommand leave -> this.leaveGame(leave);
+                case ResignCommand resign -> this.resignGame(resign);
+                case ResyncCommand resync -> this.resync(resync, session);
+                default -> throw new BadRequestException("unknown command type");
             }
         } catch (Throwable throwable) {
             this.sendMessage(session, this.packErrorMessage(throwable.getMessage()));
         }
     }
 
-    private void joinPlayer(String message, Session session)
-            throws UnauthorizedException, BadRequestException, DataAccessException, IOException {
-        // decode JSON command
-        JoinPlayerCommand command = (new Gson()).fromJson(message, JoinPlayerCommand.class);
+    private void joinPlayer(JoinPlayerCommand command, Session session)
+            throws UnauthorizedException, BadRequestException, DataAccessException {
+        String username = this.gameService.authenticate(command.getAuthString());
         // reject join if not already joined via HTTP
         GameData gameData = this.gameService.getGame(command.getAuthString(), command.getGameID());
-        if (!this.authDAO.getUsername(command.getAuthString())
-                .equals((command.getPlayerColor() == ChessGame.TeamColor.WHITE)
+        if (!username.equals((command.getPlayerColor() == ChessGame.TeamColor.WHITE)
                         ? gameData.whiteUsername() : gameData.blackUsername())) {
             throw new BadRequestException("Cannot join player websocket without first joining game via HTTP request");
         }
@@ -112,16 +260,17 @@ public class WebSocketHandler {
         this.loadGameForRootClient(command.getGameID(), command.getAuthString());
         // broadcast a join notification to all clients except root
         this.broadcastMessage(command.getGameID(),
-                this.packNotificationMessage(this.authDAO.getUsername(command.getAuthString())
+                this.packNotificationMessage(username
                         + " joined as "
                         + ((command.getPlayerColor() == ChessGame.TeamColor.WHITE) ? "white" : "black")),
                 command.getAuthString());
+        // if the opponent is a bot and it is its turn (the bot plays white), start its move
+        this.requestBotMove(gameData);
     }
 
-    private void joinObserver(String message, Session session)
-            throws UnauthorizedException, BadRequestException, DataAccessException, IOException {
-        // decode JSON command
-        JoinObserverCommand command = (new Gson()).fromJson(message, JoinObserverCommand.class);
+    private void joinObserver(JoinObserverCommand command, Session session)
+            throws UnauthorizedException, BadRequestException, DataAccessException {
+        String username = this.gameService.authenticate(command.getAuthString());
         // add the observer session to this game in the SessionManager
         this.sessionManager.addSessionToGame(command.getGameID(), command.getAuthString(), session);
         // run the gameService method on the command
@@ -130,50 +279,121 @@ public class WebSocketHandler {
         this.loadGameForRootClient(command.getGameID(), command.getAuthString());
         // broadcast a join notification to all clients except root
         this.broadcastMessage(command.getGameID(),
-                this.packNotificationMessage(this.authDAO.getUsername(command.getAuthString())
-                        + " joined as observer"),
+                this.packNotificationMessage(username + " joined as observer"),
                 command.getAuthString());
     }
 
-    private void makeMove(String message)
-            throws UnauthorizedException, BadRequestException, ServerErrorException, IOException, DataAccessException {
-        // decode JSON command
-        MakeMoveCommand command = (new Gson()).fromJson(message, MakeMoveCommand.class);
+    private void makeMove(MakeMoveCommand command) throws UnauthorizedException, BadRequestException,
+            ServerErrorException, ConflictException, DataAccessException {
+        String username = this.gameService.authenticate(command.getAuthString());
         // verify that the move is coming from the player whose turn it is
         GameData gameData = this.gameService.getGame(command.getAuthString(), command.getGameID());
-        if (!this.authDAO.getUsername(command.getAuthString())
-                .equals((command.getPlayerColor() == ChessGame.TeamColor.WHITE)
-                        ? gameData.whiteUsername() : gameData.blackUsername())) {
-            throw new BadRequestException("Cannot join player websocket without first joining game via HTTP request");
+        if (!username.equals(getCurrentTurnUsername(gameData))) {
+            throw new BadRequestException("Cannot move when it is not your turn");
         }
         // verify move validity, make move in gameService
-        this.gameService.makeMove(command);
-        // send the new game state to all clients
-        GameData gameData = this.gameService.getGame(command.getAuthString(), command.getGameID());
-        this.broadcastMessage(command.getGameID(),
-                (new Gson().toJson(new LoadGameMessage(gameData))),
-                null);
-        // broadcast a move notification to all clients except root
-        this.broadcastMessage(command.getGameID(),
-                this.packNotificationMessage(this.authDAO.getUsername(command.getAuthString())
-                        + " moved "
-                        + command.getMove().toString()),
-                command.getAuthString());
-        // on check, checkmate, or stalemate, notify all clients
+        gameData = this.gameService.makeMove(command);
+        // send the new game state and move notifications
+        this.broadcastMove(gameData, username, command.getMove(), command.getAuthString());
+        // if the opponent is a bot, start its reply (or stop its clock if the move ended the game)
+        if (gameData.game().isOver()) {
+            this.botService.endGame(gameData.gameID());
+        }
+        this.requestBotMove(gameData);
+    }
+
+    /**
+     * Send the game state after a move to all clients, the move notification to all but the mover,
+     * and any check, checkmate, or stalemate notification to all
+     * (each message is encoded at most once per wire format, however many clients it goes to)
+     *
+     * @param gameData       the game after the move
+     * @param moverUsername  the username of the player who moved
+     * @param move           the move
+     * @param moverAuthToken the authToken of the mover (null if the mover has no session, e.g. a bot)
+     */
+    private void broadcastMove(GameData gameData, String moverUsername, ChessMove move, String moverAuthToken) {
+        Map<String, Session> sessions = sessionManager.getSessionsForGame(gameData.gameID());
+        if (sessions == null) {
+            return;
+        }
+        String moveNotice = moverUsername + " moved " + move.toString();
+        String stateNotice = this.getGameStateNotice(gameData);
+        // separate messages
+        EncodedMessage loadGameMessage = new EncodedMessage(new LoadGameMessage(gameData));
+        EncodedMessage moveNotification = this.packNotificationMessage(moveNotice);
+        EncodedMessage stateNotification = (stateNotice == null) ? null : this.packNotificationMessage(stateNotice);
+        // combined and delta messages, for the mover (who is not told about its own move) and for the other clients
+        // (created on first use, since most clients ask for separate messages)
+        List<String> moverNotices = (stateNotice == null) ? List.of() : List.of(stateNotice);
+        List<String> othersNotices = (stateNotice == null) ? List.of(moveNotice) : List.of(moveNotice, stateNotice);
+        Map<UpdateMode, EncodedMessage> moverUpdates = new EnumMap<>(UpdateMode.class);
+        Map<UpdateMode, EncodedMessage> othersUpdates = new EnumMap<>(UpdateMode.class);
+        for (Map.Entry<String, Session> sessionEntry : sessions.entrySet()) {
+            Session session = sessionEntry.getValue();
+            if (!session.isOpen()) {
+                continue;
+            }
+            boolean isMover = sessionEntry.getKey().equals(moverAuthToken);
+            UpdateMode updateMode = getUpdateMode(session);
+            if (updateMode == UpdateMode.SEPARATE) {
+                this.sendGameState(session, loadGameMessage);
+                if (!isMover) {
+                    this.sendMessage(session, moveNotification);
+                }
+                if (stateNotification != null) {
+                    this.sendMessage(session, stateNotification);
+                }
+            } else if (isMover) {
+                this.sendMessage(session, moverUpdates.computeIfAbsent(updateMode,
+                        (mode) -> this.packUpdateMessage(mode, gameData, move, moverNotices)));
+            } else {
+                this.sendMessage(session, othersUpdates.computeIfAbsent(updateMode,
+                        (mode) -> this.packUpdateMessage(mode, gameData, move, othersNotices)));
+            }
+        }
+    }
+
+    /**
+     * @return whether the player to move is in check, checkmate, or stalemate
+     */
+    private MoveAppliedMessage.Status getMoveStatus(GameData gameData) {
+        ChessGame gameState = gameData.game();
+        if (gameState.isInCheckmate(gameState.getTeamTurn())) {
+            return MoveAppliedMessage.Status.CHECKMATE;
+        } else if (gameState.isInStalemate(gameState.getTeamTurn())) {
+            return MoveAppliedMessage.Status.STALEMATE;
+        } else if (gameState.isInCheck(gameState.getTeamTurn())) {
+            return MoveAppliedMessage.Status.CHECK;
+        }
+        return MoveAppliedMessage.Status.ONGOING;
+    }
+
+    /**
+     * @return the check, checkmate, or stalemate notice for the player to move, or null if there is none
+     */
+    private String getGameStateNotice(GameData gameData) {
         ChessGame gameState = gameData.game();
         if (gameState.isInCheckmate(gameState.getTeamTurn())) {
-            this.broadcastMessage(command.getGameID(),
-                    this.packNotificationMessage(getCurrentTurnUsername(gameData) + " was checkmated"),
-                    null);
+            return getCurrentTurnUsername(gameData) + " was checkmated";
         } else if (gameState.isInStalemate(gameState.getTeamTurn())) {
-            this.broadcastMessage(command.getGameID(),
-                    this.packNotificationMessage("Stalemate"),
-                    null);
+            return "Stalemate";
         } else if (gameState.isInCheck(gameState.getTeamTurn())) {
-            this.broadcastMessage(command.getGameID(),
-                    this.packNotificationMessage(getCurrentTurnUsername(gameData) + " is in check"),
-                    null);
+            return getCurrentTurnUsername(gameData) + " is in check";
         }
+        return null;
+    }
+
+    /**
+     * If it is a bot player's turn in the game, have the bot service compute and make its move
+     * (off the websocket thread), then broadcast it
+     */
+    private void requestBotMove(GameData gameData) {
+        if (!this.botService.isBotTurn(gameData)) {
+            return;
+        }
+        this.botService.requestMove(gameData.gameID(), (movedGameData, move) ->
+                this.broadcastMove(movedGameData, BotService.BOT_USERNAME, move, null));
     }
 
     private String getCurrentTurnUsername(GameData gameState) {
@@ -181,45 +401,65 @@ public class WebSocketHandler {
                 ? gameState.whiteUsername() : gameState.blackUsername();
     }
 
-    private void leaveGame(String message)
-            throws UnauthorizedException, BadRequestException, ServerErrorException, IOException, DataAccessException {
-        // decode JSON command
-        LeaveCommand command = (new Gson().fromJson(message, LeaveCommand.class));
+    private void leaveGame(LeaveCommand command) throws UnauthorizedException, BadRequestException,
+            ServerErrorException, ConflictException, DataAccessException {
+        String username = this.gameService.authenticate(command.getAuthString());
         // leave game in gameService
         this.gameService.leaveGame(command);
+        this.botService.endGame(command.getGameID());
         // broadcast a leave notification to all clients except root
         this.broadcastMessage(command.getGameID(),
-                this.packNotificationMessage(this.authDAO.getUsername(command.getAuthString()) + " left the game"),
+                this.packNotificationMessage(username + " left the game"),
                 command.getAuthString());
         // remove the user session from this game in the SessionManager
         this.sessionManager.removeSessionFromGame(command.getGameID(), command.getAuthString());
     }
 
-    private void resignGame(String message)
-            throws UnauthorizedException, BadRequestException, ServerErrorException, DataAccessException, IOException {
-        // decode JSON command
-        ResignCommand command = (new Gson()).fromJson(message, ResignCommand.class);
+    private void resignGame(ResignCommand command) throws UnauthorizedException, BadRequestException,
+            ServerErrorException, ConflictException, DataAccessException {
+        String username = this.gameService.authenticate(command.getAuthString());
         // resign from game in gameService
         this.gameService.resignGame(command);
+        this.botService.endGame(command.getGameID());
         // broadcast a resignation notification to all clients
         this.broadcastMessage(command.getGameID(),
-                this.packNotificationMessage(this.authDAO.getUsername(command.getAuthString()) + " resigned"),
+                this.packNotificationMessage(username + " resigned"),
                 command.getAuthString());
     }
 
+    private void resync(ResyncCommand command, Session session)
+            throws UnauthorizedException, BadRequestException, DataAccessException {
+        // send the whole game state to the root client only
+        this.sendGameState(session,
+                new EncodedMessage(new LoadGameMessage(this.gameService.getGame(command.getAuthString(),
+                        command.getGameID()))));
+    }
+
     // Outgoing Messages //////////////////////////////////////////////////////////////////////////
 
     private void loadGameForRootClient(int gameID, String authToken)
-            throws UnauthorizedException, BadRequestException, DataAccessException, IOException {
-        this.sendMessage(gameID, authToken,
-                (new Gson()).toJson(new LoadGameMessage(this.gameService.getGame(authToken, gameID))));
+            throws UnauthorizedException, BadRequestException, DataAccessException {
+        this.sendGameState(sessionManager.getSessionsForGame(gameID).get(authToken),
+                new EncodedMessage(new LoadGameMessage(this.gameService.getGame(authToken, gameID))));
+    }
+
+    private EncodedMessage packErrorMessage(String errorMessage) {
+        return new EncodedMessage(new ErrorMessage("Error: " + errorMessage));
     }
 
-    private String packErrorMessage(String errorMessage) {
-        return (new Gson()).toJson(new ErrorMessage("Error: " + errorMessage));
+    private EncodedMessage packNotificationMessage(String message) {
+        return new EncodedMessage(new NotificationMessage(message));
     }
 
-    private String packNotificationMessage(String message) {
-        return (new Gson()).toJson(new NotificationMessage(message));
+    /**
+     * @return the GAME_UPDATE (combined) or MOVE_APPLIED (delta) message for a move
+     */
+    private EncodedMessage packUpdateMessage(UpdateMode updateMode, GameData gameData, ChessMove move,
+                                             List<String> notices) {
+        ServerMessage update = (updateMode == UpdateMode.COMBINED)
+                ? new GameUpdateMessage(gameData, notices)
+                : new MoveAppliedMessage(gameData.gameID(), gameData.game().getMoveCount(), move,
+                this.getMoveStatus(gameData), notices);
+        return new EncodedMessage(update);
     }
 }
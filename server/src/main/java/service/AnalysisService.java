@@ -0,0 +1,267 @@
+package service;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessNotation;
+import chess.engine.ChessEngine;
+import chess.engine.SearchResult;
+import dataAccess.AuthDAO;
+import dataAccess.DataAccessException;
+import dataAccess.GameDAO;
+import model.GameData;
+import model.request.AnalysisRequest;
+import model.response.AnalysisResponse;
+import model.response.CreateAnalysisResponse;
+import service.serviceExceptions.BadRequestException;
+import service.serviceExceptions.ServerErrorException;
+import service.serviceExceptions.ServiceUnavailableException;
+import service.serviceExceptions.UnauthorizedException;
+
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class AnalysisService {
+    public static final int DEFAULT_DEPTH = 4;
+    public static final int MAX_DEPTH = 8;
+    public static final long DEFAULT_JOB_TIME_LIMIT_MILLIS = 10000;
+    public static final int DEFAULT_QUEUE_CAPACITY = 16;
+    // finished jobs are forgotten (oldest first) once more than this many jobs are stored
+    private static final int MAX_STORED_JOBS = 256;
+
+    private final AuthDAO authDAO;
+    private final GameDAO gameDAO;
+    private final ChessEngine engine;
+    private final long jobTimeLimitMillis;
+    private final ThreadPoolExecutor executor;
+    // jobID -> job
+    private final Map<String, AnalysisJob> jobs;
+
+    /**
+     * The state of one submitted analysis, updated by its worker as each depth completes
+     */
+    private static class AnalysisJob implements Runnable {
+        private enum Status {
+            QUEUED,
+            RUNNING,
+            DONE,
+            FAILED
+        }
+
+        private static final AtomicLong NEXT_SEQUENCE = new AtomicLong();
+
+        private final String jobID;
+        // submission order
+        private final long sequence;
+        private final String username;
+        private final ChessGame game;
+        private final int depth;
+        private final ChessEngine engine;
+        private final long timeLimitMillis;
+        private volatile Status status;
+        private volatile SearchResult result;
+
+        AnalysisJob(String username, ChessGame game, int depth, ChessEngine engine, long timeLimitMillis) {
+            this.jobID = UUID.randomUUID().toString();
+            this.sequence = NEXT_SEQUENCE.getAndIncrement();
+            this.username = username;
+            this.game = game;
+            this.depth = depth;
+            this.engine = engine;
+            this.timeLimitMillis = timeLimitMillis;
+            this.status = Status.QUEUED;
+            this.result = null;
+        }
+
+        @Override
+        public void run() {
+            this.status = Status.RUNNING;
+            try {
+                // publish every completed depth so polling clients see the search deepen
+                this.engine.search(this.game, this.depth, this.timeLimitMillis, (result) -> this.result = result);
+                this.status = Status.DONE;
+            } catch (RuntimeException e) {
+                this.status = Status.FAILED;
+            }
+        }
+
+        boolean isFinished() {
+            return (this.status == Status.DONE) || (this.status == Status.FAILED);
+        }
+
+        AnalysisResponse toResponse() {
+            SearchResult result = this.result;
+            if (result == null) {
+                return new AnalysisResponse(this.jobID, this.status.name(), null, null, null, null, null);
+            }
+            ArrayList<String> principalVariation = new ArrayList<>();
+            for (ChessMove move : result.principalVariation()) {
+                principalVariation.add(ChessNotation.toCoordinate(move));
+            }
+            return new AnalysisResponse(this.jobID, this.status.name(), result.depth(),
+                    (result.isMate() ? null : result.score()),
+                    (result.isMate() ? result.movesToMate() : null),
+                    (principalVariation.isEmpty() ? null : principalVariation.get(0)),
+                    principalVariation);
+        }
+    }
+
+    /**
+     * Analysis Service with the default engine, worker count, queue capacity, and job time limit
+     * (half the cores, so analysis can never take every core from the request and websocket threads)
+     */
+    public AnalysisService(AuthDAO authDAO, GameDAO gameDAO) {
+        this(authDAO, gameDAO, new ChessEngine(), Math.max(1, Runtime.getRuntime().availableProcessors() / 2),
+                DEFAULT_QUEUE_CAPACITY, DEFAULT_JOB_TIME_LIMIT_MILLIS);
+    }
+
+    /**
+     * Analysis Service which runs engine searches on a bounded pool of worker threads
+     *
+     * @param engine             the engine to search with
+     * @param workers            the number of searches that can run at once
+     * @param queueCapacity      the number of submitted searches that can wait for a worker
+     *                           (submissions beyond this are rejected, not queued)
+     * @param jobTimeLimitMillis the time limit of each search
+     */
+    public AnalysisService(AuthDAO authDAO, GameDAO gameDAO, ChessEngine engine,
+                           int workers, int queueCapacity, long jobTimeLimitMillis) {
+        this.authDAO = authDAO;
+        this.gameDAO = gameDAO;
+        this.engine = engine;
+        this.jobTimeLimitMillis = jobTimeLimitMillis;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                (runnable) -> {
+                    Thread thread = new Thread(runnable, "analysis-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    thread.setPriority(Thread.MIN_PRIORITY);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        this.jobs = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Queue an analysis of a game's current position or of a FEN position
+     *
+     * @param authToken the authentication token for the current session
+     * @param request   a request with either a gameID or a FEN string, and optionally a depth
+     * @return a response with the ID to poll the job's results with
+     * @throws BadRequestException         if the authToken is null, the position is missing or invalid,
+     *                                     or the depth is out of range
+     * @throws UnauthorizedException       if the authToken is invalid
+     * @throws ServiceUnavailableException if the analysis queue is full
+     * @throws ServerErrorException        if the game cannot be read
+     */
+    public CreateAnalysisResponse submitAnalysis(String authToken, AnalysisRequest request)
+            throws BadRequestException, UnauthorizedException, ServiceUnavailableException, ServerErrorException {
+        String username = this.getVerifiedUsername(authToken);
+        if ((request == null) || ((request.gameID() == null) == (request.fen() == null))) {
+            throw new BadRequestException("exactly one of gameID or fen is required");
+        }
+        int depth = (request.depth() == null) ? DEFAULT_DEPTH : request.depth();
+        if ((depth < 1) || (depth > MAX_DEPTH)) {
+            throw new BadRequestException("depth must be between 1 and " + MAX_DEPTH);
+        }
+        ChessGame game;
+        if (request.gameID() != null) {
+            GameData gameData;
+            try {
+                gameData = this.gameDAO.getGame(request.gameID());
+            } catch (DataAccessException e) {
+                throw new ServerErrorException("Database access error");
+            }
+            if ((gameData == null) || (gameData.game() == null)) {
+                throw new BadRequestException("requested game does not exist");
+            }
+            // search a copy, so later moves in the game cannot change the position mid-search
+            game = new ChessGame(gameData.game());
+        } else {
+            try {
+                game = ChessNotation.parseFen(request.fen());
+            } catch (IllegalArgumentException e) {
+                throw new BadRequestException(e.getMessage());
+            }
+        }
+        AnalysisJob job = new AnalysisJob(username, game, depth, this.engine, this.jobTimeLimitMillis);
+        this.forgetOldJobs();
+        this.jobs.put(job.jobID, job);
+        try {
+            this.executor.execute(job);
+        } catch (RejectedExecutionException e) {
+            this.jobs.remove(job.jobID);
+            throw new ServiceUnavailableException("analysis queue is full, try again later");
+        }
+        return new CreateAnalysisResponse(job.jobID);
+    }
+
+    /**
+     * Get the status and latest results of an analysis job (only the user who submitted it may see it)
+     *
+     * @param authToken the authentication token for the current session
+     * @param jobID     the ID of the job
+     * @return a response with the job's status and deepest completed result
+     * @throws BadRequestException   if the authToken is null or there is no such job for the user
+     * @throws UnauthorizedException if the authToken is invalid
+     */
+    public AnalysisResponse getAnalysis(String authToken, String jobID)
+            throws BadRequestException, UnauthorizedException {
+        String username = this.getVerifiedUsername(authToken);
+        AnalysisJob job = (jobID == null) ? null : this.jobs.get(jobID);
+        if ((job == null) || !job.username.equals(username)) {
+            throw new BadRequestException("analysis job does not exist");
+        }
+        return job.toResponse();
+    }
+
+    /**
+     * Stop every running search and discard the queued ones
+     */
+    public void shutdown() {
+        this.executor.shutdownNow();
+    }
+
+    /**
+     * Forget finished jobs until there is room for another (unfinished jobs are never forgotten,
+     * and there can be at most workers + queueCapacity of them)
+     */
+    private void forgetOldJobs() {
+        if (this.jobs.size() < MAX_STORED_JOBS) {
+            return;
+        }
+        AnalysisJob oldest = null;
+        for (AnalysisJob job : this.jobs.values()) {
+            if (job.isFinished() && ((oldest == null) || (job.sequence < oldest.sequence))) {
+                oldest = job;
+            }
+        }
+        if (oldest != null) {
+            this.jobs.remove(oldest.jobID);
+        }
+    }
+
+    /**
+     * Assert that an authToken is verified, and get its username
+     *
+     * @throws UnauthorizedException on bad authToken
+     * @throws BadRequestException   on null authToken
+     */
+    private String getVerifiedUsername(String authToken) throws UnauthorizedException, BadRequestException {
+        String username;
+        try {
+            // verify and resolve in one lookup
+            username = this.authDAO.getUsername(authToken);
+        } catch (DataAccessException e) {
+            throw new BadRequestException("null auth token");
+        }
+        if (username == null) {
+            throw new UnauthorizedException("bad auth token");
+        }
+        return username;
+    }
+}
@@ -0,0 +1,215 @@
+package service;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.engine.ChessEngine;
+import chess.engine.SearchResult;
+import dataAccess.DataAccessException;
+import dataAccess.GameDAO;
+import model.GameData;
+import service.serviceExceptions.BadRequestException;
+import service.serviceExceptions.ConflictException;
+import service.serviceExceptions.ServerErrorException;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class BotService {
+    // the username seated for bot players (reserved, so no user can register it)
+    public static final String BOT_USERNAME = "[engine]";
+    public static final long DEFAULT_GAME_TIME_BUDGET_MILLIS = 120000;
+    private static final int MAX_DEPTH = 4;
+    // each move may use this fraction (1/n) of the game's remaining time budget, within the min and max
+    private static final int MOVES_TO_GO = 20;
+    private static final long MIN_MOVE_TIME_MILLIS = 100;
+    private static final long MAX_MOVE_TIME_MILLIS = 2000;
+
+    private final GameService gameService;
+    private final GameDAO gameDAO;
+    private final GameMailboxes gameMailboxes;
+    private final ChessEngine engine;
+    private final long gameTimeBudgetMillis;
+    private final ThreadPoolExecutor executor;
+    // IDs of the games with a bot move being computed or waiting to be made (at most one per game)
+    private final Set<Integer> thinkingGames;
+    // gameID -> the bot's remaining thinking time in that game
+    private final Map<Integer, Long> remainingMillis;
+
+    /**
+     * Called (in the game's mailbox) after a bot move has been made
+     */
+    public interface BotMoveListener {
+        /**
+         * @param gameData the game after the move
+         * @param move     the move the bot made
+         */
+        void onBotMove(GameData gameData, ChessMove move);
+    }
+
+    /**
+     * Bot Service with the default engine, worker count, and time budget
+     * (half the cores, so bots can never take every core from the request and websocket threads)
+     */
+    public BotService(GameService gameService, GameDAO gameDAO, GameMailboxes gameMailboxes) {
+        this(gameService, gameDAO, gameMailboxes, new ChessEngine(),
+                Math.max(1, Runtime.getRuntime().availableProcessors() / 2), DEFAULT_GAME_TIME_BUDGET_MILLIS);
+    }
+
+    /**
+     * Bot Service which computes bot moves on its own pool of worker threads,
+     * and makes them in the games' mailboxes (in order with the players' commands)
+     *
+     * @param gameMailboxes        the mailboxes the players' commands to each game run in
+     * @param engine               the engine bots play with
+     * @param workers              the number of bot moves that can be computed at once (across all games)
+     * @param gameTimeBudgetMillis the total thinking time the bot gets in each game
+     */
+    public BotService(GameService gameService, GameDAO gameDAO, GameMailboxes gameMailboxes, ChessEngine engine,
+                      int workers, long gameTimeBudgetMillis) {
+        this.gameService = gameService;
+        this.gameDAO = gameDAO;
+        this.gameMailboxes = gameMailboxes;
+        this.engine = engine;
+        this.gameTimeBudgetMillis = gameTimeBudgetMillis;
+        AtomicInteger threadCount = new AtomicInteger();
+        // the queue holds at most one task per game, so it is bounded by the number of bot games
+        this.executor = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(),
+                (runnable) -> {
+                    Thread thread = new Thread(runnable, "bot-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    thread.setPriority(Thread.MIN_PRIORITY);
+                    return thread;
+                });
+        this.thinkingGames = ConcurrentHashMap.newKeySet();
+        this.remainingMillis = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * @param gameData the game to inspect
+     * @return whether the game is in progress and the team to move is seated by a bot player
+     */
+    public boolean isBotTurn(GameData gameData) {
+        if ((gameData == null) || !gameData.hasGame()) {
+            return false;
+        }
+        // check the seats first, so games without a bot are never decoded
+        if (!BOT_USERNAME.equals(gameData.whiteUsername()) && !BOT_USERNAME.equals(gameData.blackUsername())) {
+            return false;
+        }
+        if (gameData.game().isOver()) {
+            return false;
+        }
+        return BOT_USERNAME.equals((gameData.game().getTeamTurn() == ChessGame.TeamColor.WHITE)
+                ? gameData.whiteUsername() : gameData.blackUsername());
+    }
+
+    /**
+     * Compute and make the bot's move in a game in the background, if it is the bot's turn
+     * (does nothing if the bot is already computing a move in the game)
+     *
+     * @param gameID   the ID of the game
+     * @param listener notified after the move is made
+     */
+    public void requestMove(int gameID, BotMoveListener listener) {
+        if (!this.thinkingGames.add(gameID)) {
+            return;
+        }
+        try {
+            this.executor.execute(() -> {
+                boolean isMoveQueued = false;
+                try {
+                    isMoveQueued = this.playMove(gameID, listener);
+                } finally {
+                    if (!isMoveQueued) {
+                        this.thinkingGames.remove(gameID);
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // shutting down
+            this.thinkingGames.remove(gameID);
+        }
+    }
+
+    /**
+     * @param gameID the ID of the game
+     * @return the bot's remaining thinking time in the game (the whole budget if it has not thought in the game)
+     */
+    public long getRemainingMillis(int gameID) {
+        return this.remainingMillis.getOrDefault(gameID, this.gameTimeBudgetMillis);
+    }
+
+    /**
+     * Forget the bot's remaining thinking time in a game that is over or that a player has left
+     *
+     * @param gameID the ID of the game
+     */
+    public void endGame(int gameID) {
+        this.remainingMillis.remove(gameID);
+    }
+
+    /**
+     * Stop computing bot moves
+     */
+    public void shutdown() {
+        this.executor.shutdownNow();
+    }
+
+    /**
+     * Compute the bot's move, and queue making it in the game's mailbox
+     *
+     * @return whether the move was queued (the queued task ends the game's thinking)
+     */
+    private boolean playMove(int gameID, BotMoveListener listener) {
+        GameData gameData;
+        try {
+            gameData = this.gameDAO.getGame(gameID);
+        } catch (DataAccessException e) {
+            return false;
+        }
+        if (!this.isBotTurn(gameData)) {
+            // a game that is gone or over (e.g. the bot was mated) no longer needs the bot's clock
+            if ((gameData == null) || (gameData.hasGame() && gameData.game().isOver())) {
+                this.endGame(gameID);
+            }
+            return false;
+        }
+        // think for a share of the game's remaining budget
+        long remaining = this.getRemainingMillis(gameID);
+        long moveTime = Math.max(MIN_MOVE_TIME_MILLIS, Math.min(MAX_MOVE_TIME_MILLIS, (remaining / MOVES_TO_GO)));
+        long startTime = System.currentTimeMillis();
+        SearchResult result = this.engine.search(gameData.game(), MAX_DEPTH, moveTime, null);
+        this.remainingMillis.put(gameID, Math.max(0, remaining - (System.currentTimeMillis() - startTime)));
+        if ((result == null) || (result.bestMove() == null)) {
+            return false;
+        }
+        this.gameMailboxes.submit(gameID, () -> {
+            try {
+                this.makeMove(gameID, result.bestMove(), listener);
+            } finally {
+                this.thinkingGames.remove(gameID);
+            }
+        });
+        return true;
+    }
+
+    /**
+     * Make a computed bot move (runs in the game's mailbox)
+     */
+    private void makeMove(int gameID, ChessMove move, BotMoveListener listener) {
+        GameData movedGameData;
+        try {
+            movedGameData = this.gameService.makeMove(gameID, move);
+        } catch (BadRequestException | ServerErrorException | ConflictException e) {
+            // the game changed while thinking (e.g. a resignation)
+            return;
+        }
+        if (movedGameData.game().isOver()) {
+            this.endGame(gameID);
+        }
+        listener.onBotMove(movedGameData, move);
+    }
+}
@@ -0,0 +1,136 @@
+package service;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the tasks that change a game one at a time and in the order they were submitted, using one mailbox
+ * (task queue) per game drained by a shared pool of threads.
+ * <p>
+ * Each game has a single logical writer without any lock being held across games, so read-modify-write
+ * commands on one game cannot interleave and lose updates, while different games run in parallel on
+ * every core. A game's mailbox exists only while it has tasks to run, and a busy game yields its thread
+ * after BATCH_SIZE tasks so it cannot starve the others.
+ */
+public class GameMailboxes {
+    private static final int BATCH_SIZE = 16;
+
+    private final ExecutorService executor;
+    // gameID -> tasks not yet started (present exactly while a drain of the game is queued or running)
+    private final ConcurrentHashMap<Integer, ArrayDeque<Runnable>> mailboxes;
+
+    /**
+     * Game mailboxes drained by one thread per core
+     */
+    public GameMailboxes() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param threads the number of games whose tasks can run at once
+     */
+    public GameMailboxes(int threads) {
+        this(newPlatformExecutor(threads));
+    }
+
+    private GameMailboxes(ExecutorService executor) {
+        this.executor = executor;
+        this.mailboxes = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Game mailboxes each drained on a virtual thread of its own, so a task blocked on I/O (e.g. the database)
+     * parks instead of holding up the games queued behind it
+     */
+    public static GameMailboxes onVirtualThreads() {
+        return new GameMailboxes(
+                Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("game-mailbox-", 1).factory()));
+    }
+
+    private static ExecutorService newPlatformExecutor(int threads) {
+        AtomicInteger threadCount = new AtomicInteger();
+        // the queue holds at most one drain per game, so it is bounded by the number of busy games
+        return new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(),
+                (runnable) -> {
+                    Thread thread = new Thread(runnable, "game-mailbox-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    /**
+     * Run a task after every task already submitted for the same game
+     *
+     * @param gameID the game the task reads or changes
+     * @param task   the task (exceptions it throws are dropped, so it should report its own errors)
+     */
+    public void submit(int gameID, Runnable task) {
+        boolean[] isNewMailbox = {false};
+        // compute() locks the game's entry, so the mailbox cannot be removed while the task is added
+        this.mailboxes.compute(gameID, (id, mailbox) -> {
+            if (mailbox == null) {
+                mailbox = new ArrayDeque<>();
+                isNewMailbox[0] = true;
+            }
+            mailbox.addLast(task);
+            return mailbox;
+        });
+        if (isNewMailbox[0]) {
+            this.schedule(gameID);
+        }
+    }
+
+    /**
+     * Stop running tasks (tasks not yet started are dropped)
+     */
+    public void shutdown() {
+        this.executor.shutdownNow();
+    }
+
+    private void schedule(int gameID) {
+        try {
+            this.executor.execute(() -> this.drain(gameID));
+        } catch (RejectedExecutionException e) {
+            // shutting down
+            this.mailboxes.remove(gameID);
+        }
+    }
+
+    /**
+     * Run up to BATCH_SIZE of a game's tasks, then queue the game again behind other games if it has more
+     */
+    private void drain(int gameID) {
+        for (int i = 0; i < BATCH_SIZE; ++i) {
+            Runnable task = this.poll(gameID);
+            if (task == null) {
+                return;
+            }
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                // tasks report their own errors; keep draining
+            }
+        }
+        this.schedule(gameID);
+    }
+
+    /**
+     * @return the game's next task, or null (removing the empty mailbox) if it has none
+     */
+    private Runnable poll(int gameID) {
+        Runnable[] task = {null};
+        this.mailboxes.computeIfPresent(gameID, (id, mailbox) -> {
+            task[0] = mailbox.pollFirst();
+            return (task[0] == null) ? null : mailbox;
+        });
+        return task[0];
+    }
+}
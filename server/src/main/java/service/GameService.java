@@ -1,24 +1,37 @@
 package service;
 
 import chess.ChessGame;
+import chess.ChessMove;
 import chess.InvalidMoveException;
 import dataAccess.AuthDAO;
 import dataAccess.DataAccessException;
 import dataAccess.GameDAO;
+import dataAccess.GameQuery;
+import dataAccess.VersionConflictException;
 import model.GameData;
+import model.GameSummary;
 import model.request.CreateGameRequest;
 import model.request.JoinGameRequest;
+import model.request.ListGamesRequest;
 import model.response.CreateGameResponse;
 import model.response.ListGamesResponse;
 import service.serviceExceptions.AlreadyTakenException;
 import service.serviceExceptions.BadRequestException;
+import service.serviceExceptions.ConflictException;
 import service.serviceExceptions.ServerErrorException;
 import service.serviceExceptions.UnauthorizedException;
 import webSocketMessages.userCommands.*;
 
+import java.util.ArrayList;
 import java.util.Objects;
 
 public class GameService {
+    // games per page of a listing
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    public static final int MAX_PAGE_SIZE = 200;
+    // attempts at a read-modify-write of a game before giving up on conflicts with concurrent writers
+    public static final int MAX_WRITE_ATTEMPTS = 3;
+
     private final AuthDAO authDAO;
     private final GameDAO gameDAO;
 
@@ -33,40 +46,106 @@ public class GameService {
     // HTTP Service Request Methods ///////////////////////////////////////////////////////////////
 
     /**
-     * Return a list of all the games in the database with their metadata
+     * Return the first page of the games in the database with their metadata, oldest first
      *
      * @param authToken the authentication token for the current session
-     * @return a response with the list of all current games
+     * @return a response with the first page of games
      * @throws BadRequestException   if the authToken is null
      * @throws UnauthorizedException if the authToken is invalid
      */
     public ListGamesResponse listGames(String authToken)
             throws UnauthorizedException, BadRequestException, ServerErrorException {
-        this.assertAuthTokenVerified(authToken);
+        return this.listGames(authToken, (new ListGamesRequest(null, null, null, null, null)));
+    }
+
+    /**
+     * Return one page of the games in the database with their metadata
+     *
+     * @param authToken the authentication token for the current session
+     * @param request   the page (cursor and size), filters (status and player) and sort order, each optional
+     * @return a response with the page of games and the cursor of the next page (null if this is the last page)
+     * @throws BadRequestException   if the authToken is null, or the limit, status or sort is invalid
+     * @throws UnauthorizedException if the authToken is invalid
+     */
+    public ListGamesResponse listGames(String authToken, ListGamesRequest request)
+            throws UnauthorizedException, BadRequestException, ServerErrorException {
+        this.authenticate(authToken);
+        int limit = (request.limit() == null) ? DEFAULT_PAGE_SIZE : request.limit();
+        if ((limit < 1) || (limit > MAX_PAGE_SIZE)) {
+            throw new BadRequestException("limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        GameSummary.Status status = null;
+        if (request.status() != null) {
+            try {
+                status = GameSummary.Status.valueOf(request.status().toUpperCase());
+            } catch (IllegalArgumentException e) {
+                throw new BadRequestException("status must be OPEN, IN_PROGRESS or OVER");
+            }
+        }
+        if ((request.sort() != null)
+                && !request.sort().equalsIgnoreCase("ASC") && !request.sort().equalsIgnoreCase("DESC")) {
+            throw new BadRequestException("sort must be ASC or DESC");
+        }
+        boolean descending = (request.sort() != null) && request.sort().equalsIgnoreCase("DESC");
+        ArrayList<GameSummary> games;
         try {
-            return new ListGamesResponse(this.gameDAO.listGames());
+            // fetch one extra game to learn whether there is a next page
+            games = this.gameDAO.listGameSummaries(
+                    new GameQuery(request.cursor(), (limit + 1), status, request.player(), descending));
         } catch (DataAccessException e) {
             throw new ServerErrorException("database connection failed");
         }
+        Integer nextCursor = null;
+        if (games.size() > limit) {
+            games = new ArrayList<>(games.subList(0, limit));
+            nextCursor = games.getLast().gameID();
+        }
+        return new ListGamesResponse(games, nextCursor);
     }
 
     /**
      * Create a new game in the database (can have the same name as another game)
      *
      * @param authToken the authentication token for the current session
-     * @param request   a request containing the desired display name of the game
+     * @param request   a request containing the desired display name of the game,
+     *                  and optionally the team to seat a bot player (BotService.BOT_USERNAME) as
      * @return a response with the internal gameID
-     * @throws BadRequestException   if the authToken or gameName is null
+     * @throws BadRequestException   if the authToken or gameName is null, or the botColor is not a team
      * @throws UnauthorizedException if the authToken is invalid
+     * @throws ServerErrorException  if the bot player cannot be seated
+     * @throws ConflictException     if the game kept changing while the bot player was being seated
      */
     public CreateGameResponse createGame(String authToken, CreateGameRequest request)
-            throws UnauthorizedException, BadRequestException {
-        this.assertAuthTokenVerified(authToken);
+            throws UnauthorizedException, BadRequestException, ServerErrorException, ConflictException {
+        this.authenticate(authToken);
+        if ((request.botColor() != null)
+                && !request.botColor().equalsIgnoreCase("WHITE") && !request.botColor().equalsIgnoreCase("BLACK")) {
+            throw new BadRequestException("botColor must be WHITE or BLACK");
+        }
+        int gameID;
         try {
-            return new CreateGameResponse(this.gameDAO.createGame(request.gameName()));
+            gameID = this.gameDAO.createGame(request.gameName());
         } catch (DataAccessException e) {
             throw new BadRequestException("null gameName");
         }
+        if (request.botColor() != null) {
+            // seat the bot player (in whichever seat is its own, in case a player joined meanwhile)
+            boolean isBotWhite = request.botColor().equalsIgnoreCase("WHITE");
+            for (int attempt = 1; ; ++attempt) {
+                try {
+                    GameData gameData = this.gameDAO.getGame(gameID);
+                    this.gameDAO.updateGame(gameID, gameData.withPlayers(
+                            (isBotWhite ? BotService.BOT_USERNAME : gameData.whiteUsername()),
+                            (isBotWhite ? gameData.blackUsername() : BotService.BOT_USERNAME)));
+                    break;
+                } catch (VersionConflictException e) {
+                    GameService.assertCanRetry(attempt);
+                } catch (DataAccessException e) {
+                    throw new ServerErrorException("could not seat bot player");
+                }
+            }
+        }
+        return new CreateGameResponse(gameID);
     }
 
     /**
@@ -77,10 +156,30 @@ public class GameService {
      * @throws BadRequestException   if the requested game does not exist or the authToken is null
      * @throws UnauthorizedException if the authToken is invalid
      * @throws AlreadyTakenException if the requested team position is already claimed
+     * @throws ConflictException     if the game kept changing while the player was being seated
      */
-    public void joinGame(String authToken, JoinGameRequest request)
-            throws BadRequestException, UnauthorizedException, AlreadyTakenException, ServerErrorException {
-        this.assertAuthTokenVerified(authToken);
+    public void joinGame(String authToken, JoinGameRequest request) throws BadRequestException,
+            UnauthorizedException, AlreadyTakenException, ServerErrorException, ConflictException {
+        String playerUsername = this.authenticate(authToken);
+        // a write that conflicts with a concurrent one is retried on the new state of the game,
+        // which may have taken the requested seat
+        for (int attempt = 1; ; ++attempt) {
+            try {
+                this.tryJoinGame(playerUsername, request);
+                return;
+            } catch (VersionConflictException e) {
+                GameService.assertCanRetry(attempt);
+            }
+        }
+    }
+
+    /**
+     * Join a game in the database in one read-modify-write
+     *
+     * @throws VersionConflictException if the game changed between the read and the write
+     */
+    private void tryJoinGame(String playerUsername, JoinGameRequest request) throws VersionConflictException,
+            BadRequestException, UnauthorizedException, AlreadyTakenException, ServerErrorException {
         GameData gameData;
         try {
             gameData = this.gameDAO.getGame(request.gameID());
@@ -100,19 +199,15 @@ public class GameService {
                 ? (gameData.whiteUsername() != null) : (gameData.blackUsername() != null))) {
             throw new AlreadyTakenException("requested team already claimed");
         }
-        String playerUsername;
-        try {
-            playerUsername = this.authDAO.getUsername(authToken);
-        } catch (DataAccessException e) {
-            throw new BadRequestException("null authToken");
-        }
         String newWhiteUsername = (playerColor == ChessGame.TeamColor.WHITE) ? playerUsername : gameData.whiteUsername();
         String newBlackUsername = (playerColor == ChessGame.TeamColor.BLACK) ? playerUsername : gameData.blackUsername();
-        gameData = new GameData(
-                gameData.gameID(), newWhiteUsername, newBlackUsername, gameData.gameName(), gameData.game());
+        // reseat the players without decoding the game
+        gameData = gameData.withPlayers(newWhiteUsername, newBlackUsername);
         // convert any DataAccessException -> BadRequestException
         try {
             this.gameDAO.updateGame(request.gameID(), gameData);
+        } catch (VersionConflictException e) {
+            throw e;
         } catch (DataAccessException e) {
             throw new BadRequestException("game does not exist");
         }
@@ -128,7 +223,7 @@ public class GameService {
      * @throws BadRequestException   on null auth token
      */
     public void joinPlayer(JoinPlayerCommand command) throws UnauthorizedException, BadRequestException {
-        this.assertAuthTokenVerified(command.getAuthString());
+        this.authenticate(command.getAuthString());
     }
 
     /**
@@ -139,29 +234,56 @@ public class GameService {
      * @throws BadRequestException   on null auth token
      */
     public void joinObserver(JoinObserverCommand command) throws UnauthorizedException, BadRequestException {
-        this.assertAuthTokenVerified(command.getAuthString());
+        this.authenticate(command.getAuthString());
     }
 
     /**
      * Make a move for a game in the database
      *
      * @param command the move to process
+     * @return the game after the move
      * @throws UnauthorizedException on bad auth token
      * @throws BadRequestException   on null auth token, invalid move
+     * @throws ConflictException     if the game kept changing while the move was being made
      */
-    public void makeMove(MakeMoveCommand command)
-            throws UnauthorizedException, BadRequestException, ServerErrorException {
-        this.assertAuthTokenVerified(command.getAuthString());
-        try {
-            GameData gameData = this.getGame(command.getAuthString(), command.getGameID());
-            // attempt the requested move (throw exception on invalid move)
-            gameData.game().makeMove(command.getMove());
-            // reinsert the post-move game to DAO
-            this.gameDAO.updateGame(gameData.gameID(), gameData);
-        } catch (DataAccessException e) {
-            throw new ServerErrorException("could not communicate with database");
-        } catch (InvalidMoveException e) {
-            throw new BadRequestException("Invalid Move. " + e.getMessage());
+    public GameData makeMove(MakeMoveCommand command)
+            throws UnauthorizedException, BadRequestException, ServerErrorException, ConflictException {
+        this.authenticate(command.getAuthString());
+        return this.makeMove(command.getGameID(), command.getMove());
+    }
+
+    /**
+     * Make a move for a game in the database, without authentication
+     * (for moves decided by the server itself, e.g. by a bot player)
+     *
+     * @param gameID the ID of the game to move in
+     * @param move   the move to make
+     * @return the game after the move
+     * @throws BadRequestException  if the game does not exist or the move is invalid
+     * @throws ServerErrorException if the database cannot be reached
+     * @throws ConflictException    if the game kept changing while the move was being made
+     */
+    public GameData makeMove(int gameID, ChessMove move)
+            throws BadRequestException, ServerErrorException, ConflictException {
+        // a move that conflicts with a concurrent write is validated again against the new state of the game
+        for (int attempt = 1; ; ++attempt) {
+            try {
+                GameData gameData = this.gameDAO.getGame(gameID);
+                if ((gameData == null) || (gameData.game() == null)) {
+                    throw new BadRequestException("game does not exist");
+                }
+                // attempt the requested move (throw exception on invalid move)
+                gameData.game().makeMove(move);
+                // record the move (the DAO appends it rather than rewriting the game)
+                this.gameDAO.recordMove(gameData.gameID(), gameData, move);
+                return gameData;
+            } catch (VersionConflictException e) {
+                GameService.assertCanRetry(attempt);
+            } catch (DataAccessException e) {
+                throw new ServerErrorException("could not communicate with database");
+            } catch (InvalidMoveException e) {
+                throw new BadRequestException("Invalid Move. " + e.getMessage());
+            }
         }
     }
 
@@ -171,25 +293,28 @@ public class GameService {
      * @param command the LeaveCommand to process
      * @throws UnauthorizedException on bad auth token
      * @throws BadRequestException   on null auth token
+     * @throws ConflictException     if the game kept changing while the client was being removed
      */
     public void leaveGame(LeaveCommand command)
-            throws UnauthorizedException, BadRequestException, ServerErrorException {
-        this.assertAuthTokenVerified(command.getAuthString());
-        try {
-            GameData gameData = this.getGame(command.getAuthString(), command.getGameID());
-            // remove the root client from the game
-            String rootClientUsername = this.authDAO.getUsername(command.getAuthString());
-            if (Objects.equals(gameData.whiteUsername(), rootClientUsername)) {
-                gameData = new GameData(gameData.gameID(),
-                        null, gameData.blackUsername(), gameData.gameName(), gameData.game());
-            } else if (Objects.equals(gameData.blackUsername(), rootClientUsername)) {
-                gameData = new GameData(gameData.gameID(), gameData.whiteUsername(),
-                        null, gameData.gameName(), gameData.game());
+            throws UnauthorizedException, BadRequestException, ServerErrorException, ConflictException {
+        String rootClientUsername = this.authenticate(command.getAuthString());
+        for (int attempt = 1; ; ++attempt) {
+            try {
+                GameData gameData = this.getGame(command.getAuthString(), command.getGameID());
+                // remove the root client from the game
+                if (Objects.equals(gameData.whiteUsername(), rootClientUsername)) {
+                    gameData = gameData.withPlayers(null, gameData.blackUsername());
+                } else if (Objects.equals(gameData.blackUsername(), rootClientUsername)) {
+                    gameData = gameData.withPlayers(gameData.whiteUsername(), null);
+                }
+                // reinsert the game to DAO
+                this.gameDAO.updateGame(gameData.gameID(), gameData);
+                return;
+            } catch (VersionConflictException e) {
+                GameService.assertCanRetry(attempt);
+            } catch (DataAccessException e) {
+                throw new ServerErrorException("database error: " + e.getMessage());
             }
-            // reinsert the game to DAO
-            this.gameDAO.updateGame(gameData.gameID(), gameData);
-        } catch (DataAccessException e) {
-            throw new ServerErrorException("database error: " + e.getMessage());
         }
     }
 
@@ -199,18 +324,24 @@ public class GameService {
      * @param command the JoinPlayerCommand to process
      * @throws UnauthorizedException on bad auth token
      * @throws BadRequestException   on null auth token
+     * @throws ConflictException     if the game kept changing while it was being ended
      */
     public void resignGame(ResignCommand command)
-            throws UnauthorizedException, BadRequestException, ServerErrorException {
-        this.assertAuthTokenVerified(command.getAuthString());
-        try {
-            GameData gameData = this.getGame(command.getAuthString(), command.getGameID());
-            // set the game to over
-            gameData.game().setOver();
-            // reinsert the game to DAO
-            this.gameDAO.updateGame(gameData.gameID(), gameData);
-        } catch (DataAccessException e) {
-            throw new ServerErrorException("could not communicate with database");
+            throws UnauthorizedException, BadRequestException, ServerErrorException, ConflictException {
+        this.authenticate(command.getAuthString());
+        for (int attempt = 1; ; ++attempt) {
+            try {
+                GameData gameData = this.getGame(command.getAuthString(), command.getGameID());
+                // set the game to over
+                gameData.game().setOver();
+                // reinsert the game to DAO
+                this.gameDAO.updateGame(gameData.gameID(), gameData);
+                return;
+            } catch (VersionConflictException e) {
+                GameService.assertCanRetry(attempt);
+            } catch (DataAccessException e) {
+                throw new ServerErrorException("could not communicate with database");
+            }
         }
     }
 
@@ -224,30 +355,46 @@ public class GameService {
      * @throws UnauthorizedException on bad authToken
      */
     public GameData getGame(String authToken, int gameID) throws DataAccessException, BadRequestException, UnauthorizedException {
-        assertAuthTokenVerified(authToken);
+        this.authenticate(authToken);
         // fetch game data from DAO by ID
         GameData gameData = this.gameDAO.getGame(gameID);
-        // assert that the game data exists
-        if ((gameData == null) || (gameData.game() == null)) {
+        // assert that the game data exists (without decoding the game)
+        if ((gameData == null) || !gameData.hasGame()) {
             throw new BadRequestException("game does not exist");
         }
         return gameData;
     }
 
     /**
-     * Assert that an authToken is authorized and verified
+     * Assert that a read-modify-write of a game that conflicted with a concurrent write may be attempted again
+     *
+     * @param attempt the number of the attempt that conflicted (from 1)
+     * @throws ConflictException if every attempt has conflicted
+     */
+    private static void assertCanRetry(int attempt) throws ConflictException {
+        if (attempt >= MAX_WRITE_ATTEMPTS) {
+            throw new ConflictException("the game kept changing, try again");
+        }
+    }
+
+    /**
+     * Assert that an authToken is authorized and verified, and resolve its username (in one lookup)
      *
      * @param authToken the authToken to assert verified
+     * @return the username of the authToken's user
      * @throws UnauthorizedException on bad authToken
      * @throws BadRequestException   on null authToken
      */
-    private void assertAuthTokenVerified(String authToken) throws UnauthorizedException, BadRequestException {
+    public String authenticate(String authToken) throws UnauthorizedException, BadRequestException {
+        String username;
         try {
-            if (!this.authDAO.verifyAuthToken(authToken)) {
-                throw new UnauthorizedException("bad auth token");
-            }
+            username = this.authDAO.getUsername(authToken);
         } catch (DataAccessException e) {
             throw new BadRequestException("null auth token");
         }
+        if (username == null) {
+            throw new UnauthorizedException("bad auth token");
+        }
+        return username;
     }
 }
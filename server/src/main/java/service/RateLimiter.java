@@ -0,0 +1,151 @@
+package service;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Token-bucket rate limits, one bucket per key (e.g. a username or client address).
+ * <p>
+ * Each bucket holds up to burst tokens and regains perMinute tokens a minute; an attempt takes one token,
+ * and is refused while the bucket is empty. Buckets are locked one at a time, so attempts under different keys
+ * never wait on each other. A bucket that has refilled completely is no different from a new one, so once more
+ * than maxKeys buckets are kept, full ones are forgotten, then others down to 90% of maxKeys. A bucket that refused
+ * an attempt within the time it takes to refill is never forgotten (that would hand its key a fresh burst), so
+ * while more keys than that are being refused the buckets can outgrow maxKeys.
+ * <p>
+ * Forgetting scans every bucket, so it runs on one thread at a time and only once another 10% of maxKeys buckets
+ * have been added since it last ran: a scan costs about 10 bucket checks for each new key.
+ */
+public class RateLimiter {
+    private final int burst;
+    private final double tokensPerNano;
+    private final int maxKeys;
+    // how long an empty bucket takes to refill (nanoseconds)
+    private final long refillNanos;
+    // key -> bucket
+    private final ConcurrentHashMap<String, Bucket> buckets;
+    // the number of buckets at which a new key forgets idle ones, and whether a thread is doing so
+    private volatile int forgetAtSize;
+    private final AtomicBoolean isForgetting;
+
+    private static class Bucket {
+        private double tokens;
+        private long refilledAtNanos;
+        private boolean hasRefused;
+        private long refusedAtNanos;
+
+        Bucket(int burst, long nowNanos) {
+            this.tokens = burst;
+            this.refilledAtNanos = nowNanos;
+        }
+
+        /**
+         * @return 0 if a token was taken, otherwise how long until one is available (nanoseconds)
+         */
+        synchronized long tryTake(int burst, double tokensPerNano, long nowNanos) {
+            this.refill(burst, tokensPerNano, nowNanos);
+            if (this.tokens >= 1) {
+                this.tokens -= 1;
+                return 0;
+            }
+            this.hasRefused = true;
+            this.refusedAtNanos = nowNanos;
+            return Math.max(1, (long) Math.ceil((1 - this.tokens) / tokensPerNano));
+        }
+
+        synchronized boolean isFull(int burst, double tokensPerNano, long nowNanos) {
+            this.refill(burst, tokensPerNano, nowNanos);
+            return (this.tokens >= burst);
+        }
+
+        synchronized boolean hasRefusedWithin(long nanos, long nowNanos) {
+            return this.hasRefused && ((nowNanos - this.refusedAtNanos) < nanos);
+        }
+
+        private void refill(int burst, double tokensPerNano, long nowNanos) {
+            if (nowNanos <= this.refilledAtNanos) {
+                // another thread refilled more recently
+                return;
+            }
+            this.tokens = Math.min(burst, (this.tokens + ((nowNanos - this.refilledAtNanos) * tokensPerNano)));
+            this.refilledAtNanos = nowNanos;
+        }
+    }
+
+    /**
+     * @param burst     the most attempts allowed at once
+     * @param perMinute the attempts regained per minute
+     * @param maxKeys   the most keys to track before forgetting idle ones
+     */
+    public RateLimiter(int burst, int perMinute, int maxKeys) {
+        this.burst = burst;
+        this.tokensPerNano = perMinute / (double) TimeUnit.MINUTES.toNanos(1);
+        this.maxKeys = maxKeys;
+        this.refillNanos = (long) Math.ceil(burst / this.tokensPerNano);
+        this.buckets = new ConcurrentHashMap<>();
+        this.forgetAtSize = maxKeys;
+        this.isForgetting = new AtomicBoolean(false);
+    }
+
+    /**
+     * Take one attempt from key's bucket, if it has one
+     *
+     * @param key the key to limit (null keys are not limited)
+     * @return 0 if the attempt is allowed, otherwise how long until it would be (milliseconds)
+     */
+    public long tryAcquire(String key) {
+        if (key == null) {
+            return 0;
+        }
+        long nowNanos = System.nanoTime();
+        Bucket bucket = this.buckets.get(key);
+        if (bucket == null) {
+            if (this.buckets.size() >= this.forgetAtSize) {
+                this.forgetIdleKeys(nowNanos);
+            }
+            bucket = this.buckets.computeIfAbsent(key, (k) -> new Bucket(this.burst, nowNanos));
+        }
+        // rounded up to whole milliseconds
+        return TimeUnit.NANOSECONDS.toMillis(bucket.tryTake(this.burst, this.tokensPerNano, nowNanos) + 999_999);
+    }
+
+    /**
+     * @return the number of keys with a bucket
+     */
+    public int size() {
+        return this.buckets.size();
+    }
+
+    /**
+     * Forget every key
+     */
+    public void clear() {
+        this.buckets.clear();
+        this.forgetAtSize = this.maxKeys;
+    }
+
+    /**
+     * Forget keys with full buckets, then others that have not refused an attempt within the refill time
+     * while more than 90% of maxKeys are kept (unless another thread is already doing so)
+     */
+    private void forgetIdleKeys(long nowNanos) {
+        if (!this.isForgetting.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            this.buckets.values().removeIf(bucket -> bucket.isFull(this.burst, this.tokensPerNano, nowNanos));
+            int targetSize = this.maxKeys - (this.maxKeys / 10);
+            Iterator<Bucket> buckets = this.buckets.values().iterator();
+            while ((this.buckets.size() > targetSize) && buckets.hasNext()) {
+                if (!buckets.next().hasRefusedWithin(this.refillNanos, nowNanos)) {
+                    buckets.remove();
+                }
+            }
+            this.forgetAtSize = Math.max(this.maxKeys, (this.buckets.size() + Math.max(1, (this.maxKeys / 10))));
+        } finally {
+            this.isForgetting.set(false);
+        }
+    }
+}
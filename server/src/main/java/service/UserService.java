@@ -2,6 +2,7 @@ package service;
 
 import dataAccess.AuthDAO;
 import dataAccess.DataAccessException;
+import dataAccess.HasherBusyException;
 import dataAccess.UserDAO;
 import model.UserData;
 import model.request.LoginRequest;
@@ -10,18 +11,42 @@ import model.response.LoginResponse;
 import model.response.RegisterResponse;
 import service.serviceExceptions.AlreadyTakenException;
 import service.serviceExceptions.BadRequestException;
+import service.serviceExceptions.ServiceUnavailableException;
+import service.serviceExceptions.TooManyRequestsException;
 import service.serviceExceptions.UnauthorizedException;
 
 public class UserService {
+    // login attempts allowed at once, and regained per minute, for each username and each client address
+    public static final int DEFAULT_USER_LOGIN_BURST = 20;
+    public static final int DEFAULT_USER_LOGINS_PER_MINUTE = 20;
+    public static final int DEFAULT_ADDRESS_LOGIN_BURST = 100;
+    public static final int DEFAULT_ADDRESS_LOGINS_PER_MINUTE = 600;
+    private static final int MAX_THROTTLED_KEYS = 100000;
+
     private final AuthDAO authDAO;
     private final UserDAO userDAO;
+    private final RateLimiter userLoginLimiter;
+    private final RateLimiter addressLoginLimiter;
 
     /**
      * User Service which takes DAOs and uses them to fulfill requests
      */
     public UserService(AuthDAO authDAO, UserDAO userDAO) {
+        this(authDAO, userDAO,
+                new RateLimiter(DEFAULT_USER_LOGIN_BURST, DEFAULT_USER_LOGINS_PER_MINUTE, MAX_THROTTLED_KEYS),
+                new RateLimiter(DEFAULT_ADDRESS_LOGIN_BURST, DEFAULT_ADDRESS_LOGINS_PER_MINUTE, MAX_THROTTLED_KEYS));
+    }
+
+    /**
+     * @param userLoginLimiter    the limit on login attempts for each username
+     * @param addressLoginLimiter the limit on login attempts from each client address
+     */
+    public UserService(AuthDAO authDAO, UserDAO userDAO,
+                       RateLimiter userLoginLimiter, RateLimiter addressLoginLimiter) {
         this.authDAO = authDAO;
         this.userDAO = userDAO;
+        this.userLoginLimiter = userLoginLimiter;
+        this.addressLoginLimiter = addressLoginLimiter;
     }
 
     /**
@@ -29,16 +54,23 @@ public class UserService {
      *
      * @param request the account data of the proposed user
      * @return a response with an authToken to authenticate the current session
-     * @throws AlreadyTakenException if the username is already taken
-     * @throws BadRequestException   if the username or password are missing
+     * @throws AlreadyTakenException       if the username is already taken
+     * @throws BadRequestException         if the username or password are missing
+     * @throws ServiceUnavailableException if too many passwords are already waiting to be hashed
      */
-    public RegisterResponse register(RegisterRequest request) throws AlreadyTakenException, BadRequestException {
+    public RegisterResponse register(RegisterRequest request)
+            throws AlreadyTakenException, BadRequestException, ServiceUnavailableException {
         if ((request.username() == null) || (request.password() == null)) {
             throw new BadRequestException("username or password missing");
         }
+        if (request.username().equals(BotService.BOT_USERNAME)) {
+            throw new AlreadyTakenException("username reserved");
+        }
         // convert DataAccessException -> AlreadyTakenException
         try {
             userDAO.createUser(new UserData(request.username(), request.password(), request.email()));
+        } catch (HasherBusyException e) {
+            throw new ServiceUnavailableException(e.getMessage());
         } catch (DataAccessException e) {
             throw new AlreadyTakenException("username already taken");
         }
@@ -53,16 +85,32 @@ public class UserService {
     /**
      * Return an authToken granting authentication privileges to the current session
      *
-     * @param request the login credentials of the user
+     * @param request       the login credentials of the user
+     * @param clientAddress the address the login came from (null if unknown)
      * @return a response with an authToken to authenticate the current session
-     * @throws BadRequestException   if the username invalid
-     * @throws UnauthorizedException if the credentials are invalid
+     * @throws BadRequestException         if the username invalid
+     * @throws UnauthorizedException       if the credentials are invalid
+     * @throws ServiceUnavailableException if too many passwords are already waiting to be checked
+     * @throws TooManyRequestsException    if there have been too many recent logins to the user or from the address
      */
-    public LoginResponse login(LoginRequest request) throws UnauthorizedException, BadRequestException {
+    public LoginResponse login(LoginRequest request, String clientAddress) throws UnauthorizedException,
+            BadRequestException, ServiceUnavailableException, TooManyRequestsException {
+        // checking a password is slow on purpose, so attempts are limited before it
+        // (attempts refused for their address do not count against the user)
+        long retryAfterMillis = this.addressLoginLimiter.tryAcquire(clientAddress);
+        if (retryAfterMillis == 0) {
+            retryAfterMillis = this.userLoginLimiter.tryAcquire(request.username());
+        }
+        if (retryAfterMillis > 0) {
+            throw new TooManyRequestsException("too many login attempts, try again later",
+                    ((retryAfterMillis + 999) / 1000));
+        }
         try {
             if (!userDAO.verifyUser(request.username(), request.password())) {
                 throw new UnauthorizedException("invalid login credentials");
             }
+        } catch (HasherBusyException e) {
+            throw new ServiceUnavailableException(e.getMessage());
         } catch (DataAccessException e) {
             throw new BadRequestException("null credential(s)");
         }
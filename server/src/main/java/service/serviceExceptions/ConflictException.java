@@ -0,0 +1,11 @@
+package service.serviceExceptions;
+
+/**
+ * Indicates the requested change kept conflicting with concurrent changes to the same resource
+ * (the client may retry)
+ */
+public class ConflictException extends Exception {
+    public ConflictException(String message) {
+        super(message);
+    }
+}
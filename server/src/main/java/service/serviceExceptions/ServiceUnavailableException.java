@@ -0,0 +1,10 @@
+package service.serviceExceptions;
+
+/**
+ * Indicates the server is too busy to accept the request right now (the client may retry later)
+ */
+public class ServiceUnavailableException extends Exception {
+    public ServiceUnavailableException(String message) {
+        super(message);
+    }
+}
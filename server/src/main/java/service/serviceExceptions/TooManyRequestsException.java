@@ -0,0 +1,20 @@
+package service.serviceExceptions;
+
+/**
+ * Indicates the client has made too many requests of this kind recently (the client may retry after a while)
+ */
+public class TooManyRequestsException extends Exception {
+    private final long retryAfterSeconds;
+
+    public TooManyRequestsException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    /**
+     * @return how long the client should wait before trying again, in whole seconds
+     */
+    public long getRetryAfterSeconds() {
+        return this.retryAfterSeconds;
+    }
+}
@@ -20,6 +20,13 @@ class AuthDAOTests {
         return Stream.of((new MemoryAuthDAO()), (new DatabaseAuthDAO()));
     }
 
+    /**
+     * @return a Stream of AuthDAO objects of different implementations whose authentications expire at once
+     */
+    private static Stream<AuthDAO> expiringAuthDAOImplementationsUnderTest() throws DataAccessException {
+        return Stream.of((new MemoryAuthDAO(0)), (new DatabaseAuthDAO(0)));
+    }
+
     private static void setup(AuthDAO authDAO) throws DataAccessException {
         DatabaseManager.createDatabase();
         authDAO.clearAuths();
@@ -159,4 +166,34 @@ class AuthDAOTests {
         assertNull(authDAO.getUsername(authToken2));
         tearDown(authDAO);
     }
-}
\ No newline at end of file
+
+    @ParameterizedTest
+    @MethodSource("expiringAuthDAOImplementationsUnderTest")
+    public void deleteExpiredAuthsPositive(AuthDAO authDAO) throws DataAccessException {
+        // set pre-state
+        setup(authDAO);
+        String authToken0 = authDAO.createAuth("testUser0");
+        String authToken1 = authDAO.createAuth("testUser1");
+        authDAO.createAuth("testUser2");
+        // confirm pre-state (expired authentications are rejected)
+        assertFalse(authDAO.verifyAuthToken(authToken0));
+        assertNull(authDAO.getUsername(authToken1));
+        // perform action, compare post-state (deleted in batches)
+        assertEquals(authDAO.deleteExpiredAuths(2), 2);
+        assertEquals(authDAO.deleteExpiredAuths(2), 1);
+        assertEquals(authDAO.deleteExpiredAuths(2), 0);
+        tearDown(authDAO);
+    }
+
+    @ParameterizedTest
+    @MethodSource("authDAOImplementationsUnderTest")
+    public void deleteExpiredAuthsNegative(AuthDAO authDAO) throws DataAccessException {
+        // set pre-state
+        setup(authDAO);
+        String authToken = authDAO.createAuth("testUser");
+        // perform action, compare post-state (live authentications are kept)
+        assertEquals(authDAO.deleteExpiredAuths(10), 0);
+        assertEquals(authDAO.getUsername(authToken), "testUser");
+        tearDown(authDAO);
+    }
+}
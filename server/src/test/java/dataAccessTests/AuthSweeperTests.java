@@ -0,0 +1,43 @@
+package dataAccessTests;
+
+import dataAccess.AuthSweeper;
+import dataAccess.DataAccessException;
+import dataAccess.memoryDAO.MemoryAuthDAO;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AuthSweeperTests {
+    @Test
+    public void sweepPositive() throws DataAccessException {
+        // set pre-state (more expired authentications than one batch)
+        MemoryAuthDAO authDAO = new MemoryAuthDAO(0);
+        for (int i = 0; i < 5; ++i) {
+            authDAO.createAuth("testUser" + i);
+        }
+        try (AuthSweeper authSweeper = new AuthSweeper(authDAO, 60000, 2, 10)) {
+            // perform action, compare post-state
+            assertEquals(5, authSweeper.sweep());
+            assertEquals(0, authDAO.deleteExpiredAuths(10));
+        }
+    }
+
+    @Test
+    public void sweepNegative() throws DataAccessException {
+        // set pre-state (expired authentications beyond one sweep's batches, and a live one)
+        MemoryAuthDAO expiredAuthDAO = new MemoryAuthDAO(0);
+        for (int i = 0; i < 5; ++i) {
+            expiredAuthDAO.createAuth("testUser" + i);
+        }
+        MemoryAuthDAO liveAuthDAO = new MemoryAuthDAO();
+        String authToken = liveAuthDAO.createAuth("testUser");
+        try (AuthSweeper expiredSweeper = new AuthSweeper(expiredAuthDAO, 60000, 2, 1);
+             AuthSweeper liveSweeper = new AuthSweeper(liveAuthDAO, 60000, 2, 1)) {
+            // perform action, compare post-state (a sweep stops after its batches, and keeps live authentications)
+            assertEquals(2, expiredSweeper.sweep());
+            assertEquals(3, expiredAuthDAO.deleteExpiredAuths(10));
+            assertEquals(0, liveSweeper.sweep());
+            assertEquals("testUser", liveAuthDAO.getUsername(authToken));
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package dataAccessTests;
+
+import dataAccess.CachingAuthDAO;
+import dataAccess.DataAccessException;
+import dataAccess.memoryDAO.MemoryAuthDAO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CachingAuthDAOTests {
+    private AtomicInteger delegateLookups;
+    // run by the delegate after each lookup, before it returns (null for none)
+    private DataAccessRunnable afterLookup;
+    private MemoryAuthDAO delegate;
+
+    private interface DataAccessRunnable {
+        void run() throws DataAccessException;
+    }
+
+    @BeforeEach
+    public void setup() {
+        delegateLookups = new AtomicInteger(0);
+        afterLookup = null;
+        delegate = new MemoryAuthDAO() {
+            @Override
+            public String getUsername(String authToken) throws DataAccessException {
+                delegateLookups.incrementAndGet();
+                String username = super.getUsername(authToken);
+                if (afterLookup != null) {
+                    afterLookup.run();
+                }
+                return username;
+            }
+        };
+    }
+
+    @Test
+    public void getUsernamePositive() throws DataAccessException, InterruptedException {
+        // set pre-state (a token known to the delegate but not yet cached)
+        CachingAuthDAO authCache = new CachingAuthDAO(delegate, 10, 100);
+        String authToken = delegate.createAuth("testUser");
+        // perform action (repeated lookups)
+        assertEquals("testUser", authCache.getUsername(authToken));
+        assertTrue(authCache.verifyAuthToken(authToken));
+        assertEquals("testUser", authCache.getUsername(authToken));
+        // compare post-state (one lookup in the delegate, until the token expires from the cache)
+        assertEquals(1, delegateLookups.get());
+        Thread.sleep(150);
+        assertEquals("testUser", authCache.getUsername(authToken));
+        assertEquals(2, delegateLookups.get());
+        // created tokens are cached right away
+        String newAuthToken = authCache.createAuth("newUser");
+        assertEquals("newUser", authCache.getUsername(newAuthToken));
+        assertEquals(2, delegateLookups.get());
+    }
+
+    @Test
+    public void getUsernameNegative() throws DataAccessException {
+        // set pre-state
+        CachingAuthDAO authCache = new CachingAuthDAO(delegate, 10, 60000);
+        String authToken = authCache.createAuth("testUser");
+        String otherAuthToken = authCache.createAuth("otherUser");
+        // perform action, compare post-state (deleted and cleared tokens are not served from the cache)
+        authCache.deleteAuth(authToken);
+        assertNull(authCache.getUsername(authToken));
+        assertFalse(authCache.verifyAuthToken(authToken));
+        authCache.clearAuths();
+        assertNull(authCache.getUsername(otherAuthToken));
+        assertThrows(DataAccessException.class, (() -> authCache.getUsername(null)));
+        // a lookup that read the token just before it was deleted does not cache it
+        String racedAuthToken = delegate.createAuth("testUser");
+        afterLookup = () -> {
+            afterLookup = null;
+            authCache.deleteAuth(racedAuthToken);
+        };
+        assertEquals("testUser", authCache.getUsername(racedAuthToken));
+        assertNull(authCache.getUsername(racedAuthToken));
+    }
+}
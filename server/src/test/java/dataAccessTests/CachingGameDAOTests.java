@@ -0,0 +1,180 @@
+package dataAccessTests;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import chess.InvalidMoveException;
+import com.google.gson.Gson;
+import dataAccess.CachingGameDAO;
+import dataAccess.DataAccessException;
+import dataAccess.VersionConflictException;
+import dataAccess.memoryDAO.MemoryGameDAO;
+import model.GameData;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CachingGameDAOTests {
+    private AtomicInteger delegateReads;
+    private AtomicInteger delegateMoves;
+    private MemoryGameDAO delegate;
+    private CachingGameDAO gameCache;
+
+    @BeforeEach
+    public void setup() {
+        delegateReads = new AtomicInteger(0);
+        delegateMoves = new AtomicInteger(0);
+        delegate = new MemoryGameDAO() {
+            @Override
+            public GameData getGame(int gameID) {
+                delegateReads.incrementAndGet();
+                return super.getGame(gameID);
+            }
+
+            @Override
+            public void recordMove(int gameID, GameData game, ChessMove move, int newVersion)
+                    throws DataAccessException {
+                delegateMoves.incrementAndGet();
+                super.recordMove(gameID, game, move, newVersion);
+            }
+        };
+        // no flushes in the test's lifetime until close
+        gameCache = new CachingGameDAO(delegate, 10, 60000, 60000);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        gameCache.close();
+    }
+
+    @Test
+    public void recordMovePositive() throws DataAccessException, InvalidMoveException {
+        // set pre-state
+        int gameID = gameCache.createGame("testGame");
+        int readsAfterCreate = delegateReads.get();
+        // perform action (read, move, read again)
+        ChessMove move = new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null);
+        GameData gameData = gameCache.getGame(gameID);
+        gameData.game().makeMove(move);
+        gameCache.recordMove(gameID, gameData, move);
+        GameData cachedGameData = gameCache.getGame(gameID);
+        // compare post-state (served from the cache, not yet written back)
+        assertEquals(readsAfterCreate, delegateReads.get());
+        assertEquals(1, cachedGameData.game().getMoveCount());
+        assertNotSame(gameData.game(), cachedGameData.game());
+        assertEquals(0, delegateMoves.get());
+        assertEquals(0, delegate.getGame(gameID).game().getMoveCount());
+        // closing flushes the move to the delegate
+        gameCache.close();
+        assertEquals(1, delegateMoves.get());
+        assertEquals(1, delegate.getGame(gameID).game().getMoveCount());
+    }
+
+    @Test
+    public void recordMoveNegative() throws DataAccessException, InvalidMoveException {
+        // set pre-state
+        int gameID = gameCache.createGame("testGame");
+        ChessMove move = new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null);
+        GameData gameData = gameCache.getGame(gameID);
+        gameData.game().makeMove(move);
+        gameCache.recordMove(gameID, gameData, move);
+        // perform action, compare post-state (no such game, move already recorded)
+        assertThrows(DataAccessException.class, (() -> gameCache.recordMove((gameID + 1), gameData, move)));
+        assertThrows(DataAccessException.class, (() -> gameCache.recordMove(gameID, gameData, move)));
+        assertNull(gameCache.getGame(gameID + 1));
+    }
+
+    @Test
+    public void updateGamePositive() throws DataAccessException {
+        // set pre-state
+        int gameID = gameCache.createGame("testGame");
+        // perform action (several updates between flushes)
+        gameCache.updateGame(gameID, gameCache.getGame(gameID).withPlayers("whiteUser", null));
+        gameCache.updateGame(gameID, gameCache.getGame(gameID).withPlayers("whiteUser", "blackUser"));
+        // compare post-state (listing flushes the latest update first)
+        assertEquals("blackUser", gameCache.getGame(gameID).blackUsername());
+        assertNull(delegate.getGame(gameID).blackUsername());
+        assertEquals("blackUser", gameCache.listGames().getFirst().blackUsername());
+        assertEquals("blackUser", delegate.getGame(gameID).blackUsername());
+        // the coalesced write stores the cached version, not one more than the stored version
+        assertEquals(gameCache.getGame(gameID).version(), delegate.getGame(gameID).version());
+    }
+
+    @Test
+    public void updateGameNegative() throws DataAccessException {
+        // set pre-state (two readers of the same cached game)
+        int gameID = gameCache.createGame("testGame");
+        GameData firstRead = gameCache.getGame(gameID);
+        GameData secondRead = gameCache.getGame(gameID);
+        gameCache.updateGame(gameID, firstRead.withPlayers("whiteUser", null));
+        // perform action, compare post-state (the stale write is rejected by the cache)
+        assertThrows(VersionConflictException.class,
+                (() -> gameCache.updateGame(gameID, secondRead.withPlayers(null, "blackUser"))));
+        // another writer changes the game in the delegate before the flush: its change wins
+        delegate.updateGame(gameID, delegate.getGame(gameID).withPlayers(null, "otherWriter"));
+        gameCache.listGames();
+        assertNull(delegate.getGame(gameID).whiteUsername());
+        assertNull(gameCache.getGame(gameID).whiteUsername());
+        assertEquals("otherWriter", gameCache.getGame(gameID).blackUsername());
+    }
+
+    @Test
+    public void updateGameEvictedNegative() throws DataAccessException, InterruptedException {
+        // set pre-state (a cache that flushes often and keeps no clean games)
+        try (CachingGameDAO evictingCache = new CachingGameDAO(delegate, 0, 60000, 20)) {
+            int gameID = evictingCache.createGame("testGame");
+            GameData firstUpdate = evictingCache.getGame(gameID).withPlayers("whiteUser", null);
+            evictingCache.updateGame(gameID, firstUpdate);
+            GameData secondUpdate = evictingCache.getGame(gameID).withPlayers("whiteUser", "blackUser");
+            evictingCache.updateGame(gameID, secondUpdate);
+            // perform action (the updates are flushed as one write, then the game is evicted)
+            Thread.sleep(200);
+            int readsBeforeReload = delegateReads.get();
+            // compare post-state (a copy from before the eviction is still stale once the game is reloaded)
+            assertThrows(VersionConflictException.class,
+                    (() -> evictingCache.updateGame(gameID, firstUpdate.withPlayers(null, null))));
+            assertEquals(readsBeforeReload + 1, delegateReads.get());
+            evictingCache.updateGame(gameID, secondUpdate.withPlayers("whiteUser", "otherUser"));
+            assertEquals("otherUser", evictingCache.getGame(gameID).blackUsername());
+        }
+    }
+
+    @Test
+    public void updateGameUndecodedPositive() throws DataAccessException, InvalidMoveException {
+        // set pre-state (a delegate that, like the database, reads games as a snapshot plus the moves logged since)
+        ChessMove move = new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null);
+        MemoryGameDAO snapshotDelegate = new MemoryGameDAO() {
+            @Override
+            public GameData getGame(int gameID) {
+                GameData stored = super.getGame(gameID);
+                if ((stored == null) || (stored.game().getMoveCount() == 0)) {
+                    return stored;
+                }
+                GameData snapshot = GameData.withEncodedGame(gameID, stored.whiteUsername(), stored.blackUsername(),
+                        stored.gameName(), (new Gson()).toJson(new ChessGame()), List.of(move));
+                snapshot.setVersion(stored.version());
+                return snapshot;
+            }
+        };
+        int gameID = snapshotDelegate.createGame("testGame");
+        GameData moved = snapshotDelegate.getGame(gameID);
+        moved.game().makeMove(move);
+        snapshotDelegate.recordMove(gameID, moved, move);
+        try (CachingGameDAO snapshotCache = new CachingGameDAO(snapshotDelegate, 10, 60000, 60000)) {
+            // perform action (join the in-progress game as the game service does: read, reseat, write)
+            GameData gameData = snapshotCache.getGame(gameID);
+            snapshotCache.updateGame(gameID, gameData.withPlayers("whiteUser", null));
+            GameData joined = snapshotCache.getGame(gameID);
+            // compare post-state (nothing decoded the game, and it still has its moves once it is)
+            assertFalse(gameData.isGameDecoded());
+            assertFalse(joined.isGameDecoded());
+            assertEquals("whiteUser", joined.whiteUsername());
+            assertEquals(1, joined.game().getMoveCount());
+        }
+    }
+}
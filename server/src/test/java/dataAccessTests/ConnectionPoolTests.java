@@ -0,0 +1,136 @@
+package dataAccessTests;
+
+import dataAccess.ConnectionPool;
+import dataAccess.DataAccessException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConnectionPoolTests {
+    private AtomicInteger physicalConnectionsOpened;
+    private AtomicInteger statementsPrepared;
+    private ConnectionPool connectionPool;
+
+    @BeforeEach
+    public void setup() {
+        physicalConnectionsOpened = new AtomicInteger(0);
+        statementsPrepared = new AtomicInteger(0);
+        // min 0, max 2, wait 100ms, no idle timeout or revalidation in the test's lifetime, no leak detection,
+        // 8 cached statements
+        connectionPool = new ConnectionPool(this::openFakeConnection,
+                new ConnectionPool.Config(0, 2, 100, 60000, 60000, 1, 0, 8));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        connectionPool.close();
+    }
+
+    @Test
+    public void getConnectionPositive() throws DataAccessException, SQLException {
+        // perform action (lease and return twice)
+        Connection first = connectionPool.getConnection();
+        assertFalse(first.isClosed());
+        first.close();
+        Connection second = connectionPool.getConnection();
+        second.close();
+        // compare post-state (one physical connection reused, returned wrappers are closed)
+        assertEquals(1, physicalConnectionsOpened.get());
+        assertTrue(first.isClosed());
+        assertThrows(SQLException.class, first::getAutoCommit);
+        ConnectionPool.Stats stats = connectionPool.getStats();
+        assertEquals(2, stats.acquisitions());
+        assertEquals(1, stats.idleConnections());
+        assertEquals(0, stats.activeConnections());
+    }
+
+    @Test
+    public void getConnectionNegative() throws DataAccessException, SQLException {
+        // set pre-state (lease every connection)
+        ArrayList<Connection> leased = new ArrayList<>();
+        leased.add(connectionPool.getConnection());
+        leased.add(connectionPool.getConnection());
+        // perform action, compare post-state (pool exhausted, caller times out)
+        assertThrows(DataAccessException.class, (() -> connectionPool.getConnection()));
+        assertEquals(1, connectionPool.getStats().timeouts());
+        // returning a connection makes one available again
+        leased.get(0).close();
+        connectionPool.getConnection().close();
+        assertEquals(2, physicalConnectionsOpened.get());
+    }
+
+    @Test
+    public void prepareStatementCachePositive() throws DataAccessException, SQLException {
+        // perform action (prepare the same SQL on two leases of the same connection)
+        try (Connection connection = connectionPool.getConnection();
+             PreparedStatement statement = connection.prepareStatement("SELECT 1")) {
+            statement.setInt(1, 1);
+        }
+        try (Connection connection = connectionPool.getConnection();
+             PreparedStatement statement = connection.prepareStatement("SELECT 1")) {
+            statement.setInt(1, 1);
+        }
+        // compare post-state (prepared once)
+        assertEquals(1, physicalConnectionsOpened.get());
+        assertEquals(1, statementsPrepared.get());
+    }
+
+    @Test
+    public void prepareStatementCacheNegative() throws DataAccessException, SQLException {
+        // perform action (prepare more distinct SQL than the cache holds, then the first again)
+        try (Connection connection = connectionPool.getConnection()) {
+            for (int i = 0; i <= 8; ++i) {
+                connection.prepareStatement("SELECT " + i).close();
+            }
+            connection.prepareStatement("SELECT 0").close();
+        }
+        // compare post-state (the least recently used statement was evicted and prepared again)
+        assertEquals(10, statementsPrepared.get());
+    }
+
+    /**
+     * @return a stand-in for a database connection that is always valid
+     */
+    private Connection openFakeConnection() {
+        physicalConnectionsOpened.incrementAndGet();
+        boolean[] isClosed = {false};
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "isValid", "getAutoCommit" -> true;
+                    case "prepareStatement" -> openFakeStatement();
+                    case "isClosed" -> isClosed[0];
+                    case "close" -> {
+                        isClosed[0] = true;
+                        yield null;
+                    }
+                    default -> null;
+                });
+    }
+
+    /**
+     * @return a stand-in for a prepared statement
+     */
+    private PreparedStatement openFakeStatement() {
+        statementsPrepared.incrementAndGet();
+        boolean[] isClosed = {false};
+        return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+                new Class<?>[]{PreparedStatement.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "isClosed" -> isClosed[0];
+                    case "close" -> {
+                        isClosed[0] = true;
+                        yield null;
+                    }
+                    default -> null;
+                });
+    }
+}
@@ -1,11 +1,17 @@
 package dataAccessTests;
 
+import chess.ChessMove;
+import chess.ChessPosition;
+import chess.InvalidMoveException;
 import dataAccess.DataAccessException;
 import dataAccess.DatabaseManager;
 import dataAccess.GameDAO;
+import dataAccess.GameQuery;
+import dataAccess.VersionConflictException;
 import dataAccess.memoryDAO.MemoryGameDAO;
 import dataAccess.databaseDAO.DatabaseGameDAO;
 import model.GameData;
+import model.GameSummary;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.MethodSource;
 
@@ -111,6 +117,43 @@ class GameDAOTests {
         tearDown(gameDAO);
     }
 
+    @ParameterizedTest
+    @MethodSource("gameDAOImplementationsUnderTest")
+    public void listGameSummariesPositive(GameDAO gameDAO) throws DataAccessException, InvalidMoveException {
+        // set pre-state
+        setup(gameDAO);
+        int gameID = gameDAO.createGame("testGame");
+        GameData gameData = gameDAO.getGame(gameID);
+        ChessMove move = new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null);
+        gameData.game().makeMove(move);
+        gameDAO.recordMove(gameID, gameData, move);
+        gameDAO.updateGame(gameID, gameData.withPlayers("whiteUser", null));
+        // perform action
+        GameSummary summary = gameDAO.listGameSummaries(new GameQuery(null, 10, null, null, false)).getFirst();
+        // compare post-state
+        assertEquals(summary.gameID(), gameID);
+        assertEquals(summary.gameName(), "testGame");
+        assertEquals(summary.whiteUsername(), "whiteUser");
+        assertNull(summary.blackUsername());
+        assertEquals(summary.status(), GameSummary.Status.OPEN);
+        assertEquals(summary.moveCount(), 1);
+        assertNotNull(summary.lastMoveTime());
+        tearDown(gameDAO);
+    }
+
+    @ParameterizedTest
+    @MethodSource("gameDAOImplementationsUnderTest")
+    public void listGameSummariesNegative(GameDAO gameDAO) throws DataAccessException {
+        // set pre-state
+        setup(gameDAO);
+        int gameID = gameDAO.createGame("testGame");
+        // perform action, compare post-state (no game past the cursor, no game matching the filters)
+        assertEquals(gameDAO.listGameSummaries(new GameQuery(gameID, 10, null, null, false)).size(), 0);
+        assertEquals(gameDAO.listGameSummaries(new GameQuery(null, 10, GameSummary.Status.OVER, null, false)).size(), 0);
+        assertEquals(gameDAO.listGameSummaries(new GameQuery(null, 10, null, "noPlayer", false)).size(), 0);
+        tearDown(gameDAO);
+    }
+
     @ParameterizedTest
     @MethodSource("gameDAOImplementationsUnderTest")
     public void updateGamePositive(GameDAO gameDAO) throws DataAccessException {
@@ -142,6 +185,87 @@ class GameDAOTests {
         tearDown(gameDAO);
     }
 
+    @ParameterizedTest
+    @MethodSource("gameDAOImplementationsUnderTest")
+    public void updateGameVersionPositive(GameDAO gameDAO) throws DataAccessException {
+        // set pre-state
+        setup(gameDAO);
+        int gameID = gameDAO.createGame("testGame");
+        GameData gameData = gameDAO.getGame(gameID).withPlayers("whiteUser", null);
+        int readVersion = gameData.version();
+        // perform action (keep writing the same game data)
+        gameDAO.updateGame(gameID, gameData);
+        gameDAO.updateGame(gameID, gameData);
+        // compare post-state (each write advances the version)
+        assertEquals(gameData.version(), (readVersion + 2));
+        assertEquals(gameDAO.getGame(gameID).version(), (readVersion + 2));
+        tearDown(gameDAO);
+    }
+
+    @ParameterizedTest
+    @MethodSource("gameDAOImplementationsUnderTest")
+    public void updateGameVersionNegative(GameDAO gameDAO) throws DataAccessException, InvalidMoveException {
+        // set pre-state (two writers read the same game)
+        setup(gameDAO);
+        int gameID = gameDAO.createGame("testGame");
+        GameData firstRead = gameDAO.getGame(gameID);
+        GameData secondRead = gameDAO.getGame(gameID);
+        gameDAO.updateGame(gameID, firstRead.withPlayers("whiteUser", null));
+        // perform action, compare post-state (the stale writes are rejected, and change nothing)
+        ChessMove move = new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null);
+        secondRead.game().makeMove(move);
+        assertThrows(VersionConflictException.class,
+                (() -> gameDAO.updateGame(gameID, secondRead.withPlayers(null, "blackUser"))));
+        assertThrows(VersionConflictException.class, (() -> gameDAO.recordMove(gameID, secondRead, move)));
+        assertEquals(gameDAO.getGame(gameID).whiteUsername(), "whiteUser");
+        assertNull(gameDAO.getGame(gameID).blackUsername());
+        assertEquals(gameDAO.getGame(gameID).game().getMoveCount(), 0);
+        tearDown(gameDAO);
+    }
+
+    @ParameterizedTest
+    @MethodSource("gameDAOImplementationsUnderTest")
+    public void recordMovePositive(GameDAO gameDAO) throws DataAccessException, InvalidMoveException {
+        // set pre-state
+        setup(gameDAO);
+        int gameID = gameDAO.createGame("testGame");
+        GameData gameData = gameDAO.getGame(gameID);
+        // confirm pre-state
+        assertEquals(gameData.game().getMoveCount(), 0);
+        // perform action (shuffle the knights for more plies than one snapshot interval)
+        ChessMove[] knightMoves = {
+                new ChessMove(new ChessPosition(1, 7), new ChessPosition(3, 6), null),
+                new ChessMove(new ChessPosition(8, 7), new ChessPosition(6, 6), null),
+                new ChessMove(new ChessPosition(3, 6), new ChessPosition(1, 7), null),
+                new ChessMove(new ChessPosition(6, 6), new ChessPosition(8, 7), null)};
+        for (int ply = 0; ply < 21; ++ply) {
+            ChessMove move = knightMoves[ply % knightMoves.length];
+            gameData.game().makeMove(move);
+            gameDAO.recordMove(gameID, gameData, move);
+        }
+        // compare post-state (the stored game replays to the same position)
+        GameData storedGameData = gameDAO.getGame(gameID);
+        assertEquals(storedGameData.game().getMoveCount(), 21);
+        assertEquals(storedGameData.game().getTeamTurn(), gameData.game().getTeamTurn());
+        assertEquals(storedGameData.game().getBoard(), gameData.game().getBoard());
+        assertEquals(gameDAO.listGames().getFirst().game().getBoard(), gameData.game().getBoard());
+        tearDown(gameDAO);
+    }
+
+    @ParameterizedTest
+    @MethodSource("gameDAOImplementationsUnderTest")
+    public void recordMoveNegative(GameDAO gameDAO) throws DataAccessException, InvalidMoveException {
+        // set pre-state
+        setup(gameDAO);
+        int gameID = gameDAO.createGame("testGame");
+        GameData gameData = gameDAO.getGame(gameID);
+        ChessMove move = new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null);
+        gameData.game().makeMove(move);
+        // perform action, compare post-state (no game to record the move for)
+        assertThrows(DataAccessException.class, (() -> gameDAO.recordMove((gameID + 1), gameData, move)));
+        tearDown(gameDAO);
+    }
+
     @ParameterizedTest
     @MethodSource("gameDAOImplementationsUnderTest")
     public void clearGamesPositive(GameDAO gameDAO) throws DataAccessException {
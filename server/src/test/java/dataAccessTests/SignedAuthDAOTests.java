@@ -0,0 +1,120 @@
+package dataAccessTests;
+
+import dataAccess.DataAccessException;
+import dataAccess.SignedAuthDAO;
+import dataAccess.memoryDAO.MemoryRevocationDAO;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SignedAuthDAOTests {
+    private static final byte[] SECRET = "0123456789abcdef0123456789abcdef".getBytes(StandardCharsets.UTF_8);
+
+    private MemoryRevocationDAO revocationDAO;
+    private SignedAuthDAO authDAO;
+
+    @BeforeEach
+    public void setup() throws DataAccessException {
+        revocationDAO = new MemoryRevocationDAO();
+        authDAO = new SignedAuthDAO(SECRET, revocationDAO);
+    }
+
+    @AfterEach
+    public void teardown() {
+        authDAO.close();
+    }
+
+    @Test
+    public void getUsernamePositive() throws DataAccessException {
+        // set pre-state
+        String authToken = authDAO.createAuth("testUser");
+        // perform action, compare post-state (the token verifies here and on any instance sharing the secret)
+        assertEquals("testUser", authDAO.getUsername(authToken));
+        assertTrue(authDAO.verifyAuthToken(authToken));
+        try (SignedAuthDAO otherInstance = new SignedAuthDAO(SECRET, revocationDAO)) {
+            assertEquals("testUser", otherInstance.getUsername(authToken));
+        }
+        assertNotEquals(authToken, authDAO.createAuth("testUser"));
+        // nothing is stored until a logout
+        assertTrue(revocationDAO.listRevocations().isEmpty());
+    }
+
+    @Test
+    public void getUsernameNegative() throws DataAccessException {
+        // set pre-state
+        String authToken = authDAO.createAuth("testUser");
+        String[] fields = authToken.split("\\.");
+        // perform action, compare post-state (forged, malformed, and foreign tokens are rejected)
+        String forgedToken = authToken.replaceFirst(fields[0], "b3RoZXJVc2Vy");
+        assertNull(authDAO.getUsername(forgedToken));
+        assertNull(authDAO.getUsername("notAToken"));
+        assertNull(authDAO.getUsername(authToken + "."));
+        byte[] otherSecret = "fedcba9876543210fedcba9876543210".getBytes(StandardCharsets.UTF_8);
+        try (SignedAuthDAO otherDeployment = new SignedAuthDAO(otherSecret, new MemoryRevocationDAO())) {
+            assertNull(otherDeployment.getUsername(authToken));
+        }
+        assertThrows(DataAccessException.class, (() -> authDAO.getUsername(null)));
+        assertThrows(IllegalArgumentException.class, (() -> new SignedAuthDAO(new byte[8], revocationDAO)));
+    }
+
+    @Test
+    public void deleteAuthPositive() throws DataAccessException {
+        // set pre-state
+        String authToken = authDAO.createAuth("testUser");
+        String otherAuthToken = authDAO.createAuth("testUser");
+        // perform action
+        authDAO.deleteAuth(authToken);
+        // compare post-state (only the deleted token is revoked, here and on instances started since)
+        assertNull(authDAO.getUsername(authToken));
+        assertEquals("testUser", authDAO.getUsername(otherAuthToken));
+        assertEquals(1, revocationDAO.listRevocations().size());
+        try (SignedAuthDAO otherInstance = new SignedAuthDAO(SECRET, revocationDAO)) {
+            assertNull(otherInstance.getUsername(authToken));
+        }
+    }
+
+    @Test
+    public void refreshRevocationsPositive() throws DataAccessException, InterruptedException {
+        // set pre-state (an instance already running, refreshing often)
+        String authToken = authDAO.createAuth("testUser");
+        try (SignedAuthDAO otherInstance = new SignedAuthDAO(SECRET, revocationDAO,
+                SignedAuthDAO.DEFAULT_SESSION_TTL_MILLIS, 20)) {
+            assertEquals("testUser", otherInstance.getUsername(authToken));
+            long revokedSinceMillis = System.currentTimeMillis();
+            // perform action
+            authDAO.deleteAuth(authToken);
+            Thread.sleep(200);
+            // compare post-state (a refresh after the logout loads it, and only newer revocations are listed since)
+            assertNull(otherInstance.getUsername(authToken));
+            assertEquals(1, revocationDAO.listRevocations(revokedSinceMillis).size());
+            assertTrue(revocationDAO.listRevocations(System.currentTimeMillis() + 1000).isEmpty());
+        }
+    }
+
+    @Test
+    public void deleteAuthNegative() throws DataAccessException, InterruptedException {
+        // set pre-state
+        String authToken = authDAO.createAuth("testUser");
+        // perform action, compare post-state (invalid tokens are not recorded)
+        authDAO.deleteAuth("notAToken");
+        assertTrue(revocationDAO.listRevocations().isEmpty());
+        assertThrows(DataAccessException.class, (() -> authDAO.deleteAuth(null)));
+        // cleared tokens stay invalid without being recorded
+        authDAO.clearAuths();
+        assertNull(authDAO.getUsername(authToken));
+        assertTrue(revocationDAO.listRevocations().isEmpty());
+        // expired tokens are invalid, and their revocations are swept
+        try (SignedAuthDAO expiringAuthDAO = new SignedAuthDAO(SECRET, revocationDAO, 50, 60000)) {
+            String expiringAuthToken = expiringAuthDAO.createAuth("testUser");
+            expiringAuthDAO.deleteAuth(expiringAuthToken);
+            Thread.sleep(100);
+            assertNull(expiringAuthDAO.getUsername(expiringAuthToken));
+            assertEquals(1, expiringAuthDAO.deleteExpiredAuths(10));
+            assertEquals(0, expiringAuthDAO.deleteExpiredAuths(10));
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package serviceTests;
+
+import chess.engine.ChessEngine;
+import dataAccess.*;
+import dataAccess.memoryDAO.MemoryAuthDAO;
+import dataAccess.memoryDAO.MemoryGameDAO;
+import model.request.AnalysisRequest;
+import model.response.AnalysisResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import service.AnalysisService;
+import service.serviceExceptions.BadRequestException;
+import service.serviceExceptions.ServerErrorException;
+import service.serviceExceptions.ServiceUnavailableException;
+import service.serviceExceptions.UnauthorizedException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AnalysisServiceTests {
+    private static final String MATE_IN_ONE_FEN = "6k1/5ppp/8/8/8/8/8/R5K1 w - - 0 1";
+
+    private AnalysisService analysisService;
+    private AuthDAO authDAO;
+    private GameDAO gameDAO;
+
+    @BeforeEach
+    public void setup() throws DataAccessException {
+        authDAO = new MemoryAuthDAO();
+        gameDAO = new MemoryGameDAO();
+        // 1 worker and room for 1 queued job, so the third long job is rejected
+        analysisService = new AnalysisService(authDAO, gameDAO, (new ChessEngine(null)), 1, 1, 5000);
+        authDAO.clearAuths();
+        gameDAO.clearGames();
+    }
+
+    @AfterEach
+    public void tearDown() throws DataAccessException {
+        analysisService.shutdown();
+        authDAO.clearAuths();
+        gameDAO.clearGames();
+    }
+
+    @Test
+    public void submitAnalysisTestPositive() throws DataAccessException, BadRequestException,
+            UnauthorizedException, ServiceUnavailableException, ServerErrorException, InterruptedException {
+        // set pre-state
+        String authToken = authDAO.createAuth("testUser");
+        int gameID = gameDAO.createGame("game0");
+        // confirm pre-state
+        assertEquals(authDAO.getUsername(authToken), "testUser");
+        assertNotNull(gameDAO.getGame(gameID));
+        // perform submitAnalysis (FEN position and game position)
+        String fenJobID = analysisService.submitAnalysis(authToken,
+                (new AnalysisRequest(null, MATE_IN_ONE_FEN, 3))).jobID();
+        String gameJobID = analysisService.submitAnalysis(authToken,
+                (new AnalysisRequest(gameID, null, 1))).jobID();
+        // compare post-state (poll until done)
+        AnalysisResponse fenResult = awaitAnalysis(authToken, fenJobID);
+        assertEquals("DONE", fenResult.status());
+        assertEquals("a1a8", fenResult.bestMove());
+        assertEquals(1, fenResult.mateIn());
+        AnalysisResponse gameResult = awaitAnalysis(authToken, gameJobID);
+        assertEquals("DONE", gameResult.status());
+        assertEquals(1, gameResult.depth());
+        assertNotNull(gameResult.bestMove());
+    }
+
+    @Test
+    public void submitAnalysisTestNegative() throws DataAccessException, BadRequestException,
+            UnauthorizedException, ServiceUnavailableException, ServerErrorException {
+        // set pre-state
+        String authToken = authDAO.createAuth("testUser");
+        String otherAuthToken = authDAO.createAuth("otherUser");
+        // confirm pre-state
+        assertEquals(authDAO.getUsername(authToken), "testUser");
+        // perform invalid submitAnalysis (bad credentials, missing/invalid position, bad depth), confirm throw
+        assertThrows(UnauthorizedException.class, (() -> analysisService.submitAnalysis("wrongAuthToken",
+                (new AnalysisRequest(null, MATE_IN_ONE_FEN, 1)))));
+        assertThrows(BadRequestException.class, (() -> analysisService.submitAnalysis(authToken,
+                (new AnalysisRequest(null, null, 1)))));
+        assertThrows(BadRequestException.class, (() -> analysisService.submitAnalysis(authToken,
+                (new AnalysisRequest(null, "not a position", 1)))));
+        assertThrows(BadRequestException.class, (() -> analysisService.submitAnalysis(authToken,
+                (new AnalysisRequest(-1, null, 1)))));
+        assertThrows(BadRequestException.class, (() -> analysisService.submitAnalysis(authToken,
+                (new AnalysisRequest(null, MATE_IN_ONE_FEN, (AnalysisService.MAX_DEPTH + 1))))));
+        // perform submitAnalysis beyond the pool and queue capacity, confirm throw
+        String startFen = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+        String jobID = analysisService.submitAnalysis(authToken,
+                (new AnalysisRequest(null, startFen, AnalysisService.MAX_DEPTH))).jobID();
+        analysisService.submitAnalysis(authToken, (new AnalysisRequest(null, startFen, AnalysisService.MAX_DEPTH)));
+        assertThrows(ServiceUnavailableException.class, (() -> analysisService.submitAnalysis(authToken,
+                (new AnalysisRequest(null, startFen, AnalysisService.MAX_DEPTH)))));
+        // compare post-state (jobs are only visible to their submitter)
+        assertThrows(BadRequestException.class, (() -> analysisService.getAnalysis(otherAuthToken, jobID)));
+        assertThrows(BadRequestException.class, (() -> analysisService.getAnalysis(authToken, "noSuchJob")));
+    }
+
+    private AnalysisResponse awaitAnalysis(String authToken, String jobID)
+            throws BadRequestException, UnauthorizedException, InterruptedException {
+        AnalysisResponse response = analysisService.getAnalysis(authToken, jobID);
+        for (int i = 0; (i < 200) && !response.status().equals("DONE") && !response.status().equals("FAILED"); ++i) {
+            Thread.sleep(50);
+            response = analysisService.getAnalysis(authToken, jobID);
+        }
+        return response;
+    }
+}
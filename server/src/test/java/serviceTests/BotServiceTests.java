@@ -0,0 +1,113 @@
+package serviceTests;
+
+import chess.ChessGame;
+import chess.engine.ChessEngine;
+import dataAccess.*;
+import dataAccess.memoryDAO.MemoryAuthDAO;
+import dataAccess.memoryDAO.MemoryGameDAO;
+import model.GameData;
+import model.request.CreateGameRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import service.BotService;
+import service.GameMailboxes;
+import service.GameService;
+import service.serviceExceptions.BadRequestException;
+import service.serviceExceptions.ConflictException;
+import service.serviceExceptions.ServerErrorException;
+import service.serviceExceptions.UnauthorizedException;
+import webSocketMessages.userCommands.ResignCommand;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BotServiceTests {
+    private GameService gameService;
+    private GameMailboxes gameMailboxes;
+    private BotService botService;
+    private AuthDAO authDAO;
+    private GameDAO gameDAO;
+
+    @BeforeEach
+    public void setup() throws DataAccessException {
+        authDAO = new MemoryAuthDAO();
+        gameDAO = new MemoryGameDAO();
+        gameService = new GameService(authDAO, gameDAO);
+        gameMailboxes = new GameMailboxes(1);
+        botService = new BotService(gameService, gameDAO, gameMailboxes, (new ChessEngine(null)), 1, 2000);
+        authDAO.clearAuths();
+        gameDAO.clearGames();
+    }
+
+    @AfterEach
+    public void tearDown() throws DataAccessException {
+        botService.shutdown();
+        gameMailboxes.shutdown();
+        authDAO.clearAuths();
+        gameDAO.clearGames();
+    }
+
+    @Test
+    public void requestMoveTestPositive() throws DataAccessException, BadRequestException,
+            UnauthorizedException, ServerErrorException, ConflictException, InterruptedException {
+        // set pre-state
+        String authToken = authDAO.createAuth("testUser");
+        int gameID = gameService.createGame(authToken, (new CreateGameRequest("botGame", "white"))).gameID();
+        // confirm pre-state
+        GameData gameData = gameDAO.getGame(gameID);
+        assertEquals(BotService.BOT_USERNAME, gameData.whiteUsername());
+        assertNull(gameData.blackUsername());
+        assertTrue(botService.isBotTurn(gameData));
+        // perform requestMove
+        CountDownLatch moved = new CountDownLatch(1);
+        botService.requestMove(gameID, ((movedGameData, move) -> moved.countDown()));
+        // compare post-state
+        assertTrue(moved.await(10, TimeUnit.SECONDS));
+        assertEquals(ChessGame.TeamColor.BLACK, gameDAO.getGame(gameID).game().getTeamTurn());
+        assertFalse(botService.isBotTurn(gameDAO.getGame(gameID)));
+    }
+
+    @Test
+    public void requestMoveTestNegative() throws DataAccessException, BadRequestException,
+            UnauthorizedException, ServerErrorException, ConflictException, InterruptedException {
+        // set pre-state
+        String authToken = authDAO.createAuth("testUser");
+        int gameID = gameService.createGame(authToken, (new CreateGameRequest("botGame", "BLACK"))).gameID();
+        // confirm pre-state
+        assertEquals(BotService.BOT_USERNAME, gameDAO.getGame(gameID).blackUsername());
+        assertFalse(botService.isBotTurn(gameDAO.getGame(gameID)));
+        // perform invalid createGame (not a team), confirm throw
+        assertThrows(BadRequestException.class,
+                (() -> gameService.createGame(authToken, (new CreateGameRequest("botGame", "green")))));
+        // perform requestMove out of the bot's turn (no move is made)
+        CountDownLatch moved = new CountDownLatch(1);
+        botService.requestMove(gameID, ((movedGameData, move) -> moved.countDown()));
+        // compare post-state
+        assertFalse(moved.await(500, TimeUnit.MILLISECONDS));
+        assertEquals(ChessGame.TeamColor.WHITE, gameDAO.getGame(gameID).game().getTeamTurn());
+    }
+
+    @Test
+    public void endGameTestPositive() throws DataAccessException, BadRequestException,
+            UnauthorizedException, ServerErrorException, ConflictException, InterruptedException {
+        // set pre-state (the bot has used some of its time, then the player resigns)
+        String authToken = authDAO.createAuth("testUser");
+        int gameID = gameService.createGame(authToken, (new CreateGameRequest("botGame", "white"))).gameID();
+        CountDownLatch moved = new CountDownLatch(1);
+        botService.requestMove(gameID, ((movedGameData, move) -> moved.countDown()));
+        assertTrue(moved.await(10, TimeUnit.SECONDS));
+        assertTrue(botService.getRemainingMillis(gameID) < 2000);
+        gameService.resignGame(new ResignCommand(authToken, gameID));
+        // perform requestMove on the ended game (repeated, as a request while the bot is still finishing its
+        // last move is ignored)
+        for (int i = 0; (i < 100) && (botService.getRemainingMillis(gameID) < 2000); ++i) {
+            botService.requestMove(gameID, ((movedGameData, move) -> fail("moved in an ended game")));
+            Thread.sleep(20);
+        }
+        // compare post-state (the bot's clock in the game is forgotten)
+        assertEquals(2000, botService.getRemainingMillis(gameID));
+    }
+}
@@ -0,0 +1,144 @@
+package serviceTests;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import service.GameMailboxes;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GameMailboxesTests {
+    private GameMailboxes gameMailboxes;
+
+    @BeforeEach
+    public void setup() {
+        gameMailboxes = new GameMailboxes(4);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        gameMailboxes.shutdown();
+    }
+
+    @Test
+    public void submitTestPositive() throws InterruptedException {
+        // set pre-state
+        int taskCount = 100;
+        List<Integer> ran = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch done = new CountDownLatch(taskCount);
+        // perform action (more tasks than one batch, each checking none of the game's other tasks is running)
+        boolean[] isOverlapping = {false};
+        Object[] running = {null};
+        for (int i = 0; i < taskCount; ++i) {
+            int task = i;
+            gameMailboxes.submit(1, () -> {
+                synchronized (running) {
+                    isOverlapping[0] |= (running[0] != null);
+                    running[0] = task;
+                }
+                ran.add(task);
+                synchronized (running) {
+                    running[0] = null;
+                }
+                done.countDown();
+            });
+        }
+        // compare post-state (all ran, one at a time, in order)
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertFalse(isOverlapping[0]);
+        for (int i = 0; i < taskCount; ++i) {
+            assertEquals(i, ran.get(i));
+        }
+    }
+
+    @Test
+    public void submitTestNegative() throws InterruptedException {
+        // set pre-state (game 1's task blocks until game 2's task has run)
+        CountDownLatch otherGameRan = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(2);
+        boolean[] sawOtherGame = {false};
+        // perform action
+        gameMailboxes.submit(1, () -> {
+            try {
+                sawOtherGame[0] = otherGameRan.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            done.countDown();
+        });
+        gameMailboxes.submit(2, () -> {
+            otherGameRan.countDown();
+            done.countDown();
+        });
+        // a task that throws does not stop the game's later tasks
+        CountDownLatch afterThrow = new CountDownLatch(1);
+        gameMailboxes.submit(3, () -> {
+            throw new IllegalStateException("test");
+        });
+        gameMailboxes.submit(3, afterThrow::countDown);
+        // compare post-state (a busy game does not block other games)
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertTrue(sawOtherGame[0]);
+        assertTrue(afterThrow.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void submitVirtualThreadsTestPositive() throws InterruptedException {
+        // set pre-state
+        GameMailboxes virtualMailboxes = GameMailboxes.onVirtualThreads();
+        int taskCount = 100;
+        List<Integer> ran = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch done = new CountDownLatch(taskCount);
+        boolean[] isVirtual = {true};
+        // perform action
+        for (int i = 0; i < taskCount; ++i) {
+            int task = i;
+            virtualMailboxes.submit(1, () -> {
+                isVirtual[0] &= Thread.currentThread().isVirtual();
+                ran.add(task);
+                done.countDown();
+            });
+        }
+        // compare post-state (all ran in order, on virtual threads)
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertTrue(isVirtual[0]);
+        for (int i = 0; i < taskCount; ++i) {
+            assertEquals(i, ran.get(i));
+        }
+        virtualMailboxes.shutdown();
+    }
+
+    @Test
+    public void submitVirtualThreadsTestNegative() throws InterruptedException {
+        // set pre-state (more games than cores, each blocked until the last game's task has run)
+        GameMailboxes virtualMailboxes = GameMailboxes.onVirtualThreads();
+        int gameCount = (4 * Runtime.getRuntime().availableProcessors()) + 1;
+        CountDownLatch lastGameRan = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(gameCount);
+        // perform action
+        for (int gameID = 1; gameID < gameCount; ++gameID) {
+            virtualMailboxes.submit(gameID, () -> {
+                try {
+                    if (lastGameRan.await(5, TimeUnit.SECONDS)) {
+                        done.countDown();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+        virtualMailboxes.submit(gameCount, () -> {
+            lastGameRan.countDown();
+            done.countDown();
+        });
+        // compare post-state (blocked games did not hold up the last one)
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        virtualMailboxes.shutdown();
+    }
+}
@@ -2,16 +2,22 @@ package serviceTests;
 
 import dataAccess.*;
 import dataAccess.memoryDAO.MemoryAuthDAO;
+import chess.ChessMove;
+import chess.ChessPosition;
 import dataAccess.memoryDAO.MemoryGameDAO;
 import model.GameData;
+import model.GameSummary;
 import model.request.CreateGameRequest;
 import model.request.JoinGameRequest;
+import model.request.ListGamesRequest;
+import model.response.ListGamesResponse;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import service.GameService;
 import service.serviceExceptions.AlreadyTakenException;
 import service.serviceExceptions.BadRequestException;
+import service.serviceExceptions.ConflictException;
 import service.serviceExceptions.ServerErrorException;
 import service.serviceExceptions.UnauthorizedException;
 
@@ -55,7 +61,7 @@ class GameServiceTests {
         assertNotNull(gameDAO.getGame(gameID1));
         assertEquals(authDAO.getUsername(authToken), "testUser");
         // perform listGames
-        ArrayList<GameData> gameList;
+        ArrayList<GameSummary> gameList;
         gameList = gameService.listGames(authToken).games();
         // compare post-state
         assertEquals(gameList.get(0).gameName(), "game0");
@@ -82,7 +88,52 @@ class GameServiceTests {
     }
 
     @Test
-    public void createGameTestPositive() throws BadRequestException, DataAccessException {
+    public void listGamesPageTestPositive() throws BadRequestException, UnauthorizedException, DataAccessException,
+            ServerErrorException {
+        // set pre-state
+        for (int i = 0; i < 5; ++i) {
+            gameDAO.createGame("game" + i);
+        }
+        String authToken = authDAO.createAuth("testUser");
+        // perform listGames (newest first, two per page)
+        ListGamesResponse firstPage = gameService.listGames(authToken,
+                (new ListGamesRequest(null, 2, null, null, "desc")));
+        ListGamesResponse secondPage = gameService.listGames(authToken,
+                (new ListGamesRequest(firstPage.nextCursor(), 2, null, null, "desc")));
+        ListGamesResponse lastPage = gameService.listGames(authToken,
+                (new ListGamesRequest(secondPage.nextCursor(), 2, null, null, "desc")));
+        // compare post-state
+        assertEquals(firstPage.games().get(0).gameName(), "game4");
+        assertEquals(firstPage.games().get(1).gameName(), "game3");
+        assertEquals(secondPage.games().get(0).gameName(), "game2");
+        assertEquals(lastPage.games().size(), 1);
+        assertEquals(lastPage.games().get(0).gameName(), "game0");
+        assertNull(lastPage.nextCursor());
+        // filtered to open games (every game has open seats)
+        assertEquals(gameService.listGames(authToken,
+                (new ListGamesRequest(null, null, "open", null, null))).games().size(), 5);
+        assertEquals(gameService.listGames(authToken,
+                (new ListGamesRequest(null, null, "in_progress", null, null))).games().size(), 0);
+    }
+
+    @Test
+    public void listGamesPageTestNegative() throws DataAccessException {
+        // set pre-state
+        String authToken = authDAO.createAuth("testUser");
+        // perform listGames with invalid parameters, compare post-state (thrown bad request exceptions)
+        assertThrows(BadRequestException.class, (() -> gameService.listGames(authToken,
+                (new ListGamesRequest(null, 0, null, null, null)))));
+        assertThrows(BadRequestException.class, (() -> gameService.listGames(authToken,
+                (new ListGamesRequest(null, (GameService.MAX_PAGE_SIZE + 1), null, null, null)))));
+        assertThrows(BadRequestException.class, (() -> gameService.listGames(authToken,
+                (new ListGamesRequest(null, null, "abandoned", null, null)))));
+        assertThrows(BadRequestException.class, (() -> gameService.listGames(authToken,
+                (new ListGamesRequest(null, null, null, null, "sideways")))));
+    }
+
+    @Test
+    public void createGameTestPositive()
+            throws BadRequestException, DataAccessException, ServerErrorException, ConflictException {
         // set pre-state
         String authToken = "";
         try {
@@ -147,6 +198,8 @@ class GameServiceTests {
             fail("position already taken");
         } catch (ServerErrorException e) {
             fail("database connection failed");
+        } catch (ConflictException e) {
+            fail("game changed concurrently");
         }
         // compare post-state
         assertEquals(gameDAO.getGame(gameID).whiteUsername(), "testUser");
@@ -188,6 +241,8 @@ class GameServiceTests {
             fail("opponent position already taken");
         } catch (ServerErrorException e) {
             fail("database connection failed");
+        } catch (ConflictException e) {
+            fail("game changed concurrently");
         }
         String finalAuthToken1 = authToken;
         assertThrows(AlreadyTakenException.class,
@@ -195,4 +250,53 @@ class GameServiceTests {
         // compare post-state
         assertEquals(gameDAO.getGame(gameID).blackUsername(), "opponent");
     }
-}
\ No newline at end of file
+
+    @Test
+    public void makeMoveConflictTestPositive() throws DataAccessException, BadRequestException,
+            ServerErrorException, ConflictException {
+        // set pre-state (another writer changes the game between the first read and write)
+        GameDAO contendedGameDAO = new ContendedGameDAO(1);
+        GameService contendedGameService = new GameService(authDAO, contendedGameDAO);
+        int gameID = contendedGameDAO.createGame("game0");
+        ChessMove move = new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null);
+        // confirm pre-state
+        assertEquals(contendedGameDAO.getGame(gameID).game().getMoveCount(), 0);
+        // perform action (the move is retried on the changed game)
+        contendedGameService.makeMove(gameID, move);
+        // compare post-state
+        assertEquals(contendedGameDAO.getGame(gameID).game().getMoveCount(), 1);
+        assertEquals(contendedGameDAO.getGame(gameID).whiteUsername(), "otherWriter");
+    }
+
+    @Test
+    public void makeMoveConflictTestNegative() throws DataAccessException {
+        // set pre-state (another writer changes the game before every write)
+        GameDAO contendedGameDAO = new ContendedGameDAO(GameService.MAX_WRITE_ATTEMPTS);
+        GameService contendedGameService = new GameService(authDAO, contendedGameDAO);
+        int gameID = contendedGameDAO.createGame("game0");
+        ChessMove move = new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null);
+        // perform action, compare post-state (the move is not made)
+        assertThrows(ConflictException.class, (() -> contendedGameService.makeMove(gameID, move)));
+        assertEquals(contendedGameDAO.getGame(gameID).game().getMoveCount(), 0);
+    }
+
+    /**
+     * A game DAO where another writer seats a player just before each of the first few moves is recorded
+     */
+    private static class ContendedGameDAO extends MemoryGameDAO {
+        private int remainingConflicts;
+
+        private ContendedGameDAO(int conflicts) {
+            this.remainingConflicts = conflicts;
+        }
+
+        @Override
+        public void recordMove(int gameID, GameData game, ChessMove move) throws DataAccessException {
+            if (this.remainingConflicts > 0) {
+                this.remainingConflicts--;
+                this.updateGame(gameID, this.getGame(gameID).withPlayers("otherWriter", null));
+            }
+            super.recordMove(gameID, game, move);
+        }
+    }
+}
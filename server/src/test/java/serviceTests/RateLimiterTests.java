@@ -0,0 +1,38 @@
+package serviceTests;
+
+import org.junit.jupiter.api.Test;
+import service.RateLimiter;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RateLimiterTests {
+    @Test
+    public void tryAcquirePositive() {
+        // set pre-state (2 attempts at once, 1 more a minute, 10 keys kept)
+        RateLimiter rateLimiter = new RateLimiter(2, 1, 10);
+        // perform action, compare post-state (every key gets its burst, and idle keys are forgotten)
+        for (int i = 0; i < 100; ++i) {
+            assertEquals(0, rateLimiter.tryAcquire("key" + i));
+            assertTrue(rateLimiter.size() <= 10);
+        }
+        assertEquals(0, rateLimiter.tryAcquire("other"));
+        assertEquals(0, rateLimiter.tryAcquire("other"));
+        assertEquals(0, rateLimiter.tryAcquire(null));
+    }
+
+    @Test
+    public void tryAcquireNegative() {
+        // set pre-state (a key that has been refused)
+        RateLimiter rateLimiter = new RateLimiter(2, 1, 10);
+        assertEquals(0, rateLimiter.tryAcquire("victim"));
+        assertEquals(0, rateLimiter.tryAcquire("victim"));
+        assertTrue(rateLimiter.tryAcquire("victim") > 0);
+        // perform action (a flood of new keys)
+        for (int i = 0; i < 100; ++i) {
+            assertEquals(0, rateLimiter.tryAcquire("key" + i));
+        }
+        // compare post-state (the refused key is still refused, and the other keys are still bounded)
+        assertTrue(rateLimiter.tryAcquire("victim") > 0);
+        assertTrue(rateLimiter.size() <= 10);
+    }
+}
@@ -9,11 +9,17 @@ import model.request.RegisterRequest;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import service.RateLimiter;
 import service.UserService;
 import service.serviceExceptions.AlreadyTakenException;
 import service.serviceExceptions.BadRequestException;
+import service.serviceExceptions.ServiceUnavailableException;
+import service.serviceExceptions.TooManyRequestsException;
 import service.serviceExceptions.UnauthorizedException;
 
+import java.util.concurrent.CountDownLatch;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 class UserServiceTests {
@@ -49,6 +55,8 @@ class UserServiceTests {
             fail("Username already taken");
         } catch (BadRequestException e) {
             fail("Username or password missing");
+        } catch (ServiceUnavailableException e) {
+            fail("Password hasher saturated");
         }
         // compare post-state
         assertTrue(userDAO.verifyUser("testUser", "testPass"));
@@ -86,11 +94,15 @@ class UserServiceTests {
         // perform login
         String authToken = null;
         try {
-            authToken = userService.login(new LoginRequest("testUser", "testPass")).authToken();
+            authToken = userService.login(new LoginRequest("testUser", "testPass"), "127.0.0.1").authToken();
         } catch (BadRequestException e) {
             fail("Invalid username");
         } catch (UnauthorizedException e) {
             fail("Credentials don't match");
+        } catch (ServiceUnavailableException e) {
+            fail("Password hasher saturated");
+        } catch (TooManyRequestsException e) {
+            fail("Login throttled");
         }
         // compare post-state (user has an authToken that matches)
         assertEquals(authDAO.getUsername(authToken), "testUser");
@@ -108,7 +120,49 @@ class UserServiceTests {
         assertTrue(userDAO.verifyUser("testUser", "testPass"));
         // perform invalid login, compare post-state (throws a credentialing error)
         assertThrows(UnauthorizedException.class,
-                (() -> userService.login(new LoginRequest("testUser", "wrongPass"))));
+                (() -> userService.login(new LoginRequest("testUser", "wrongPass"), "127.0.0.1")));
+    }
+
+    @Test
+    // login attempts within the limits all reach the credential check
+    public void loginThrottleTestPositive() throws DataAccessException {
+        // set pre-state (at most 3 attempts per user, 5 per address)
+        userService = new UserService(authDAO, userDAO, new RateLimiter(3, 1, 100), new RateLimiter(5, 1, 100));
+        userDAO.createUser(new UserData("testUser", "testPass", "testEmail"));
+        // perform action, compare post-state (wrong passwords are checked, and the right one still logs in)
+        for (int i = 0; i < 2; ++i) {
+            assertThrows(UnauthorizedException.class,
+                    (() -> userService.login(new LoginRequest("testUser", "wrongPass"), "127.0.0.1")));
+        }
+        try {
+            assertNotNull(userService.login(new LoginRequest("testUser", "testPass"), "127.0.0.1").authToken());
+        } catch (BadRequestException | UnauthorizedException | ServiceUnavailableException
+                 | TooManyRequestsException e) {
+            fail("Login within the limits failed: " + e.getMessage());
+        }
+    }
+
+    @Test
+    // login attempts beyond the limits are refused before the credential check
+    public void loginThrottleTestNegative() throws DataAccessException {
+        // set pre-state (at most 3 attempts per user, 4 per address)
+        userService = new UserService(authDAO, userDAO, new RateLimiter(3, 1, 100), new RateLimiter(4, 1, 100));
+        userDAO.createUser(new UserData("testUser", "testPass", "testEmail"));
+        userDAO.createUser(new UserData("otherUser", "otherPass", "otherEmail"));
+        // perform action (use up the user's attempts)
+        for (int i = 0; i < 3; ++i) {
+            assertThrows(UnauthorizedException.class,
+                    (() -> userService.login(new LoginRequest("testUser", "wrongPass"), "127.0.0.1")));
+        }
+        // compare post-state (even the right password is refused, from any address)
+        TooManyRequestsException e = assertThrows(TooManyRequestsException.class,
+                (() -> userService.login(new LoginRequest("testUser", "testPass"), "10.0.0.1")));
+        assertTrue(e.getRetryAfterSeconds() > 0);
+        // other users are limited by their address once it runs out of attempts
+        assertThrows(UnauthorizedException.class,
+                (() -> userService.login(new LoginRequest("otherUser", "wrongPass"), "127.0.0.1")));
+        assertThrows(TooManyRequestsException.class,
+                (() -> userService.login(new LoginRequest("otherUser", "otherPass"), "127.0.0.1")));
     }
 
     @Test
@@ -154,4 +208,59 @@ class UserServiceTests {
         // compare post-state (auth still present in database)
         assertEquals(authDAO.getUsername(authToken), "testUser");
     }
-}
\ No newline at end of file
+
+    @Test
+    // logins beyond what the password hasher can hold are turned away
+    public void loginTestSaturatedNegative() throws DataAccessException, InterruptedException {
+        // set pre-state (a hasher with one worker and room for one waiting check, whose checks wait on a latch)
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        PasswordHasher passwordHasher = new PasswordHasher(new BCryptPasswordEncoder(4) {
+            @Override
+            public boolean matches(CharSequence rawPassword, String encodedPassword) {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    return false;
+                }
+                return super.matches(rawPassword, encodedPassword);
+            }
+        }, 1, 1);
+        userDAO = new MemoryUserDAO(passwordHasher);
+        userService = new UserService(authDAO, userDAO);
+        userDAO.createUser(new UserData("testUser", "testPass", "testEmail"));
+        // perform action (two logins occupy the worker and the queue, then a third arrives)
+        Thread[] logins = new Thread[2];
+        for (int i = 0; i < logins.length; ++i) {
+            logins[i] = new Thread(() -> {
+                try {
+                    userService.login(new LoginRequest("testUser", "testPass"), "127.0.0.1");
+                } catch (Exception e) {
+                    // only the third login's outcome is checked
+                }
+            });
+            logins[i].start();
+            if (i == 0) {
+                started.await();
+            }
+        }
+        while (logins[1].getState() != Thread.State.WAITING) {
+            Thread.sleep(10);
+        }
+        // compare post-state (the third login is rejected right away, and later ones succeed)
+        assertThrows(ServiceUnavailableException.class,
+                (() -> userService.login(new LoginRequest("testUser", "testPass"), "127.0.0.1")));
+        release.countDown();
+        for (Thread login : logins) {
+            login.join();
+        }
+        try {
+            assertNotNull(userService.login(new LoginRequest("testUser", "testPass"), "127.0.0.1").authToken());
+        } catch (BadRequestException | UnauthorizedException | ServiceUnavailableException
+                 | TooManyRequestsException e) {
+            fail("Login after the burst failed: " + e.getMessage());
+        }
+        passwordHasher.shutdown();
+    }
+}
@@ -0,0 +1,85 @@
+package websocketTests;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPiece;
+import chess.ChessPosition;
+import model.GameData;
+import org.junit.jupiter.api.Test;
+import webSocketMessages.BinaryCodec;
+import webSocketMessages.serverMessages.*;
+import webSocketMessages.userCommands.*;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BinaryCodecTests {
+    private static final ChessMove PROMOTION = new ChessMove(new ChessPosition(7, 2), new ChessPosition(8, 1),
+            ChessPiece.PieceType.QUEEN);
+
+    private static UserGameCommand roundTrip(UserGameCommand command) throws IOException {
+        byte[] frame = BinaryCodec.encodeCommand(command);
+        // decode from the middle of a larger buffer, as the server receives frames
+        byte[] buffer = new byte[frame.length + 4];
+        System.arraycopy(frame, 0, buffer, 2, frame.length);
+        return BinaryCodec.decodeCommand(buffer, 2, frame.length);
+    }
+
+    private static ServerMessage roundTrip(ServerMessage message) throws IOException {
+        byte[] frame = BinaryCodec.encodeServerMessage(message);
+        return BinaryCodec.decodeServerMessage(frame, 0, frame.length);
+    }
+
+    @Test
+    public void roundTripPositive() throws IOException {
+        // set pre-state
+        List<UserGameCommand> commands = List.of(
+                new JoinPlayerCommand("authToken", 1, ChessGame.TeamColor.BLACK),
+                new JoinPlayerCommand("authToken", 1, null),
+                new JoinObserverCommand("authToken", 2),
+                new MakeMoveCommand("authToken", 3, PROMOTION),
+                new LeaveCommand("authToken", 4),
+                new ResignCommand(null, 5),
+                new ResyncCommand("authToken", null));
+        GameData gameData = new GameData(6, "white", null, "game", new ChessGame());
+        MoveAppliedMessage moveApplied = new MoveAppliedMessage(6, 12, PROMOTION, MoveAppliedMessage.Status.CHECK,
+                List.of("white moved", "black is in check"));
+        // perform action, compare post-state (every command and message decodes to what was encoded)
+        for (UserGameCommand command : commands) {
+            UserGameCommand decoded = roundTrip(command);
+            assertEquals(command, decoded);
+            assertEquals(command.getGameID(), decoded.getGameID());
+        }
+        assertEquals(PROMOTION, ((MakeMoveCommand) roundTrip(commands.get(3))).getMove());
+        assertEquals(ChessGame.TeamColor.BLACK, ((JoinPlayerCommand) roundTrip(commands.getFirst())).getPlayerColor());
+        assertEquals(new NotificationMessage("white joined"), roundTrip(new NotificationMessage("white joined")));
+        assertEquals(new ErrorMessage("Error: bad"), roundTrip(new ErrorMessage("Error: bad")));
+        GameData loadedGame = ((LoadGameMessage) roundTrip(new LoadGameMessage(gameData))).getGame();
+        assertEquals(gameData.toString(), loadedGame.toString());
+        assertEquals(gameData.game().getBoard(), loadedGame.game().getBoard());
+        GameUpdateMessage update = (GameUpdateMessage) roundTrip(new GameUpdateMessage(gameData, List.of("moved")));
+        assertEquals(gameData.toString(), update.getGame().toString());
+        assertEquals(List.of("moved"), update.getNotifications());
+        assertEquals(moveApplied, roundTrip(moveApplied));
+        // a move costs two bytes, not a JSON object
+        assertTrue(BinaryCodec.encodeServerMessage(moveApplied).length < 64);
+    }
+
+    @Test
+    public void roundTripNegative() {
+        // set pre-state
+        byte[] frame = BinaryCodec.encodeCommand(new MakeMoveCommand("authToken", 3, PROMOTION));
+        // perform action, compare post-state (truncated, padded, and unknown frames are rejected)
+        assertThrows(IOException.class, (() -> BinaryCodec.decodeCommand(frame, 0, frame.length - 1)));
+        byte[] padded = Arrays.copyOf(frame, frame.length + 1);
+        assertThrows(IOException.class, (() -> BinaryCodec.decodeCommand(padded, 0, padded.length)));
+        assertThrows(IOException.class, (() -> BinaryCodec.decodeCommand(new byte[]{(byte) 0x7F}, 0, 1)));
+        assertThrows(IOException.class, (() -> BinaryCodec.decodeServerMessage(new byte[0], 0, 0)));
+        // a string length past the end of the frame
+        byte[] longString = {(byte) ServerMessage.ServerMessageType.NOTIFICATION.ordinal(), 0, 0, 0x10, 0};
+        assertThrows(IOException.class, (() -> BinaryCodec.decodeServerMessage(longString, 0, longString.length)));
+    }
+}
@@ -0,0 +1,105 @@
+package websocketTests;
+
+import org.eclipse.jetty.websocket.api.RemoteEndpoint;
+import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.StatusCode;
+import org.eclipse.jetty.websocket.api.WriteCallback;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import server.websocket.SessionSender;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SessionSenderTests {
+    // messages whose writes were started, in order, and the callbacks that finish them
+    private List<String> written;
+    private List<WriteCallback> pendingWrites;
+    private Integer closeStatus;
+    private Session session;
+
+    @BeforeEach
+    public void setup() {
+        written = new ArrayList<>();
+        pendingWrites = new ArrayList<>();
+        closeStatus = null;
+        // a session whose writes finish only when the test calls their callbacks
+        RemoteEndpoint remote = (RemoteEndpoint) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{RemoteEndpoint.class}, (proxy, method, args) -> {
+                    if (method.getName().equals("sendString") && (args.length == 2)) {
+                        written.add((String) args[0]);
+                        pendingWrites.add((WriteCallback) args[1]);
+                    }
+                    return null;
+                });
+        session = (Session) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{Session.class}, (proxy, method, args) -> switch (method.getName()) {
+                    case "getRemote" -> remote;
+                    case "isOpen" -> (closeStatus == null);
+                    case "close" -> {
+                        closeStatus = (args == null) ? StatusCode.NORMAL : (Integer) args[0];
+                        yield null;
+                    }
+                    default -> null;
+                });
+    }
+
+    private void finishNextWrite() {
+        pendingWrites.removeFirst().writeSuccess();
+    }
+
+    @Test
+    public void sendPositive() {
+        // set pre-state
+        SessionSender sender = new SessionSender(session, 8, 60000);
+        // perform action (messages sent during a slow write, including a superseded game state)
+        sender.send("first", false);
+        sender.send("notification", false);
+        sender.send("state1", true);
+        sender.send("notification2", false);
+        sender.send("state2", true);
+        // compare post-state (one write at a time, in order, with only the latest game state)
+        assertEquals(List.of("first"), written);
+        assertEquals(3, sender.getQueuedCount());
+        while (!pendingWrites.isEmpty()) {
+            finishNextWrite();
+        }
+        assertEquals(List.of("first", "notification", "notification2", "state2"), written);
+        assertEquals(0, sender.getQueuedCount());
+        // an idle sender writes right away
+        sender.send("later", false);
+        assertEquals("later", written.getLast());
+        assertNull(closeStatus);
+    }
+
+    @Test
+    public void sendNegative() throws InterruptedException {
+        // set pre-state
+        SessionSender sender = new SessionSender(session, 2, 60000);
+        // perform action, compare post-state (a client whose queue fills is disconnected)
+        sender.send("first", false);
+        sender.send("second", false);
+        sender.send("third", false);
+        assertNull(closeStatus);
+        sender.send("fourth", false);
+        assertEquals(StatusCode.POLICY_VIOLATION, closeStatus);
+        assertEquals(0, sender.getQueuedCount());
+        // a client whose write stalls is disconnected on the next send
+        setup();
+        SessionSender stalledSender = new SessionSender(session, 8, 50);
+        stalledSender.send("first", false);
+        Thread.sleep(100);
+        stalledSender.send("second", false);
+        assertEquals(StatusCode.POLICY_VIOLATION, closeStatus);
+        // nothing more is written after a write fails
+        setup();
+        SessionSender failedSender = new SessionSender(session, 8, 60000);
+        failedSender.send("first", false);
+        pendingWrites.removeFirst().writeFailed(new RuntimeException("connection reset"));
+        failedSender.send("second", false);
+        assertEquals(List.of("first"), written);
+    }
+}
@@ -0,0 +1,321 @@
+package websocketTests;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import chess.engine.ChessEngine;
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import dataAccess.*;
+import dataAccess.memoryDAO.MemoryAuthDAO;
+import dataAccess.memoryDAO.MemoryGameDAO;
+import model.request.CreateGameRequest;
+import model.request.JoinGameRequest;
+import org.eclipse.jetty.websocket.api.RemoteEndpoint;
+import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.UpgradeRequest;
+import org.eclipse.jetty.websocket.api.WriteCallback;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import server.websocket.WebSocketHandler;
+import service.BotService;
+import service.GameMailboxes;
+import service.GameService;
+import webSocketMessages.BinaryCodec;
+import webSocketMessages.serverMessages.*;
+import webSocketMessages.userCommands.*;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WebSocketHandlerTests {
+    private static final Gson GSON = new Gson();
+    private static final ChessMove E4 = move(2, 5, 4, 5);
+    private static final ChessMove E5 = move(7, 5, 5, 5);
+
+    private AuthDAO authDAO;
+    private GameDAO gameDAO;
+    private GameService gameService;
+    private GameMailboxes gameMailboxes;
+    private BotService botService;
+    private WebSocketHandler webSocketHandler;
+    private String whiteAuthToken;
+    private String blackAuthToken;
+    private int gameID;
+
+    /**
+     * A client connection: a session that records every frame written to it (JSON text as a String,
+     * binary as a byte[]), finishing each write right away
+     */
+    private static class FakeClient {
+        final Session session;
+        final String authToken;
+        final List<Object> frames = new ArrayList<>();
+        boolean isOpen = true;
+
+        FakeClient(String authToken, Map<String, List<String>> parameters) {
+            this.authToken = authToken;
+            RemoteEndpoint remote = (RemoteEndpoint) Proxy.newProxyInstance(getClass().getClassLoader(),
+                    new Class<?>[]{RemoteEndpoint.class}, (proxy, method, args) -> {
+                        switch (method.getName()) {
+                            case "sendString" -> this.frames.add(args[0]);
+                            case "sendBytes" -> {
+                                ByteBuffer frame = (ByteBuffer) args[0];
+                                this.frames.add(frame.array());
+                            }
+                            default -> {
+                                return null;
+                            }
+                        }
+                        ((WriteCallback) args[1]).writeSuccess();
+                        return null;
+                    });
+            UpgradeRequest upgradeRequest = (UpgradeRequest) Proxy.newProxyInstance(getClass().getClassLoader(),
+                    new Class<?>[]{UpgradeRequest.class}, (proxy, method, args) ->
+                            method.getName().equals("getParameterMap") ? parameters : null);
+            this.session = (Session) Proxy.newProxyInstance(getClass().getClassLoader(),
+                    new Class<?>[]{Session.class}, (proxy, method, args) -> switch (method.getName()) {
+                        case "getRemote" -> remote;
+                        case "getUpgradeRequest" -> upgradeRequest;
+                        case "isOpen" -> this.isOpen;
+                        case "hashCode" -> System.identityHashCode(proxy);
+                        case "equals" -> (proxy == args[0]);
+                        default -> null;
+                    });
+        }
+
+        /**
+         * @return every message received, decoded, and forget them
+         */
+        List<ServerMessage> takeMessages() throws IOException {
+            List<ServerMessage> messages = new ArrayList<>();
+            for (Object frame : this.frames) {
+                if (frame instanceof byte[] binary) {
+                    messages.add(BinaryCodec.decodeServerMessage(binary, 0, binary.length));
+                } else {
+                    messages.add(decodeText((String) frame));
+                }
+            }
+            this.frames.clear();
+            return messages;
+        }
+
+        private static ServerMessage decodeText(String text) {
+            JsonObject json = JsonParser.parseString(text).getAsJsonObject();
+            ServerMessage.ServerMessageType type = GSON.fromJson(json.get("serverMessageType"),
+                    ServerMessage.ServerMessageType.class);
+            return GSON.fromJson(json, switch (type) {
+                case LOAD_GAME -> LoadGameMessage.class;
+                case ERROR -> ErrorMessage.class;
+                case NOTIFICATION -> NotificationMessage.class;
+                case GAME_UPDATE -> GameUpdateMessage.class;
+                case MOVE_APPLIED -> MoveAppliedMessage.class;
+            });
+        }
+    }
+
+    @BeforeEach
+    public void setup() throws Exception {
+        authDAO = new MemoryAuthDAO();
+        gameDAO = new MemoryGameDAO();
+        authDAO.clearAuths();
+        gameDAO.clearGames();
+        gameService = new GameService(authDAO, gameDAO);
+        gameMailboxes = new GameMailboxes(1);
+        botService = new BotService(gameService, gameDAO, gameMailboxes, (new ChessEngine(null)), 1, 2000);
+        webSocketHandler = new WebSocketHandler(gameService, botService, gameMailboxes);
+        whiteAuthToken = authDAO.createAuth("white");
+        blackAuthToken = authDAO.createAuth("black");
+        gameID = gameService.createGame(whiteAuthToken, new CreateGameRequest("game")).gameID();
+        gameService.joinGame(whiteAuthToken, new JoinGameRequest("WHITE", gameID));
+        gameService.joinGame(blackAuthToken, new JoinGameRequest("BLACK", gameID));
+    }
+
+    @AfterEach
+    public void tearDown() throws DataAccessException {
+        botService.shutdown();
+        gameMailboxes.shutdown();
+        authDAO.clearAuths();
+        gameDAO.clearGames();
+    }
+
+    private static ChessMove move(int startRow, int startCol, int endRow, int endCol) {
+        return new ChessMove(new ChessPosition(startRow, startCol), new ChessPosition(endRow, endCol), null);
+    }
+
+    /**
+     * Connect a client with the given /connect query parameters (e.g. "updates=delta") and have it join the game
+     */
+    private FakeClient join(String authToken, UserGameCommand joinCommand, String... query) throws Exception {
+        Map<String, List<String>> parameters = new HashMap<>();
+        for (String parameter : query) {
+            String[] pair = parameter.split("=");
+            parameters.put(pair[0], List.of(pair[1]));
+        }
+        FakeClient client = new FakeClient(authToken, parameters);
+        this.send(client, joinCommand);
+        return client;
+    }
+
+    private void send(FakeClient client, UserGameCommand command) throws InterruptedException {
+        byte[] frame = BinaryCodec.encodeCommand(command);
+        webSocketHandler.onBinaryMessage(client.session, frame, 0, frame.length);
+        // wait for the command to run in its game's mailbox
+        CountDownLatch handled = new CountDownLatch(1);
+        gameMailboxes.submit(gameID, handled::countDown);
+        assertTrue(handled.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void makeMoveDeltaPositive() throws Exception {
+        // set pre-state (a binary and a JSON delta client)
+        FakeClient white = join(whiteAuthToken, new JoinPlayerCommand(whiteAuthToken, gameID,
+                ChessGame.TeamColor.WHITE), "updates=delta", "encoding=binary");
+        FakeClient black = join(blackAuthToken, new JoinPlayerCommand(blackAuthToken, gameID,
+                ChessGame.TeamColor.BLACK), "updates=delta");
+        white.takeMessages();
+        black.takeMessages();
+        // perform action, compare post-state (each move's sequence is the game's move count after the move)
+        List<ChessMove> moves = List.of(E4, E5);
+        for (int i = 0; i < moves.size(); ++i) {
+            FakeClient mover = (i % 2 == 0) ? white : black;
+            send(mover, new MakeMoveCommand(mover.authToken, gameID, moves.get(i)));
+            int moveCount = gameDAO.getGame(gameID).game().getMoveCount();
+            assertEquals(i + 1, moveCount);
+            for (FakeClient client : List.of(white, black)) {
+                List<ServerMessage> messages = client.takeMessages();
+                assertEquals(1, messages.size());
+                MoveAppliedMessage moveApplied = (MoveAppliedMessage) messages.getFirst();
+                assertEquals(moveCount, moveApplied.getSequence());
+                assertEquals(moves.get(i), moveApplied.getMove());
+                assertEquals(gameID, moveApplied.getGameID());
+                // the mover is not told about its own move
+                assertEquals((client == mover) ? 0 : 1, moveApplied.getNotifications().size());
+            }
+        }
+    }
+
+    @Test
+    public void makeMoveDeltaNegative() throws Exception {
+        // set pre-state
+        FakeClient white = join(whiteAuthToken, new JoinPlayerCommand(whiteAuthToken, gameID,
+                ChessGame.TeamColor.WHITE), "updates=delta", "encoding=binary");
+        FakeClient black = join(blackAuthToken, new JoinPlayerCommand(blackAuthToken, gameID,
+                ChessGame.TeamColor.BLACK), "updates=delta");
+        white.takeMessages();
+        black.takeMessages();
+        // perform action (a move out of turn, then a resync)
+        send(black, new MakeMoveCommand(blackAuthToken, gameID, E5));
+        List<ServerMessage> blackMessages = black.takeMessages();
+        send(black, new ResyncCommand(blackAuthToken, gameID));
+        // compare post-state (only the mover is told, no sequence is used up, and a resync loads the game)
+        assertEquals(1, blackMessages.size());
+        assertInstanceOf(ErrorMessage.class, blackMessages.getFirst());
+        assertTrue(white.takeMessages().isEmpty());
+        assertEquals(0, gameDAO.getGame(gameID).game().getMoveCount());
+        List<ServerMessage> resynced = black.takeMessages();
+        assertEquals(1, resynced.size());
+        assertEquals(0, ((LoadGameMessage) resynced.getFirst()).getGame().game().getMoveCount());
+        send(white, new MakeMoveCommand(whiteAuthToken, gameID, E4));
+        assertEquals(1, ((MoveAppliedMessage) black.takeMessages().getFirst()).getSequence());
+    }
+
+    @Test
+    public void broadcastMovePositive() throws Exception {
+        // set pre-state (players asking for separate messages, and observers asking for combined ones)
+        FakeClient white = join(whiteAuthToken, new JoinPlayerCommand(whiteAuthToken, gameID,
+                ChessGame.TeamColor.WHITE));
+        FakeClient black = join(blackAuthToken, new JoinPlayerCommand(blackAuthToken, gameID,
+                ChessGame.TeamColor.BLACK));
+        List<FakeClient> observers = new ArrayList<>();
+        for (String username : List.of("observer1", "observer2")) {
+            String authToken = authDAO.createAuth(username);
+            observers.add(join(authToken, new JoinObserverCommand(authToken, gameID), "updates=combined"));
+        }
+        for (FakeClient client : List.of(white, black, observers.get(0), observers.get(1))) {
+            client.takeMessages();
+        }
+        // perform action
+        send(white, new MakeMoveCommand(whiteAuthToken, gameID, E4));
+        // compare post-state (the mover gets only the game, the other player the game and the move notice)
+        List<ServerMessage> whiteMessages = white.takeMessages();
+        assertEquals(1, whiteMessages.size());
+        assertEquals(1, ((LoadGameMessage) whiteMessages.getFirst()).getGame().game().getMoveCount());
+        List<ServerMessage> blackMessages = black.takeMessages();
+        assertEquals(2, blackMessages.size());
+        assertEquals(1, ((LoadGameMessage) blackMessages.getFirst()).getGame().game().getMoveCount());
+        assertEquals("white moved " + E4, ((NotificationMessage) blackMessages.getLast()).getMessage());
+        // every combined client is sent the same encoded message, with the game and the move notice
+        assertEquals(1, observers.get(0).frames.size());
+        assertSame(observers.get(0).frames.getFirst(), observers.get(1).frames.getFirst());
+        GameUpdateMessage update = (GameUpdateMessage) observers.get(0).takeMessages().getFirst();
+        assertEquals(1, update.getGame().game().getMoveCount());
+        assertEquals(List.of("white moved " + E4), update.getNotifications());
+    }
+
+    @Test
+    public void broadcastMoveNegative() throws Exception {
+        // set pre-state (a game one move from fool's mate, with a combined observer and a closed observer)
+        FakeClient white = join(whiteAuthToken, new JoinPlayerCommand(whiteAuthToken, gameID,
+                ChessGame.TeamColor.WHITE));
+        FakeClient black = join(blackAuthToken, new JoinPlayerCommand(blackAuthToken, gameID,
+                ChessGame.TeamColor.BLACK), "updates=combined");
+        String observerAuthToken = authDAO.createAuth("observer");
+        FakeClient observer = join(observerAuthToken, new JoinObserverCommand(observerAuthToken, gameID));
+        String closedAuthToken = authDAO.createAuth("closed");
+        FakeClient closed = join(closedAuthToken, new JoinObserverCommand(closedAuthToken, gameID));
+        send(white, new MakeMoveCommand(whiteAuthToken, gameID, move(2, 6, 3, 6)));
+        send(black, new MakeMoveCommand(blackAuthToken, gameID, E5));
+        send(white, new MakeMoveCommand(whiteAuthToken, gameID, move(2, 7, 4, 7)));
+        for (FakeClient client : List.of(white, black, observer, closed)) {
+            client.takeMessages();
+        }
+        closed.isOpen = false;
+        // perform action
+        ChessMove mate = move(8, 4, 4, 8);
+        send(black, new MakeMoveCommand(blackAuthToken, gameID, mate));
+        // compare post-state (the mate notice goes to everyone, the move notice to all but the mover)
+        List<ServerMessage> whiteMessages = white.takeMessages();
+        assertEquals(3, whiteMessages.size());
+        assertInstanceOf(LoadGameMessage.class, whiteMessages.getFirst());
+        assertEquals(new NotificationMessage("black moved " + mate), whiteMessages.get(1));
+        assertEquals(new NotificationMessage("white was checkmated"), whiteMessages.get(2));
+        GameUpdateMessage moverUpdate = (GameUpdateMessage) black.takeMessages().getFirst();
+        assertEquals(List.of("white was checkmated"), moverUpdate.getNotifications());
+        List<ServerMessage> observerMessages = observer.takeMessages();
+        assertEquals(3, observerMessages.size());
+        assertEquals(new NotificationMessage("white was checkmated"), observerMessages.getLast());
+        assertTrue(closed.frames.isEmpty());
+    }
+
+    @Test
+    public void resignBotGamePositive() throws Exception {
+        // set pre-state (a game against a bot that has replied to one move)
+        String authToken = authDAO.createAuth("player");
+        gameID = gameService.createGame(authToken, new CreateGameRequest("botGame", "black")).gameID();
+        gameService.joinGame(authToken, new JoinGameRequest("WHITE", gameID));
+        FakeClient player = join(authToken, new JoinPlayerCommand(authToken, gameID, ChessGame.TeamColor.WHITE));
+        send(player, new MakeMoveCommand(authToken, gameID, E4));
+        for (int i = 0; (i < 500) && (gameDAO.getGame(gameID).game().getMoveCount() < 2); ++i) {
+            Thread.sleep(20);
+        }
+        assertEquals(2, gameDAO.getGame(gameID).game().getMoveCount());
+        assertTrue(botService.getRemainingMillis(gameID) < 2000);
+        // perform action
+        send(player, new ResignCommand(authToken, gameID));
+        // compare post-state (the game is over and the bot's clock in it is forgotten)
+        assertTrue(gameDAO.getGame(gameID).game().isOver());
+        assertEquals(2000, botService.getRemainingMillis(gameID));
+    }
+}
@@ -64,6 +64,19 @@ public class ChessBoard {
         return this.board[position.getRow() - 1][position.getColumn() - 1];
     }
 
+    /**
+     * Gets a chess piece on the chessboard without allocating a ChessPosition
+     * (for hot loops that visit every square)
+     *
+     * @param row the row to get the piece from (1-indexed)
+     * @param col the column to get the piece from (1-indexed)
+     * @return Either the piece at the position, or null if no piece is at that
+     * position
+     */
+    public ChessPiece getPiece(int row, int col) {
+        return this.board[row - 1][col - 1];
+    }
+
     /**
      * Clears the board of all pieces
      */
@@ -1,6 +1,7 @@
 package chess;
 
 import chess.movesCalculators.PieceMovesCalculator;
+import chess.openings.OpeningBook;
 
 import java.util.*;
 
@@ -15,6 +16,7 @@ public class ChessGame {
     private TeamColor teamTurn;
     private final ChessMovesLog movesLog;
     private boolean isOver;
+    private String opening;
 
     public ChessGame() {
         this.teamTurn = TeamColor.WHITE;
@@ -24,6 +26,14 @@ public class ChessGame {
         this.isOver = false;
     }
 
+    public ChessGame(ChessGame other) {
+        this.teamTurn = other.teamTurn;
+        this.board = new ChessBoard(other.board);
+        this.movesLog = new ChessMovesLog(other.movesLog);
+        this.isOver = other.isOver;
+        this.opening = other.opening;
+    }
+
     /**
      * @return Which team's turn it is
      */
@@ -65,6 +75,14 @@ public class ChessGame {
     public void setBoard(ChessBoard board) {
         this.board = board;
         this.movesLog.reset();
+        this.opening = null;
+    }
+
+    /**
+     * @return the number of moves (plies) made in this game since it started or its board was set
+     */
+    public int getMoveCount() {
+        return this.movesLog.getEntries().size();
     }
 
     public boolean isOver() {
@@ -75,6 +93,14 @@ public class ChessGame {
         this.isOver = true;
     }
 
+    /**
+     * @return the label ("ECO name") of the last opening position this game passed through,
+     * or null if no opening book is installed or the game has not reached a book position
+     */
+    public String getOpening() {
+        return this.opening;
+    }
+
     // MOVES //////////////////////////////////////////////////////////////////////////////////////
 
     /**
@@ -84,6 +110,31 @@ public class ChessGame {
      * @throws InvalidMoveException if move is invalid
      */
     public void makeMove(ChessMove move) throws InvalidMoveException {
+        this.applyMove(move);
+        // label the game with the opening it has reached, if any
+        this.classifyOpening();
+    }
+
+    /**
+     * Makes moves already made in this game (e.g. logged after a stored snapshot of it) to bring it up to date,
+     * labeling the opening as the moves were first made (the lookup is skipped once past the book's longest line,
+     * so replaying beyond the opening costs nothing extra)
+     *
+     * @param moves the chess moves to perform, in order
+     * @throws InvalidMoveException if a move is invalid
+     */
+    public void replayMoves(Collection<ChessMove> moves) throws InvalidMoveException {
+        for (ChessMove move : moves) {
+            this.applyMove(move);
+            // a book position passed on the way must label the game, even if the final position is out of book
+            this.classifyOpening();
+        }
+    }
+
+    /**
+     * Validates and performs a move, changes the team turn, and sets the game over on mate or stalemate
+     */
+    private void applyMove(ChessMove move) throws InvalidMoveException {
         Collection<ChessMove> legalMoves = this.validMoves(move.getStartPosition());
         // if move is illegal, throw an exception
         if (this.isOver()) {
@@ -114,6 +165,57 @@ public class ChessGame {
         }
     }
 
+    /**
+     * Makes a move on a copy of this game, for looking ahead without changing this game
+     * NOTE: the move is not validated and the copy is never set to over,
+     * only pass moves returned by validMoves() or legalMoves()
+     *
+     * @param legalMove a legal move for the team whose turn it is
+     * @return a copy of this game with the move made and the turn changed
+     */
+    public ChessGame copyWithMove(ChessMove legalMove) {
+        ChessGame next = new ChessGame(this);
+        ChessPiece piece = this.board.getPiece(legalMove.getStartPosition());
+        // this game's board and moves log still describe the position before the move
+        this.makeMoveUnchecked(next.board, legalMove);
+        next.movesLog.addMove(new ChessMovesLog.Entry(legalMove, piece));
+        next.teamTurn = (this.teamTurn == TeamColor.WHITE) ? TeamColor.BLACK : TeamColor.WHITE;
+        return next;
+    }
+
+    /**
+     * Gets the valid moves for every piece of the team whose turn it is
+     *
+     * @return Set of valid moves for the current team
+     */
+    public Collection<ChessMove> legalMoves() {
+        Collection<ChessMove> moves = new HashSet<>();
+        for (int row = 1; row <= ChessBoard.BOARD_SIDE_LENGTH; ++row) {
+            for (int col = 1; col <= ChessBoard.BOARD_SIDE_LENGTH; ++col) {
+                ChessPiece piece = this.board.getPiece(row, col);
+                if ((piece != null) && (piece.getTeamColor() == this.teamTurn)) {
+                    moves.addAll(this.validMoves(new ChessPosition(row, col)));
+                }
+            }
+        }
+        return moves;
+    }
+
+    /**
+     * Look up the current position in the installed opening book and update the opening label on a hit
+     * (the lookup itself does not allocate, and is skipped once the game is deeper than any book line)
+     */
+    private void classifyOpening() {
+        OpeningBook openingBook = OpeningBook.getInstalled();
+        if ((openingBook == null) || (this.movesLog.getEntries().size() > openingBook.getMaxPly())) {
+            return;
+        }
+        int entry = openingBook.find(ZobristHash.hash(this.board, this.teamTurn));
+        if (entry >= 0) {
+            this.opening = openingBook.getLabel(entry);
+        }
+    }
+
     /**
      * Gets the valid moves for a piece at the given location
      * NOTE: Does not invalidate moves for being out-of-turn
@@ -193,6 +295,39 @@ public class ChessGame {
         board.removePiece(move.getStartPosition());
     }
 
+    /**
+     * Hash the whole position, for telling positions apart in search caches
+     * (unlike ZobristHash.hash(board, teamTurn), positions with the same pieces but different
+     * castling or en passant rights hash differently)
+     *
+     * @return the 64-bit hash of the position
+     */
+    public long positionHash() {
+        int castlingRights = 0;
+        int bit = 0;
+        for (int row : new int[]{1, ChessBoard.BOARD_SIDE_LENGTH}) {
+            TeamColor team = (row == 1) ? TeamColor.WHITE : TeamColor.BLACK;
+            ChessPiece king = this.board.getPiece(row, 5);
+            boolean isKingUnmoved = (king != null) && (king.getPieceType() == ChessPiece.PieceType.KING)
+                    && (king.getTeamColor() == team) && !pieceHasMoved(new ChessPosition(row, 5));
+            for (int rookColumn : new int[]{1, ChessBoard.BOARD_SIDE_LENGTH}) {
+                if (isKingUnmoved && isCastlingRook(new ChessPosition(row, rookColumn), team)) {
+                    castlingRights |= (1 << bit);
+                }
+                bit++;
+            }
+        }
+        int enPassantColumn = 0;
+        if (!this.movesLog.getEntries().isEmpty()) {
+            ChessMovesLog.Entry lastEntry = this.movesLog.getLastEntry();
+            if ((lastEntry.piece().getPieceType() == ChessPiece.PieceType.PAWN)
+                    && PieceMovesCalculator.isDoubleMove(lastEntry.move())) {
+                enPassantColumn = lastEntry.move().getEndPosition().getColumn();
+            }
+        }
+        return ZobristHash.hash(this.board, this.teamTurn, castlingRights, enPassantColumn);
+    }
+
     // SITUATIONAL MOVES //////////////////////////////////////////////////////////////////////////
 
     /**
@@ -285,7 +420,7 @@ public class ChessGame {
                     isPathClear = false;
                 }
             }
-            if (!pieceHasMoved(rookPosition) && isPathClear) {
+            if (isCastlingRook(rookPosition, king.getTeamColor()) && isPathClear) {
                 moves.add(new ChessMove(startPosition,
                         (new ChessPosition(startPosition.getRow(), (startPosition.getColumn()) - 2)),
                         null));
@@ -298,7 +433,7 @@ public class ChessGame {
                     isPathClear = false;
                 }
             }
-            if (!pieceHasMoved(rookPosition) && isPathClear) {
+            if (isCastlingRook(rookPosition, king.getTeamColor()) && isPathClear) {
                 moves.add(new ChessMove(startPosition,
                         (new ChessPosition(startPosition.getRow(), (startPosition.getColumn()) + 2)),
                         null));
@@ -312,7 +447,7 @@ public class ChessGame {
                     isPathClear = false;
                 }
             }
-            if (!pieceHasMoved(rookPosition) && isPathClear) {
+            if (isCastlingRook(rookPosition, king.getTeamColor()) && isPathClear) {
                 moves.add(new ChessMove(startPosition,
                         (new ChessPosition(startPosition.getRow(), (startPosition.getColumn()) - 2)),
                         null));
@@ -325,7 +460,7 @@ public class ChessGame {
                     isPathClear = false;
                 }
             }
-            if (!pieceHasMoved(rookPosition) && isPathClear) {
+            if (isCastlingRook(rookPosition, king.getTeamColor()) && isPathClear) {
                 moves.add(new ChessMove(startPosition,
                         (new ChessPosition(startPosition.getRow(), (startPosition.getColumn()) + 2)),
                         null));
@@ -347,6 +482,21 @@ public class ChessGame {
                 && (PieceMovesCalculator.isDoubleMove(validMove)));
     }
 
+    /**
+     * Determines whether the given position holds a rook the given team can castle with
+     *
+     * @param rookPosition the corner position to inspect
+     * @param teamColor    the team that is castling
+     * @return whether there is a rook of the team at the position that has not moved this game
+     */
+    private boolean isCastlingRook(ChessPosition rookPosition, TeamColor teamColor) {
+        ChessPiece rook = this.board.getPiece(rookPosition);
+        return ((rook != null)
+                && (rook.getPieceType() == ChessPiece.PieceType.ROOK)
+                && (rook.getTeamColor() == teamColor)
+                && !pieceHasMoved(rookPosition));
+    }
+
     /**
      * Determines whether the piece at the given position has moved this game
      *
@@ -48,6 +48,42 @@ public class ChessMove {
         return this.promotionPiece;
     }
 
+    /**
+     * Pack this move into 16 bits: start square in bits 0-5, end square in bits 6-11
+     * (square = (row - 1) * 8 + (column - 1)), promotion piece in bits 12-14 (0 for none,
+     * otherwise PieceType ordinal + 1). The top bit is always clear, so the value is never negative.
+     *
+     * @return the packed move
+     */
+    public short pack() {
+        int promotionCode = (this.promotionPiece == null) ? 0 : (this.promotionPiece.ordinal() + 1);
+        return (short) (ChessMove.packSquare(this.startPosition)
+                | (ChessMove.packSquare(this.endPosition) << 6)
+                | (promotionCode << 12));
+    }
+
+    /**
+     * @param packedMove a move packed by pack()
+     * @return the unpacked move
+     * @throws IllegalArgumentException if packedMove was not produced by pack()
+     */
+    public static ChessMove unpack(short packedMove) {
+        int promotionCode = (packedMove >> 12) & 0x7;
+        if ((packedMove < 0) || (promotionCode > ChessPiece.PieceType.values().length)) {
+            throw new IllegalArgumentException("not a packed move: " + packedMove);
+        }
+        return new ChessMove(ChessMove.unpackSquare(packedMove & 0x3F), ChessMove.unpackSquare((packedMove >> 6) & 0x3F),
+                ((promotionCode == 0) ? null : ChessPiece.PieceType.values()[promotionCode - 1]));
+    }
+
+    private static int packSquare(ChessPosition position) {
+        return ((position.getRow() - 1) * 8) + (position.getColumn() - 1);
+    }
+
+    private static ChessPosition unpackSquare(int square) {
+        return new ChessPosition(((square / 8) + 1), ((square % 8) + 1));
+    }
+
     @Override
     public String toString() {
         if (promotionPiece == null) {
@@ -22,6 +22,11 @@ public class ChessMovesLog {
         entries = new ArrayList<>();
     }
 
+    public ChessMovesLog(ChessMovesLog other) {
+        // entries are immutable copies, so they can be shared
+        entries = new ArrayList<>(other.entries);
+    }
+
     public void addMove(Entry entry) {
         entries.add(entry);
     }
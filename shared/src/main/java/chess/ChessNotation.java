@@ -0,0 +1,191 @@
+package chess;
+
+/**
+ * Converts between chess notation strings and chess objects
+ */
+public final class ChessNotation {
+    private ChessNotation() {
+    }
+
+    /**
+     * Parse a move in Standard Algebraic Notation (SAN, as used by PGN files) against a game
+     * ("e4", "Nbd7", "exd5", "R1e2", "e8=Q", "O-O-O", with optional check, mate, and annotation suffixes)
+     *
+     * @param game the game the move is made in (the move is parsed for the team whose turn it is)
+     * @param san  the SAN string
+     * @return the matching legal move
+     * @throws InvalidMoveException if the string is malformed, matches no legal move, or is ambiguous
+     */
+    public static ChessMove parseSan(ChessGame game, String san) throws InvalidMoveException {
+        // strip check, mate, and annotation suffixes
+        String text = san.replaceAll("[+#!?]+$", "");
+        // castling (the king moves 2 squares toward the rook)
+        if (text.equals("O-O") || text.equals("0-0") || text.equals("O-O-O") || text.equals("0-0-0")) {
+            int row = (game.getTeamTurn() == ChessGame.TeamColor.WHITE) ? 1 : ChessBoard.BOARD_SIDE_LENGTH;
+            int endColumn = (text.length() == 3) ? 7 : 3;
+            return findUniqueMove(game, san, ChessPiece.PieceType.KING,
+                    (new ChessPosition(row, endColumn)), null, 0, 0);
+        }
+        // promotion suffix ("e8=Q", or "e8Q" in some files)
+        ChessPiece.PieceType promotionPiece = null;
+        if (!text.isEmpty() && (pieceTypeOf(text.charAt(text.length() - 1)) != null)) {
+            promotionPiece = pieceTypeOf(text.charAt(text.length() - 1));
+            text = text.substring(0, text.length() - 1);
+            if (text.endsWith("=")) {
+                text = text.substring(0, text.length() - 1);
+            }
+        }
+        // moving piece (pawn if no piece letter)
+        ChessPiece.PieceType pieceType = ChessPiece.PieceType.PAWN;
+        if (!text.isEmpty() && Character.isUpperCase(text.charAt(0))) {
+            pieceType = pieceTypeOf(text.charAt(0));
+            if (pieceType == null) {
+                throw new InvalidMoveException(String.format("Unknown piece in move: %s", san));
+            }
+            text = text.substring(1);
+        }
+        // destination square is the last 2 characters, anything before it is disambiguation or capture marks
+        if ((text.length() < 2) || !isFile(text.charAt(text.length() - 2)) || !isRank(text.charAt(text.length() - 1))) {
+            throw new InvalidMoveException(String.format("Malformed move: %s", san));
+        }
+        ChessPosition endPosition = new ChessPosition(text.charAt(text.length() - 2),
+                Character.getNumericValue(text.charAt(text.length() - 1)));
+        int fromColumn = 0;
+        int fromRow = 0;
+        for (char c : text.substring(0, text.length() - 2).toCharArray()) {
+            if (isFile(c)) {
+                fromColumn = (c - 'a') + 1;
+            } else if (isRank(c)) {
+                fromRow = Character.getNumericValue(c);
+            } else if ((c != 'x') && (c != ':')) {
+                throw new InvalidMoveException(String.format("Malformed move: %s", san));
+            }
+        }
+        return findUniqueMove(game, san, pieceType, endPosition, promotionPiece, fromRow, fromColumn);
+    }
+
+    /**
+     * Parse a position in Forsyth-Edwards Notation (FEN) into a game
+     * ("rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq e3 0 1")
+     * NOTE: only the piece placement and the team to move are used, castling availability is
+     * inferred from the pieces being on their starting squares and en passant is never available
+     *
+     * @param fen the FEN string
+     * @return a game in the described position
+     * @throws IllegalArgumentException if the string is malformed
+     */
+    public static ChessGame parseFen(String fen) {
+        String[] fields = (fen == null) ? new String[0] : fen.trim().split("\\s+");
+        String[] rows = (fields.length == 0) ? new String[0] : fields[0].split("/");
+        if (rows.length != ChessBoard.BOARD_SIDE_LENGTH) {
+            throw new IllegalArgumentException("malformed FEN: " + fen);
+        }
+        ChessBoard board = new ChessBoard();
+        // FEN lists rows from the black side (row 8) down
+        for (int i = 0; i < ChessBoard.BOARD_SIDE_LENGTH; ++i) {
+            int row = ChessBoard.BOARD_SIDE_LENGTH - i;
+            int col = 1;
+            for (char c : rows[i].toCharArray()) {
+                if ((c >= '1') && (c <= '8')) {
+                    col += Character.getNumericValue(c);
+                    continue;
+                }
+                ChessPiece.PieceType pieceType = (Character.toUpperCase(c) == 'P')
+                        ? ChessPiece.PieceType.PAWN : pieceTypeOf(Character.toUpperCase(c));
+                if ((pieceType == null) || (col > ChessBoard.BOARD_SIDE_LENGTH)) {
+                    throw new IllegalArgumentException("malformed FEN: " + fen);
+                }
+                ChessGame.TeamColor color = Character.isUpperCase(c) ? ChessGame.TeamColor.WHITE : ChessGame.TeamColor.BLACK;
+                board.addPiece(new ChessPosition(row, col), new ChessPiece(color, pieceType));
+                col++;
+            }
+            if (col != (ChessBoard.BOARD_SIDE_LENGTH + 1)) {
+                throw new IllegalArgumentException("malformed FEN: " + fen);
+            }
+        }
+        ChessGame game = new ChessGame();
+        game.setBoard(board);
+        if ((fields.length > 1) && fields[1].equals("b")) {
+            game.setTeamTurn(ChessGame.TeamColor.BLACK);
+        } else if ((fields.length > 1) && !fields[1].equals("w")) {
+            throw new IllegalArgumentException("malformed FEN: " + fen);
+        }
+        return game;
+    }
+
+    /**
+     * Format a move in coordinate notation ("e2e4", "e7e8q")
+     *
+     * @param move the move to format
+     * @return the move as a string
+     */
+    public static String toCoordinate(ChessMove move) {
+        StringBuilder text = new StringBuilder();
+        text.append(squareName(move.getStartPosition())).append(squareName(move.getEndPosition()));
+        if (move.getPromotionPiece() != null) {
+            text.append(switch (move.getPromotionPiece()) {
+                case QUEEN -> 'q';
+                case ROOK -> 'r';
+                case BISHOP -> 'b';
+                default -> 'n';
+            });
+        }
+        return text.toString();
+    }
+
+    private static String squareName(ChessPosition position) {
+        return String.valueOf((char) ('a' + position.getColumn() - 1)) + position.getRow();
+    }
+
+    /**
+     * Find the single legal move matching a parsed SAN move
+     *
+     * @param fromRow    the required start row, or 0 if not specified
+     * @param fromColumn the required start column, or 0 if not specified
+     */
+    private static ChessMove findUniqueMove(ChessGame game,
+                                            String san,
+                                            ChessPiece.PieceType pieceType,
+                                            ChessPosition endPosition,
+                                            ChessPiece.PieceType promotionPiece,
+                                            int fromRow,
+                                            int fromColumn) throws InvalidMoveException {
+        ChessMove match = null;
+        for (ChessMove move : game.legalMoves()) {
+            ChessPosition start = move.getStartPosition();
+            if (move.getEndPosition().equals(endPosition)
+                    && (game.getBoard().getPiece(start).getPieceType() == pieceType)
+                    && (move.getPromotionPiece() == promotionPiece)
+                    && ((fromRow == 0) || (start.getRow() == fromRow))
+                    && ((fromColumn == 0) || (start.getColumn() == fromColumn))) {
+                if (match != null) {
+                    throw new InvalidMoveException(String.format("Ambiguous move: %s", san));
+                }
+                match = move;
+            }
+        }
+        if (match == null) {
+            throw new InvalidMoveException(String.format("Illegal move: %s", san));
+        }
+        return match;
+    }
+
+    private static ChessPiece.PieceType pieceTypeOf(char c) {
+        return switch (c) {
+            case 'K' -> ChessPiece.PieceType.KING;
+            case 'Q' -> ChessPiece.PieceType.QUEEN;
+            case 'R' -> ChessPiece.PieceType.ROOK;
+            case 'B' -> ChessPiece.PieceType.BISHOP;
+            case 'N' -> ChessPiece.PieceType.KNIGHT;
+            default -> null;
+        };
+    }
+
+    private static boolean isFile(char c) {
+        return (c >= 'a') && (c <= 'h');
+    }
+
+    private static boolean isRank(char c) {
+        return (c >= '1') && (c <= '8');
+    }
+}
@@ -11,7 +11,7 @@ import java.util.Objects;
 public class ChessPosition {
     private final int row;
     private final int col;
-    private final char[] columnLetters = {0, 'a', 'b', 'c', 'd', 'e', 'f', 'g', 'h'};
+    private static final char[] COLUMN_LETTERS = {0, 'a', 'b', 'c', 'd', 'e', 'f', 'g', 'h'};
 
     public ChessPosition(int row, int col) {
         this.row = row;
@@ -20,8 +20,8 @@ public class ChessPosition {
 
     public ChessPosition(char col, int row) {
         int search_col = 0;
-        for (int i = 1; i < this.columnLetters.length; ++i) {
-            if (this.columnLetters[i] == col) {
+        for (int i = 1; i < ChessPosition.COLUMN_LETTERS.length; ++i) {
+            if (ChessPosition.COLUMN_LETTERS[i] == col) {
                 search_col = i;
                 break;
             }
@@ -53,7 +53,7 @@ public class ChessPosition {
 
     @Override
     public String toString() {
-        return String.format("%c%d", this.columnLetters[col], row);
+        return String.format("%c%d", ChessPosition.COLUMN_LETTERS[col], row);
     }
 
     @Override
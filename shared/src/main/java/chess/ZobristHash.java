@@ -0,0 +1,95 @@
+package chess;
+
+import java.util.SplittableRandom;
+
+/**
+ * Computes 64-bit Zobrist hashes of board positions (piece placement and team to move).
+ * <p>
+ * The keys are generated from a fixed seed, so hashes are stable across runs and machines
+ * and can be stored in files (opening book, etc.).
+ * NOTE: castling and en passant rights are only part of the hash when passed in
+ * (ChessGame derives them from the moves log rather than the position, see ChessGame.positionHash())
+ */
+public final class ZobristHash {
+    private static final long SEED = 0x43484553535A4F42L;
+    private static final int NUM_PIECE_TYPES = ChessPiece.PieceType.values().length;
+    private static final int NUM_PIECE_KINDS = (2 * NUM_PIECE_TYPES);
+    private static final int NUM_SQUARES = (ChessBoard.BOARD_SIDE_LENGTH * ChessBoard.BOARD_SIDE_LENGTH);
+
+    // [piece kind][square], piece kind = (color * 6) + piece type ordinal, square = (row - 1) * 8 + (col - 1)
+    private static final long[][] PIECE_SQUARE_KEYS = new long[NUM_PIECE_KINDS][NUM_SQUARES];
+    private static final long BLACK_TO_MOVE_KEY;
+    // [castling right bit], see hash(ChessBoard, TeamColor, int, int)
+    private static final long[] CASTLING_KEYS = new long[4];
+    // [en passant column - 1]
+    private static final long[] EN_PASSANT_KEYS = new long[ChessBoard.BOARD_SIDE_LENGTH];
+
+    static {
+        SplittableRandom random = new SplittableRandom(SEED);
+        for (long[] pieceKeys : PIECE_SQUARE_KEYS) {
+            for (int square = 0; square < NUM_SQUARES; ++square) {
+                pieceKeys[square] = random.nextLong();
+            }
+        }
+        BLACK_TO_MOVE_KEY = random.nextLong();
+        // drawn after the keys above, so adding them left every stored hash unchanged
+        for (int i = 0; i < CASTLING_KEYS.length; ++i) {
+            CASTLING_KEYS[i] = random.nextLong();
+        }
+        for (int i = 0; i < EN_PASSANT_KEYS.length; ++i) {
+            EN_PASSANT_KEYS[i] = random.nextLong();
+        }
+    }
+
+    private ZobristHash() {
+    }
+
+    /**
+     * Hash a position (does not allocate)
+     *
+     * @param board    the board to hash
+     * @param teamTurn the team whose turn it is
+     * @return the 64-bit hash of the position
+     */
+    public static long hash(ChessBoard board, ChessGame.TeamColor teamTurn) {
+        long hash = (teamTurn == ChessGame.TeamColor.BLACK) ? BLACK_TO_MOVE_KEY : 0L;
+        for (int row = 1; row <= ChessBoard.BOARD_SIDE_LENGTH; ++row) {
+            for (int col = 1; col <= ChessBoard.BOARD_SIDE_LENGTH; ++col) {
+                ChessPiece piece = board.getPiece(row, col);
+                if (piece != null) {
+                    hash ^= PIECE_SQUARE_KEYS[pieceKind(piece)][((row - 1) * ChessBoard.BOARD_SIDE_LENGTH) + (col - 1)];
+                }
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * Hash a position including its castling and en passant rights (does not allocate)
+     *
+     * @param board           the board to hash
+     * @param teamTurn        the team whose turn it is
+     * @param castlingRights  bit 0: white queenside, bit 1: white kingside, bit 2: black queenside,
+     *                        bit 3: black kingside
+     * @param enPassantColumn the column a pawn can be captured en passant on (0 for none)
+     * @return the 64-bit hash of the position, equal to hash(board, teamTurn) without any rights
+     */
+    public static long hash(ChessBoard board, ChessGame.TeamColor teamTurn, int castlingRights,
+                            int enPassantColumn) {
+        long hash = ZobristHash.hash(board, teamTurn);
+        for (int i = 0; i < CASTLING_KEYS.length; ++i) {
+            if ((castlingRights & (1 << i)) != 0) {
+                hash ^= CASTLING_KEYS[i];
+            }
+        }
+        if (enPassantColumn > 0) {
+            hash ^= EN_PASSANT_KEYS[enPassantColumn - 1];
+        }
+        return hash;
+    }
+
+    private static int pieceKind(ChessPiece piece) {
+        return ((piece.getTeamColor() == ChessGame.TeamColor.WHITE) ? 0 : NUM_PIECE_TYPES)
+                + piece.getPieceType().ordinal();
+    }
+}
@@ -0,0 +1,324 @@
+package chess.engine;
+
+import chess.*;
+import chess.tablebases.EndgameTablebase;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Finds the best move in a position with an iterative-deepening alpha-beta (negamax) search over ChessGame.
+ * <p>
+ * Scores are in centipawns for the team to move. A forced mate scores (MATE_SCORE - plies to mate),
+ * negated when the team to move is the one getting mated.
+ * If an EndgameTablebase is given, positions it covers are scored exactly instead of searched.
+ * An engine holds no search state, so one instance can search on several threads at once.
+ */
+public class ChessEngine {
+    public static final int MATE_SCORE = 1000000;
+    // any score at least this large (in magnitude) is a forced mate
+    public static final int MATE_THRESHOLD = MATE_SCORE - 1000;
+    private static final int INFINITY = MATE_SCORE + 1;
+    // check the clock every this many nodes (must be a power of 2)
+    private static final int NODES_PER_CLOCK_CHECK = 256;
+    // total non-pawn material (both teams) at or below which kings should move to the center
+    private static final int ENDGAME_MATERIAL = 1300;
+
+    private final EndgameTablebase tablebase;
+
+    /**
+     * Create an engine using the installed tablebase, if any
+     */
+    public ChessEngine() {
+        this(EndgameTablebase.getInstalled());
+    }
+
+    /**
+     * @param tablebase endgame tables to score small positions with, or null to always search
+     */
+    public ChessEngine(EndgameTablebase tablebase) {
+        this.tablebase = tablebase;
+    }
+
+    /**
+     * Thrown inside a search to unwind it when its time runs out or its thread is interrupted
+     */
+    private static class SearchAbortedException extends RuntimeException {
+        SearchAbortedException() {
+            super(null, null, false, false);
+        }
+    }
+
+    /**
+     * Search a position, one ply deeper at a time, until the maximum depth or the time limit is reached
+     * (the first ply is always completed, so the result always has a best move if any move is legal).
+     * The search also stops early if its thread is interrupted or a forced mate is found.
+     *
+     * @param game             the game to search (not modified)
+     * @param maxDepth         the maximum depth to search, in plies
+     * @param timeLimitMillis  the time limit for the whole search, in milliseconds
+     * @param onDepthCompleted called with the result of every completed depth (may be null)
+     * @return the result of the deepest completed search
+     */
+    public SearchResult search(ChessGame game, int maxDepth, long timeLimitMillis,
+                               Consumer<SearchResult> onDepthCompleted) {
+        Search search = new Search(System.currentTimeMillis() + timeLimitMillis);
+        SearchResult tablebaseResult = this.tablebaseResult(game, maxDepth);
+        if (tablebaseResult != null) {
+            if (onDepthCompleted != null) {
+                onDepthCompleted.accept(tablebaseResult);
+            }
+            return tablebaseResult;
+        }
+        SearchResult result = null;
+        for (int depth = 1; depth <= Math.max(1, maxDepth); ++depth) {
+            List<ChessMove> principalVariation = new ArrayList<>();
+            int score;
+            try {
+                score = search.alphaBeta(game, depth, 0, -INFINITY, INFINITY, principalVariation);
+            } catch (SearchAbortedException e) {
+                break;
+            }
+            result = new SearchResult(depth, score, List.copyOf(principalVariation), search.nodes);
+            if (onDepthCompleted != null) {
+                onDepthCompleted.accept(result);
+            }
+            search.previousPrincipalVariation = principalVariation;
+            search.canAbort = true;
+            // a deeper search cannot improve on a forced mate
+            if (result.isMate()) {
+                break;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * The state of a single search
+     */
+    private final class Search {
+        private final long deadline;
+        private long nodes;
+        private boolean canAbort;
+        private List<ChessMove> previousPrincipalVariation;
+
+        Search(long deadline) {
+            this.deadline = deadline;
+            this.nodes = 0;
+            this.canAbort = false;
+            this.previousPrincipalVariation = List.of();
+        }
+
+        /**
+         * Negamax alpha-beta search
+         *
+         * @param principalVariation filled with the best line found from this position (if the score is in the window)
+         * @return the score of the position for the team to move
+         */
+        int alphaBeta(ChessGame game, int depth, int ply, int alpha, int beta, List<ChessMove> principalVariation) {
+            this.nodes++;
+            if (this.canAbort && ((this.nodes & (NODES_PER_CLOCK_CHECK - 1)) == 0)
+                    && ((System.currentTimeMillis() > this.deadline) || Thread.currentThread().isInterrupted())) {
+                throw new SearchAbortedException();
+            }
+            if (ply > 0) {
+                Integer tablebaseScore = ChessEngine.this.tablebaseScore(game, ply);
+                if (tablebaseScore != null) {
+                    return tablebaseScore;
+                }
+            }
+            if (depth == 0) {
+                return evaluate(game);
+            }
+            List<ChessMove> moves = this.orderMoves(game, ply);
+            if (moves.isEmpty()) {
+                // checkmate (sooner is worse) or stalemate
+                return game.isInCheck(game.getTeamTurn()) ? -(MATE_SCORE - ply) : 0;
+            }
+            int bestScore = -INFINITY;
+            List<ChessMove> childPrincipalVariation = new ArrayList<>();
+            for (ChessMove move : moves) {
+                childPrincipalVariation.clear();
+                int score = -this.alphaBeta(game.copyWithMove(move), (depth - 1), (ply + 1),
+                        -beta, -alpha, childPrincipalVariation);
+                if (score > bestScore) {
+                    bestScore = score;
+                    if (score > alpha) {
+                        alpha = score;
+                        principalVariation.clear();
+                        principalVariation.add(move);
+                        principalVariation.addAll(childPrincipalVariation);
+                    }
+                    if (alpha >= beta) {
+                        break;
+                    }
+                }
+            }
+            return bestScore;
+        }
+
+        /**
+         * Order legal moves so the likely best are searched first (previous best line, then captures by
+         * most valuable victim and least valuable attacker, then promotions)
+         */
+        private List<ChessMove> orderMoves(ChessGame game, int ply) {
+            ChessBoard board = game.getBoard();
+            ChessMove previousBest = (ply < this.previousPrincipalVariation.size())
+                    ? this.previousPrincipalVariation.get(ply) : null;
+            List<ChessMove> moves = new ArrayList<>(game.legalMoves());
+            List<Integer> keys = new ArrayList<>(moves.size());
+            for (ChessMove move : moves) {
+                int key = 0;
+                ChessPiece victim = board.getPiece(move.getEndPosition());
+                if (move.equals(previousBest)) {
+                    key = INFINITY;
+                } else if (victim != null) {
+                    key = (10 * pieceValue(victim.getPieceType()))
+                            - pieceValue(board.getPiece(move.getStartPosition()).getPieceType());
+                }
+                if (move.getPromotionPiece() != null) {
+                    key += pieceValue(move.getPromotionPiece());
+                }
+                keys.add(key);
+            }
+            // insertion sort, descending (move lists are short)
+            for (int i = 1; i < moves.size(); ++i) {
+                for (int j = i; (j > 0) && (keys.get(j - 1) < keys.get(j)); --j) {
+                    keys.set(j, keys.set(j - 1, keys.get(j)));
+                    moves.set(j, moves.set(j - 1, moves.get(j)));
+                }
+            }
+            return moves;
+        }
+    }
+
+    // TABLEBASE //////////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * @return the exact score of a position from the tablebase, or null if it is not covered
+     */
+    private Integer tablebaseScore(ChessGame game, int ply) {
+        if (this.tablebase == null) {
+            return null;
+        }
+        EndgameTablebase.ProbeResult probe = this.tablebase.probe(game.getBoard(), game.getTeamTurn());
+        if (probe == null) {
+            return null;
+        }
+        return switch (probe.outcome()) {
+            case WIN -> (MATE_SCORE - ply - ((2 * probe.movesToMate()) - 1));
+            case LOSS -> -(MATE_SCORE - ply - (2 * probe.movesToMate()));
+            case DRAW -> 0;
+        };
+    }
+
+    /**
+     * If the tablebase covers a position and every position after it, play the best line straight from the tables
+     *
+     * @return the tablebase line (up to maxDepth plies), or null if the position is not covered
+     */
+    private SearchResult tablebaseResult(ChessGame game, int maxDepth) {
+        if (this.tablebaseScore(game, 0) == null) {
+            return null;
+        }
+        List<ChessMove> principalVariation = new ArrayList<>();
+        int rootScore = 0;
+        long nodes = 0;
+        ChessGame position = game;
+        while (principalVariation.size() < Math.max(1, maxDepth)) {
+            ChessMove bestMove = null;
+            int bestScore = -INFINITY;
+            for (ChessMove move : position.legalMoves()) {
+                nodes++;
+                Integer childScore = this.tablebaseScore(position.copyWithMove(move), 1);
+                if (childScore == null) {
+                    // a move leaves the tables (e.g. the material is missing a table), so search instead
+                    return principalVariation.isEmpty() ? null
+                            : new SearchResult(principalVariation.size(), rootScore, List.copyOf(principalVariation), nodes);
+                }
+                if (-childScore > bestScore) {
+                    bestScore = -childScore;
+                    bestMove = move;
+                }
+            }
+            if (bestMove == null) {
+                break;
+            }
+            if (principalVariation.isEmpty()) {
+                rootScore = bestScore;
+            }
+            principalVariation.add(bestMove);
+            position = position.copyWithMove(bestMove);
+        }
+        if (principalVariation.isEmpty()) {
+            // no legal moves: checkmate or stalemate
+            return new SearchResult(0, this.tablebaseScore(game, 0), List.of(), nodes);
+        }
+        return new SearchResult(principalVariation.size(), rootScore, List.copyOf(principalVariation), nodes);
+    }
+
+    // EVALUATION /////////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Statically evaluate a position: material, with small bonuses for centralized minor pieces,
+     * advanced pawns, and (in the endgame) a centralized king
+     *
+     * @param game the game to evaluate
+     * @return the evaluation in centipawns for the team to move
+     */
+    public static int evaluate(ChessGame game) {
+        ChessBoard board = game.getBoard();
+        int nonPawnMaterial = 0;
+        for (int row = 1; row <= ChessBoard.BOARD_SIDE_LENGTH; ++row) {
+            for (int col = 1; col <= ChessBoard.BOARD_SIDE_LENGTH; ++col) {
+                ChessPiece piece = board.getPiece(row, col);
+                if ((piece != null) && (piece.getPieceType() != ChessPiece.PieceType.PAWN)) {
+                    nonPawnMaterial += pieceValue(piece.getPieceType());
+                }
+            }
+        }
+        boolean isEndgame = (nonPawnMaterial <= ENDGAME_MATERIAL);
+        int score = 0;
+        for (int row = 1; row <= ChessBoard.BOARD_SIDE_LENGTH; ++row) {
+            for (int col = 1; col <= ChessBoard.BOARD_SIDE_LENGTH; ++col) {
+                ChessPiece piece = board.getPiece(row, col);
+                if (piece == null) {
+                    continue;
+                }
+                boolean isWhite = (piece.getTeamColor() == ChessGame.TeamColor.WHITE);
+                int advancement = isWhite ? (row - 2) : (ChessBoard.BOARD_SIDE_LENGTH - 1 - row);
+                int pieceScore = pieceValue(piece.getPieceType()) + switch (piece.getPieceType()) {
+                    case PAWN -> (advancement * advancement * 2);
+                    case KNIGHT -> -(10 * centerDistance(row, col));
+                    case BISHOP -> -(5 * centerDistance(row, col));
+                    case KING -> isEndgame ? -(10 * centerDistance(row, col)) : 0;
+                    default -> 0;
+                };
+                score += isWhite ? pieceScore : -pieceScore;
+            }
+        }
+        return (game.getTeamTurn() == ChessGame.TeamColor.WHITE) ? score : -score;
+    }
+
+    /**
+     * @return the number of king steps from a square to the 4 center squares (0-3)
+     */
+    private static int centerDistance(int row, int col) {
+        return (Math.max(Math.abs((2 * row) - 9), Math.abs((2 * col) - 9)) - 1) / 2;
+    }
+
+    /**
+     * @return the material value of a piece type in centipawns (kings have no material value)
+     */
+    public static int pieceValue(ChessPiece.PieceType pieceType) {
+        return switch (pieceType) {
+            case PAWN -> 100;
+            case KNIGHT -> 320;
+            case BISHOP -> 330;
+            case ROOK -> 500;
+            case QUEEN -> 900;
+            case KING -> 0;
+        };
+    }
+}
@@ -0,0 +1,209 @@
+package chess.engine;
+
+import chess.ChessGame;
+import chess.ChessMove;
+
+import java.util.*;
+
+/**
+ * Finds forced mates with a depth-limited AND/OR search over ChessGame: the attacker (the team to move)
+ * needs one move after which every defender reply still leads to mate, and the defender needs only one
+ * reply that escapes.
+ * <p>
+ * With checksOnly, the attacker only tries checking moves. This is much faster, but misses mates
+ * that need a quiet move.
+ * Proven results are cached by position hash (including castling and en passant rights, which change what
+ * can be played) for the length of one solve() call, so a solver instance
+ * is not thread-safe. Use one solver per thread.
+ */
+public class MateSolver {
+    private final boolean checksOnly;
+    // position hash -> the fewest attacker moves the position is known to mate in
+    private final Map<Long, Integer> provenMate;
+    // position hash -> the most attacker moves the position is known not to mate in
+    private final Map<Long, Integer> provenNoMate;
+    private long nodes;
+
+    /**
+     * A key (first) move that forces mate, with one line of best play after it
+     *
+     * @param keyMove     the attacker's first move
+     * @param movesToMate the number of attacker moves (including the key move) needed to mate
+     *                    against the best defense
+     * @param line        the key move followed by the longest defense and the fastest mate
+     */
+    public record MatingLine(ChessMove keyMove, int movesToMate, List<ChessMove> line) {
+    }
+
+    /**
+     * @param checksOnly whether the attacker only tries checking moves
+     */
+    public MateSolver(boolean checksOnly) {
+        this.checksOnly = checksOnly;
+        this.provenMate = new HashMap<>();
+        this.provenNoMate = new HashMap<>();
+        this.nodes = 0;
+    }
+
+    /**
+     * Find every key move that forces mate in at most maxMoves moves for the team to move
+     *
+     * @param game     the game to solve (not modified)
+     * @param maxMoves the most attacker moves to search (mate in N)
+     * @return the mating key moves, fastest first (empty if there is no forced mate)
+     */
+    public List<MatingLine> solve(ChessGame game, int maxMoves) {
+        this.provenMate.clear();
+        this.provenNoMate.clear();
+        List<MatingLine> lines = new ArrayList<>();
+        for (ChessMove keyMove : this.attackerMoves(game)) {
+            ChessGame afterKey = game.copyWithMove(keyMove);
+            // the shortest mate this key move forces, if any
+            for (int moves = 1; moves <= maxMoves; ++moves) {
+                if (this.defenderLoses(afterKey, (moves - 1))) {
+                    List<ChessMove> line = new ArrayList<>();
+                    line.add(keyMove);
+                    this.extendLine(afterKey, (moves - 1), line);
+                    lines.add(new MatingLine(keyMove, moves, line));
+                    break;
+                }
+            }
+        }
+        lines.sort(Comparator.comparingInt(MatingLine::movesToMate));
+        return lines;
+    }
+
+    /**
+     * @param game     the game to solve (not modified)
+     * @param maxMoves the most attacker moves to search
+     * @return the fewest moves the team to move can force mate in, or -1 if it cannot within maxMoves
+     */
+    public int mateIn(ChessGame game, int maxMoves) {
+        this.provenMate.clear();
+        this.provenNoMate.clear();
+        for (int moves = 1; moves <= maxMoves; ++moves) {
+            if (this.attackerMates(game, moves)) {
+                return moves;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return the number of positions searched by this solver
+     */
+    public long getNodes() {
+        return this.nodes;
+    }
+
+    /**
+     * OR node: whether the team to move can force mate in at most the given number of moves
+     */
+    private boolean attackerMates(ChessGame game, int moves) {
+        this.nodes++;
+        if (moves <= 0) {
+            return false;
+        }
+        long hash = game.positionHash();
+        Integer mateMoves = this.provenMate.get(hash);
+        if ((mateMoves != null) && (mateMoves <= moves)) {
+            return true;
+        }
+        Integer noMateMoves = this.provenNoMate.get(hash);
+        if ((noMateMoves != null) && (noMateMoves >= moves)) {
+            return false;
+        }
+        for (ChessMove move : this.attackerMoves(game)) {
+            if (this.defenderLoses(game.copyWithMove(move), (moves - 1))) {
+                this.provenMate.merge(hash, moves, Math::min);
+                return true;
+            }
+        }
+        this.provenNoMate.merge(hash, moves, Math::max);
+        return false;
+    }
+
+    /**
+     * AND node: whether every move of the team to move (the defender) still allows mate
+     * in the given number of attacker moves (0: the defender must already be checkmated)
+     */
+    private boolean defenderLoses(ChessGame game, int moves) {
+        this.nodes++;
+        Collection<ChessMove> replies = game.legalMoves();
+        if (replies.isEmpty()) {
+            // checkmate, or an escape by stalemate
+            return game.isInCheck(game.getTeamTurn());
+        }
+        if (moves == 0) {
+            return false;
+        }
+        for (ChessMove reply : replies) {
+            if (!this.attackerMates(game.copyWithMove(reply), moves)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The attacker moves to try, checks first (only checks if checksOnly)
+     */
+    private List<ChessMove> attackerMoves(ChessGame game) {
+        ChessGame.TeamColor defender = (game.getTeamTurn() == ChessGame.TeamColor.WHITE)
+                ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE;
+        List<ChessMove> checks = new ArrayList<>();
+        List<ChessMove> others = new ArrayList<>();
+        for (ChessMove move : game.legalMoves()) {
+            if (game.copyWithMove(move).isInCheck(defender)) {
+                checks.add(move);
+            } else if (!this.checksOnly) {
+                others.add(move);
+            }
+        }
+        checks.addAll(others);
+        return checks;
+    }
+
+    /**
+     * Extend a mating line from a defender position that loses in the given number of attacker moves:
+     * the defender plays the reply that delays mate longest, and the attacker the fastest mate
+     */
+    private void extendLine(ChessGame defenderGame, int moves, List<ChessMove> line) {
+        ChessGame game = defenderGame;
+        for (int remaining = moves; remaining > 0; --remaining) {
+            // the defender's reply with the longest resistance
+            ChessMove bestReply = null;
+            int longest = -1;
+            for (ChessMove reply : game.legalMoves()) {
+                ChessGame afterReply = game.copyWithMove(reply);
+                int mateMoves = remaining;
+                while ((mateMoves > 1) && this.attackerMates(afterReply, (mateMoves - 1))) {
+                    mateMoves--;
+                }
+                if (mateMoves > longest) {
+                    longest = mateMoves;
+                    bestReply = reply;
+                }
+            }
+            if (bestReply == null) {
+                return;
+            }
+            line.add(bestReply);
+            game = game.copyWithMove(bestReply);
+            // the attacker's fastest mating move
+            ChessMove bestMove = null;
+            for (ChessMove move : this.attackerMoves(game)) {
+                if (this.defenderLoses(game.copyWithMove(move), (longest - 1))) {
+                    bestMove = move;
+                    break;
+                }
+            }
+            if (bestMove == null) {
+                return;
+            }
+            line.add(bestMove);
+            game = game.copyWithMove(bestMove);
+            remaining = longest;
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package chess.engine;
+
+import chess.ChessGame;
+import chess.ChessNotation;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Offline tool that checks that every puzzle in a file has exactly one key move forcing mate in its stated
+ * number of moves (and no faster mate), solving puzzles in parallel.
+ * <p>
+ * Puzzle file: one puzzle per line, "[FEN];[N]" for a mate in N ("#" starts a comment line).
+ * <p>
+ * With --checks-only, each puzzle is first searched trying only checking key moves, which quickly rejects
+ * puzzles with a faster mate or a second key among the checks. Since that search cannot see quiet key moves,
+ * every puzzle it does not reject is still confirmed by a full-width search.
+ * <p>
+ * Usage: PuzzleValidator puzzles.txt [--threads N] [--checks-only]
+ */
+public class PuzzleValidator {
+    /**
+     * A puzzle read from the file
+     */
+    private record Puzzle(int lineNumber, String fen, int mateIn) {
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException, ExecutionException {
+        if (args.length < 1) {
+            System.err.println("Usage: PuzzleValidator <puzzles.txt> [--threads N] [--checks-only]");
+            System.exit(1);
+        }
+        int threads = Runtime.getRuntime().availableProcessors();
+        boolean checksOnly = false;
+        for (int i = 1; i < args.length; ++i) {
+            if (args[i].equals("--threads") && ((i + 1) < args.length)) {
+                threads = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--checks-only")) {
+                checksOnly = true;
+            }
+        }
+        List<Puzzle> puzzles = readPuzzles(Path.of(args[0]));
+        // one solver per thread, since solvers keep a per-solve cache
+        ThreadLocal<MateSolver> solvers = ThreadLocal.withInitial(() -> new MateSolver(false));
+        ThreadLocal<MateSolver> checksSolvers = ThreadLocal.withInitial(() -> new MateSolver(true));
+        final boolean useChecksSolver = checksOnly;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<String>> results = new ArrayList<>();
+        for (Puzzle puzzle : puzzles) {
+            results.add(executor.submit(() -> validate(puzzle.fen(), puzzle.mateIn(), solvers.get(),
+                    (useChecksSolver ? checksSolvers.get() : null))));
+        }
+        int failures = 0;
+        for (int i = 0; i < puzzles.size(); ++i) {
+            String failure = results.get(i).get();
+            if (failure != null) {
+                failures++;
+                System.out.printf("line %d: FAIL %s%n", puzzles.get(i).lineNumber(), failure);
+            }
+        }
+        executor.shutdown();
+        System.out.printf("%d puzzles, %d failed%n", puzzles.size(), failures);
+        System.exit((failures == 0) ? 0 : 1);
+    }
+
+    /**
+     * Validate one puzzle
+     *
+     * @param fen          the puzzle's position
+     * @param mateIn       the number of moves the puzzle claims the key move mates in
+     * @param solver       a full-width solver (not checks-only)
+     * @param checksSolver a checks-only solver to try first, or null to only search full-width
+     * @return why the puzzle is invalid, or null if it is valid
+     */
+    public static String validate(String fen, int mateIn, MateSolver solver, MateSolver checksSolver) {
+        ChessGame game;
+        try {
+            game = ChessNotation.parseFen(fen);
+        } catch (IllegalArgumentException e) {
+            return e.getMessage();
+        }
+        if (checksSolver != null) {
+            // every mate the checks-only search finds is real, so a faster mate or second key among them
+            // rejects the puzzle, but finding none (or one) proves nothing about the quiet moves
+            List<MateSolver.MatingLine> checkingLines = checksSolver.solve(game, mateIn);
+            String failure = checkingLines.isEmpty() ? null : checkLines(checkingLines, mateIn);
+            if (failure != null) {
+                return failure;
+            }
+        }
+        return checkLines(solver.solve(game, mateIn), mateIn);
+    }
+
+    /**
+     * @param lines  the mating lines found, fastest first
+     * @param mateIn the number of moves the puzzle claims the key move mates in
+     * @return why the lines do not make a valid puzzle, or null if they do
+     */
+    private static String checkLines(List<MateSolver.MatingLine> lines, int mateIn) {
+        if (lines.isEmpty()) {
+            return "no forced mate in " + mateIn;
+        }
+        if (lines.get(0).movesToMate() < mateIn) {
+            return String.format("faster mate in %d (%s)", lines.get(0).movesToMate(),
+                    ChessNotation.toCoordinate(lines.get(0).keyMove()));
+        }
+        if (lines.size() > 1) {
+            List<String> keyMoves = new ArrayList<>();
+            for (MateSolver.MatingLine line : lines) {
+                keyMoves.add(ChessNotation.toCoordinate(line.keyMove()));
+            }
+            return String.format("%d key moves mate in %d %s", lines.size(), mateIn, keyMoves);
+        }
+        return null;
+    }
+
+    private static List<Puzzle> readPuzzles(Path file) throws IOException {
+        List<Puzzle> puzzles = new ArrayList<>();
+        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        for (int i = 0; i < lines.size(); ++i) {
+            String line = lines.get(i).trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            String[] fields = line.split(";");
+            if (fields.length != 2) {
+                System.err.printf("line %d: expected [FEN];[N], skipping%n", (i + 1));
+                continue;
+            }
+            puzzles.add(new Puzzle((i + 1), fields[0].trim(), Integer.parseInt(fields[1].trim())));
+        }
+        return puzzles;
+    }
+}
@@ -0,0 +1,39 @@
+package chess.engine;
+
+import chess.ChessMove;
+
+import java.util.List;
+
+/**
+ * The result of searching a position to a fixed depth
+ *
+ * @param depth              the depth (in plies) the search completed
+ * @param score              the evaluation in centipawns for the team to move
+ *                           (at least ChessEngine.MATE_THRESHOLD in magnitude when a mate was found)
+ * @param principalVariation the best line found, starting with the best move (empty if there are no legal moves)
+ * @param nodes              the number of positions searched so far
+ */
+public record SearchResult(int depth, int score, List<ChessMove> principalVariation, long nodes) {
+    /**
+     * @return the best move found, or null if there are no legal moves
+     */
+    public ChessMove bestMove() {
+        return this.principalVariation.isEmpty() ? null : this.principalVariation.get(0);
+    }
+
+    /**
+     * @return whether the score is a forced mate (for either team)
+     */
+    public boolean isMate() {
+        return (Math.abs(this.score) >= ChessEngine.MATE_THRESHOLD);
+    }
+
+    /**
+     * @return the number of moves until mate (negative if the team to move is mated),
+     * only meaningful if isMate()
+     */
+    public int movesToMate() {
+        int plies = ChessEngine.MATE_SCORE - Math.abs(this.score);
+        return (this.score > 0) ? ((plies + 1) / 2) : -(plies / 2);
+    }
+}
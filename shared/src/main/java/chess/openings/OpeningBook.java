@@ -0,0 +1,150 @@
+package chess.openings;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A read-only table of named opening positions, memory-mapped from a file built by OpeningBookBuilder.
+ * <p>
+ * The table lives in the OS page cache rather than the heap, so one instance can be shared by every game
+ * (and every thread) with no heap cost proportional to the table size.
+ * <p>
+ * File layout (big-endian):
+ * <pre>
+ * header:  int MAGIC, int entryCount, int maxPly, int namesOffset
+ * entries: entryCount x { long positionHash, int nameOffset, short ecoCode, short nameLength }, sorted by hash
+ * names:   UTF-8 opening names, addressed relative to namesOffset
+ * </pre>
+ * ecoCode packs the ECO volume and number as (letter - 'A') * 100 + number (e.g. "C50" -> 250)
+ */
+public class OpeningBook {
+    public static final int MAGIC = 0x45434F31; // "ECO1"
+    public static final int HEADER_SIZE = 16;
+    public static final int ENTRY_SIZE = 16;
+
+    // the book used by ChessGame to label games (null if none installed)
+    private static volatile OpeningBook installed = null;
+
+    private final MappedByteBuffer table;
+    private final int entryCount;
+    private final int maxPly;
+    private final int namesOffset;
+
+    private OpeningBook(MappedByteBuffer table) throws IOException {
+        this.table = table;
+        this.table.order(ByteOrder.BIG_ENDIAN);
+        if ((table.capacity() < HEADER_SIZE) || (table.getInt(0) != MAGIC)) {
+            throw new IOException("not an opening book file");
+        }
+        this.entryCount = table.getInt(4);
+        this.maxPly = table.getInt(8);
+        this.namesOffset = table.getInt(12);
+        if ((this.namesOffset < HEADER_SIZE + ((long) this.entryCount * ENTRY_SIZE))
+                || (this.namesOffset > table.capacity())) {
+            throw new IOException("corrupt opening book file");
+        }
+    }
+
+    /**
+     * Memory-map an opening book file
+     *
+     * @param path the path of the book file
+     * @return the mapped opening book
+     * @throws IOException if the file cannot be read or is not a valid book
+     */
+    public static OpeningBook open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            // the mapping stays valid after the channel is closed
+            return new OpeningBook(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Install the book used to label every ChessGame (null to stop labeling)
+     */
+    public static void install(OpeningBook openingBook) {
+        installed = openingBook;
+    }
+
+    /**
+     * @return the installed book, or null if there is none
+     */
+    public static OpeningBook getInstalled() {
+        return installed;
+    }
+
+    /**
+     * @return the number of positions in the book
+     */
+    public int size() {
+        return this.entryCount;
+    }
+
+    /**
+     * @return the number of plies in the longest book line (no position past this ply is in the book)
+     */
+    public int getMaxPly() {
+        return this.maxPly;
+    }
+
+    /**
+     * Binary search the table for a position (does not allocate, safe for concurrent use)
+     *
+     * @param positionHash the ZobristHash of the position
+     * @return the index of the matching entry, or -1 if the position is not in the book
+     */
+    public int find(long positionHash) {
+        int low = 0;
+        int high = this.entryCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long midHash = this.table.getLong(entryOffset(mid));
+            if (midHash < positionHash) {
+                low = mid + 1;
+            } else if (midHash > positionHash) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @param entry an entry index returned by find()
+     * @return the ECO code of the entry (e.g. "C50")
+     */
+    public String getEcoCode(int entry) {
+        int ecoCode = this.table.getShort(entryOffset(entry) + 12);
+        return String.format("%c%02d", (char) ('A' + (ecoCode / 100)), (ecoCode % 100));
+    }
+
+    /**
+     * @param entry an entry index returned by find()
+     * @return the opening name of the entry (e.g. "Italian Game")
+     */
+    public String getName(int entry) {
+        int nameOffset = this.table.getInt(entryOffset(entry) + 8);
+        int nameLength = Short.toUnsignedInt(this.table.getShort(entryOffset(entry) + 14));
+        byte[] name = new byte[nameLength];
+        this.table.get((this.namesOffset + nameOffset), name);
+        return new String(name, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @param entry an entry index returned by find()
+     * @return the display label of the entry (e.g. "C50 Italian Game")
+     */
+    public String getLabel(int entry) {
+        return this.getEcoCode(entry) + " " + this.getName(entry);
+    }
+
+    private static int entryOffset(int entry) {
+        return HEADER_SIZE + (entry * ENTRY_SIZE);
+    }
+}
@@ -0,0 +1,189 @@
+package chess.openings;
+
+import chess.ChessGame;
+import chess.ChessNotation;
+import chess.InvalidMoveException;
+import chess.ZobristHash;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Offline tool that builds an OpeningBook file from a PGN file of named opening lines
+ * (one "game" per opening, with [ECO], [Opening] and optionally [Variation] tags).
+ * <p>
+ * Usage: OpeningBookBuilder input.pgn output.book
+ */
+public class OpeningBookBuilder {
+    private static final Pattern HEADER_PATTERN = Pattern.compile("^\\[(\\w+)\\s+\"(.*)\"]\\s*$");
+    private static final Pattern ECO_PATTERN = Pattern.compile("^[A-E][0-9]{2}$");
+
+    /**
+     * A named opening line read from the PGN file
+     */
+    private record Line(String ecoCode, String name, List<String> sanMoves) {
+    }
+
+    /**
+     * A named position to write to the book
+     */
+    private record Entry(long positionHash, String ecoCode, String name) {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: OpeningBookBuilder <input.pgn> <output.book>");
+            System.exit(1);
+        }
+        try (Reader pgn = Files.newBufferedReader(Path.of(args[0]), StandardCharsets.UTF_8)) {
+            int size = build(pgn, Path.of(args[1]));
+            System.out.printf("Wrote %d opening positions to %s%n", size, args[1]);
+        }
+    }
+
+    /**
+     * Build an opening book from PGN text
+     *
+     * @param pgn    the PGN text of the named opening lines
+     * @param output the path to write the book file to
+     * @return the number of positions written
+     * @throws IOException if the PGN cannot be read or the book cannot be written
+     */
+    public static int build(Reader pgn, Path output) throws IOException {
+        // replay each line, naming its final position (the first line to reach a position names it)
+        Map<Long, Entry> entries = new HashMap<>();
+        int maxPly = 0;
+        for (Line line : readLines(pgn)) {
+            ChessGame game = new ChessGame();
+            try {
+                for (String san : line.sanMoves()) {
+                    game.makeMove(ChessNotation.parseSan(game, san));
+                }
+            } catch (InvalidMoveException e) {
+                System.err.printf("Skipping %s %s: %s%n", line.ecoCode(), line.name(), e.getMessage());
+                continue;
+            }
+            long positionHash = ZobristHash.hash(game.getBoard(), game.getTeamTurn());
+            entries.putIfAbsent(positionHash, new Entry(positionHash, line.ecoCode(), line.name()));
+            maxPly = Math.max(maxPly, line.sanMoves().size());
+        }
+        writeBook(new ArrayList<>(entries.values()), maxPly, output);
+        return entries.size();
+    }
+
+    /**
+     * Write the sorted table and the (de-duplicated) name strings to a book file
+     */
+    private static void writeBook(List<Entry> entries, int maxPly, Path output) throws IOException {
+        entries.sort(Comparator.comparingLong(Entry::positionHash));
+        // lay out the names section, sharing repeated names
+        Map<String, Integer> nameOffsets = new HashMap<>();
+        ByteArrayOutputStream names = new ByteArrayOutputStream();
+        for (Entry entry : entries) {
+            if (!nameOffsets.containsKey(entry.name())) {
+                nameOffsets.put(entry.name(), names.size());
+                names.write(entry.name().getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(output)))) {
+            out.writeInt(OpeningBook.MAGIC);
+            out.writeInt(entries.size());
+            out.writeInt(maxPly);
+            out.writeInt(OpeningBook.HEADER_SIZE + (entries.size() * OpeningBook.ENTRY_SIZE));
+            for (Entry entry : entries) {
+                int nameLength = entry.name().getBytes(StandardCharsets.UTF_8).length;
+                out.writeLong(entry.positionHash());
+                out.writeInt(nameOffsets.get(entry.name()));
+                out.writeShort(((entry.ecoCode().charAt(0) - 'A') * 100) + Integer.parseInt(entry.ecoCode().substring(1)));
+                out.writeShort(Math.min(nameLength, 0xFFFF));
+            }
+            names.writeTo(out);
+        }
+    }
+
+    /**
+     * Split PGN text into named opening lines (lines without a valid ECO code are skipped)
+     */
+    private static List<Line> readLines(Reader pgn) throws IOException {
+        List<Line> lines = new ArrayList<>();
+        BufferedReader reader = new BufferedReader(pgn);
+        Map<String, String> headers = new HashMap<>();
+        StringBuilder moveText = new StringBuilder();
+        String textLine;
+        while ((textLine = reader.readLine()) != null) {
+            Matcher header = HEADER_PATTERN.matcher(textLine.trim());
+            if (header.matches()) {
+                // a header after move text starts the next game
+                if (!moveText.isEmpty()) {
+                    addLine(lines, headers, moveText.toString());
+                    headers.clear();
+                    moveText.setLength(0);
+                }
+                headers.put(header.group(1), header.group(2));
+            } else {
+                moveText.append(textLine).append('\n');
+            }
+        }
+        if (!moveText.isEmpty()) {
+            addLine(lines, headers, moveText.toString());
+        }
+        return lines;
+    }
+
+    private static void addLine(List<Line> lines, Map<String, String> headers, String moveText) {
+        String ecoCode = headers.get("ECO");
+        String opening = headers.get("Opening");
+        if ((ecoCode == null) || !ECO_PATTERN.matcher(ecoCode).matches() || (opening == null)) {
+            return;
+        }
+        String variation = headers.get("Variation");
+        String name = ((variation == null) || variation.isEmpty()) ? opening : (opening + ", " + variation);
+        List<String> sanMoves = parseMoveText(moveText);
+        if (!sanMoves.isEmpty()) {
+            lines.add(new Line(ecoCode, name, sanMoves));
+        }
+    }
+
+    /**
+     * Extract the main line SAN moves from PGN move text
+     * (drops comments, variations, move numbers, annotation glyphs, and the result)
+     */
+    private static List<String> parseMoveText(String moveText) {
+        StringBuilder mainLine = new StringBuilder();
+        int variationDepth = 0;
+        boolean inComment = false;
+        boolean inLineComment = false;
+        for (char c : moveText.toCharArray()) {
+            if (inLineComment) {
+                inLineComment = (c != '\n');
+            } else if (inComment) {
+                inComment = (c != '}');
+            } else if (c == '{') {
+                inComment = true;
+            } else if ((c == ';') && (variationDepth == 0)) {
+                inLineComment = true;
+            } else if (c == '(') {
+                variationDepth++;
+            } else if (c == ')') {
+                variationDepth = Math.max(0, variationDepth - 1);
+            } else if (variationDepth == 0) {
+                mainLine.append(c);
+            }
+        }
+        List<String> sanMoves = new ArrayList<>();
+        for (String token : mainLine.toString().trim().split("\\s+")) {
+            String san = token.replaceFirst("^[0-9]+\\.+", "");
+            if (san.isEmpty() || san.startsWith("$")
+                    || san.equals("1-0") || san.equals("0-1") || san.equals("1/2-1/2") || san.equals("*")) {
+                continue;
+            }
+            sanMoves.add(san);
+        }
+        return sanMoves;
+    }
+}
@@ -0,0 +1,170 @@
+package chess.tablebases;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessPiece;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Distance-to-mate endgame tables for positions with few pieces, built offline by TablebaseGenerator.
+ * <p>
+ * Each material signature ("KQvK", "KRvKP", ...) has one file, "[signature].tb", holding an 8-byte header
+ * (int MAGIC, int pieceCount) followed by one signed byte per table index (see MaterialSignature):
+ * <pre>
+ * 0       draw (or an impossible position)
+ * n > 0   the team to move mates in n moves
+ * n < 0   the team to move is mated in (-n - 1) moves (-1: checkmated now)
+ * </pre>
+ * Tables are memory-mapped, and a probe is a single array read (O(1)).
+ * Positions where black holds the stronger material are answered from the color-swapped table.
+ * NOTE: tables assume no castling or en passant rights
+ */
+public class EndgameTablebase {
+    public static final int MAGIC = 0x54424431; // "TBD1"
+    public static final int HEADER_SIZE = 8;
+    public static final int MAX_PIECES = 4;
+    public static final String FILE_EXTENSION = ".tb";
+
+    /**
+     * The result of a position for the team to move
+     */
+    public enum Outcome {
+        WIN,
+        LOSS,
+        DRAW
+    }
+
+    /**
+     * @param outcome     the result with perfect play, for the team to move
+     * @param movesToMate the number of moves (by the winner) until mate, or 0 for a draw or a position that is mate
+     */
+    public record ProbeResult(Outcome outcome, int movesToMate) {
+    }
+
+    // the tablebase used by default by engines (null if none installed)
+    private static volatile EndgameTablebase installed = null;
+
+    // signature name -> table values (one byte per index)
+    private final ConcurrentHashMap<String, Table> tables;
+
+    private record Table(MaterialSignature signature, ByteBuffer values) {
+    }
+
+    public EndgameTablebase() {
+        this.tables = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Memory-map every table file in a directory
+     *
+     * @param directory the directory containing "[signature].tb" files
+     * @return a tablebase with every table in the directory
+     * @throws IOException if a file cannot be read or is not a valid table
+     */
+    public static EndgameTablebase open(Path directory) throws IOException {
+        EndgameTablebase tablebase = new EndgameTablebase();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + FILE_EXTENSION)) {
+            for (Path file : files) {
+                String fileName = file.getFileName().toString();
+                MaterialSignature signature = MaterialSignature.parse(
+                        fileName.substring(0, fileName.length() - FILE_EXTENSION.length()));
+                try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                    MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                    if ((mapped.capacity() != (HEADER_SIZE + signature.size()))
+                            || (mapped.getInt(0) != MAGIC) || (mapped.getInt(4) != signature.getPieceCount())) {
+                        throw new IOException("invalid tablebase file: " + fileName);
+                    }
+                    tablebase.addTable(signature, mapped.slice(HEADER_SIZE, signature.size()));
+                }
+            }
+        }
+        return tablebase;
+    }
+
+    /**
+     * Install the tablebase used by default by engines (null to stop using one)
+     */
+    public static void install(EndgameTablebase tablebase) {
+        installed = tablebase;
+    }
+
+    /**
+     * @return the installed tablebase, or null if there is none
+     */
+    public static EndgameTablebase getInstalled() {
+        return installed;
+    }
+
+    /**
+     * Add a table (values must hold one byte per index of the signature)
+     */
+    void addTable(MaterialSignature signature, ByteBuffer values) {
+        this.tables.put(signature.getName(), new Table(signature, values));
+    }
+
+    /**
+     * @param signatureName the name of a material signature (e.g. "KQvK")
+     * @return whether this tablebase has a table for the signature
+     */
+    public boolean hasTable(String signatureName) {
+        return this.tables.containsKey(signatureName);
+    }
+
+    /**
+     * Look up the perfect-play result of a position
+     * (positions with only the two kings are always draws)
+     *
+     * @param board    the board
+     * @param teamTurn the team to move
+     * @return the result for the team to move, or null if there is no table for the position's material
+     */
+    public ProbeResult probe(ChessBoard board, ChessGame.TeamColor teamTurn) {
+        int pieceCount = 0;
+        for (int row = 1; row <= ChessBoard.BOARD_SIDE_LENGTH; ++row) {
+            for (int col = 1; col <= ChessBoard.BOARD_SIDE_LENGTH; ++col) {
+                ChessPiece piece = board.getPiece(row, col);
+                if (piece != null) {
+                    pieceCount++;
+                }
+            }
+        }
+        if (pieceCount > MAX_PIECES) {
+            return null;
+        }
+        if (pieceCount == 2) {
+            return new ProbeResult(Outcome.DRAW, 0);
+        }
+        boolean flipped = false;
+        Table table = this.tables.get(MaterialSignature.nameOf(board, false));
+        if (table == null) {
+            flipped = true;
+            table = this.tables.get(MaterialSignature.nameOf(board, true));
+        }
+        if (table == null) {
+            return null;
+        }
+        return decode(table.values().get(table.signature().indexOf(board, teamTurn, flipped)));
+    }
+
+    /**
+     * @param value a table value
+     * @return the result the value encodes
+     */
+    static ProbeResult decode(byte value) {
+        if (value > 0) {
+            return new ProbeResult(Outcome.WIN, value);
+        } else if (value < 0) {
+            return new ProbeResult(Outcome.LOSS, (-value - 1));
+        }
+        return new ProbeResult(Outcome.DRAW, 0);
+    }
+}
@@ -0,0 +1,266 @@
+package chess.tablebases;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessPiece;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The material of an endgame ("KQvKR": white king and queen against black king and rook),
+ * and the mapping between positions with that material and table indices.
+ * <p>
+ * A table index packs the square (0-63, (row - 1) * 8 + (col - 1)) of every piece slot
+ * and the team to move: index = (turn * 64^n) + sum(square[i] * 64^i).
+ * Identical pieces always occupy their slots in ascending square order,
+ * so every position has exactly one (canonical) index.
+ */
+final class MaterialSignature {
+    static final int NUM_SQUARES = (ChessBoard.BOARD_SIDE_LENGTH * ChessBoard.BOARD_SIDE_LENGTH);
+    // order of pieces within each side of a signature
+    private static final String PIECE_ORDER = "KQRBNP";
+
+    private final String name;
+    private final ChessPiece[] slots;
+    private final int size;
+
+    private MaterialSignature(String name, ChessPiece[] slots) {
+        this.name = name;
+        this.slots = slots;
+        int positions = 1;
+        for (int i = 0; i < slots.length; ++i) {
+            positions *= NUM_SQUARES;
+        }
+        this.size = 2 * positions;
+    }
+
+    /**
+     * @param name a signature name like "KQvKR"
+     * @return the parsed signature
+     * @throws IllegalArgumentException if the name is malformed
+     */
+    static MaterialSignature parse(String name) {
+        String[] sides = name.split("v");
+        if ((sides.length != 2) || !isSideValid(sides[0]) || !isSideValid(sides[1])) {
+            throw new IllegalArgumentException("invalid material signature: " + name);
+        }
+        List<ChessPiece> slots = new ArrayList<>();
+        for (char c : sides[0].toCharArray()) {
+            slots.add(new ChessPiece(ChessGame.TeamColor.WHITE, pieceTypeOf(c)));
+        }
+        for (char c : sides[1].toCharArray()) {
+            slots.add(new ChessPiece(ChessGame.TeamColor.BLACK, pieceTypeOf(c)));
+        }
+        return new MaterialSignature(name, slots.toArray(new ChessPiece[0]));
+    }
+
+    /**
+     * @param board   the board to describe
+     * @param flipped whether to swap the colors (describe black's material first)
+     * @return the signature name of the material on the board (e.g. "KQvK")
+     */
+    static String nameOf(ChessBoard board, boolean flipped) {
+        StringBuilder white = new StringBuilder();
+        StringBuilder black = new StringBuilder();
+        for (char c : PIECE_ORDER.toCharArray()) {
+            for (int row = 1; row <= ChessBoard.BOARD_SIDE_LENGTH; ++row) {
+                for (int col = 1; col <= ChessBoard.BOARD_SIDE_LENGTH; ++col) {
+                    ChessPiece piece = board.getPiece(row, col);
+                    if ((piece != null) && (letterOf(piece.getPieceType()) == c)) {
+                        ((piece.getTeamColor() == ChessGame.TeamColor.WHITE) ? white : black).append(c);
+                    }
+                }
+            }
+        }
+        return flipped ? (black + "v" + white) : (white + "v" + black);
+    }
+
+    /**
+     * @param name a signature name
+     * @return the signature of the same material with the colors swapped (e.g. "KvKQ" -> "KQvK")
+     */
+    static String flippedName(String name) {
+        String[] sides = name.split("v");
+        return sides[1] + "v" + sides[0];
+    }
+
+    String getName() {
+        return this.name;
+    }
+
+    int getPieceCount() {
+        return this.slots.length;
+    }
+
+    /**
+     * @return the piece in each slot
+     */
+    ChessPiece[] getSlots() {
+        return this.slots;
+    }
+
+    /**
+     * @return the number of indices in a table for this signature
+     */
+    int size() {
+        return this.size;
+    }
+
+    /**
+     * Compute the index of a position (the board must hold exactly this signature's material,
+     * with colors swapped if flipped)
+     *
+     * @param board    the board
+     * @param teamTurn the team to move
+     * @param flipped  whether to index the position with colors swapped and the board mirrored top to bottom
+     * @return the table index
+     */
+    int indexOf(ChessBoard board, ChessGame.TeamColor teamTurn, boolean flipped) {
+        boolean[] filled = new boolean[this.slots.length];
+        int index = 0;
+        int[] slotWeights = this.slotWeights();
+        for (int square = 0; square < NUM_SQUARES; ++square) {
+            ChessPiece piece = board.getPiece((square / ChessBoard.BOARD_SIDE_LENGTH) + 1,
+                    (square % ChessBoard.BOARD_SIDE_LENGTH) + 1);
+            if (piece == null) {
+                continue;
+            }
+            ChessGame.TeamColor color = flipped ? opponent(piece.getTeamColor()) : piece.getTeamColor();
+            int slotSquare = flipped ? (square ^ 56) : square;
+            // fill the first open slot for this kind of piece
+            for (int slot = 0; slot < this.slots.length; ++slot) {
+                if (!filled[slot] && (this.slots[slot].getTeamColor() == color)
+                        && (this.slots[slot].getPieceType() == piece.getPieceType())) {
+                    filled[slot] = true;
+                    index += slotSquare * slotWeights[slot];
+                    break;
+                }
+            }
+        }
+        if (flipped) {
+            // mirrored squares of identical pieces are visited out of order, so re-sort their slots
+            index = this.canonicalize(index);
+        }
+        ChessGame.TeamColor turn = flipped ? opponent(teamTurn) : teamTurn;
+        return index + ((turn == ChessGame.TeamColor.BLACK) ? (this.size / 2) : 0);
+    }
+
+    /**
+     * Decode the piece squares of an index
+     *
+     * @param index   the table index
+     * @param squares filled with the square of each slot
+     * @return the team to move
+     */
+    ChessGame.TeamColor decode(int index, int[] squares) {
+        int rest = index % (this.size / 2);
+        for (int slot = 0; slot < this.slots.length; ++slot) {
+            squares[slot] = rest % NUM_SQUARES;
+            rest /= NUM_SQUARES;
+        }
+        return (index < (this.size / 2)) ? ChessGame.TeamColor.WHITE : ChessGame.TeamColor.BLACK;
+    }
+
+    /**
+     * @param squares the decoded squares of an index
+     * @return whether the squares describe a canonical, physically possible placement
+     * (no shared squares, identical pieces in ascending order, no pawns on the first or last row)
+     */
+    boolean isPlacementValid(int[] squares) {
+        for (int slot = 0; slot < this.slots.length; ++slot) {
+            int row = (squares[slot] / ChessBoard.BOARD_SIDE_LENGTH) + 1;
+            if ((this.slots[slot].getPieceType() == ChessPiece.PieceType.PAWN)
+                    && ((row == 1) || (row == ChessBoard.BOARD_SIDE_LENGTH))) {
+                return false;
+            }
+            for (int other = 0; other < slot; ++other) {
+                if (squares[other] == squares[slot]) {
+                    return false;
+                }
+                if (this.slots[other].equals(this.slots[slot]) && (squares[other] > squares[slot])) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private int canonicalize(int index) {
+        int[] squares = new int[this.slots.length];
+        int rest = index;
+        for (int slot = 0; slot < this.slots.length; ++slot) {
+            squares[slot] = rest % NUM_SQUARES;
+            rest /= NUM_SQUARES;
+        }
+        // slots of identical pieces are adjacent, so sort each run of identical slots
+        for (int slot = 1; slot < this.slots.length; ++slot) {
+            for (int i = slot; (i > 0) && this.slots[i - 1].equals(this.slots[i]) && (squares[i - 1] > squares[i]); --i) {
+                int swap = squares[i];
+                squares[i] = squares[i - 1];
+                squares[i - 1] = swap;
+            }
+        }
+        int canonicalIndex = 0;
+        int[] slotWeights = this.slotWeights();
+        for (int slot = 0; slot < this.slots.length; ++slot) {
+            canonicalIndex += squares[slot] * slotWeights[slot];
+        }
+        return canonicalIndex;
+    }
+
+    private int[] slotWeights() {
+        int[] weights = new int[this.slots.length];
+        int weight = 1;
+        for (int slot = 0; slot < this.slots.length; ++slot) {
+            weights[slot] = weight;
+            weight *= NUM_SQUARES;
+        }
+        return weights;
+    }
+
+    static ChessGame.TeamColor opponent(ChessGame.TeamColor teamColor) {
+        return (teamColor == ChessGame.TeamColor.WHITE) ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE;
+    }
+
+    static char letterOf(ChessPiece.PieceType pieceType) {
+        return switch (pieceType) {
+            case KING -> 'K';
+            case QUEEN -> 'Q';
+            case ROOK -> 'R';
+            case BISHOP -> 'B';
+            case KNIGHT -> 'N';
+            case PAWN -> 'P';
+        };
+    }
+
+    private static ChessPiece.PieceType pieceTypeOf(char c) {
+        return switch (c) {
+            case 'K' -> ChessPiece.PieceType.KING;
+            case 'Q' -> ChessPiece.PieceType.QUEEN;
+            case 'R' -> ChessPiece.PieceType.ROOK;
+            case 'B' -> ChessPiece.PieceType.BISHOP;
+            case 'N' -> ChessPiece.PieceType.KNIGHT;
+            case 'P' -> ChessPiece.PieceType.PAWN;
+            default -> throw new IllegalArgumentException("invalid piece letter: " + c);
+        };
+    }
+
+    /**
+     * A side is valid if it is one king followed by pieces in PIECE_ORDER
+     */
+    private static boolean isSideValid(String side) {
+        if (side.isEmpty() || (side.charAt(0) != 'K')) {
+            return false;
+        }
+        int lastOrder = 0;
+        for (int i = 1; i < side.length(); ++i) {
+            int order = PIECE_ORDER.indexOf(side.charAt(i));
+            if ((order < 1) || (order < lastOrder)) {
+                return false;
+            }
+            lastOrder = order;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,464 @@
+package chess.tablebases;
+
+import chess.*;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.stream.IntStream;
+
+/**
+ * Offline tool that builds distance-to-mate EndgameTablebase files by retrograde analysis.
+ * <p>
+ * Every position of a table is first examined once with the ChessGame rules (mates, stalemates, and moves that
+ * capture or promote into an already-built smaller table are resolved here). Results are then propagated backward
+ * one ply at a time: each position resolved at depth d "un-moves" to its predecessors, which become wins at d + 1
+ * (if the position was lost) or lose one remaining escape (if it was won) and are lost once no escape is left.
+ * Both phases run in parallel across cores; tables needed by captures and promotions are built first.
+ * <p>
+ * Usage: TablebaseGenerator outputDirectory [--threads N] [signature ...] (default: every 3- and 4-piece table)
+ */
+public class TablebaseGenerator {
+    private static final String PIECE_ORDER = "QRBNP";
+    private static final int CHUNK_SIZE = 4096;
+    // working states: ILLEGAL, DRAW (or unresolved), win in p plies (p > 0), loss in p plies (-(p + 1))
+    private static final int ILLEGAL = Integer.MIN_VALUE;
+    private static final int DRAW = 0;
+
+    private final EndgameTablebase tablebase;
+    private final ForkJoinPool pool;
+
+    /**
+     * @param tablebase   tables already built (used for captures and promotions, and extended with new tables)
+     * @param parallelism the number of worker threads
+     */
+    public TablebaseGenerator(EndgameTablebase tablebase, int parallelism) {
+        this.tablebase = tablebase;
+        this.pool = new ForkJoinPool(parallelism);
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: TablebaseGenerator <outputDirectory> [--threads N] [signature ...]");
+            System.exit(1);
+        }
+        Path outputDirectory = Path.of(args[0]);
+        int parallelism = Runtime.getRuntime().availableProcessors();
+        List<String> signatures = new ArrayList<>();
+        for (int i = 1; i < args.length; ++i) {
+            if (args[i].equals("--threads") && ((i + 1) < args.length)) {
+                parallelism = Integer.parseInt(args[++i]);
+            } else {
+                signatures.add(args[i]);
+            }
+        }
+        if (signatures.isEmpty()) {
+            signatures = allSignatures(EndgameTablebase.MAX_PIECES);
+        }
+        Files.createDirectories(outputDirectory);
+        // resume from any tables already in the output directory
+        TablebaseGenerator generator = new TablebaseGenerator(EndgameTablebase.open(outputDirectory), parallelism);
+        for (String signature : signatures) {
+            generator.generate(signature, outputDirectory);
+        }
+    }
+
+    /**
+     * Build a table (and any missing tables it depends on) and write it to the output directory
+     *
+     * @param signatureName the material signature of the table (e.g. "KRvK"), in either color orientation
+     * @param outputDirectory the directory to write "[signature].tb" files to
+     * @throws IOException if a table file cannot be written
+     */
+    public void generate(String signatureName, Path outputDirectory) throws IOException {
+        String name = canonicalName(signatureName);
+        if (this.tablebase.hasTable(name) || (name.length() == 3)) {
+            return; // already built, or bare kings (always a draw)
+        }
+        MaterialSignature signature = MaterialSignature.parse(name);
+        for (String dependency : dependenciesOf(name)) {
+            this.generate(dependency, outputDirectory);
+        }
+        long startTime = System.currentTimeMillis();
+        byte[] values = this.buildTable(signature);
+        Path file = outputDirectory.resolve(name + EndgameTablebase.FILE_EXTENSION);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            out.writeInt(EndgameTablebase.MAGIC);
+            out.writeInt(signature.getPieceCount());
+            out.write(values);
+        }
+        this.tablebase.addTable(signature, ByteBuffer.wrap(values));
+        System.out.printf("Built %s (%d positions) in %d ms%n",
+                name, signature.size(), (System.currentTimeMillis() - startTime));
+    }
+
+    // TABLE CONSTRUCTION /////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Working state for building one table
+     */
+    private class Build {
+        final MaterialSignature signature;
+        final AtomicIntegerArray state;
+        // number of moves that are not yet known to lose (plus 1 for any move that escapes into a draw)
+        final AtomicIntegerArray remaining;
+        // the longest loss (in plies) forced by capture or promotion moves into other tables
+        final byte[] externalLossPlies;
+        final AtomicInteger maxDepth;
+
+        Build(MaterialSignature signature) {
+            this.signature = signature;
+            this.state = new AtomicIntegerArray(signature.size());
+            this.remaining = new AtomicIntegerArray(signature.size());
+            this.externalLossPlies = new byte[signature.size()];
+            this.maxDepth = new AtomicInteger(0);
+        }
+
+        /**
+         * Examine a position with the ChessGame rules: mark it illegal, resolve it directly,
+         * or count the moves that must be resolved by propagation
+         */
+        void initialize(int index, ChessGame game, int[] squares) {
+            ChessGame.TeamColor turn = this.signature.decode(index, squares);
+            if (!this.signature.isPlacementValid(squares)) {
+                this.state.set(index, ILLEGAL);
+                return;
+            }
+            ChessBoard board = boardOf(this.signature, squares);
+            game.setBoard(board);
+            game.setTeamTurn(turn);
+            if (game.isInCheck(MaterialSignature.opponent(turn))) {
+                this.state.set(index, ILLEGAL);
+                return;
+            }
+            Collection<ChessMove> moves = legalMoves(game);
+            if (moves.isEmpty()) {
+                this.state.set(index, game.isInCheck(turn) ? lossState(0) : DRAW);
+                return;
+            }
+            int internalMoves = 0;
+            boolean hasDrawEscape = false;
+            int shortestWin = Integer.MAX_VALUE;
+            int longestLoss = 0;
+            for (ChessMove move : moves) {
+                ChessBoard target = applyMove(board, move);
+                if (MaterialSignature.nameOf(target, false).equals(this.signature.getName())) {
+                    internalMoves++;
+                    continue;
+                }
+                // captures and promotions lead into smaller (already built) tables
+                EndgameTablebase.ProbeResult result =
+                        TablebaseGenerator.this.tablebase.probe(target, MaterialSignature.opponent(turn));
+                switch (result.outcome()) {
+                    case LOSS -> shortestWin = Math.min(shortestWin, (2 * result.movesToMate()) + 1);
+                    case WIN -> longestLoss = Math.max(longestLoss, 2 * result.movesToMate());
+                    case DRAW -> hasDrawEscape = true;
+                }
+            }
+            this.remaining.set(index, internalMoves + (hasDrawEscape ? 1 : 0));
+            this.externalLossPlies[index] = (byte) longestLoss;
+            if (shortestWin != Integer.MAX_VALUE) {
+                this.setState(index, shortestWin);
+            } else if ((internalMoves == 0) && !hasDrawEscape) {
+                this.setState(index, lossState(longestLoss));
+            }
+        }
+
+        /**
+         * Push the result of a position resolved at the given depth to every predecessor in this table
+         */
+        void propagate(int index, int depth, int[] squares) {
+            boolean isLoss = (this.state.get(index) < 0);
+            ChessGame.TeamColor turn = this.signature.decode(index, squares);
+            ChessGame.TeamColor mover = MaterialSignature.opponent(turn);
+            ChessBoard board = boardOf(this.signature, squares);
+            ChessPiece[] slots = this.signature.getSlots();
+            for (int slot = 0; slot < slots.length; ++slot) {
+                if (slots[slot].getTeamColor() != mover) {
+                    continue;
+                }
+                int endSquare = squares[slot];
+                for (int startSquare : unmoveOrigins(board, slots[slot], endSquare)) {
+                    squares[slot] = startSquare;
+                    int predecessor = indexOf(this.signature, squares, mover);
+                    squares[slot] = endSquare;
+                    if (this.state.get(predecessor) == ILLEGAL) {
+                        continue;
+                    }
+                    if (isLoss) {
+                        // the predecessor can move into this lost position: it wins (keep the fastest win)
+                        int current;
+                        do {
+                            current = this.state.get(predecessor);
+                            if ((current > 0) && (current <= (depth + 1))) {
+                                break;
+                            }
+                        } while (!this.state.compareAndSet(predecessor, current, (depth + 1)));
+                        this.maxDepth.accumulateAndGet((depth + 1), Math::max);
+                    } else if ((this.state.get(predecessor) == DRAW)
+                            && (this.remaining.decrementAndGet(predecessor) == 0)) {
+                        // every move from the predecessor loses: it is lost at its longest line
+                        int plies = Math.max((depth + 1), (this.externalLossPlies[predecessor] & 0xFF));
+                        this.setState(predecessor, lossState(plies));
+                    }
+                }
+            }
+        }
+
+        void setState(int index, int state) {
+            this.state.set(index, state);
+            this.maxDepth.accumulateAndGet(depthOf(state), Math::max);
+        }
+    }
+
+    /**
+     * Build the values of a table (all tables its captures and promotions lead to must already be built)
+     */
+    private byte[] buildTable(MaterialSignature signature) {
+        Build build = new Build(signature);
+        // examine every position once
+        this.forEachIndex(signature, (index, game, squares) -> build.initialize(index, game, squares));
+        // propagate results backward, one depth (ply) at a time
+        for (int depth = 0; depth <= build.maxDepth.get(); ++depth) {
+            final int currentDepth = depth;
+            this.forEachIndex(signature, (index, game, squares) -> {
+                if (depthOf(build.state.get(index)) == currentDepth) {
+                    build.propagate(index, currentDepth, squares);
+                }
+            });
+        }
+        // convert plies to the stored move counts
+        byte[] values = new byte[signature.size()];
+        for (int index = 0; index < values.length; ++index) {
+            int state = build.state.get(index);
+            if ((state == ILLEGAL) || (state == DRAW)) {
+                continue;
+            }
+            int moves = (state > 0) ? ((state + 1) / 2) : (((-state) - 1) / 2);
+            if (moves > Byte.MAX_VALUE) {
+                throw new IllegalStateException("distance to mate does not fit table format: " + signature.getName());
+            }
+            values[index] = (byte) ((state > 0) ? moves : (-moves - 1));
+        }
+        return values;
+    }
+
+    private interface IndexTask {
+        void run(int index, ChessGame game, int[] squares);
+    }
+
+    /**
+     * Run a task for every index of a table, in parallel chunks (each chunk has its own scratch game and squares)
+     */
+    private void forEachIndex(MaterialSignature signature, IndexTask task) {
+        int chunks = (signature.size() + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        this.pool.submit(() -> IntStream.range(0, chunks).parallel().forEach(chunk -> {
+            ChessGame game = new ChessGame();
+            int[] squares = new int[signature.getPieceCount()];
+            int end = Math.min(signature.size(), (chunk + 1) * CHUNK_SIZE);
+            for (int index = chunk * CHUNK_SIZE; index < end; ++index) {
+                task.run(index, game, squares);
+            }
+        })).join();
+    }
+
+    // POSITION HELPERS ///////////////////////////////////////////////////////////////////////////
+
+    private static int lossState(int plies) {
+        return -(plies + 1);
+    }
+
+    /**
+     * @return the depth (plies to mate) of a resolved state, or -1 if unresolved or illegal
+     */
+    private static int depthOf(int state) {
+        if ((state == ILLEGAL) || (state == DRAW)) {
+            return -1;
+        }
+        return (state > 0) ? state : ((-state) - 1);
+    }
+
+    private static ChessBoard boardOf(MaterialSignature signature, int[] squares) {
+        ChessBoard board = new ChessBoard();
+        ChessPiece[] slots = signature.getSlots();
+        for (int slot = 0; slot < slots.length; ++slot) {
+            board.addPiece(positionOf(squares[slot]), slots[slot]);
+        }
+        return board;
+    }
+
+    /**
+     * @return the canonical index of a placement (identical pieces sorted by square)
+     */
+    private static int indexOf(MaterialSignature signature, int[] squares, ChessGame.TeamColor turn) {
+        return signature.indexOf(boardOf(signature, squares), turn, false);
+    }
+
+    private static ChessPosition positionOf(int square) {
+        return new ChessPosition((square / ChessBoard.BOARD_SIDE_LENGTH) + 1, (square % ChessBoard.BOARD_SIDE_LENGTH) + 1);
+    }
+
+    private static int squareOf(ChessPosition position) {
+        return ((position.getRow() - 1) * ChessBoard.BOARD_SIDE_LENGTH) + (position.getColumn() - 1);
+    }
+
+    /**
+     * @return the legal moves of the team to move, without castling (tables assume no castling rights)
+     */
+    private static Collection<ChessMove> legalMoves(ChessGame game) {
+        Collection<ChessMove> moves = game.legalMoves();
+        moves.removeIf(move -> (game.getBoard().getPiece(move.getStartPosition()).getPieceType()
+                == ChessPiece.PieceType.KING)
+                && (Math.abs(move.getStartPosition().getColumn() - move.getEndPosition().getColumn()) == 2));
+        return moves;
+    }
+
+    /**
+     * @return a copy of the board with a (non-castling, non-en passant) move made
+     */
+    private static ChessBoard applyMove(ChessBoard board, ChessMove move) {
+        ChessBoard target = new ChessBoard(board);
+        ChessPiece piece = target.getPiece(move.getStartPosition());
+        target.removePiece(move.getStartPosition());
+        target.addPiece(move.getEndPosition(), (move.getPromotionPiece() == null)
+                ? piece : new ChessPiece(piece.getTeamColor(), move.getPromotionPiece()));
+        return target;
+    }
+
+    /**
+     * @return the squares a piece now on endSquare could have moved from without capturing or promoting
+     */
+    private static List<Integer> unmoveOrigins(ChessBoard board, ChessPiece piece, int endSquare) {
+        List<Integer> origins = new ArrayList<>();
+        ChessPosition end = positionOf(endSquare);
+        if (piece.getPieceType() != ChessPiece.PieceType.PAWN) {
+            // pieces other than pawns move symmetrically: retrace any non-capturing move
+            for (ChessMove move : piece.pieceMoves(board, end)) {
+                if (board.getPiece(move.getEndPosition()) == null) {
+                    origins.add(squareOf(move.getEndPosition()));
+                }
+            }
+            return origins;
+        }
+        // pawns step backward one row, or two from their double-move row
+        int direction = (piece.getTeamColor() == ChessGame.TeamColor.WHITE) ? -1 : 1;
+        int startRow = (piece.getTeamColor() == ChessGame.TeamColor.WHITE) ? 2 : (ChessBoard.BOARD_SIDE_LENGTH - 1);
+        int oneBack = end.getRow() + direction;
+        if ((oneBack >= 2) && (oneBack <= (ChessBoard.BOARD_SIDE_LENGTH - 1))
+                && (board.getPiece(oneBack, end.getColumn()) == null)) {
+            origins.add(squareOf(new ChessPosition(oneBack, end.getColumn())));
+            int twoBack = oneBack + direction;
+            if ((twoBack == startRow) && (board.getPiece(twoBack, end.getColumn()) == null)) {
+                origins.add(squareOf(new ChessPosition(twoBack, end.getColumn())));
+            }
+        }
+        return origins;
+    }
+
+    // SIGNATURE HELPERS //////////////////////////////////////////////////////////////////////////
+
+    /**
+     * @return every canonical signature with 3 to maxPieces pieces, smallest first
+     */
+    private static List<String> allSignatures(int maxPieces) {
+        List<String> signatures = new ArrayList<>();
+        for (int extraPieces = 1; extraPieces <= (maxPieces - 2); ++extraPieces) {
+            for (int whitePieces = extraPieces; whitePieces >= 0; --whitePieces) {
+                for (String white : sides(whitePieces)) {
+                    for (String black : sides(extraPieces - whitePieces)) {
+                        String name = canonicalName(white + "v" + black);
+                        if (!signatures.contains(name)) {
+                            signatures.add(name);
+                        }
+                    }
+                }
+            }
+        }
+        return signatures;
+    }
+
+    /**
+     * @return every side ("K" plus pieces in PIECE_ORDER) with the given number of non-king pieces
+     */
+    private static List<String> sides(int pieces) {
+        List<String> sides = new ArrayList<>();
+        if (pieces == 0) {
+            sides.add("K");
+            return sides;
+        }
+        for (String shorter : sides(pieces - 1)) {
+            char last = shorter.charAt(shorter.length() - 1);
+            int firstOrder = (last == 'K') ? 0 : PIECE_ORDER.indexOf(last);
+            for (int order = firstOrder; order < PIECE_ORDER.length(); ++order) {
+                sides.add(shorter + PIECE_ORDER.charAt(order));
+            }
+        }
+        return sides;
+    }
+
+    /**
+     * @return the signatures reachable from a signature by one capture or one promotion
+     */
+    private static List<String> dependenciesOf(String name) {
+        String[] sides = name.split("v");
+        List<String> dependencies = new ArrayList<>();
+        for (int side = 0; side < 2; ++side) {
+            String pieces = sides[side].substring(1);
+            for (int i = 0; i < pieces.length(); ++i) {
+                String remainingPieces = pieces.substring(0, i) + pieces.substring(i + 1);
+                // capture of this piece
+                dependencies.add(withSide(sides, side, remainingPieces));
+                // promotion of this pawn
+                if (pieces.charAt(i) == 'P') {
+                    for (char promotion : "QRBN".toCharArray()) {
+                        dependencies.add(withSide(sides, side, remainingPieces + promotion));
+                    }
+                }
+            }
+        }
+        return dependencies;
+    }
+
+    private static String withSide(String[] sides, int side, String pieces) {
+        char[] sorted = pieces.toCharArray();
+        Arrays.sort(sorted);
+        StringBuilder ordered = new StringBuilder("K");
+        for (char c : PIECE_ORDER.toCharArray()) {
+            for (char piece : sorted) {
+                if (piece == c) {
+                    ordered.append(piece);
+                }
+            }
+        }
+        return (side == 0) ? (ordered + "v" + sides[1]) : (sides[0] + "v" + ordered);
+    }
+
+    /**
+     * @return the orientation of a signature that is stored on disk (the stronger material is white's)
+     */
+    private static String canonicalName(String name) {
+        String[] sides = name.split("v");
+        return (compareSides(sides[0], sides[1]) >= 0) ? name : MaterialSignature.flippedName(name);
+    }
+
+    private static int compareSides(String a, String b) {
+        if (a.length() != b.length()) {
+            return Integer.compare(a.length(), b.length());
+        }
+        for (int i = 1; i < a.length(); ++i) {
+            int orderA = PIECE_ORDER.indexOf(a.charAt(i));
+            int orderB = PIECE_ORDER.indexOf(b.charAt(i));
+            if (orderA != orderB) {
+                return Integer.compare(orderB, orderA);
+            }
+        }
+        return 0;
+    }
+}
@@ -1,6 +1,265 @@
 package model;
 
 import chess.ChessGame;
+import chess.ChessMove;
+import chess.InvalidMoveException;
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.TypeAdapter;
+import com.google.gson.annotations.JsonAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
 
-public record GameData(int gameID, String whiteUsername, String blackUsername, String gameName, ChessGame game) {
+import java.io.IOException;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A game and its metadata (ID, name, and the usernames in each seat)
+ * <p>
+ * Game data read from storage or the network can carry its game still encoded (as ChessGame JSON),
+ * in which case the game is only decoded the first time game() is called, and the decoded game is kept.
+ * Reads that only need the metadata never decode the game, and serializing game data whose game was
+ * never decoded copies the encoding through unchanged. An encoded game can also carry moves to make after
+ * decoding it (as storage does for the moves logged since a snapshot), so these are not made until then either.
+ * <p>
+ * Game data read from storage also carries the version of the stored game it was read at, which storage
+ * compares on each write to reject writes based on a stale read (optimistic concurrency). The version is
+ * not serialized, since only the server that read the game can write it back.
+ */
+@JsonAdapter(GameData.Serializer.class)
+public final class GameData {
+    private final int gameID;
+    private final String whiteUsername;
+    private final String blackUsername;
+    private final String gameName;
+    // exactly one of game and encodedGame is set until the game is decoded, then only game
+    private volatile ChessGame game;
+    private volatile String encodedGame;
+    // the moves to make in encodedGame once it is decoded (empty once decoded)
+    private volatile List<ChessMove> movesToReplay;
+    // the version of the stored game this game data matches (0 if it was never stored)
+    private volatile int version;
+
+    public GameData(int gameID, String whiteUsername, String blackUsername, String gameName, ChessGame game) {
+        this(gameID, whiteUsername, blackUsername, gameName, game, null, List.of(), 0);
+    }
+
+    private GameData(int gameID, String whiteUsername, String blackUsername, String gameName,
+                     ChessGame game, String encodedGame, List<ChessMove> movesToReplay, int version) {
+        this.gameID = gameID;
+        this.whiteUsername = whiteUsername;
+        this.blackUsername = blackUsername;
+        this.gameName = gameName;
+        this.game = game;
+        this.encodedGame = encodedGame;
+        this.movesToReplay = movesToReplay;
+        this.version = version;
+    }
+
+    /**
+     * @param encodedGame the game encoded as ChessGame JSON, decoded on the first call to game()
+     * @return game data holding the game in its encoded form
+     */
+    public static GameData withEncodedGame(int gameID, String whiteUsername, String blackUsername,
+                                           String gameName, String encodedGame) {
+        return GameData.withEncodedGame(gameID, whiteUsername, blackUsername, gameName, encodedGame, List.of());
+    }
+
+    /**
+     * @param encodedGame   the game encoded as ChessGame JSON, decoded on the first call to game()
+     * @param movesToReplay the moves to make in the game when it is decoded, in order
+     * @return game data holding the game in its encoded form, with the moves still to make
+     */
+    public static GameData withEncodedGame(int gameID, String whiteUsername, String blackUsername,
+                                           String gameName, String encodedGame, List<ChessMove> movesToReplay) {
+        return new GameData(gameID, whiteUsername, blackUsername, gameName,
+                null, encodedGame, List.copyOf(movesToReplay), 0);
+    }
+
+    /**
+     * @return a copy of this game data with the given players seated, sharing this game data's game
+     * (still encoded, if it has not been decoded) and version
+     */
+    public GameData withPlayers(String whiteUsername, String blackUsername) {
+        synchronized (this) {
+            return new GameData(this.gameID, whiteUsername, blackUsername, this.gameName,
+                    this.game, this.encodedGame, this.movesToReplay, this.version);
+        }
+    }
+
+    /**
+     * @return a copy of this game data with its own copy of the game (or the same encoding and moves to replay,
+     * if the game has not been decoded, so copying never decodes it), and the same version
+     */
+    public GameData copy() {
+        synchronized (this) {
+            return new GameData(this.gameID, this.whiteUsername, this.blackUsername, this.gameName,
+                    ((this.game == null) ? null : new ChessGame(this.game)), this.encodedGame, this.movesToReplay,
+                    this.version);
+        }
+    }
+
+    public int gameID() {
+        return this.gameID;
+    }
+
+    public String whiteUsername() {
+        return this.whiteUsername;
+    }
+
+    public String blackUsername() {
+        return this.blackUsername;
+    }
+
+    public String gameName() {
+        return this.gameName;
+    }
+
+    /**
+     * @return the version of the stored game this game data was read at or last written as (0 if never stored)
+     */
+    public int version() {
+        return this.version;
+    }
+
+    /**
+     * Set the version of the stored game this game data matches
+     * (set by storage on each read and write, so the holder can keep writing the same game data)
+     *
+     * @param version the stored game's version
+     */
+    public void setVersion(int version) {
+        this.version = version;
+    }
+
+    /**
+     * @return the game, decoding it (and making the moves to replay) on the first call if this game data
+     * holds it encoded
+     * @throws IllegalStateException if a move to replay is not legal in the game
+     */
+    public ChessGame game() {
+        ChessGame decodedGame = this.game;
+        if (decodedGame == null) {
+            synchronized (this) {
+                decodedGame = this.game;
+                if ((decodedGame == null) && (this.encodedGame != null)) {
+                    decodedGame = (new Gson()).fromJson(this.encodedGame, ChessGame.class);
+                    try {
+                        decodedGame.replayMoves(this.movesToReplay);
+                    } catch (InvalidMoveException e) {
+                        throw new IllegalStateException(String.format("corrupt move log for game %d: %s",
+                                this.gameID, e.getMessage()));
+                    }
+                    this.game = decodedGame;
+                    this.encodedGame = null;
+                    this.movesToReplay = List.of();
+                }
+            }
+        }
+        return decodedGame;
+    }
+
+    /**
+     * @return whether this game data has a game (without decoding it)
+     */
+    public boolean hasGame() {
+        return (this.game != null) || (this.encodedGame != null);
+    }
+
+    /**
+     * @return whether the game has been decoded (or was never encoded), so may have changed since it was read
+     */
+    public boolean isGameDecoded() {
+        return (this.game != null);
+    }
+
+    /**
+     * @return the game encoded as ChessGame JSON (re-encoded if it has been decoded, or has moves to replay),
+     * or null if there is no game
+     */
+    public String encodedGame() {
+        synchronized (this) {
+            if (!this.movesToReplay.isEmpty()) {
+                // the encoding predates the moves
+                this.game();
+            }
+            if (this.game != null) {
+                return (new Gson()).toJson(this.game);
+            }
+            return this.encodedGame;
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if ((o == null) || (getClass() != o.getClass())) return false;
+        GameData gameData = (GameData) o;
+        return ((this.gameID == gameData.gameID) && Objects.equals(this.whiteUsername, gameData.whiteUsername)
+                && Objects.equals(this.blackUsername, gameData.blackUsername)
+                && Objects.equals(this.gameName, gameData.gameName) && Objects.equals(this.game(), gameData.game()));
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(this.gameID, this.whiteUsername, this.blackUsername, this.gameName);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("GameData[gameID=%d, whiteUsername=%s, blackUsername=%s, gameName=%s]",
+                this.gameID, this.whiteUsername, this.blackUsername, this.gameName);
+    }
+
+    /**
+     * Serializes game data with the same JSON shape as its fields, without decoding an encoded game
+     * (an encoded game is written as-is, and a read game is kept encoded until it is used)
+     */
+    public static class Serializer extends TypeAdapter<GameData> {
+        @Override
+        public void write(JsonWriter out, GameData gameData) throws IOException {
+            if (gameData == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            out.name("gameID").value(gameData.gameID());
+            if (gameData.whiteUsername() != null) {
+                out.name("whiteUsername").value(gameData.whiteUsername());
+            }
+            if (gameData.blackUsername() != null) {
+                out.name("blackUsername").value(gameData.blackUsername());
+            }
+            if (gameData.gameName() != null) {
+                out.name("gameName").value(gameData.gameName());
+            }
+            String encodedGame = gameData.encodedGame();
+            if (encodedGame != null) {
+                out.name("game").jsonValue(encodedGame);
+            }
+            out.endObject();
+        }
+
+        @Override
+        public GameData read(JsonReader in) throws IOException {
+            JsonElement element = JsonParser.parseReader(in);
+            if (element.isJsonNull()) {
+                return null;
+            }
+            JsonObject object = element.getAsJsonObject();
+            return GameData.withEncodedGame(
+                    (object.has("gameID") ? object.get("gameID").getAsInt() : 0),
+                    Serializer.getString(object, "whiteUsername"),
+                    Serializer.getString(object, "blackUsername"),
+                    Serializer.getString(object, "gameName"),
+                    ((object.has("game") && !object.get("game").isJsonNull()) ? object.get("game").toString() : null));
+        }
+
+        private static String getString(JsonObject object, String name) {
+            return (object.has(name) && !object.get(name).isJsonNull()) ? object.get(name).getAsString() : null;
+        }
+    }
 }
@@ -0,0 +1,27 @@
+package model;
+
+/**
+ * The metadata of a game, for listing games without their game state
+ *
+ * @param status       whether the game has an open seat, is being played, or is over
+ * @param moveCount    the number of moves (plies) made in the game
+ * @param lastMoveTime when the last move was made (epoch milliseconds), or null if no move has been made
+ */
+public record GameSummary(int gameID, String gameName, String whiteUsername, String blackUsername,
+                          Status status, int moveCount, Long lastMoveTime) {
+    public enum Status {
+        OPEN,
+        IN_PROGRESS,
+        OVER
+    }
+
+    /**
+     * @return the status of a game with the given players seated
+     */
+    public static Status statusOf(String whiteUsername, String blackUsername, boolean isOver) {
+        if (isOver) {
+            return Status.OVER;
+        }
+        return ((whiteUsername == null) || (blackUsername == null)) ? Status.OPEN : Status.IN_PROGRESS;
+    }
+}
@@ -0,0 +1,6 @@
+package model.request;
+
+// set exactly one of gameID (analyze a game's current position) or fen (analyze any position)
+// depth is in plies, optional
+public record AnalysisRequest(Integer gameID, String fen, Integer depth) {
+}
@@ -1,4 +1,8 @@
 package model.request;
 
-public record CreateGameRequest(String gameName) {
+// botColor is optional: "WHITE" or "BLACK" (case-insensitive) seats a server engine player as that team
+public record CreateGameRequest(String gameName, String botColor) {
+    public CreateGameRequest(String gameName) {
+        this(gameName, null);
+    }
 }
@@ -0,0 +1,6 @@
+package model.request;
+
+// all optional (GET /game query parameters): cursor is the nextCursor of the previous page,
+// status is OPEN, IN_PROGRESS or OVER, player matches either seat, sort is ASC (oldest first) or DESC
+public record ListGamesRequest(Integer cursor, Integer limit, String status, String player, String sort) {
+}
@@ -0,0 +1,16 @@
+package model.response;
+
+import java.util.ArrayList;
+
+// status is "QUEUED", "RUNNING", "DONE", or "FAILED"
+// the result fields hold the deepest completed search so far (null until the first depth completes)
+// score is in centipawns for the team to move, mateIn is set instead when a forced mate was found
+// moves are in coordinate notation ("e2e4", "e7e8q")
+public record AnalysisResponse(String jobID,
+                               String status,
+                               Integer depth,
+                               Integer score,
+                               Integer mateIn,
+                               String bestMove,
+                               ArrayList<String> principalVariation) {
+}
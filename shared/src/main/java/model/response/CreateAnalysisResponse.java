@@ -0,0 +1,4 @@
+package model.response;
+
+public record CreateAnalysisResponse(String jobID) {
+}
@@ -1,8 +1,9 @@
 package model.response;
 
-import model.GameData;
+import model.GameSummary;
 
 import java.util.ArrayList;
 
-public record ListGamesResponse(ArrayList<GameData> games) {
+// nextCursor is null on the last page
+public record ListGamesResponse(ArrayList<GameSummary> games, Integer nextCursor) {
 }
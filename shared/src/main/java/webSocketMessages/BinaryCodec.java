@@ -0,0 +1,230 @@
+package webSocketMessages;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import com.google.gson.Gson;
+import model.GameData;
+import webSocketMessages.serverMessages.*;
+import webSocketMessages.userCommands.*;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The binary WebSocket protocol, for clients that connect with encoding=binary: each command and server message
+ * is one binary frame holding a type byte followed by the type's fields, instead of a JSON text frame.
+ * <p>
+ * The type byte is the ordinal of the CommandType or ServerMessageType (those enums are only ever added to, so the
+ * codes are stable). Integers are big-endian, a move is its 16-bit ChessMove.pack() code, a string is a 32-bit byte
+ * length (-1 for null) followed by its UTF-8 bytes, and a nullable gameID is a presence byte followed by its value.
+ * A whole game (LOAD_GAME, GAME_UPDATE) is carried as its GameData JSON, so it is still decoded only when needed.
+ * <pre>
+ * command:        type, authToken, gameID, then playerColor (byte, -1 for none) for JOIN_PLAYER
+ *                 or move (short) for MAKE_MOVE
+ * LOAD_GAME:      type, game
+ * ERROR:          type, errorMessage
+ * NOTIFICATION:   type, message
+ * GAME_UPDATE:    type, game, notifications (short count, then each string)
+ * MOVE_APPLIED:   type, gameID, sequence (int), move (short), status (byte), notifications
+ * </pre>
+ */
+public final class BinaryCodec {
+    private static final Gson GSON = new Gson();
+
+    private BinaryCodec() {
+    }
+
+    // Commands ///////////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * @param command the command to encode
+     * @return the command's binary frame
+     */
+    public static byte[] encodeCommand(UserGameCommand command) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            out.writeByte(command.getCommandType().ordinal());
+            writeString(out, command.getAuthString());
+            writeGameID(out, command.getGameID());
+            switch (command) {
+                case JoinPlayerCommand joinPlayer -> out.writeByte((joinPlayer.getPlayerColor() == null)
+                        ? -1 : joinPlayer.getPlayerColor().ordinal());
+                case MakeMoveCommand makeMove -> out.writeShort(makeMove.getMove().pack());
+                default -> {
+                }
+            }
+        } catch (IOException e) {
+            // a ByteArrayOutputStream never fails
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * @param buffer the array holding the frame
+     * @param offset where the frame starts in buffer
+     * @param length the length of the frame
+     * @return the command the frame holds
+     * @throws IOException if the frame is not a well-formed command
+     */
+    public static UserGameCommand decodeCommand(byte[] buffer, int offset, int length) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(buffer, offset, length));
+        UserGameCommand.CommandType type = readEnum(in, UserGameCommand.CommandType.values());
+        String authToken = readString(in);
+        Integer gameID = readGameID(in);
+        UserGameCommand command = switch (type) {
+            case JOIN_PLAYER -> {
+                int color = in.readByte();
+                yield new JoinPlayerCommand(authToken, gameID,
+                        ((color < 0) ? null : readEnum(color, ChessGame.TeamColor.values())));
+            }
+            case JOIN_OBSERVER -> new JoinObserverCommand(authToken, gameID);
+            case MAKE_MOVE -> new MakeMoveCommand(authToken, gameID, readMove(in));
+            case LEAVE -> new LeaveCommand(authToken, gameID);
+            case RESIGN -> new ResignCommand(authToken, gameID);
+            case RESYNC -> new ResyncCommand(authToken, gameID);
+        };
+        requireEnd(in);
+        return command;
+    }
+
+    // Server Messages ////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * @param message the message to encode
+     * @return the message's binary frame
+     */
+    public static byte[] encodeServerMessage(ServerMessage message) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            out.writeByte(message.getServerMessageType().ordinal());
+            switch (message) {
+                case LoadGameMessage loadGame -> writeString(out, GSON.toJson(loadGame.getGame()));
+                case ErrorMessage error -> writeString(out, error.getErrorMessage());
+                case NotificationMessage notification -> writeString(out, notification.getMessage());
+                case GameUpdateMessage update -> {
+                    writeString(out, GSON.toJson(update.getGame()));
+                    writeNotifications(out, update.getNotifications());
+                }
+                case MoveAppliedMessage moveApplied -> {
+                    writeGameID(out, moveApplied.getGameID());
+                    out.writeInt(moveApplied.getSequence());
+                    out.writeShort(moveApplied.getMove().pack());
+                    out.writeByte(moveApplied.getStatus().ordinal());
+                    writeNotifications(out, moveApplied.getNotifications());
+                }
+                default -> throw new IllegalArgumentException(
+                        "no binary encoding for " + message.getServerMessageType());
+            }
+        } catch (IOException e) {
+            // a ByteArrayOutputStream never fails
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * @param buffer the array holding the frame
+     * @param offset where the frame starts in buffer
+     * @param length the length of the frame
+     * @return the server message the frame holds
+     * @throws IOException if the frame is not a well-formed server message
+     */
+    public static ServerMessage decodeServerMessage(byte[] buffer, int offset, int length) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(buffer, offset, length));
+        ServerMessage.ServerMessageType type = readEnum(in, ServerMessage.ServerMessageType.values());
+        ServerMessage message = switch (type) {
+            case LOAD_GAME -> new LoadGameMessage(readGame(in));
+            case ERROR -> new ErrorMessage(readString(in));
+            case NOTIFICATION -> new NotificationMessage(readString(in));
+            case GAME_UPDATE -> new GameUpdateMessage(readGame(in), readNotifications(in));
+            case MOVE_APPLIED -> new MoveAppliedMessage(readGameID(in), in.readInt(), readMove(in),
+                    readEnum(in, MoveAppliedMessage.Status.values()), readNotifications(in));
+        };
+        requireEnd(in);
+        return message;
+    }
+
+    // Fields /////////////////////////////////////////////////////////////////////////////////////
+
+    private static void writeString(DataOutputStream out, String string) throws IOException {
+        if (string == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] encoded = string.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(encoded.length);
+        out.write(encoded);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        if (length > in.available()) {
+            throw new EOFException("string longer than the frame");
+        }
+        return new String(in.readNBytes(length), StandardCharsets.UTF_8);
+    }
+
+    private static void writeGameID(DataOutputStream out, Integer gameID) throws IOException {
+        out.writeBoolean(gameID != null);
+        if (gameID != null) {
+            out.writeInt(gameID);
+        }
+    }
+
+    private static Integer readGameID(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readInt() : null;
+    }
+
+    private static ChessMove readMove(DataInputStream in) throws IOException {
+        try {
+            return ChessMove.unpack(in.readShort());
+        } catch (IllegalArgumentException e) {
+            throw new IOException(e.getMessage());
+        }
+    }
+
+    private static GameData readGame(DataInputStream in) throws IOException {
+        return GSON.fromJson(readString(in), GameData.class);
+    }
+
+    private static void writeNotifications(DataOutputStream out, List<String> notifications) throws IOException {
+        out.writeShort(notifications.size());
+        for (String notification : notifications) {
+            writeString(out, notification);
+        }
+    }
+
+    private static List<String> readNotifications(DataInputStream in) throws IOException {
+        int count = in.readUnsignedShort();
+        List<String> notifications = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            notifications.add(readString(in));
+        }
+        return notifications;
+    }
+
+    private static <T extends Enum<T>> T readEnum(DataInputStream in, T[] values) throws IOException {
+        return readEnum(in.readUnsignedByte(), values);
+    }
+
+    private static <T extends Enum<T>> T readEnum(int ordinal, T[] values) throws IOException {
+        if (ordinal >= values.length) {
+            throw new IOException("unknown " + values[0].getDeclaringClass().getSimpleName() + " code: " + ordinal);
+        }
+        return values[ordinal];
+    }
+
+    private static void requireEnd(DataInputStream in) throws IOException {
+        if (in.available() > 0) {
+            throw new IOException("unexpected bytes after the end of the message");
+        }
+    }
+}
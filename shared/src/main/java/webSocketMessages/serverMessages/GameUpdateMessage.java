@@ -0,0 +1,43 @@
+package webSocketMessages.serverMessages;
+
+import model.GameData;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A game's new state together with the notifications about it, in one message
+ * (sent instead of a LOAD_GAME and its NOTIFICATIONs to clients that connect with updates=combined)
+ */
+public class GameUpdateMessage extends ServerMessage {
+    GameData game;
+    List<String> notifications;
+
+    public GameUpdateMessage(GameData game, List<String> notifications) {
+        super(ServerMessageType.GAME_UPDATE);
+        this.game = game;
+        this.notifications = notifications;
+    }
+
+    public GameData getGame() {
+        return this.game;
+    }
+
+    public List<String> getNotifications() {
+        return this.notifications;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        if (!super.equals(o)) return false;
+        GameUpdateMessage that = (GameUpdateMessage) o;
+        return Objects.equals(game, that.game) && Objects.equals(notifications, that.notifications);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(super.hashCode(), game, notifications);
+    }
+}
@@ -0,0 +1,77 @@
+package webSocketMessages.serverMessages;
+
+import chess.ChessMove;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A move made in a game, sent instead of the whole game state to clients that connect with updates=delta
+ * (which apply the move to their own copy of the game)
+ * <p>
+ * The sequence number is the game's move count after the move, so a client that has applied every earlier move
+ * expects exactly one more than its own move count; any other number means it missed a move
+ * (and should send a RESYNC command for the whole game state).
+ */
+public class MoveAppliedMessage extends ServerMessage {
+    Integer gameID;
+    int sequence;
+    ChessMove move;
+    Status status;
+    List<String> notifications;
+
+    /**
+     * The state of the game after the move, for the player to move
+     */
+    public enum Status {
+        ONGOING,
+        CHECK,
+        CHECKMATE,
+        STALEMATE
+    }
+
+    public MoveAppliedMessage(Integer gameID, int sequence, ChessMove move, Status status,
+                              List<String> notifications) {
+        super(ServerMessageType.MOVE_APPLIED);
+        this.gameID = gameID;
+        this.sequence = sequence;
+        this.move = move;
+        this.status = status;
+        this.notifications = notifications;
+    }
+
+    public Integer getGameID() {
+        return this.gameID;
+    }
+
+    public int getSequence() {
+        return this.sequence;
+    }
+
+    public ChessMove getMove() {
+        return this.move;
+    }
+
+    public Status getStatus() {
+        return this.status;
+    }
+
+    public List<String> getNotifications() {
+        return this.notifications;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        if (!super.equals(o)) return false;
+        MoveAppliedMessage that = (MoveAppliedMessage) o;
+        return (sequence == that.sequence) && Objects.equals(gameID, that.gameID) && Objects.equals(move, that.move)
+                && (status == that.status) && Objects.equals(notifications, that.notifications);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(super.hashCode(), gameID, sequence, move, status, notifications);
+    }
+}
@@ -14,7 +14,9 @@ public class ServerMessage {
     public enum ServerMessageType {
         LOAD_GAME,
         ERROR,
-        NOTIFICATION
+        NOTIFICATION,
+        GAME_UPDATE,
+        MOVE_APPLIED
     }
 
     public ServerMessage(ServerMessageType type) {
@@ -0,0 +1,34 @@
+package webSocketMessages.userCommands;
+
+import java.util.Objects;
+
+/**
+ * Asks for the whole state of a game (as a LOAD_GAME message), e.g. after missing a MOVE_APPLIED message
+ */
+public class ResyncCommand extends UserGameCommand {
+    Integer gameID;
+
+    public ResyncCommand(String authToken, Integer gameID) {
+        super(authToken);
+        this.commandType = CommandType.RESYNC;
+        this.gameID = gameID;
+    }
+
+    public Integer getGameID() {
+        return this.gameID;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        if (!super.equals(o)) return false;
+        ResyncCommand that = (ResyncCommand) o;
+        return Objects.equals(gameID, that.gameID);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(super.hashCode(), gameID);
+    }
+}
@@ -19,7 +19,8 @@ public class UserGameCommand {
         JOIN_OBSERVER,
         MAKE_MOVE,
         LEAVE,
-        RESIGN
+        RESIGN,
+        RESYNC
     }
 
     protected CommandType commandType;
@@ -34,6 +35,13 @@ public class UserGameCommand {
         return this.commandType;
     }
 
+    /**
+     * @return the game the command is for (null for a command not scoped to a game)
+     */
+    public Integer getGameID() {
+        return null;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o)
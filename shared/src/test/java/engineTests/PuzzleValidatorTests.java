@@ -0,0 +1,82 @@
+package engineTests;
+
+import chess.ChessGame;
+import chess.ChessNotation;
+import chess.InvalidMoveException;
+import chess.ZobristHash;
+import chess.engine.MateSolver;
+import chess.engine.PuzzleValidator;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PuzzleValidatorTests {
+    // back rank: 1. Ra8#
+    private static final String MATE_IN_1 = "6k1/5ppp/8/8/8/8/8/R5K1 w - - 0 1";
+    // Morphy: 1. Ra6! (a quiet key) bxa6 2. b7#
+    private static final String MATE_IN_2 = "kbK5/pp6/1P6/8/8/8/8/R7 w - - 0 1";
+    // 1. Ra6+ (discovered check from the bishop) Rg7 2. Rxa8+ Rg8 3. Rxg8#
+    private static final String MATE_IN_3 = "r5rk/5p1p/5R2/4B3/8/8/7P/7K w - - 0 1";
+    // both 1. Ra8# and 1. Rb8#
+    private static final String TWO_KEYS = "6k1/5ppp/8/8/8/8/8/RR4K1 w - - 0 1";
+    // 1. Qc7?? stalemates, and nothing mates in 1 without the white king's help
+    private static final String STALEMATE_TRAP = "k7/8/1Q6/8/8/8/8/7K w - - 0 1";
+    // 1. Ra7 (quiet) and 2. Rb8#, which a checks-only search cannot find
+    private static final String QUIET_MATE_IN_2 = "4k3/8/8/8/8/8/R7/1R5K w - - 0 1";
+
+    private static String validate(String fen, int mateIn, boolean checksFirst) {
+        return PuzzleValidator.validate(fen, mateIn, new MateSolver(false), (checksFirst ? new MateSolver(true) : null));
+    }
+
+    @Test
+    public void validatePositive() {
+        // perform action, compare post-state (unique keys, with or without the checks-only first pass)
+        assertNull(validate(MATE_IN_1, 1, false));
+        assertNull(validate(MATE_IN_2, 2, false));
+        assertNull(validate(MATE_IN_2, 2, true));
+        assertNull(validate(MATE_IN_3, 3, true));
+        assertEquals(3, (new MateSolver(false)).mateIn(ChessNotation.parseFen(MATE_IN_3), 3));
+    }
+
+    @Test
+    public void validateNegative() {
+        // perform action, compare post-state
+        assertEquals("2 key moves mate in 1 [a1a8, b1b8]", validate(TWO_KEYS, 1, true));
+        assertEquals("no forced mate in 1", validate(STALEMATE_TRAP, 1, false));
+        assertEquals(-1, (new MateSolver(false)).mateIn(ChessNotation.parseFen(STALEMATE_TRAP), 1));
+        assertTrue(validate(MATE_IN_2, 3, false).startsWith("faster mate in 2"));
+        assertTrue(validate(MATE_IN_1, 2, true).startsWith("faster mate in 1"));
+        assertNotNull(validate("not a FEN", 1, false));
+        // a quiet key is still found (and only one accepted) with the checks-only first pass
+        assertEquals(-1, (new MateSolver(true)).mateIn(ChessNotation.parseFen(QUIET_MATE_IN_2), 2));
+        assertNotEquals("no forced mate in 2", validate(QUIET_MATE_IN_2, 2, true));
+        assertEquals(validate(QUIET_MATE_IN_2, 2, false), validate(QUIET_MATE_IN_2, 2, true));
+    }
+
+    @Test
+    public void positionHashNegative() throws InvalidMoveException {
+        // set pre-state (the same board, but only one side has kept its castling rights)
+        ChessGame castlingGame = new ChessGame();
+        ChessGame walkedGame = new ChessGame();
+        makeMoves(castlingGame, "e4", "e5", "Nf3", "Nf6", "Ng1", "Ng8");
+        makeMoves(walkedGame, "e4", "e5", "Ke2", "Ke7", "Ke1", "Ke8");
+        // perform action, compare post-state (the board hashes match, the position hashes do not)
+        assertEquals(castlingGame.getBoard(), walkedGame.getBoard());
+        assertEquals(ZobristHash.hash(castlingGame.getBoard(), castlingGame.getTeamTurn()),
+                ZobristHash.hash(walkedGame.getBoard(), walkedGame.getTeamTurn()));
+        assertNotEquals(castlingGame.positionHash(), walkedGame.positionHash());
+        // an en passant capture available only right after the double move
+        ChessGame enPassantGame = new ChessGame();
+        makeMoves(enPassantGame, "e4", "a6", "e5", "d5");
+        ChessGame laterGame = new ChessGame();
+        makeMoves(laterGame, "e3", "d6", "e4", "a6", "e5", "d5");
+        assertEquals(enPassantGame.getBoard(), laterGame.getBoard());
+        assertNotEquals(enPassantGame.positionHash(), laterGame.positionHash());
+    }
+
+    private static void makeMoves(ChessGame game, String... sanMoves) throws InvalidMoveException {
+        for (String san : sanMoves) {
+            game.makeMove(ChessNotation.parseSan(game, san));
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package openingTests;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessNotation;
+import chess.ChessPiece;
+import chess.ChessPosition;
+import chess.InvalidMoveException;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChessNotationTests {
+    // white knights on b1 and f3, white rooks on a1 and a5
+    private static final String TWO_KNIGHTS = "4k3/8/8/R7/8/5N2/8/RN2K3 w - - 0 1";
+    // a white pawn on b7 that can advance or capture the black rook on a8
+    private static final String PROMOTION = "r3k3/1P6/8/8/8/8/8/4K3 w - - 0 1";
+
+    private static ChessMove move(int startRow, int startCol, int endRow, int endCol) {
+        return new ChessMove(new ChessPosition(startRow, startCol), new ChessPosition(endRow, endCol), null);
+    }
+
+    @Test
+    public void parseSanPositive() throws InvalidMoveException {
+        // set pre-state
+        ChessGame italian = new ChessGame();
+        for (String san : new String[]{"e4", "e5", "Nf3", "Nc6", "Bc4", "Bc5"}) {
+            italian.makeMove(ChessNotation.parseSan(italian, san));
+        }
+        ChessGame knights = ChessNotation.parseFen(TWO_KNIGHTS);
+        ChessGame promotion = ChessNotation.parseFen(PROMOTION);
+        // perform action, compare post-state
+        assertEquals(move(1, 5, 1, 7), ChessNotation.parseSan(italian, "O-O"));
+        assertEquals(move(1, 5, 1, 7), ChessNotation.parseSan(italian, "0-0+"));
+        assertEquals(move(1, 2, 2, 4), ChessNotation.parseSan(knights, "Nbd2"));
+        assertEquals(move(3, 6, 2, 4), ChessNotation.parseSan(knights, "Nfd2!?"));
+        assertEquals(move(3, 6, 2, 4), ChessNotation.parseSan(knights, "Nf3d2"));
+        assertEquals(move(1, 1, 3, 1), ChessNotation.parseSan(knights, "R1a3"));
+        assertEquals(move(5, 1, 3, 1), ChessNotation.parseSan(knights, "R5a3"));
+        assertEquals(new ChessMove(new ChessPosition(7, 2), new ChessPosition(8, 2), ChessPiece.PieceType.QUEEN),
+                ChessNotation.parseSan(promotion, "b8=Q+"));
+        assertEquals(new ChessMove(new ChessPosition(7, 2), new ChessPosition(8, 2), ChessPiece.PieceType.ROOK),
+                ChessNotation.parseSan(promotion, "b8R"));
+        assertEquals(new ChessMove(new ChessPosition(7, 2), new ChessPosition(8, 1), ChessPiece.PieceType.KNIGHT),
+                ChessNotation.parseSan(promotion, "bxa8=N"));
+    }
+
+    @Test
+    public void parseSanNegative() throws InvalidMoveException {
+        // set pre-state
+        ChessGame italian = new ChessGame();
+        for (String san : new String[]{"e4", "e5", "Nf3", "Nc6", "Bc4", "Bc5"}) {
+            italian.makeMove(ChessNotation.parseSan(italian, san));
+        }
+        ChessGame knights = ChessNotation.parseFen(TWO_KNIGHTS);
+        ChessGame promotion = ChessNotation.parseFen(PROMOTION);
+        // perform action, compare post-state (blocked castling, ambiguous, malformed, and illegal moves are rejected)
+        assertThrows(InvalidMoveException.class, (() -> ChessNotation.parseSan(italian, "O-O-O")));
+        assertThrows(InvalidMoveException.class, (() -> ChessNotation.parseSan(knights, "Nd2")));
+        assertThrows(InvalidMoveException.class, (() -> ChessNotation.parseSan(knights, "Ra3")));
+        assertThrows(InvalidMoveException.class, (() -> ChessNotation.parseSan(knights, "Nzd2")));
+        assertThrows(InvalidMoveException.class, (() -> ChessNotation.parseSan(knights, "Xd2")));
+        assertThrows(InvalidMoveException.class, (() -> ChessNotation.parseSan(knights, "N")));
+        assertThrows(InvalidMoveException.class, (() -> ChessNotation.parseSan(knights, "Ne6")));
+        // a pawn reaching the last rank must name its promotion
+        assertThrows(InvalidMoveException.class, (() -> ChessNotation.parseSan(promotion, "b8")));
+        assertThrows(InvalidMoveException.class, (() -> ChessNotation.parseSan(promotion, "b8=K")));
+    }
+}
@@ -0,0 +1,128 @@
+package openingTests;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessNotation;
+import chess.InvalidMoveException;
+import chess.ZobristHash;
+import chess.openings.OpeningBook;
+import chess.openings.OpeningBookBuilder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OpeningBookTests {
+    private static final String PGN = """
+            [Event "?"]
+            [ECO "C50"]
+            [Opening "Italian Game"]
+
+            1. e4 e5 2. Nf3 Nc6 3. Bc4 *
+
+            [ECO "B22"]
+            [Opening "Sicilian"]
+            [Variation "Alapin"]
+
+            1. e4 c5 {the Sicilian} (1... e5) 2. c3 *
+            """;
+
+    @TempDir
+    Path bookDirectory;
+    private OpeningBook book;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        Path bookFile = this.bookDirectory.resolve("openings.book");
+        assertEquals(2, OpeningBookBuilder.build(new StringReader(PGN), bookFile));
+        this.book = OpeningBook.open(bookFile);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        OpeningBook.install(null);
+    }
+
+    private static ChessGame play(String... sanMoves) throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        for (String san : sanMoves) {
+            game.makeMove(ChessNotation.parseSan(game, san));
+        }
+        return game;
+    }
+
+    private int find(ChessGame game) {
+        return this.book.find(ZobristHash.hash(game.getBoard(), game.getTeamTurn()));
+    }
+
+    @Test
+    public void findPositive() throws InvalidMoveException {
+        // perform action, compare post-state (each line names its final position)
+        assertEquals(2, this.book.size());
+        assertEquals(5, this.book.getMaxPly());
+        int italian = this.find(play("e4", "e5", "Nf3", "Nc6", "Bc4"));
+        assertEquals("C50 Italian Game", this.book.getLabel(italian));
+        int alapin = this.find(play("e4", "c5", "c3"));
+        assertEquals("B22", this.book.getEcoCode(alapin));
+        assertEquals("Sicilian, Alapin", this.book.getName(alapin));
+        // a transposition reaches the same position
+        assertEquals(italian, this.find(play("Nf3", "Nc6", "e4", "e5", "Bc4")));
+    }
+
+    @Test
+    public void findNegative() throws InvalidMoveException {
+        // perform action, compare post-state (positions along a line, off the lines, and in a variation are misses)
+        assertEquals(-1, this.find(new ChessGame()));
+        assertEquals(-1, this.find(play("e4", "e5", "Nf3", "Nc6")));
+        assertEquals(-1, this.find(play("e4", "e5")));
+        assertEquals(-1, this.find(play("d4", "d5", "c4")));
+        // the same board with the other team to move
+        ChessGame italian = play("e4", "e5", "Nf3", "Nc6", "Bc4");
+        assertEquals(-1, this.book.find(ZobristHash.hash(italian.getBoard(), ChessGame.TeamColor.WHITE)));
+        assertThrows(IOException.class, (() -> OpeningBook.open(Files.writeString(
+                this.bookDirectory.resolve("bad.book"), "not a book"))));
+    }
+
+    @Test
+    public void classifyPositive() throws InvalidMoveException {
+        // set pre-state
+        OpeningBook.install(this.book);
+        List<String> line = List.of("e4", "e5", "Nf3", "Nc6", "Bc4", "Bc5", "O-O");
+        // perform action
+        ChessGame played = new ChessGame();
+        List<ChessMove> moves = new ArrayList<>();
+        for (String san : line) {
+            moves.add(ChessNotation.parseSan(played, san));
+            played.makeMove(moves.getLast());
+        }
+        ChessGame replayed = new ChessGame();
+        replayed.replayMoves(moves.subList(0, 5));
+        // a replay from the start past the end of the book line, as when a game is loaded from an early snapshot
+        ChessGame replayedPastBook = new ChessGame();
+        replayedPastBook.replayMoves(moves);
+        // compare post-state (the label is kept after leaving the book, whether the moves were made or replayed)
+        assertEquals("C50 Italian Game", played.getOpening());
+        assertEquals("C50 Italian Game", replayed.getOpening());
+        assertEquals(ChessGame.TeamColor.BLACK, replayed.getTeamTurn());
+        assertEquals("C50 Italian Game", replayedPastBook.getOpening());
+        assertEquals(line.size(), replayedPastBook.getMoveCount());
+    }
+
+    @Test
+    public void classifyNegative() throws InvalidMoveException {
+        // perform action, compare post-state (no label without an installed book, or before reaching a book position)
+        assertNull(play("e4", "e5", "Nf3", "Nc6", "Bc4").getOpening());
+        OpeningBook.install(this.book);
+        assertNull(play("e4", "e5", "Nf3", "Nc6").getOpening());
+        assertNull(play("d4", "d5", "c4", "e6", "Nc3", "Nf6").getOpening());
+    }
+}
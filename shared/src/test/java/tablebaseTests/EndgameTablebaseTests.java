@@ -0,0 +1,81 @@
+package tablebaseTests;
+
+import chess.ChessGame;
+import chess.ChessNotation;
+import chess.tablebases.EndgameTablebase;
+import chess.tablebases.EndgameTablebase.Outcome;
+import chess.tablebases.EndgameTablebase.ProbeResult;
+import chess.tablebases.TablebaseGenerator;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EndgameTablebaseTests {
+    @TempDir
+    static Path tableDirectory;
+    private static EndgameTablebase tablebase;
+
+    @BeforeAll
+    public static void generateTables() throws IOException {
+        TablebaseGenerator generator = new TablebaseGenerator(new EndgameTablebase(),
+                Runtime.getRuntime().availableProcessors());
+        generator.generate("KQvK", tableDirectory);
+        generator.generate("KvKR", tableDirectory);
+        tablebase = EndgameTablebase.open(tableDirectory);
+    }
+
+    private static ProbeResult probe(String fen) {
+        ChessGame game = ChessNotation.parseFen(fen);
+        return tablebase.probe(game.getBoard(), game.getTeamTurn());
+    }
+
+    private static int maxMovesToMate(String signatureName) throws IOException {
+        byte[] file = Files.readAllBytes(tableDirectory.resolve(signatureName + EndgameTablebase.FILE_EXTENSION));
+        int max = 0;
+        for (int i = EndgameTablebase.HEADER_SIZE; i < file.length; ++i) {
+            max = Math.max(max, file[i]);
+        }
+        return max;
+    }
+
+    @Test
+    public void generatePositive() throws IOException {
+        // perform action, compare post-state (tables are written in canonical orientation with the known longest mates)
+        assertTrue(tablebase.hasTable("KQvK"));
+        assertTrue(tablebase.hasTable("KRvK"));
+        assertFalse(tablebase.hasTable("KvKR"));
+        assertEquals(10, maxMovesToMate("KQvK"));
+        assertEquals(16, maxMovesToMate("KRvK"));
+    }
+
+    @Test
+    public void probePositive() {
+        // perform action, compare post-state
+        assertEquals(new ProbeResult(Outcome.WIN, 1), probe("k7/2Q5/1K6/8/8/8/8/8 w - - 0 1"));
+        assertEquals(new ProbeResult(Outcome.WIN, 1), probe("k7/8/1K6/8/8/8/8/7R w - - 0 1"));
+        assertEquals(new ProbeResult(Outcome.LOSS, 0), probe("k7/1Q6/1K6/8/8/8/8/8 b - - 0 1"));
+        // black holds the queen: answered from the mirrored KQvK table
+        assertEquals(new ProbeResult(Outcome.WIN, 1), probe("8/8/8/8/8/1k6/2q5/K7 b - - 0 1"));
+        assertEquals(new ProbeResult(Outcome.LOSS, 0), probe("8/8/8/8/8/1k6/1q6/K7 w - - 0 1"));
+        // bare kings need no table
+        assertEquals(new ProbeResult(Outcome.DRAW, 0), probe("k7/8/1K6/8/8/8/8/8 w - - 0 1"));
+    }
+
+    @Test
+    public void probeNegative() {
+        // perform action, compare post-state (the same boards with the other side to move are stalemates)
+        assertEquals(new ProbeResult(Outcome.DRAW, 0), probe("k7/2Q5/1K6/8/8/8/8/8 b - - 0 1"));
+        assertEquals(new ProbeResult(Outcome.DRAW, 0), probe("8/8/8/8/8/1k6/2q5/K7 w - - 0 1"));
+        // the lone king can capture an unprotected rook
+        assertEquals(new ProbeResult(Outcome.DRAW, 0), probe("k7/1R6/8/8/8/8/8/7K b - - 0 1"));
+        // no table for the material
+        assertNull(probe("k7/8/1K6/8/8/8/8/6BN w - - 0 1"));
+        assertNull(probe("k7/pp6/1K6/8/8/8/8/6BN w - - 0 1"));
+    }
+}